@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2018 Frank Jennings
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fj.fastgraph;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * The neighbor rows of a graph, indexed by internal vertex ID. Rows are sorted
+ * by neighbor ID.
+ *
+ * @author Frank Jennings
+ */
+interface Adjacency extends NeighborRows, AutoCloseable {
+
+    /**
+     * Get the format of this adjacency
+     *
+     * @return The storage format
+     */
+    AdjacencyFormat getFormat();
+
+    /**
+     * Get where the rows are kept
+     *
+     * @return The storage mode
+     */
+    StorageMode getStorageMode();
+
+    /**
+     * Get the number of rows
+     *
+     * @return The vertices count
+     */
+    int getVerticesCount();
+
+    /**
+     * Get the memory held by the rows
+     *
+     * @return The approximate size in bytes
+     */
+    long sizeInBytes();
+
+    /**
+     * Write the rows to a snapshot
+     *
+     * @param out The snapshot stream
+     * @throws IOException If the rows cannot be written
+     */
+    void write(DataOutputStream out) throws IOException;
+
+    /**
+     * Release the memory held by the rows
+     */
+    @Override
+    void close();
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright (C) 2018 Frank Jennings
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fj.fastgraph;
+
+/**
+ * How the neighbor rows of a graph are stored in memory
+ *
+ * @author Frank Jennings
+ */
+public enum AdjacencyFormat {
+
+    /**
+     * Compressed sparse rows of plain int arrays. Fastest, uses 8 bytes for
+     * every neighbor entry.
+     */
+    CSR,
+    /**
+     * Sorted rows stored as varint-encoded gaps between neighbor IDs, each
+     * followed by a varint-encoded step between edge IDs. Usually 2 to 6
+     * bytes for every neighbor entry, decoded on the fly.
+     */
+    COMPRESSED
+}
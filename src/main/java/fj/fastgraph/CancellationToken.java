@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2018 Frank Jennings
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fj.fastgraph;
+
+import java.time.Duration;
+
+/**
+ * Stops queries that take too long. A token can have a deadline, be
+ * cancelled from another thread, or both. The queries taking a token check it
+ * between the hops of a traversal or every few hundred vertices of a scan,
+ * and return what they have found so far once it fires. One token can bound
+ * several queries.
+ *
+ * @author Frank Jennings
+ */
+public final class CancellationToken {
+
+    private final long deadline;
+    private final boolean hasDeadline;
+    private volatile boolean cancelled;
+
+    /**
+     * Create a token without a deadline, fired by cancel only
+     */
+    public CancellationToken() {
+        this.deadline = 0;
+        this.hasDeadline = false;
+    }
+
+    private CancellationToken(long deadline) {
+        this.deadline = deadline;
+        this.hasDeadline = true;
+    }
+
+    /**
+     * Create a token that fires once a time has passed. It can also be
+     * cancelled before that.
+     *
+     * @param timeout The time the queries are allowed to run, from now
+     * @return The token
+     */
+    public static CancellationToken withTimeout(Duration timeout) {
+        long nanos;
+        try {
+            nanos = timeout.toNanos();
+        } catch (ArithmeticException ex) {
+            //Longer than 292 years
+            return new CancellationToken();
+        }
+        return new CancellationToken(System.nanoTime() + Math.max(nanos, 0));
+    }
+
+    /**
+     * Stop the queries using this token
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Find if cancel was called
+     *
+     * @return True if the token was cancelled
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Find if the deadline has passed
+     *
+     * @return True if the token has a deadline and it has passed
+     */
+    public boolean isExpired() {
+        return hasDeadline && System.nanoTime() - deadline >= 0;
+    }
+
+    /**
+     * Check the token
+     *
+     * @return CANCELLED or TIMED_OUT if the token fired, COMPLETE otherwise
+     */
+    QueryStatus check() {
+        if (cancelled) {
+            return QueryStatus.CANCELLED;
+        }
+        if (isExpired()) {
+            return QueryStatus.TIMED_OUT;
+        }
+        return QueryStatus.COMPLETE;
+    }
+}
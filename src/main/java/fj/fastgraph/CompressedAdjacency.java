@@ -0,0 +1,307 @@
+/*
+ * Copyright (C) 2018 Frank Jennings
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fj.fastgraph;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Sorted neighbor rows stored as gaps between consecutive neighbor IDs, each
+ * gap written as a varint (7 bits per byte, high bit set on all but the last
+ * byte). Every gap is followed by the difference between its edge ID and the
+ * edge ID of the previous entry, zigzag encoded so that small negative steps
+ * stay short. A row starts with its degree, also as a varint. The bytes live
+ * in pages of at most PAGE_SIZE so graphs larger than one array can be held,
+ * and a row never crosses a page.
+ *
+ * @author Frank Jennings
+ */
+final class CompressedAdjacency implements Adjacency {
+
+    private static final int PAGE_SIZE = 1 << 27;
+    //A varint of an int never takes more than 5 bytes
+    private static final int MAX_VARINT_BYTES = 5;
+
+    private final byte[][] pages;
+    //Row start of every vertex, packed as (page << 32) | position
+    private final long[] offsets;
+
+    private CompressedAdjacency(byte[][] pages, long[] offsets) {
+        this.pages = pages;
+        this.offsets = offsets;
+    }
+
+    /**
+     * Encode any adjacency into compressed rows
+     *
+     * @param source The adjacency to encode
+     * @return The compressed adjacency
+     */
+    static CompressedAdjacency encode(Adjacency source) {
+        int verticesCount = source.getVerticesCount();
+        Encoder encoder = new Encoder(verticesCount);
+        NeighborCursor cursor = source.cursor();
+        for (int v = 0; v < verticesCount; v++) {
+            encoder.startRow(v, source.degree(v));
+            cursor.reset(v);
+            while (cursor.next()) {
+                encoder.add(cursor.neighbor(), cursor.edge());
+            }
+        }
+        return encoder.finish();
+    }
+
+    static CompressedAdjacency read(DataInputStream in) throws IOException {
+        int verticesCount = in.readInt();
+        long[] offsets = SnapshotIO.readLongArray(in, verticesCount);
+        return new CompressedAdjacency(readPages(in), offsets);
+    }
+
+    /**
+     * Read rows saved before the edge IDs were stored, which hold the
+     * neighbor gaps only, and encode them again with their edge IDs
+     *
+     * @param in The snapshot stream
+     * @param edgeIndex The edge index used to resolve edge IDs
+     * @param reversed True for the in rows of a directed graph, whose edges
+     * lead from the neighbor
+     * @return The compressed adjacency
+     * @throws IOException If the rows cannot be read
+     */
+    static CompressedAdjacency readWithoutEdges(DataInputStream in, EdgeIndex edgeIndex, boolean reversed) throws IOException {
+        int verticesCount = in.readInt();
+        long[] offsets = SnapshotIO.readLongArray(in, verticesCount);
+        byte[][] pages = readPages(in);
+
+        Encoder encoder = new Encoder(verticesCount);
+        int[] position = new int[1];
+        for (int v = 0; v < verticesCount; v++) {
+            byte[] page = pages[(int) (offsets[v] >>> 32)];
+            position[0] = (int) offsets[v];
+            int degree = readVarint(page, position);
+            encoder.startRow(v, degree);
+            int neighbor = -1;
+            for (int i = 0; i < degree; i++) {
+                neighbor += readVarint(page, position) + 1;
+                int EID = reversed ? edgeIndex.get(neighbor, v) : edgeIndex.get(v, neighbor);
+                encoder.add(neighbor, EID - 1);
+            }
+        }
+        return encoder.finish();
+    }
+
+    private static byte[][] readPages(DataInputStream in) throws IOException {
+        byte[][] pages = new byte[in.readInt()][];
+        for (int i = 0; i < pages.length; i++) {
+            pages[i] = new byte[in.readInt()];
+            in.readFully(pages[i]);
+        }
+        return pages;
+    }
+
+    @Override
+    public void write(DataOutputStream out) throws IOException {
+        out.writeInt(offsets.length);
+        SnapshotIO.writeLongArray(out, offsets, offsets.length);
+        out.writeInt(pages.length);
+        for (byte[] page : pages) {
+            out.writeInt(page.length);
+            out.write(page);
+        }
+    }
+
+    @Override
+    public void close() {
+        //Heap pages only
+    }
+
+    private static int writeVarint(byte[] page, int position, int value) {
+        while ((value & ~0x7F) != 0) {
+            page[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        page[position++] = (byte) value;
+        return position;
+    }
+
+    private static int readVarint(byte[] page, int[] position) {
+        int value = 0;
+        for (int shift = 0;; shift += 7) {
+            byte b = page[position[0]++];
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+
+    /**
+     * Writes rows one after the other into pages
+     */
+    private static final class Encoder {
+
+        private final long[] offsets;
+        private final ArrayList<byte[]> pages = new ArrayList<>();
+        private byte[] page = new byte[0];
+        private int position;
+        private int previousNeighbor;
+        private int previousEdge;
+
+        private Encoder(int verticesCount) {
+            offsets = new long[verticesCount];
+        }
+
+        private void startRow(int IVID, int degree) {
+            //A neighbor gap and an edge step for every entry
+            long maxRowBytes = (long) MAX_VARINT_BYTES * (2L * degree + 1);
+            if (position + maxRowBytes > page.length) {
+                if (!pages.isEmpty()) {
+                    pages.set(pages.size() - 1, Arrays.copyOf(page, position));
+                }
+                page = new byte[(int) Math.max(PAGE_SIZE, maxRowBytes)];
+                pages.add(page);
+                position = 0;
+            }
+            offsets[IVID] = ((long) (pages.size() - 1) << 32) | position;
+            position = writeVarint(page, position, degree);
+            previousNeighbor = -1;
+            previousEdge = -1;
+        }
+
+        private void add(int neighbor, int edge) {
+            position = writeVarint(page, position, neighbor - previousNeighbor - 1);
+            int step = edge - previousEdge;
+            position = writeVarint(page, position, (step << 1) ^ (step >> 31));
+            previousNeighbor = neighbor;
+            previousEdge = edge;
+        }
+
+        private CompressedAdjacency finish() {
+            if (!pages.isEmpty()) {
+                pages.set(pages.size() - 1, Arrays.copyOf(page, position));
+            }
+            return new CompressedAdjacency(pages.toArray(new byte[pages.size()][]), offsets);
+        }
+    }
+
+    @Override
+    public AdjacencyFormat getFormat() {
+        return AdjacencyFormat.COMPRESSED;
+    }
+
+    @Override
+    public StorageMode getStorageMode() {
+        return StorageMode.HEAP;
+    }
+
+    @Override
+    public int getVerticesCount() {
+        return offsets.length;
+    }
+
+    @Override
+    public int degree(int IVID) {
+        byte[] page = pages[(int) (offsets[IVID] >>> 32)];
+        int position = (int) offsets[IVID];
+        int value = 0;
+        for (int shift = 0;; shift += 7) {
+            byte b = page[position++];
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+
+    @Override
+    public NeighborCursor cursor() {
+        return new Cursor();
+    }
+
+    @Override
+    public long sizeInBytes() {
+        long size = 8L * offsets.length;
+        for (byte[] page : pages) {
+            size += page.length;
+        }
+        return size;
+    }
+
+    private final class Cursor implements NeighborCursor {
+
+        private byte[] page;
+        private int position;
+        private int remaining;
+        private int current;
+        private int currentEdge;
+
+        @Override
+        public void reset(int IVID) {
+            page = pages[(int) (offsets[IVID] >>> 32)];
+            position = (int) offsets[IVID];
+            remaining = readVarint();
+            current = -1;
+            currentEdge = -1;
+        }
+
+        @Override
+        public boolean next() {
+            if (remaining == 0) {
+                return false;
+            }
+            remaining--;
+            current += readVarint() + 1;
+            int step = readVarint();
+            currentEdge += (step >>> 1) ^ -(step & 1);
+            return true;
+        }
+
+        @Override
+        public boolean skipPast(int IVID) {
+            while (next()) {
+                if (current > IVID) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public int neighbor() {
+            return current;
+        }
+
+        @Override
+        public int edge() {
+            return currentEdge;
+        }
+
+        private int readVarint() {
+            int value = 0;
+            for (int shift = 0;; shift += 7) {
+                byte b = page[position++];
+                value |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,275 @@
+/*
+ * Copyright (C) 2018 Frank Jennings
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fj.fastgraph;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Compressed sparse rows. The neighbors of vertex v are
+ * targets[offsets[v]..offsets[v+1]) sorted by internal ID, along with the edge
+ * they are reached by. The arrays can be on the heap or off-heap.
+ *
+ * @author Frank Jennings
+ */
+final class CsrAdjacency implements Adjacency {
+
+    private final IntArray offsets;
+    private final IntArray targets;
+    private final IntArray edges;
+
+    CsrAdjacency(IntArray offsets, IntArray targets, IntArray edges) {
+        this.offsets = offsets;
+        this.targets = targets;
+        this.edges = edges;
+    }
+
+    /**
+     * Build the sorted rows from edge arrays. The rows are filled twice: once
+     * in edge order, then again by walking the first rows in vertex order,
+     * which leaves every row sorted without a sort step.
+     *
+     * @param verticesCount The number of vertices
+     * @param sources The source of every edge
+     * @param destinations The destination of every edge
+     * @param edgesCount The number of edges
+     * @return The adjacency, on the heap
+     */
+    static CsrAdjacency build(int verticesCount, IntArray sources, IntArray destinations, int edgesCount) {
+        int[] offsets = new int[verticesCount + 1];
+        for (int e = 0; e < edgesCount; e++) {
+            offsets[sources.get(e) + 1]++;
+            if (sources.get(e) != destinations.get(e)) {
+                offsets[destinations.get(e) + 1]++;
+            }
+        }
+        for (int v = 0; v < verticesCount; v++) {
+            offsets[v + 1] += offsets[v];
+        }
+
+        int[] cursor = Arrays.copyOf(offsets, verticesCount);
+        int[] unsortedTargets = new int[offsets[verticesCount]];
+        int[] unsortedEdges = new int[offsets[verticesCount]];
+        for (int e = 0; e < edgesCount; e++) {
+            int source = sources.get(e);
+            int target = destinations.get(e);
+            unsortedTargets[cursor[source]] = target;
+            unsortedEdges[cursor[source]++] = e;
+            if (source != target) {
+                unsortedTargets[cursor[target]] = source;
+                unsortedEdges[cursor[target]++] = e;
+            }
+        }
+
+        System.arraycopy(offsets, 0, cursor, 0, verticesCount);
+        int[] targets = new int[offsets[verticesCount]];
+        int[] edges = new int[offsets[verticesCount]];
+        for (int v = 0; v < verticesCount; v++) {
+            for (int i = offsets[v]; i < offsets[v + 1]; i++) {
+                int neighbor = unsortedTargets[i];
+                targets[cursor[neighbor]] = v;
+                edges[cursor[neighbor]++] = unsortedEdges[i];
+            }
+        }
+        return new CsrAdjacency(IntArray.wrap(offsets), IntArray.wrap(targets), IntArray.wrap(edges));
+    }
+
+    /**
+     * Build the sorted rows of one direction from edge arrays. Every edge is
+     * put in the row of its destination first, then walking those rows in
+     * vertex order fills the rows of the sources already sorted.
+     *
+     * @param verticesCount The number of vertices
+     * @param sources The vertex of every edge whose row gets the edge
+     * @param destinations The vertex the edge leads to
+     * @param edgesCount The number of edges
+     * @return The adjacency, on the heap
+     */
+    static CsrAdjacency buildDirected(int verticesCount, IntArray sources, IntArray destinations, int edgesCount) {
+        int[] inOffsets = new int[verticesCount + 1];
+        int[] offsets = new int[verticesCount + 1];
+        for (int e = 0; e < edgesCount; e++) {
+            inOffsets[destinations.get(e) + 1]++;
+            offsets[sources.get(e) + 1]++;
+        }
+        for (int v = 0; v < verticesCount; v++) {
+            inOffsets[v + 1] += inOffsets[v];
+            offsets[v + 1] += offsets[v];
+        }
+
+        int[] cursor = Arrays.copyOf(inOffsets, verticesCount);
+        int[] unsortedSources = new int[edgesCount];
+        int[] unsortedEdges = new int[edgesCount];
+        for (int e = 0; e < edgesCount; e++) {
+            int destination = destinations.get(e);
+            unsortedSources[cursor[destination]] = sources.get(e);
+            unsortedEdges[cursor[destination]++] = e;
+        }
+
+        System.arraycopy(offsets, 0, cursor, 0, verticesCount);
+        int[] targets = new int[edgesCount];
+        int[] edges = new int[edgesCount];
+        for (int v = 0; v < verticesCount; v++) {
+            for (int i = inOffsets[v]; i < inOffsets[v + 1]; i++) {
+                int source = unsortedSources[i];
+                targets[cursor[source]] = v;
+                edges[cursor[source]++] = unsortedEdges[i];
+            }
+        }
+        return new CsrAdjacency(IntArray.wrap(offsets), IntArray.wrap(targets), IntArray.wrap(edges));
+    }
+
+    /**
+     * Decode any adjacency into plain rows
+     *
+     * @param source The adjacency to copy
+     * @param mode Where the rows are kept
+     * @return The adjacency as compressed sparse rows
+     */
+    static CsrAdjacency copyOf(Adjacency source, StorageMode mode) {
+        int verticesCount = source.getVerticesCount();
+        IntArray offsets = IntArray.allocate(verticesCount + 1, mode);
+        for (int v = 0; v < verticesCount; v++) {
+            offsets.set(v + 1, offsets.get(v) + source.degree(v));
+        }
+        IntArray targets = IntArray.allocate(offsets.get(verticesCount), mode);
+        IntArray edges = IntArray.allocate(offsets.get(verticesCount), mode);
+        NeighborCursor cursor = source.cursor();
+        for (int v = 0; v < verticesCount; v++) {
+            cursor.reset(v);
+            for (int i = offsets.get(v); cursor.next(); i++) {
+                targets.set(i, cursor.neighbor());
+                edges.set(i, cursor.edge());
+            }
+        }
+        return new CsrAdjacency(offsets, targets, edges);
+    }
+
+    static CsrAdjacency read(DataInputStream in, StorageMode mode) throws IOException {
+        int verticesCount = in.readInt();
+        IntArray offsets = SnapshotIO.readIntArray(in, verticesCount + 1, mode);
+        IntArray targets = SnapshotIO.readIntArray(in, offsets.get(verticesCount), mode);
+        IntArray edges = SnapshotIO.readIntArray(in, offsets.get(verticesCount), mode);
+        return new CsrAdjacency(offsets, targets, edges);
+    }
+
+    @Override
+    public void write(DataOutputStream out) throws IOException {
+        int verticesCount = getVerticesCount();
+        writeOffsets(out, offsets, verticesCount);
+        SnapshotIO.writeIntArray(out, targets, offsets.get(verticesCount));
+        SnapshotIO.writeIntArray(out, edges, offsets.get(verticesCount));
+    }
+
+    /**
+     * Write the start of the rows, which is followed by the neighbors then
+     * the edges of every entry in row order. Shared with ExternalGraphBuilder,
+     * which streams the entries.
+     *
+     * @param out The snapshot stream
+     * @param offsets The row offsets, verticesCount + 1 of them
+     * @param verticesCount The number of vertices
+     * @throws IOException If the rows cannot be written
+     */
+    static void writeOffsets(DataOutputStream out, IntArray offsets, int verticesCount) throws IOException {
+        out.writeInt(verticesCount);
+        SnapshotIO.writeIntArray(out, offsets, verticesCount + 1);
+    }
+
+    @Override
+    public void close() {
+        offsets.close();
+        targets.close();
+        edges.close();
+    }
+
+    @Override
+    public AdjacencyFormat getFormat() {
+        return AdjacencyFormat.CSR;
+    }
+
+    @Override
+    public StorageMode getStorageMode() {
+        return offsets.getStorageMode();
+    }
+
+    @Override
+    public int getVerticesCount() {
+        return offsets.length() - 1;
+    }
+
+    @Override
+    public int degree(int IVID) {
+        return offsets.get(IVID + 1) - offsets.get(IVID);
+    }
+
+    @Override
+    public NeighborCursor cursor() {
+        return new Cursor();
+    }
+
+    @Override
+    public long sizeInBytes() {
+        return offsets.sizeInBytes() + targets.sizeInBytes() + edges.sizeInBytes();
+    }
+
+    private final class Cursor implements NeighborCursor {
+
+        private int position;
+        private int end;
+
+        @Override
+        public void reset(int IVID) {
+            position = offsets.get(IVID) - 1;
+            end = offsets.get(IVID + 1);
+        }
+
+        @Override
+        public boolean next() {
+            return ++position < end;
+        }
+
+        @Override
+        public boolean skipPast(int IVID) {
+            //Binary search the rest of the row
+            int low = position + 1;
+            int high = end;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (targets.get(mid) <= IVID) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            position = low;
+            return position < end;
+        }
+
+        @Override
+        public int neighbor() {
+            return targets.get(position);
+        }
+
+        @Override
+        public int edge() {
+            return edges.get(position);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright (C) 2018 Frank Jennings
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fj.fastgraph;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * The rows of a directed graph. The out rows and the in rows are kept apart
+ * and read alone by the queries that follow one direction. As an Adjacency,
+ * a row is the union of both, merged while it is read, so that the
+ * undirected analytics see every neighbor once. A neighbor linked both ways
+ * is reached by its out edge.
+ *
+ * @author Frank Jennings
+ */
+final class DirectedAdjacency implements Adjacency {
+
+    private final Adjacency out;
+    private final Adjacency in;
+    //Number of distinct neighbors in both directions
+    private final int[] degrees;
+
+    DirectedAdjacency(Adjacency out, Adjacency in) {
+        this.out = out;
+        this.in = in;
+        degrees = new int[out.getVerticesCount()];
+        NeighborCursor cursor = cursor();
+        for (int IVID = 0; IVID < degrees.length; IVID++) {
+            int degree = 0;
+            cursor.reset(IVID);
+            while (cursor.next()) {
+                degree++;
+            }
+            degrees[IVID] = degree;
+        }
+    }
+
+    /**
+     * Get the rows of the edges leaving the vertices
+     *
+     * @return The out rows
+     */
+    Adjacency getOut() {
+        return out;
+    }
+
+    /**
+     * Get the rows of the edges reaching the vertices
+     *
+     * @return The in rows
+     */
+    Adjacency getIn() {
+        return in;
+    }
+
+    @Override
+    public AdjacencyFormat getFormat() {
+        return out.getFormat();
+    }
+
+    @Override
+    public StorageMode getStorageMode() {
+        return out.getStorageMode();
+    }
+
+    @Override
+    public int getVerticesCount() {
+        return degrees.length;
+    }
+
+    @Override
+    public int degree(int IVID) {
+        return degrees[IVID];
+    }
+
+    @Override
+    public NeighborCursor cursor() {
+        return new Cursor();
+    }
+
+    @Override
+    public long sizeInBytes() {
+        return out.sizeInBytes() + in.sizeInBytes() + 4L * degrees.length;
+    }
+
+    /**
+     * Write the out rows then the in rows
+     *
+     * @param output The snapshot stream
+     * @throws IOException If the rows cannot be written
+     */
+    @Override
+    public void write(DataOutputStream output) throws IOException {
+        out.write(output);
+        in.write(output);
+    }
+
+    @Override
+    public void close() {
+        out.close();
+        in.close();
+    }
+
+    /**
+     * Merges an out row and an in row. Each side stays on its next neighbor
+     * until it is taken.
+     */
+    private final class Cursor implements NeighborCursor {
+
+        private final NeighborCursor outCursor = out.cursor();
+        private final NeighborCursor inCursor = in.cursor();
+        private boolean outPending;
+        private boolean inPending;
+        private int current;
+        private int edge;
+
+        @Override
+        public void reset(int IVID) {
+            outCursor.reset(IVID);
+            inCursor.reset(IVID);
+            outPending = outCursor.next();
+            inPending = inCursor.next();
+        }
+
+        @Override
+        public boolean next() {
+            if (outPending && (!inPending || outCursor.neighbor() <= inCursor.neighbor())) {
+                current = outCursor.neighbor();
+                edge = outCursor.edge();
+                if (inPending && inCursor.neighbor() == current) {
+                    inPending = inCursor.next();
+                }
+                outPending = outCursor.next();
+                return true;
+            }
+            if (inPending) {
+                current = inCursor.neighbor();
+                edge = inCursor.edge();
+                inPending = inCursor.next();
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public boolean skipPast(int IVID) {
+            if (outPending && outCursor.neighbor() <= IVID) {
+                outPending = outCursor.skipPast(IVID);
+            }
+            if (inPending && inCursor.neighbor() <= IVID) {
+                inPending = inCursor.skipPast(IVID);
+            }
+            return next();
+        }
+
+        @Override
+        public int neighbor() {
+            return current;
+        }
+
+        @Override
+        public int edge() {
+            return edge;
+        }
+    }
+}
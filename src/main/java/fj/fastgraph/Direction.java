@@ -0,0 +1,40 @@
+/*
+ * Copyright (C) 2018 Frank Jennings
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fj.fastgraph;
+
+/**
+ * Which edges of a vertex are followed in a directed graph. In an undirected
+ * graph every direction follows all the edges.
+ *
+ * @author Frank Jennings
+ */
+public enum Direction {
+
+    /**
+     * The edges leaving the vertex, from the first column to the second
+     * column of the edges file
+     */
+    OUT,
+    /**
+     * The edges reaching the vertex
+     */
+    IN,
+    /**
+     * All the edges, as in an undirected graph
+     */
+    BOTH
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright (C) 2018 Frank Jennings
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fj.fastgraph;
+
+/**
+ * An open-addressing hash index from an undirected vertex pair to its edge
+ * ID. The pair is packed into a single long as (min, max) so that a:b and b:a
+ * resolve to the same slot. A directed index packs the pair as (source,
+ * destination) instead, so a:b and b:a are 2 edges. Lookups do not allocate.
+ *
+ * @author Frank Jennings
+ */
+final class EdgeIndex {
+
+    private static final int MIN_CAPACITY = 16;
+    //Largest power of 2 an array can hold
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private long[] keys;
+    //Edge IDs, 0 marks an empty slot
+    private int[] values;
+    private int size;
+    private int mask;
+    private int resizeAt;
+    private final boolean directed;
+
+    EdgeIndex() {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * Create an index sized for the expected number of edges
+     *
+     * @param expectedEdges The number of edges expected to be added
+     */
+    EdgeIndex(int expectedEdges) {
+        this(expectedEdges, false);
+    }
+
+    /**
+     * Create an index sized for the expected number of edges
+     *
+     * @param expectedEdges The number of edges expected to be added
+     * @param directed Keep a:b and b:a apart
+     */
+    EdgeIndex(int expectedEdges, boolean directed) {
+        this.directed = directed;
+        int capacity = MIN_CAPACITY;
+        while (capacity < expectedEdges * 2L && capacity < MAX_CAPACITY) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+
+    /**
+     * Pack two vertex IDs into an order-independent key
+     *
+     * @param VID1 Vertex 1
+     * @param VID2 Vertex 2
+     * @return The packed key
+     */
+    static long pack(int VID1, int VID2) {
+        int min = Math.min(VID1, VID2);
+        int max = Math.max(VID1, VID2);
+        return ((long) min << 32) | (max & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Get the edge ID between 2 vertices
+     *
+     * @param VID1 Vertex 1, the source in a directed index
+     * @param VID2 Vertex 2, the destination in a directed index
+     * @return The edge ID or -1 if the vertices are not connected
+     */
+    int get(int VID1, int VID2) {
+        long key = key(VID1, VID2);
+        int slot = mix(key) & mask;
+        while (values[slot] != 0) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Find if 2 vertices share an edge
+     *
+     * @param VID1 Vertex 1
+     * @param VID2 Vertex 2
+     * @return True if an edge is indexed for this pair
+     */
+    boolean contains(int VID1, int VID2) {
+        return get(VID1, VID2) != -1;
+    }
+
+    /**
+     * Index an edge if the pair is not indexed yet
+     *
+     * @param VID1 Vertex 1
+     * @param VID2 Vertex 2
+     * @param EID The edge ID, must be positive
+     * @return The edge ID already indexed for this pair, or EID if the pair
+     * was added
+     * @throws IllegalStateException If the index is full
+     */
+    int putIfAbsent(int VID1, int VID2, int EID) {
+        if (EID <= 0) {
+            throw new IllegalArgumentException("Edge ID must be positive: " + EID);
+        }
+        long key = key(VID1, VID2);
+        int slot = mix(key) & mask;
+        while (values[slot] != 0) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        checkRoom();
+        keys[slot] = key;
+        values[slot] = EID;
+        size++;
+        if (size >= resizeAt) {
+            rehash(keys.length << 1);
+        }
+        return EID;
+    }
+
+    /**
+     * Get the number of indexed edges
+     *
+     * @return The number of vertex pairs in the index
+     */
+    int size() {
+        return size;
+    }
+
+    private long key(int VID1, int VID2) {
+        return directed ? ((long) VID1 << 32) | (VID2 & 0xFFFFFFFFL) : pack(VID1, VID2);
+    }
+
+    //The table cannot double past MAX_CAPACITY, so a key that would need it
+    //is refused before it is stored
+    private void checkRoom() {
+        if (size + 1 >= resizeAt && keys.length == MAX_CAPACITY) {
+            throw new IllegalStateException("The edge index is full at " + size + " edges");
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        resizeAt = capacity >>> 1;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != 0) {
+                int slot = mix(oldKeys[i]) & mask;
+                while (values[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private static int mix(long key) {
+        //Murmur3 finalizer
+        key ^= key >>> 33;
+        key *= 0xFF51AFD7ED558CCDL;
+        key ^= key >>> 33;
+        key *= 0xC4CEB9FE1A85EC53L;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright (C) 2018 Frank Jennings
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fj.fastgraph;
+
+/**
+ * A test on an edge and its weight without boxing. Used to decide which
+ * edges a traversal may follow while it expands, such as only the edges
+ * with a weight of at least 3.
+ *
+ * @author Frank Jennings
+ */
+@FunctionalInterface
+public interface EdgePredicate {
+
+    /**
+     * May the traversal follow an edge?
+     *
+     * @param VID1 The vertex the edge is followed from
+     * @param VID2 The vertex the edge leads to
+     * @param W The weight of the edge
+     * @return True to follow the edge
+     */
+    boolean test(int VID1, int VID2, int W);
+}
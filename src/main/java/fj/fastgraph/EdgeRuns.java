@@ -0,0 +1,261 @@
+/*
+ * Copyright (C) 2018 Frank Jennings
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fj.fastgraph;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Weighted vertex pairs spilled to disk as sorted runs, for graphs whose
+ * edges do not fit in memory. Every run holds (pair, weight) records sorted
+ * by the pair packed with EdgeIndex.pack. The runs are merged back with a
+ * k-way merge that sums the weights of equal pairs.
+ *
+ * @author Frank Jennings
+ */
+final class EdgeRuns implements AutoCloseable {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final File directory;
+    private final ArrayList<File> runs = new ArrayList<>();
+
+    /**
+     * Create an empty set of runs
+     *
+     * @param directory Where the runs are written, or null for the default
+     * temporary directory
+     */
+    EdgeRuns(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * A callback receiving the merged pairs in key order
+     */
+    interface PairConsumer {
+
+        void accept(int VID1, int VID2, int weight) throws IOException;
+    }
+
+    /**
+     * Write the pairs of a map to a new sorted run and clear the map
+     *
+     * @param counts The pair weights
+     * @throws IOException If the run cannot be written
+     */
+    void spill(LongIntHashMap counts) throws IOException {
+        long[] keys = counts.sortedKeys();
+        File run = File.createTempFile("fastgraph-run", ".bin", directory);
+        runs.add(run);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(run), SnapshotIO.BUFFER_SIZE))) {
+            for (long key : keys) {
+                out.writeLong(key);
+                out.writeInt(counts.get(key));
+            }
+        }
+        counts.clear();
+    }
+
+    int getRunsCount() {
+        return runs.size();
+    }
+
+    /**
+     * Merge the runs and the pairs still in memory, summing the weights of
+     * equal pairs
+     *
+     * @param counts The pairs still in memory, cleared by the merge
+     * @param consumer Receives every distinct pair once, in key order
+     * @throws IOException If a run cannot be read
+     */
+    void merge(LongIntHashMap counts, PairConsumer consumer) throws IOException {
+        ArrayList<Source> sources = new ArrayList<>();
+        try {
+            long[] keys = counts.sortedKeys();
+            int[] weights = new int[keys.length];
+            for (int i = 0; i < keys.length; i++) {
+                weights[i] = counts.get(keys[i]);
+            }
+            counts.clear();
+            sources.add(new MemorySource(keys, weights));
+            for (File run : runs) {
+                sources.add(new RunSource(run));
+            }
+
+            //Min-heap of the sources by their current key
+            Source[] heap = new Source[sources.size()];
+            int size = 0;
+            for (Source source : sources) {
+                if (source.next()) {
+                    heap[size++] = source;
+                    siftUp(heap, size - 1);
+                }
+            }
+            boolean pending = false;
+            long key = 0;
+            long weight = 0;
+            while (size > 0) {
+                Source top = heap[0];
+                if (pending && top.key != key) {
+                    emit(key, weight, consumer);
+                    pending = false;
+                }
+                if (!pending) {
+                    key = top.key;
+                    weight = 0;
+                    pending = true;
+                }
+                weight += top.weight;
+                if (top.next()) {
+                    siftDown(heap, 0, size);
+                } else {
+                    heap[0] = heap[--size];
+                    siftDown(heap, 0, size);
+                }
+            }
+            if (pending) {
+                emit(key, weight, consumer);
+            }
+        } finally {
+            for (Source source : sources) {
+                source.close();
+            }
+        }
+    }
+
+    /**
+     * Delete the runs
+     */
+    @Override
+    public void close() {
+        for (File run : runs) {
+            if (!run.delete()) {
+                Logger.getLogger(EdgeRuns.class.getName()).log(Level.WARNING, "Could not delete {0}", run);
+            }
+        }
+        runs.clear();
+    }
+
+    private static void emit(long key, long weight, PairConsumer consumer) throws IOException {
+        consumer.accept((int) (key >>> 32), (int) key, (int) Math.min(weight, Integer.MAX_VALUE));
+    }
+
+    private static void siftUp(Source[] heap, int i) {
+        Source source = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heap[parent].key <= source.key) {
+                break;
+            }
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = source;
+    }
+
+    private static void siftDown(Source[] heap, int i, int size) {
+        if (size == 0) {
+            return;
+        }
+        Source source = heap[i];
+        while (true) {
+            int child = (i << 1) + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && heap[child + 1].key < heap[child].key) {
+                child++;
+            }
+            if (heap[child].key >= source.key) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = source;
+    }
+
+    private abstract static class Source implements AutoCloseable {
+
+        long key;
+        int weight;
+
+        abstract boolean next() throws IOException;
+
+        @Override
+        public void close() throws IOException {
+        }
+    }
+
+    private static final class MemorySource extends Source {
+
+        private final long[] keys;
+        private final int[] weights;
+        private int position = -1;
+
+        MemorySource(long[] keys, int[] weights) {
+            this.keys = keys;
+            this.weights = weights;
+        }
+
+        @Override
+        boolean next() {
+            if (++position == keys.length) {
+                return false;
+            }
+            key = keys[position];
+            weight = weights[position];
+            return true;
+        }
+    }
+
+    private static final class RunSource extends Source {
+
+        private final DataInputStream in;
+
+        RunSource(File run) throws IOException {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(run), BUFFER_SIZE));
+        }
+
+        @Override
+        boolean next() throws IOException {
+            try {
+                key = in.readLong();
+            } catch (EOFException ex) {
+                return false;
+            }
+            weight = in.readInt();
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,356 @@
+/*
+ * Copyright (C) 2018 Frank Jennings
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fj.fastgraph;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.StringTokenizer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Builds a FastGraph snapshot from vertices and edges files without holding
+ * the edges in memory. The edges are counted in a bounded hash map that is
+ * spilled to disk as sorted runs, then merged with duplicate weights summed.
+ * The reverse half of every neighbor row goes through a second external sort
+ * and the rows are written straight to the snapshot.
+ *
+ * Only the vertices are kept in memory, a few ints per vertex plus the names.
+ * The snapshot opens with FastGraph(File). Its edge IDs follow the order of
+ * the sorted vertex pairs rather than the order of the edges file.
+ *
+ * Only undirected graphs without timestamps or properties are built: the
+ * duplicate edges are merged into one weight and only the weight column is
+ * read. A config asking for more is refused rather than written into a
+ * snapshot that lacks it.
+ *
+ * @author Frank Jennings
+ */
+public class ExternalGraphBuilder {
+
+    private long memoryBudget = Runtime.getRuntime().maxMemory() / 4;
+    private File temporaryDirectory = null;
+
+    /**
+     * Set the memory used to hold edges before they are spilled to disk
+     *
+     * @param memoryBudget The budget in bytes
+     * @return This builder
+     */
+    public ExternalGraphBuilder setMemoryBudget(long memoryBudget) {
+        this.memoryBudget = Math.max(1 << 20, memoryBudget);
+        return this;
+    }
+
+    /**
+     * Set where the sorted runs and the temporary columns are written
+     *
+     * @param temporaryDirectory The directory, or null for the default
+     * temporary directory
+     * @return This builder
+     */
+    public ExternalGraphBuilder setTemporaryDirectory(File temporaryDirectory) {
+        this.temporaryDirectory = temporaryDirectory;
+        return this;
+    }
+
+    /**
+     * Build a snapshot of an undirected graph
+     *
+     * @param verticesFile A file containing comma-separated list of vertices ID
+     * and vertices name
+     * @param edgesFile A file containing comma-separated list of two vertices
+     * ID, optionally followed by the edge weight, which must be positive. A
+     * row with a weight of 0 or less stops the build.
+     * @param snapshotFile The snapshot to write
+     */
+    public void build(File verticesFile, File edgesFile, File snapshotFile) {
+        build(verticesFile, edgesFile, snapshotFile, new FastGraphConfig());
+    }
+
+    /**
+     * Build a snapshot of the graph described by a config. The options that
+     * shape the loaded graph, such as the adjacency format or the storage
+     * mode, apply when the snapshot is opened with
+     * FastGraph(File, FastGraphConfig).
+     *
+     * @param verticesFile A file containing comma-separated list of vertices ID
+     * and vertices name
+     * @param edgesFile A file containing comma-separated list of two vertices
+     * ID, optionally followed by the edge weight, which must be positive. A
+     * row with a weight of 0 or less stops the build.
+     * @param snapshotFile The snapshot to write
+     * @param config The options the files were written for
+     * @throws IllegalArgumentException If the config is directed, asks for
+     * edge timestamps, properties or a vertex ordering
+     */
+    public void build(File verticesFile, File edgesFile, File snapshotFile, FastGraphConfig config) {
+        if (config.isDirected()) {
+            throw new IllegalArgumentException("The external build only writes undirected graphs");
+        }
+        if (config.isEdgeTimestamps()) {
+            throw new IllegalArgumentException("The external build merges duplicate edges and keeps no timestamps");
+        }
+        if (!config.getVertexProperties().isEmpty() || !config.getEdgeProperties().isEmpty()) {
+            throw new IllegalArgumentException("The external build reads no property columns");
+        }
+        if (config.getVertexOrdering() != VertexOrdering.NONE) {
+            throw new IllegalArgumentException("The external build keeps the vertices in file order");
+        }
+        try (Build build = new Build()) {
+            build.readVertices(verticesFile);
+            build.readEdges(edgesFile);
+            build.mergeEdges();
+            build.writeSnapshot(snapshotFile);
+            Logger.getLogger(ExternalGraphBuilder.class.getName()).log(Level.INFO, "ExternalGraphBuilder: Built snapshot with {0} vertices and {1} edges", new Object[]{build.verticesCount, build.edgesCount});
+        } catch (IOException ex) {
+            Logger.getLogger(ExternalGraphBuilder.class.getName()).log(Level.SEVERE, null, ex);
+        }
+    }
+
+    /**
+     * The state of one build and its temporary files
+     */
+    private final class Build implements AutoCloseable {
+
+        private final long maxEntries = Math.max(1024, memoryBudget / LongIntHashMap.BYTES_PER_ENTRY);
+
+        private int verticesCount;
+        private int[] externalIDs = new int[16];
+        private final IntIntHashMap internalIDs = new IntIntHashMap();
+        private final NameStore nameStore = new NameStore();
+
+        private final EdgeRuns forwardRuns = new EdgeRuns(temporaryDirectory);
+        private final EdgeRuns reverseRuns = new EdgeRuns(temporaryDirectory);
+        private LongIntHashMap reverse = new LongIntHashMap();
+        private int edgesCount;
+        private int[] degrees;
+
+        //The edge columns in sorted pair order, and the edge of every
+        //neighbor entry in row order
+        private final File sourcesFile;
+        private final File targetsFile;
+        private final File weightsFile;
+        private final File rowEdgesFile;
+
+        Build() throws IOException {
+            sourcesFile = File.createTempFile("fastgraph-sources", ".bin", temporaryDirectory);
+            targetsFile = File.createTempFile("fastgraph-targets", ".bin", temporaryDirectory);
+            weightsFile = File.createTempFile("fastgraph-weights", ".bin", temporaryDirectory);
+            rowEdgesFile = File.createTempFile("fastgraph-rows", ".bin", temporaryDirectory);
+        }
+
+        void readVertices(File verticesFile) throws IOException {
+            try (BufferedReader reader = newReader(verticesFile)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    StringTokenizer stok = new StringTokenizer(line, line.contains(",") ? "," : " ");
+                    int VID = Integer.parseInt(stok.nextToken().trim());
+                    nameStore.setName(addVertex(VID), FastGraph.cleanName(stok.nextToken()));
+                }
+            }
+        }
+
+        void readEdges(File edgesFile) throws IOException {
+            LongIntHashMap counts = new LongIntHashMap();
+            try (BufferedReader reader = newReader(edgesFile)) {
+                String line;
+                long lineNumber = 0;
+                while ((line = reader.readLine()) != null) {
+                    lineNumber++;
+                    StringTokenizer stok = new StringTokenizer(line, line.contains(",") ? "," : " ");
+                    int IVID1 = addVertex(Integer.parseInt(stok.nextToken().trim()));
+                    int IVID2 = addVertex(Integer.parseInt(stok.nextToken().trim()));
+                    int weight = 1;
+                    if (stok.hasMoreTokens()) {
+                        weight = Integer.parseInt(stok.nextToken().trim());
+                    }
+                    //0 marks an empty slot of the counts
+                    if (weight <= 0) {
+                        throw new IOException("Edge weight must be positive at line " + lineNumber + " of " + edgesFile + ": " + line);
+                    }
+                    counts.addTo(EdgeIndex.pack(IVID1, IVID2), weight);
+                    if (counts.size() >= maxEntries) {
+                        forwardRuns.spill(counts);
+                    }
+                }
+            }
+            //Spill the rest so that the reverse entries get the whole budget
+            forwardRuns.spill(counts);
+            externalIDs = Arrays.copyOf(externalIDs, verticesCount);
+            nameStore.trim(verticesCount);
+        }
+
+        /**
+         * Write the edge columns in sorted pair order, count the degrees and
+         * sort the reverse neighbor entries
+         */
+        void mergeEdges() throws IOException {
+            degrees = new int[verticesCount];
+            try (DataOutputStream sources = newOutput(sourcesFile);
+                    DataOutputStream targets = newOutput(targetsFile);
+                    DataOutputStream weights = newOutput(weightsFile)) {
+                forwardRuns.merge(new LongIntHashMap(), (IVID1, IVID2, weight) -> {
+                    sources.writeInt(IVID1);
+                    targets.writeInt(IVID2);
+                    weights.writeInt(weight);
+                    degrees[IVID1]++;
+                    if (IVID1 != IVID2) {
+                        degrees[IVID2]++;
+                        //Row IVID2 gets IVID1, stored as edge + 1
+                        reverse.addTo(((long) IVID2 << 32) | IVID1, edgesCount + 1);
+                        if (reverse.size() >= maxEntries) {
+                            reverseRuns.spill(reverse);
+                        }
+                    }
+                    edgesCount++;
+                });
+            }
+            forwardRuns.close();
+        }
+
+        void writeSnapshot(File snapshotFile) throws IOException {
+            try (DataOutputStream out = newOutput(snapshotFile)) {
+                FastGraph.writeSnapshotHeader(out, VertexOrdering.NONE, false, verticesCount, IntArray.wrap(externalIDs), nameStore);
+
+                //The columns were written int by int, as SnapshotIO does
+                out.writeInt(edgesCount);
+                out.flush();
+                Files.copy(sourcesFile.toPath(), out);
+                Files.copy(targetsFile.toPath(), out);
+                Files.copy(weightsFile.toPath(), out);
+
+                out.writeUTF(AdjacencyFormat.CSR.name());
+                int[] offsets = new int[verticesCount + 1];
+                for (int IVID = 0; IVID < verticesCount; IVID++) {
+                    offsets[IVID + 1] = offsets[IVID] + degrees[IVID];
+                }
+                CsrAdjacency.writeOffsets(out, IntArray.wrap(offsets), verticesCount);
+                writeRows(out);
+                out.flush();
+                Files.copy(rowEdgesFile.toPath(), out);
+
+                FastGraph.writeSnapshotTrailer(out, verticesCount, edgesCount, null, null, new PropertyStore(), new PropertyStore(), null);
+            }
+        }
+
+        /**
+         * Write the neighbors of every row. The reverse entries of a row
+         * hold smaller IDs than its forward entries, so a row is its reverse
+         * entries followed by its forward entries.
+         */
+        private void writeRows(DataOutputStream out) throws IOException {
+            try (DataInputStream sources = newInput(sourcesFile);
+                    DataInputStream targets = newInput(targetsFile);
+                    DataOutputStream rowEdges = newOutput(rowEdgesFile)) {
+                ForwardEntries forward = new ForwardEntries(sources, targets, out, rowEdges);
+                reverseRuns.merge(reverse, (row, neighbor, edge) -> {
+                    forward.writeRowsBefore(row);
+                    out.writeInt(neighbor);
+                    rowEdges.writeInt(edge - 1);
+                });
+                reverse = null;
+                forward.writeRowsBefore(verticesCount);
+            }
+        }
+
+        private int addVertex(int VID) {
+            int IVID = internalIDs.putIfAbsent(VID, verticesCount);
+            if (IVID == verticesCount) {
+                if (verticesCount == externalIDs.length) {
+                    externalIDs = Arrays.copyOf(externalIDs, verticesCount << 1);
+                }
+                externalIDs[verticesCount++] = VID;
+            }
+            return IVID;
+        }
+
+        @Override
+        public void close() {
+            forwardRuns.close();
+            reverseRuns.close();
+            for (File file : new File[]{sourcesFile, targetsFile, weightsFile, rowEdgesFile}) {
+                if (!file.delete()) {
+                    Logger.getLogger(ExternalGraphBuilder.class.getName()).log(Level.WARNING, "Could not delete {0}", file);
+                }
+            }
+        }
+
+        /**
+         * Reads back the edges in sorted pair order, which are the forward
+         * entries of the rows in row order
+         */
+        private final class ForwardEntries {
+
+            private final DataInputStream sources;
+            private final DataInputStream targets;
+            private final DataOutputStream out;
+            private final DataOutputStream rowEdges;
+            private int edge;
+            private int source = -1;
+            private int target;
+
+            ForwardEntries(DataInputStream sources, DataInputStream targets, DataOutputStream out, DataOutputStream rowEdges) {
+                this.sources = sources;
+                this.targets = targets;
+                this.out = out;
+                this.rowEdges = rowEdges;
+            }
+
+            void writeRowsBefore(int row) throws IOException {
+                while (true) {
+                    if (source == -1) {
+                        if (edge == edgesCount) {
+                            return;
+                        }
+                        source = sources.readInt();
+                        target = targets.readInt();
+                    }
+                    if (source >= row) {
+                        return;
+                    }
+                    out.writeInt(target);
+                    rowEdges.writeInt(edge++);
+                    source = -1;
+                }
+            }
+        }
+    }
+
+    private static BufferedReader newReader(File file) throws IOException {
+        return new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8), SnapshotIO.BUFFER_SIZE);
+    }
+
+    private static DataOutputStream newOutput(File file) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), SnapshotIO.BUFFER_SIZE));
+    }
+
+    private static DataInputStream newInput(File file) throws IOException {
+        return new DataInputStream(new BufferedInputStream(new FileInputStream(file), SnapshotIO.BUFFER_SIZE));
+    }
+}
@@ -16,45 +16,140 @@
  */
 package fj.fastgraph;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Random;
 import java.util.Scanner;
 import java.util.Set;
 import java.util.StringTokenizer;
-import java.util.function.Consumer;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntPredicate;
+import java.util.function.IntUnaryOperator;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.stream.Collectors;
 import org.json.JSONArray;
 import org.json.JSONObject;
 
 /**
+ * A graph of vertices and undirected, weighted edges. The public API accepts
+ * and returns the vertex IDs used in the input files. Internally every vertex
+ * is given a dense ID (0..n-1) at load time so that all the structures are
+ * plain arrays indexed by that ID. The arrays can be kept off-heap, in which
+ * case the graph must be closed to release them.
  *
  * @author Frank Jennings
  */
-public class FastGraph {
-
-    private LinkedHashMap<Integer, String> vertices = new LinkedHashMap();
-    private LinkedHashMap<String, Integer> reverse_vertices = new LinkedHashMap();
-
-    private LinkedHashMap<Integer, LinkedHashMap> edges = new LinkedHashMap();
-    //For fast neighbor finding
-    private LinkedHashMap<Integer, ArrayList> edgesHelper = new LinkedHashMap();
-    private Map<Integer, Integer> hotSpots = new LinkedHashMap<>();
+public class FastGraph implements AutoCloseable {
+
+    //Maximum number of hops made by getPathBetweenVertices per unit of depth
+    private static final int MAX_PATH_HOPS = 20;
+    //Vertices handed to a thread at a time by the parallel analytics
+    private static final int PARALLEL_BLOCK = 256;
+    //Time between 2 checks of the progress listener and the token while the
+    //threads of the parallel analytics run
+    private static final long POLL_MILLIS = 50;
+    //PageRank damping factor, iterations and convergence threshold (L1)
+    private static final double PAGERANK_DAMPING = 0.85;
+    private static final int PAGERANK_ITERATIONS = 100;
+    private static final double PAGERANK_TOLERANCE = 1e-9;
+
+    static final int SNAPSHOT_MAGIC = 0x46475348;
+    static final int SNAPSHOT_VERSION = 7;
+    //Snapshots before the directed mode, read as undirected graphs
+    private static final int SNAPSHOT_VERSION_UNDIRECTED = 3;
+    //Snapshots before the properties, read without properties
+    private static final int SNAPSHOT_VERSION_NO_PROPERTIES = 4;
+    //Snapshots before the timestamps, read without timestamps
+    private static final int SNAPSHOT_VERSION_NO_TIMESTAMPS = 5;
+    //Snapshots whose compressed rows hold no edge IDs, encoded again on read
+    private static final int SNAPSHOT_VERSION_NO_EDGE_GAPS = 6;
+
+    //Vertices, indexed by internal ID
+    private int verticesCount;
+    private IntArray externalIDs = IntArray.allocate(16, StorageMode.HEAP);
+    //External to internal IDs. Off-heap graphs binary search the external IDs
+    //sorted in sortedExternalIDs instead, with the matching internal IDs in
+    //sortedInternalIDs.
+    private IntIntHashMap internalIDs = new IntIntHashMap();
+    private IntArray sortedExternalIDs;
+    private IntArray sortedInternalIDs;
+    //Vertex names and the name to vertex lookup
+    private NameStore nameStore = new NameStore();
+    //Prefix and substring index over the names, built on the first search
+    private NameIndex nameIndex;
+    private VertexOrdering vertexOrdering = VertexOrdering.NONE;
+
+    //Edges, indexed by internal edge ID (EID - 1). Endpoints are internal IDs.
+    private int edgesCount;
+    private IntArray edgeSources = IntArray.allocate(16, StorageMode.HEAP);
+    private IntArray edgeTargets = IntArray.allocate(16, StorageMode.HEAP);
+    private IntArray edgeWeights = IntArray.allocate(16, StorageMode.HEAP);
+    //For constant time edge lookups by vertex pair. Null for off-heap CSR rows,
+    //which are binary searched instead.
+    private EdgeIndex edgeIndex = new EdgeIndex();
+    private StorageMode storageMode = StorageMode.HEAP;
+    //True if a:b and b:a are different edges
+    private boolean directed;
+    //Typed columns indexed by internal ID and by internal edge ID
+    private PropertyStore vertexProperties = new PropertyStore();
+    private PropertyStore edgeProperties = new PropertyStore();
+    //Timestamped rows of the edges file, null if the edges have no timestamps
+    private TemporalEdges temporalEdges;
+
+    //For fast neighbor finding. The neighbor rows sorted by internal ID. A
+    //DirectedAdjacency holding the out and in rows apart if directed.
+    private Adjacency adjacency;
+
+    //Triangles owned by each vertex and the vertices with edges sorted by
+    //that count. Both are null until the hot spots are computed.
+    private int[] trianglesCounts;
+    private int[] hotSpots;
+    //The top tenth of the hot spots as a bitset indexed by internal ID, built
+    //on the first trail
+    private long[] trailHotSpots;
+    //PageRank of every vertex, computed on the first use
+    private double[] pageRanks;
+    //Strongly connected components, split on the first use
+    private StrongComponents strongComponents;
+    //Flat neighbor rows and alias tables of the random walks, built on the
+    //first walk
+    private RandomWalker randomWalker;
+    //Score sums of the link predictions, one per thread
+    private final ThreadLocal<SparseAccumulator> linkScores = ThreadLocal.withInitial(() -> new SparseAccumulator(verticesCount));
+
+    //Results of repeated queries, null if the cache is disabled
+    private QueryCache queryCache;
+    //Receiver of the measurements, null if nothing is measured
+    private GraphMetrics metrics;
+    //Follows the long-running operations, null if none is set
+    private volatile ProgressListener progressListener;
+    //Threads used by the analytics that run in parallel
+    private int threads = Runtime.getRuntime().availableProcessors();
 
     /**
      * Initialize the graph with 2 files vertices and edges
@@ -81,13 +176,44 @@ public class FastGraph {
      * owned by the vertices.
      */
     public FastGraph(File verticesFile, File edgesFile, boolean computeHotspots) {
+        this(verticesFile, edgesFile, new FastGraphConfig().setComputeHotspots(computeHotspots));
+    }
 
+    /**
+     * Initialize the graph with 2 files vertices and edges
+     *
+     * @param verticesFile A file containing comma-separated list of vertices ID
+     * and vertices name
+     * @param edgesFile A file containing comma-separated list of two vertices
+     * ID, optionally followed by the edge weight. For example, one row could
+     * be 25432, 1276287 or 25432, 1276287, 3. Repeated rows add up their
+     * weights. With timestamps in the config, the weight is required and the
+     * column after it holds the time of the row, such as 25432, 1276287, 3,
+     * 1514764800000. The properties declared in the config are read from the
+     * columns after the vertex name and after the edge weight or timestamp.
+     * @param config The options used to load the graph
+     * @throws IllegalArgumentException If the edges have timestamps and a row
+     * lacks its weight or timestamp, or either is not a number
+     */
+    public FastGraph(File verticesFile, File edgesFile, FastGraphConfig config) {
+
+        metrics = config.getMetrics();
+        progressListener = config.getProgressListener();
+        threads = config.getThreads();
+        directed = config.isDirected();
+        edgeIndex = new EdgeIndex(0, directed);
+        vertexProperties = new PropertyStore(config.getVertexProperties());
+        edgeProperties = new PropertyStore(config.getEdgeProperties());
+        temporalEdges = config.isEdgeTimestamps() ? new TemporalEdges() : null;
+        long start = startTimer();
+        Progress progress = new Progress(progressListener, ProgressListener.LOAD, -1);
+        long lines = 0;
         FileInputStream fis;
         try {
             //Load vertices
             fis = new FileInputStream(verticesFile);
             Scanner scanner = new Scanner(fis);
-            while (scanner.hasNextLine()) {
+            while (scanner.hasNextLine() && progress.step(++lines)) {
                 String line = scanner.nextLine();
 
                 String token = ",";
@@ -96,14 +222,8 @@ public class FastGraph {
                 }
                 StringTokenizer stok = new StringTokenizer(line, token);
                 int VID = Integer.parseInt(stok.nextToken().trim());
-                String vertex = stok.nextToken().trim();
-                //Clean
-                vertex = vertex.replaceAll("[^\\w\\s]", "").trim();
-                if (vertex.length() < 1) {
-                    vertex = "EMPTY";
-                }
-                reverse_vertices.put(vertex, VID);
-                vertices.put(VID, vertex);
+                int IVID = addVertex(VID, cleanName(stok.nextToken()));
+                vertexProperties.parse(IVID, stok);
             }
 
             fis.close();
@@ -111,12 +231,11 @@ public class FastGraph {
             //Load edges
             fis = new FileInputStream(edgesFile);
             scanner = new Scanner(fis);
+            long edgeLine = 0;
 
-            LinkedHashMap visitedEdgesMap = new LinkedHashMap();
-
-            int EID = 1;
-            while (scanner.hasNextLine()) {
+            while (!progress.isCancelled() && scanner.hasNextLine() && progress.step(++lines)) {
                 String line = scanner.nextLine();
+                edgeLine++;
                 String token = ",";
                 if (!line.contains(token)) {
                     token = " ";
@@ -124,1621 +243,3381 @@ public class FastGraph {
                 StringTokenizer stok = new StringTokenizer(line, token);
                 int VID1 = Integer.parseInt(stok.nextToken().trim());
                 int VID2 = Integer.parseInt(stok.nextToken().trim());
-                //System.out.println(VID1+":"+VID2);
-
-                LinkedHashMap edgesMap = new LinkedHashMap();
-                edgesMap.put("S", VID1);
-                edgesMap.put("D", VID2);
-
-                //Find the correct EID to remove duplicate EIDs
-                String edgeToken1 = VID1 + ":" + VID2;
-                String edgeToken2 = VID2 + ":" + VID1;
-
-                int TEID = EID;
-                if (visitedEdgesMap.containsKey(edgeToken1)) {
-                    TEID = (int) visitedEdgesMap.get(edgeToken1);
-                } else {
-                    visitedEdgesMap.put(edgeToken1, EID);
-                }
-                if (visitedEdgesMap.containsKey(edgeToken2)) {
-                    TEID = (int) visitedEdgesMap.get(edgeToken2);
-                } else {
-                    visitedEdgesMap.put(edgeToken2, EID);
-                }
-
-                //Verify
-                if (TEID != EID) {
-                    //addweights
-                    LinkedHashMap existingEdgesMap = edges.get(TEID);
-                    int eweight = (int) existingEdgesMap.get("W");
-                    eweight++;
-                    //System.out.println("Updating weight of edge "+TEID+" ("+VID1+":"+VID2+") by "+eweight);
-                    existingEdgesMap.remove("W");
-                    existingEdgesMap.put("W", eweight);
-                    edges.remove(TEID);
-                    edges.put(TEID, existingEdgesMap);
-                } else {
-                    //First edge
-                    edgesMap.put("W", 1);
-                    edges.put(TEID, edgesMap);
-                }
-
-                EID++;
-
-                //Add in edgesHelper
-                if (edgesHelper.containsKey(VID1)) {
-                    //Vertex already there
-                    ArrayList edgesList = edgesHelper.get(VID1);
-                    edgesList.add(TEID);
-                    edgesHelper.remove(VID1);
-                    edgesHelper.put(VID1, edgesList);
-                } else {
-                    ArrayList edgesList = new ArrayList();
-                    edgesList.add(TEID);
-                    edgesHelper.put(VID1, edgesList);
-                }
-                if (edgesHelper.containsKey(VID2)) {
-                    //Vertex already there
-                    ArrayList edgesList = edgesHelper.get(VID2);
-                    if (!edgesList.contains(TEID)) {
-                        edgesList.add(TEID);
+                //Optional weight column, required before a timestamp
+                int weight = 1;
+                long time = 0;
+                if (temporalEdges != null) {
+                    try {
+                        weight = Integer.parseInt(stok.nextToken().trim());
+                        time = Long.parseLong(stok.nextToken().trim());
+                    } catch (NoSuchElementException | NumberFormatException ex) {
+                        fis.close();
+                        throw new IllegalArgumentException("Edge weight and timestamp expected at line " + edgeLine + " of " + edgesFile + ": " + line, ex);
                     }
-                    edgesHelper.remove(VID2);
-                    edgesHelper.put(VID2, edgesList);
-                } else {
-                    ArrayList edgesList = new ArrayList();
-                    edgesList.add(TEID);
-                    edgesHelper.put(VID2, edgesList);
+                } else if (stok.hasMoreTokens()) {
+                    weight = Integer.parseInt(stok.nextToken().trim());
                 }
 
+                int edge = addEdge(VID1, VID2, weight);
+                if (temporalEdges != null) {
+                    temporalEdges.add(edge, time, weight);
+                }
+                edgeProperties.parse(edge, stok);
             }
 
             fis.close();
 
-            Logger.getLogger(FastGraph.class.getName()).log(Level.INFO, "FastGraph: Populated with {0} vertices and {1} edges", new Object[]{vertices.size(), edges.size()});
-
-            if (computeHotspots) {
-                Logger.getLogger(FastGraph.class.getName()).log(Level.INFO, "FastGraph: Computing hot spots...");
-
-                hotSpots = getRankByTrianglesCount(edgesHelper.size());
-
-                Logger.getLogger(FastGraph.class.getName()).log(Level.INFO, "FastGraph: Computing hot spots for {0} vertices...DONE", hotSpots.size());
-            }
-
         } catch (FileNotFoundException ex) {
             Logger.getLogger(FastGraph.class.getName()).log(Level.SEVERE, null, ex);
         } catch (IOException ex) {
             Logger.getLogger(FastGraph.class.getName()).log(Level.SEVERE, null, ex);
         }
-    }
-
-    private int getRandomInt(int minInt, int maxInt) {
-        return new Random().nextInt(maxInt - minInt) + minInt;
-    }
-
-    public String exportDotForGraph(int processOnly) {
-
-        Iterator iter = edges.keySet().iterator();
-        String dotString = "graph FastGraph {\r\n";
-
-        int count = 0;
-        while (iter.hasNext()) {
-
-            if (count == processOnly) {
-                break;
-            }
-            int EID = (int) iter.next();
-            LinkedHashMap connectionsMap = edges.get(EID);
-            String source = getVertexByID((int) connectionsMap.get("S"));
-            String dest = getVertexByID((int) connectionsMap.get("D"));
-
-            //Write undirected graphs
-            //if (source.matches(".*\\d+.*") || source.toLowerCase().contains("graph") || source.toLowerCase().contains("edge") || source.toLowerCase().contains("node") || source.toLowerCase().contains("attr") || source.toLowerCase().contains("strict")) {
-            source = "\"" + source + "\"";
-            //}
-            //if (dest.matches(".*\\d+.*") || dest.toLowerCase().contains("graph") || dest.toLowerCase().contains("edge")  || dest.toLowerCase().contains("node") || dest.toLowerCase().contains("attr") || dest.toLowerCase().contains("strict")) {
-            dest = "\"" + dest + "\"";
-            //}
-            dotString = dotString + "    " + source + " -- " + dest + ";\r\n";
-            count++;
+        progress.finish(lines);
+        if (progress.isCancelled()) {
+            Logger.getLogger(FastGraph.class.getName()).log(Level.WARNING, "FastGraph: Loading cancelled after {0} lines", lines);
         }
+        stopLoadPhase(GraphMetrics.PHASE_READ, start);
 
-        dotString = dotString + "\r\n}";
+        finishLoading(config);
+    }
 
-        return dotString;
+    /**
+     * Create an empty graph to be filled with addVertex and addEdge, then
+     * finishLoading
+     */
+    FastGraph() {
     }
 
     /**
-     * Get the JSON representation of one vertex and all its neighbors
+     * Create an empty directed or undirected graph to be filled with
+     * addVertex and addEdge, then finishLoading
      *
-     * @param vertexID The Vertex ID of the graph and all its children will be
-     * exported.
-     * @param processOnly Maximum number of vertices to convert to JSON. If -1,
-     * the whole graph is converted into a JSON.
-     * @param maxXY The exported JSON will contain values for X and Y
-     * coordinates. These values are required for SigmaJS to render the
-     * vertices. maxXY is the maximum value X or Y can have.
-     * @param indent The indent for JSON string
-     * @return a JSON string that can be used to visualize the graph using
-     * SigmaJS library.
+     * @param directed True if a:b and b:a are different edges
      */
-    public String exportJSONForVertex(int vertexID, int processOnly, int maxXY, int indent) {
-        return getJSON(processOnly, maxXY, indent, false, -1, true, vertexID);
+    FastGraph(boolean directed) {
+        this.directed = directed;
+        edgeIndex = new EdgeIndex(0, directed);
     }
 
     /**
-     * Get the JSON representation of the current graph
+     * Open a graph saved with saveSnapshot
      *
-     * @param processOnly Maximum number of vertices to convert to JSON. If -1,
-     * the whole graph is converted into a JSON.
-     * @param maxXY The exported JSON will contain values for X and Y
-     * coordinates. These values are required for SigmaJS to render the
-     * vertices. maxXY is the maximum value X or Y can have.
-     * @param indent The indent for JSON string
-     * @param forRankedVerticesOnly A subgraph containing best vertices will
-     * only be exported to JSON.
-     * @param topRanksOnly If forRankedVerticesOnly is True, you can specify the
-     * number of vertices to include as the root nodes.
-     * @return a JSON string that can be used to visualize the graph using
-     * SigmaJS library.
+     * @param snapshotFile A file written by saveSnapshot
      */
-    public String exportJSONForGraph(int processOnly, int maxXY, int indent, boolean forRankedVerticesOnly, int topRanksOnly) {
-        return getJSON(processOnly, maxXY, indent, forRankedVerticesOnly, topRanksOnly, false, -1);
+    public FastGraph(File snapshotFile) {
+        this(snapshotFile, new FastGraphConfig());
     }
 
     /**
-     * Get the JSON representation of the current graph
+     * Open a graph saved with saveSnapshot. The vertex ordering stored in the
+     * snapshot is kept, the ordering in the config is ignored.
      *
-     * @param processOnly Maximum number of vertices to convert to JSON. If -1,
-     * the whole graph is converted into a JSON.
-     * @param maxXY The exported JSON will contain values for X and Y
-     * coordinates. These values are required for SigmaJS to render the
-     * vertices. maxXY is the maximum value X or Y can have.
-     * @param indent The indent for JSON string
-     * @param forRankedVerticesOnly A subgraph containing best vertices will
-     * only be exported to JSON.
-     * @param topRanksOnly If forRankedVerticesOnly is True, you can specify the
-     * number of vertices to include as the root nodes.
-     * @param processOneVertexOnly A JSON of the graph can be exported for only
-     * one vertex only
-     * @param vertexID The Vertex ID of the graph and all its children will be
-     * exported.
-     * @return a JSON string that can be used to visualize the graph using
-     * SigmaJS library.
+     * @param snapshotFile A file written by saveSnapshot
+     * @param config The options used to load the graph
      */
-    private String getJSON(int processOnly, int maxXY, int indent, boolean forRankedVerticesOnly, int topRanksOnly, boolean processOneVertexOnly, int vertexID) {
-
-        if (processOnly == -1) {
-            processOnly = vertices.size();
-        }
-        Map rankedVertices = new LinkedHashMap();
-        Map<Integer, Integer> rankedNeighborVertices = new LinkedHashMap();
-
-        if (forRankedVerticesOnly || processOneVertexOnly) {
-            if (processOneVertexOnly) {
-                //Spoof a rank
-                //System.out.println("Processing only for " + vertexID);
-                rankedVertices.put(vertexID, 100);
-            } else {
-                rankedVertices = getRankByTrianglesCount(topRanksOnly);
+    public FastGraph(File snapshotFile, FastGraphConfig config) {
+        metrics = config.getMetrics();
+        progressListener = config.getProgressListener();
+        threads = config.getThreads();
+        long start = startTimer();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(snapshotFile), SnapshotIO.BUFFER_SIZE))) {
+            if (in.readInt() != SNAPSHOT_MAGIC) {
+                throw new IOException("Not a FastGraph snapshot: " + snapshotFile);
             }
-
-            Iterator iter = rankedVertices.keySet().iterator();
-
-            while (iter.hasNext()) {
-                int VID = (int) iter.next();
-                int value = (int) rankedVertices.get(VID);
-                //Get children
-                Map children = getNeighbors(VID, 1, true);
-                rankedNeighborVertices.putAll(children);
-                rankedNeighborVertices.put(VID, value);
+            int version = in.readInt();
+            if (version != SNAPSHOT_VERSION && version != SNAPSHOT_VERSION_NO_EDGE_GAPS && version != SNAPSHOT_VERSION_NO_TIMESTAMPS && version != SNAPSHOT_VERSION_NO_PROPERTIES && version != SNAPSHOT_VERSION_UNDIRECTED) {
+                throw new IOException("Unsupported FastGraph snapshot version " + version);
             }
-        }
-
-        //Populate
-        int boundingLimit = processOnly / 2;
-        //Create subsets
-        LinkedHashMap<Integer, String> verticesSubMap = new LinkedHashMap();
-        ArrayList<Integer> processedVertices = new ArrayList();
-
-        if (forRankedVerticesOnly) {
-            //Space is precious...consider only top vertices and their children
-            int count = 0;
-            Iterator iter = vertices.keySet().iterator();
-            while (iter.hasNext()) {
-                if (count == processOnly) {
-                    break;
+            vertexOrdering = VertexOrdering.valueOf(in.readUTF());
+            directed = version != SNAPSHOT_VERSION_UNDIRECTED && in.readBoolean();
+
+            StorageMode mode = config.getStorageMode();
+            verticesCount = in.readInt();
+            externalIDs = SnapshotIO.readIntArray(in, verticesCount, mode);
+            if (mode == StorageMode.HEAP) {
+                internalIDs = new IntIntHashMap(verticesCount);
+                for (int IVID = 0; IVID < verticesCount; IVID++) {
+                    internalIDs.put(externalIDs.get(IVID), IVID);
                 }
-                int key = (int) iter.next();
-
-                if (forRankedVerticesOnly) {
-                    if (!rankedNeighborVertices.containsKey(key)) {
-                        continue;
-                    }
-                }
-
-                String value = vertices.get(key);
-                verticesSubMap.put(key, value);
-                processedVertices.add(key);
-                count++;
             }
-
-        } else {
-            int count = 0;
-            Iterator iter = vertices.keySet().iterator();
-            while (iter.hasNext()) {
-                if (count == processOnly) {
-                    break;
-                }
-
-                int key = (int) iter.next();
-                String value = vertices.get(key);
-                verticesSubMap.put(key, value);
-                processedVertices.add(key);
-                count++;
+            nameStore = NameStore.read(in, verticesCount);
+
+            edgesCount = in.readInt();
+            edgeSources = SnapshotIO.readIntArray(in, edgesCount, mode);
+            edgeTargets = SnapshotIO.readIntArray(in, edgesCount, mode);
+            edgeWeights = SnapshotIO.readIntArray(in, edgesCount, mode);
+            edgeIndex = new EdgeIndex(edgesCount, directed);
+            for (int e = 0; e < edgesCount; e++) {
+                edgeIndex.putIfAbsent(edgeSources.get(e), edgeTargets.get(e), e + 1);
             }
-        }
-
-        JSONArray nodesArray = new JSONArray();
-
-        int count = 0;
 
-        for (int VID : verticesSubMap.keySet()) {
-            //Check bounding limt
-            int boundingMaxX = 0;
-            int boundingMaxY = 0;
-            int boundingMinX = 0;
-            int boundingMinY = 0;
-            if (count > boundingLimit) {
-                boundingMaxX = maxXY;
-                boundingMaxY = maxXY / 2;
-                boundingMinX = maxXY / 2;
-                boundingMinY = 0;
+            AdjacencyFormat format = AdjacencyFormat.valueOf(in.readUTF());
+            if (directed) {
+                Adjacency out = readRows(in, version, format, mode, false);
+                adjacency = new DirectedAdjacency(out, readRows(in, version, format, mode, true));
             } else {
-                boundingMaxX = maxXY / 2;
-                boundingMaxY = maxXY / 2;
-                boundingMinX = 0;
-                boundingMinY = 0;
+                adjacency = readRows(in, version, format, mode, false);
+            }
+            //Convert the rows only if a format was asked for
+            if (config.getAdjacencyFormat() == AdjacencyFormat.CSR && adjacency.getFormat() != AdjacencyFormat.CSR) {
+                adjacency = copyRows(adjacency, mode);
+            } else if (config.getAdjacencyFormat() == AdjacencyFormat.COMPRESSED && adjacency.getFormat() != AdjacencyFormat.COMPRESSED) {
+                adjacency = compressRows(adjacency);
             }
 
-            String vertexName = verticesSubMap.get(VID);
-            JSONObject nodeObject = new JSONObject();
-            nodeObject.put("id", "" + VID);
-            int trianglesCount = getTrianglesCountForVertex(VID);
-            nodeObject.put("label", vertexName + " (" + trianglesCount + ")");
-            nodeObject.put("x", getRandomInt(boundingMinX, boundingMaxX));
-            nodeObject.put("y", getRandomInt(boundingMinY, boundingMaxY));
-            nodeObject.put("size", 1);
-            nodesArray.put(nodeObject);
-
-            count++;
-        }
-
-        JSONArray edgesArray = new JSONArray();
-
-        edges.keySet().forEach((Integer EID) -> {
-            LinkedHashMap connectionsMap = edges.get(EID);
-            int sourceID = (int) connectionsMap.get("S");
-            int destID = (int) connectionsMap.get("D");
-            if (processedVertices.contains(sourceID) && processedVertices.contains(destID)) {
-                JSONObject edgeObject = new JSONObject();
-                edgeObject.put("id", "" + EID);
-                edgeObject.put("source", "" + sourceID);
-                edgeObject.put("target", "" + destID);
-
-                edgesArray.put(edgeObject);
+            if (in.readBoolean()) {
+                trianglesCounts = SnapshotIO.readIntArray(in, verticesCount);
+                hotSpots = SnapshotIO.readIntArray(in, in.readInt());
+            }
+            if (version >= SNAPSHOT_VERSION_NO_TIMESTAMPS) {
+                vertexProperties = PropertyStore.read(in, verticesCount);
+                edgeProperties = PropertyStore.read(in, edgesCount);
+            }
+            if (version >= SNAPSHOT_VERSION_NO_EDGE_GAPS && in.readBoolean()) {
+                temporalEdges = TemporalEdges.read(in);
+                temporalEdges.build(verticesCount, edgeSources, edgeTargets, edgesCount, directed);
+            }
+            if (mode == StorageMode.OFF_HEAP) {
+                moveOffHeap();
             }
-        });
 
-        JSONObject graphOuterWrapper = new JSONObject();
-        graphOuterWrapper.put("nodes", nodesArray);
-        graphOuterWrapper.put("edges", edgesArray);
+            stopLoadPhase(GraphMetrics.PHASE_SNAPSHOT_READ, start);
+            Logger.getLogger(FastGraph.class.getName()).log(Level.INFO, "FastGraph: Opened snapshot with {0} vertices and {1} edges", new Object[]{verticesCount, edgesCount});
 
-        return graphOuterWrapper.toString(indent);
+        } catch (IOException ex) {
+            Logger.getLogger(FastGraph.class.getName()).log(Level.SEVERE, null, ex);
+            verticesCount = 0;
+            edgesCount = 0;
+            externalIDs = IntArray.allocate(0, StorageMode.HEAP);
+            edgeSources = IntArray.allocate(0, StorageMode.HEAP);
+            edgeTargets = IntArray.allocate(0, StorageMode.HEAP);
+            edgeWeights = IntArray.allocate(0, StorageMode.HEAP);
+            internalIDs = new IntIntHashMap();
+            sortedExternalIDs = null;
+            sortedInternalIDs = null;
+            nameStore = new NameStore();
+            nameIndex = null;
+            edgeIndex = new EdgeIndex(0, directed);
+            storageMode = StorageMode.HEAP;
+            trianglesCounts = null;
+            hotSpots = null;
+            vertexProperties = new PropertyStore();
+            edgeProperties = new PropertyStore();
+            temporalEdges = null;
+            buildAdjacency();
+        }
+
+        createQueryCache(config);
+        if (config.isComputeHotspots() && hotSpots == null) {
+            start = startTimer();
+            getRankByTrianglesCount(0);
+            stopLoadPhase(GraphMetrics.PHASE_HOTSPOTS, start);
+        }
+        if (config.isComputeComponents()) {
+            start = startTimer();
+            getStrongComponents();
+            stopLoadPhase(GraphMetrics.PHASE_COMPONENTS, start);
+        }
     }
 
     /**
-     * A static utility function to convert any text file to FastGraph files
+     * Save the graph to a binary snapshot that can be opened much faster than
+     * the text files. The snapshot keeps the vertex ordering, the adjacency,
+     * the properties, the timestamps and the hot spots if they were computed.
      *
-     * @param inputTextFile File containing the lines of text to tokenize
-     * @param outputVerticesFile A file containing comma-separated list of
-     * vertices ID and vertices name. This will be generated.
-     * @param outputEdgesFile A file containing comma-separated list of two
-     * vertices ID. For example, one row could be 25432, 1276287. This will be
-     * generated.
+     * @param snapshotFile The file to write
      */
-    public static void createFastGraphFiles(File inputTextFile, File outputVerticesFile, File outputEdgesFile) {
-
-        LinkedHashMap<String, Integer> verticesMap = new LinkedHashMap();
-        LinkedHashMap<Integer, String> reverse_verticesMap = new LinkedHashMap();
-        LinkedHashMap<Integer, ArrayList> edgesMap = new LinkedHashMap();
-
-        try {
-
-            //First pass
-            FileInputStream fis = new FileInputStream(inputTextFile);
-            Scanner scanner = new Scanner(fis);
-            int VID = 1;
-
-            while (scanner.hasNextLine()) {
-                String line = scanner.nextLine();
-                //System.out.println(line);
-                String delimeter = " ";
-                if (line.contains(",")) {
-                    delimeter = ",";
-                }
-                line = line.replaceAll("\"", "");
-
-                StringTokenizer stok = new StringTokenizer(line, delimeter);
-                while (stok.hasMoreTokens()) {
-                    String token = stok.nextToken().trim();
-                    if (!verticesMap.containsKey(token)) {
-                        if (!reverse_verticesMap.containsKey(VID)) {
-                            verticesMap.put(token, VID);
-                            reverse_verticesMap.put(VID, token);
-                            VID++;
-                        }
-
-                    }
-                }
-            }
+    public void saveSnapshot(File snapshotFile) {
+        long start = startTimer();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(snapshotFile), SnapshotIO.BUFFER_SIZE))) {
+            writeSnapshotHeader(out, vertexOrdering, directed, verticesCount, externalIDs, nameStore);
 
-            fis.close();
-
-            //System.out.println("Populated vertices: " + verticesMap.size());
-            //Second pass
-            fis = new FileInputStream(inputTextFile);
-            scanner = new Scanner(fis);
-
-            int EID = 1;
-
-            while (scanner.hasNextLine()) {
-                String line = scanner.nextLine();
-                String delimeter = " ";
-                if (line.contains(",")) {
-                    delimeter = ",";
-                }
-                line = line.replaceAll("\"", "");
-                StringTokenizer stok = new StringTokenizer(line, delimeter);
-                String prevToken = "";
-                int tokenCount = 0;
-                while (stok.hasMoreTokens()) {
-                    String token = stok.nextToken().trim();
-                    if (tokenCount == 0) {
-                        //Root
-                        prevToken = token;
-                        tokenCount++;
-                        continue;
-                    }
-
-                    int VID1 = verticesMap.get(prevToken);
-                    int VID2 = verticesMap.get(token);
-
-                    ArrayList connectionsList = new ArrayList();
-                    connectionsList.add(VID1);
-                    connectionsList.add(VID2);
-
-                    edgesMap.put(EID, connectionsList);
-                    EID++;
-                    tokenCount++;
-                }
-
-            }
-            fis.close();
-            //System.out.println("Populated edges: " + edgesMap.size());
+            out.writeInt(edgesCount);
+            SnapshotIO.writeIntArray(out, edgeSources, edgesCount);
+            SnapshotIO.writeIntArray(out, edgeTargets, edgesCount);
+            SnapshotIO.writeIntArray(out, edgeWeights, edgesCount);
 
-            //System.out.println("Write FastGraph files...");
-            FileWriter verticesWriter = new FileWriter(outputVerticesFile);
+            out.writeUTF(adjacency.getFormat().name());
+            //The out rows then the in rows if directed
+            adjacency.write(out);
 
-            verticesMap.keySet().forEach((vertexName) -> {
-                try {
-                    int vertexID = verticesMap.get(vertexName);
-                    verticesWriter.write(vertexID + ", " + vertexName + "\r\n");
-                } catch (IOException ex) {
-                    Logger.getLogger(FastGraph.class.getName()).log(Level.SEVERE, null, ex);
-                }
-            });
-
-            verticesWriter.close();
-
-            FileWriter edgesWriter = new FileWriter(outputEdgesFile);
-
-            edgesMap.keySet().forEach((edgeID) -> {
-                try {
-                    ArrayList connectionsList = edgesMap.get(edgeID);
-                    //Size is always 2
-                    edgesWriter.write(connectionsList.get(0) + ", " + connectionsList.get(1) + "\r\n");
-                } catch (IOException ex) {
-                    Logger.getLogger(FastGraph.class.getName()).log(Level.SEVERE, null, ex);
-                }
-            });
-
-            edgesWriter.close();
-
-        } catch (FileNotFoundException ex) {
-            Logger.getLogger(FastGraph.class.getName()).log(Level.SEVERE, null, ex);
+            writeSnapshotTrailer(out, verticesCount, edgesCount, trianglesCounts, hotSpots, vertexProperties, edgeProperties, temporalEdges);
         } catch (IOException ex) {
             Logger.getLogger(FastGraph.class.getName()).log(Level.SEVERE, null, ex);
         }
-
+        stopLoadPhase(GraphMetrics.PHASE_SNAPSHOT_WRITE, start);
     }
 
     /**
-     * Get all dangling vertices without any edges. These vertices are not
-     * connect with any other vertices
+     * Write the start of a snapshot, up to the edge columns: the version,
+     * the vertex ordering, the direction and the vertices with their names.
+     * Shared with ExternalGraphBuilder.
      *
-     * @return a Set containing the vertices IDs
+     * @param out The snapshot stream
+     * @param ordering The vertex ordering
+     * @param directed True for a directed graph
+     * @param verticesCount The number of vertices
+     * @param externalIDs The external IDs, indexed by internal ID
+     * @param nameStore The vertex names
+     * @throws IOException If the snapshot cannot be written
      */
-    public Set getAllVerticesWithNoEdges() {
-        //Compare vertices with edges to all the vertices
-        Set<Integer> allVertices = new HashSet<>(vertices.keySet());
-        Set<Integer> edgedVertices = new HashSet<>(edgesHelper.keySet());
-        allVertices.removeAll(edgedVertices);
-
-        return allVertices;
+    static void writeSnapshotHeader(DataOutputStream out, VertexOrdering ordering, boolean directed, int verticesCount, IntArray externalIDs, NameStore nameStore) throws IOException {
+        out.writeInt(SNAPSHOT_MAGIC);
+        out.writeInt(SNAPSHOT_VERSION);
+        out.writeUTF(ordering.name());
+        out.writeBoolean(directed);
+
+        out.writeInt(verticesCount);
+        SnapshotIO.writeIntArray(out, externalIDs, verticesCount);
+        nameStore.write(out, verticesCount);
     }
 
     /**
-     * Get the ID of the vertex by its name
+     * Write the end of a snapshot, after the rows: the hot spots, the
+     * properties and the timestamps. Shared with ExternalGraphBuilder.
      *
-     * @param line The name of the vertex
-     * @param patternMatch Should vertex name be pattern-matched if the exact
-     * vertex name is not available?
-     * @return Returns vertex ID
+     * @param out The snapshot stream
+     * @param verticesCount The number of vertices
+     * @param edgesCount The number of edges
+     * @param trianglesCounts The triangles of every vertex, or null
+     * @param hotSpots The hot spots, or null if they were not computed
+     * @param vertexProperties The vertex properties
+     * @param edgeProperties The edge properties
+     * @param temporalEdges The edge timestamps, or null
+     * @throws IOException If the snapshot cannot be written
      */
-    public Integer getVertexByName(String line, boolean patternMatch) {
-
-        if (!reverse_vertices.containsKey(line)) {
-            //Check pattern match
-            if (patternMatch) {
-
-                Set<String> reverseSet = reverse_vertices.keySet()
-                        .stream()
-                        .filter(s -> s.contains(line))
-                        .collect(Collectors.toSet());
-                return reverse_vertices.get(reverseSet.iterator().next());
-            } else {
-                return -1;
-            }
-        } else {
-            return reverse_vertices.get(line);
+    static void writeSnapshotTrailer(DataOutputStream out, int verticesCount, int edgesCount, int[] trianglesCounts, int[] hotSpots,
+            PropertyStore vertexProperties, PropertyStore edgeProperties, TemporalEdges temporalEdges) throws IOException {
+        out.writeBoolean(hotSpots != null);
+        if (hotSpots != null) {
+            SnapshotIO.writeIntArray(out, trianglesCounts, verticesCount);
+            out.writeInt(hotSpots.length);
+            SnapshotIO.writeIntArray(out, hotSpots, hotSpots.length);
+        }
+        vertexProperties.write(out, verticesCount);
+        edgeProperties.write(out, edgesCount);
+        out.writeBoolean(temporalEdges != null);
+        if (temporalEdges != null) {
+            temporalEdges.write(out);
         }
-
     }
 
     /**
-     * Get the vertex name from its ID
+     * Get the order in which the internal vertex IDs were assigned
      *
-     * @param VID The vertex ID
-     * @return The vertex name
+     * @return The vertex ordering of this graph
      */
-    public String getVertexByID(int VID) {
-        if (!vertices.containsKey(VID)) {
-            return null;
-        } else {
-            return vertices.get(VID);
-        }
+    public VertexOrdering getVertexOrdering() {
+        return vertexOrdering;
     }
 
     /**
-     * Get all the connections for the edge denoted by this edge ID
+     * Get the format the neighbor rows are stored in
      *
-     * @param EID The Edge ID
-     * @return A LinkedHashMap containing the Source VID, Destination VID and
-     * the connection weight
+     * @return The adjacency format of this graph
      */
-    public LinkedHashMap getVerticesForEdge(int EID) {
-        return edges.get(EID);
+    public AdjacencyFormat getAdjacencyFormat() {
+        return adjacency.getFormat();
     }
 
     /**
-     * Get all the edges for the vertex denoted by this vertex ID
+     * Get the memory held by the neighbor rows
      *
-     * @param VID The Vertex ID
-     * @return An ArrayList containing the list of all Edge IDs
+     * @return The approximate size of the adjacency in bytes
      */
-    public ArrayList getAllEdgesForVertex(int VID) {
-        return edgesHelper.get(VID);
+    public long getAdjacencySizeInBytes() {
+        return adjacency.sizeInBytes();
     }
 
     /**
-     * Get the vertices count for the graph
+     * Get where the vertex and edge arrays are kept
      *
-     * @return The vertices count
+     * @return The storage mode of this graph
      */
-    public int getVerticesSize() {
-        return vertices.size();
+    public StorageMode getStorageMode() {
+        return storageMode;
     }
 
     /**
-     * Get the edges size for the graph
-     *
-     * @return The edges size
+     * Release the memory held by the graph. Off-heap memory is freed right
+     * away. The graph cannot be used after it is closed.
      */
-    public int getEdgesSize() {
-        return edges.size();
+    @Override
+    public void close() {
+        invalidateQueryCache();
+        adjacency.close();
+        externalIDs.close();
+        edgeSources.close();
+        edgeTargets.close();
+        edgeWeights.close();
+        if (sortedExternalIDs != null) {
+            sortedExternalIDs.close();
+            sortedInternalIDs.close();
+        }
     }
 
     /**
-     * Find the number of triangles for this vertex
+     * Add an edge while loading. Vertices that are not known yet get an ID
+     * without a name. An edge that is already in the graph gets the weight
+     * added to its weight, capped at Integer.MAX_VALUE as EdgeRuns caps the
+     * merged weights.
      *
-     * @param VID1 The vertex ID
-     * @return The number of triangles connecting to this vertex
+     * @param VID1 Vertex 1
+     * @param VID2 Vertex 2
+     * @param weight The weight of the edge
+     * @return The internal edge ID (EID - 1)
      */
-    public int getTrianglesCountForVertex(int VID1) {
-        return getTrianglesForVertex(VID1).size();
+    int addEdge(int VID1, int VID2, int weight) {
+        int IVID1 = addVertex(VID1);
+        int IVID2 = addVertex(VID2);
+
+        //Find the correct EID to remove duplicate EIDs
+        int EID = edgesCount + 1;
+        int TEID = edgeIndex.putIfAbsent(IVID1, IVID2, EID);
+        if (TEID != EID) {
+            //addweights
+            edgeWeights.set(TEID - 1, (int) Math.min((long) edgeWeights.get(TEID - 1) + weight, Integer.MAX_VALUE));
+            return TEID - 1;
+        } else {
+            //First edge
+            if (edgesCount == edgeSources.length()) {
+                int capacity = edgesCount << 1;
+                edgeSources = edgeSources.copyOf(capacity, StorageMode.HEAP);
+                edgeTargets = edgeTargets.copyOf(capacity, StorageMode.HEAP);
+                edgeWeights = edgeWeights.copyOf(capacity, StorageMode.HEAP);
+            }
+            edgeSources.set(edgesCount, IVID1);
+            edgeTargets.set(edgesCount, IVID2);
+            edgeWeights.set(edgesCount, weight);
+            edgesCount++;
+            return EID - 1;
+        }
     }
 
     /**
-     * Find all the triangles for this vertex
+     * Get the counters of the query cache
      *
-     * @param VID1 The vertex ID
-     * @return An ArrayList of ArrayLIst containing all the cyclic paths. The
-     * paths are denoted by vertex IDs. Use getVertexByID method to get the
-     * vertex name.
+     * @return The cache counters, or null if the cache is disabled
      */
-    public ArrayList getTrianglesForVertex(int VID1) {
-        //Get all cyclic paths, if any
-        ArrayList<ArrayList> cyclicPaths = new ArrayList();
-        ArrayList<String> sortedPathList = new ArrayList();
-
-        if (VID1 == -1) {
-            return cyclicPaths;
-        }
+    public QueryCacheStats getQueryCacheStats() {
+        return queryCache == null ? null : queryCache.getStats();
+    }
 
-        ArrayList edgesList;
-        if (edgesHelper.containsKey(VID1)) {
-            //Edges availble
-            edgesList = edgesHelper.get(VID1);
-        } else {
-            //Orphaned vertices
-            return cyclicPaths;
+    /**
+     * Drop all the cached query results
+     */
+    public void invalidateQueryCache() {
+        if (queryCache != null) {
+            queryCache.invalidate();
         }
+    }
 
-        for (int i = 0; i < edgesList.size(); i++) {
-            int EID = (int) edgesList.get(i);
-            //Get vertices for this edge
-            LinkedHashMap edgesMap = edges.get(EID);
-            int sourceID = (int) edgesMap.get("S");
-            int destID = (int) edgesMap.get("D");
-
-            int neighborID = -1;
-            if (sourceID == VID1) {
-                neighborID = destID;
-            }
-            if (destID == VID1) {
-                neighborID = sourceID;
-            }
-
-            if (VID1 == neighborID) {
-                continue;
-            }
-            //Find connections for neighborID
-            ArrayList edgesList2 = edgesHelper.get(neighborID);
-
-            for (int j = 0; j < edgesList2.size(); j++) {
-                int EID2 = (int) edgesList2.get(j);
-                //Get vertices for this edge
-                LinkedHashMap edgesMap2 = edges.get(EID2);
-                int sourceID2 = (int) edgesMap2.get("S");
-                int destID2 = (int) edgesMap2.get("D");
+    /**
+     * Follow the long-running operations run from now on: the hot spots, the
+     * best trail in the graph and the exports
+     *
+     * @param progressListener The listener, or null for none
+     */
+    public void setProgressListener(ProgressListener progressListener) {
+        this.progressListener = progressListener;
+    }
 
-                int neighborID2 = -1;
-                if (sourceID2 == neighborID) {
-                    neighborID2 = destID2;
-                }
-                if (destID2 == neighborID) {
-                    neighborID2 = sourceID2;
-                }
-                if (VID1 == neighborID2) {
-                    continue;
-                }
+    private void createQueryCache(FastGraphConfig config) {
+        queryCache = config.getQueryCacheSize() > 0 ? new QueryCache(config.getQueryCacheSize()) : null;
+    }
 
-                //Find if VID1 is connected to neighborID2
-                int weight = getWeightofEdge(VID1, neighborID2);
-                if (weight != -1) {
-                    ArrayList<Integer> innerCyclicPaths = new ArrayList();
-                    String pathString = neighborID + "" + neighborID2;
-                    char[] chars = pathString.toCharArray();
-                    Arrays.sort(chars);
-                    String sortedPathString = new String(chars);
-
-                    if (!sortedPathList.contains(sortedPathString)) {
-                        sortedPathList.add(sortedPathString);
-                        innerCyclicPaths.add(VID1);
-                        innerCyclicPaths.add(neighborID);
-                        innerCyclicPaths.add(neighborID2);
-                        innerCyclicPaths.add(VID1);
-                        cyclicPaths.add(innerCyclicPaths);
-                    }
-                    //System.out.println(sortedPathString);
+    //The timers read the clock only if metrics are set
+    private long startTimer() {
+        return metrics == null ? 0 : System.nanoTime();
+    }
 
-                }
+    private void stopQuery(String query, long start) {
+        if (metrics != null) {
+            metrics.recordQuery(query, System.nanoTime() - start);
+        }
+    }
 
-            }
+    private void stopLoadPhase(String phase, long start) {
+        if (metrics != null) {
+            metrics.recordLoadPhase(phase, System.nanoTime() - start);
         }
-        return cyclicPaths;
     }
 
     /**
-     * Count the number of triangles for this graph
+     * Clean a vertex name read from a file
      *
-     * @return The number of triangles present in this graph
+     * @param vertex The name as found in the file
+     * @return The name with only word characters and spaces
      */
-    public int getTrianglesCount() {
-        return getAllTriangles().size();
+    static String cleanName(String vertex) {
+        vertex = vertex.trim();
+        //Clean
+        vertex = vertex.replaceAll("[^\\w\\s]", "").trim();
+        if (vertex.length() < 1) {
+            vertex = "EMPTY";
+        }
+        return vertex;
     }
 
     /**
-     * Get all the triangles present in this graph
+     * Name a vertex while loading
      *
-     * @return An ArrayList of ArrayList containing all the triangles in this
-     * graph. The paths are denoted by vertex IDs. Use getVertexByID method to
-     * get the vertex name.
+     * @param VID The vertex ID
+     * @param name The vertex name
+     * @return The internal vertex ID
      */
-    public ArrayList getAllTriangles() {
-        //Get all cyclic paths, if any
-        ArrayList<ArrayList> cyclicPaths = new ArrayList();
-        ArrayList<String> sortedPathList = new ArrayList();
-
-        for (int VID1 : vertices.keySet()) {
+    int addVertex(int VID, String name) {
+        int IVID = addVertex(VID);
+        nameStore.setName(IVID, name);
+        return IVID;
+    }
 
-            if (VID1 == -1) {
-                return cyclicPaths;
-            }
-            ArrayList edgesList = edgesHelper.get(VID1);
-            if (edgesList == null) {
-                continue;
-            }
+    /**
+     * Build the adjacency and apply the config once all the vertices and
+     * edges are added
+     *
+     * @param config The options used to load the graph
+     */
+    void finishLoading(FastGraphConfig config) {
+        metrics = config.getMetrics();
+        progressListener = config.getProgressListener();
+        threads = config.getThreads();
+        long start = startTimer();
+        buildAdjacency();
+        createQueryCache(config);
+        stopLoadPhase(GraphMetrics.PHASE_ADJACENCY, start);
+
+        if (config.getVertexOrdering() != VertexOrdering.NONE) {
+            start = startTimer();
+            reorderVertices(config.getVertexOrdering());
+            stopLoadPhase(GraphMetrics.PHASE_REORDER, start);
+        }
+        if (config.getAdjacencyFormat() == AdjacencyFormat.COMPRESSED) {
+            start = startTimer();
+            adjacency = compressRows(adjacency);
+            stopLoadPhase(GraphMetrics.PHASE_COMPRESS, start);
+        }
+        if (config.getStorageMode() == StorageMode.OFF_HEAP) {
+            start = startTimer();
+            moveOffHeap();
+            stopLoadPhase(GraphMetrics.PHASE_OFF_HEAP, start);
+        }
 
-            for (int i = 0; i < edgesList.size(); i++) {
-                int EID = (int) edgesList.get(i);
-                //Get vertices for this edge
-                LinkedHashMap edgesMap = edges.get(EID);
-                int sourceID = (int) edgesMap.get("S");
-                int destID = (int) edgesMap.get("D");
+        Logger.getLogger(FastGraph.class.getName()).log(Level.INFO, "FastGraph: Populated with {0} vertices and {1} edges", new Object[]{verticesCount, edgesCount});
 
-                int neighborID = -1;
-                if (sourceID == VID1) {
-                    neighborID = destID;
-                }
-                if (destID == VID1) {
-                    neighborID = sourceID;
-                }
-                if (VID1 == neighborID) {
-                    continue;
-                }
-                //Find connections for neighborID
-                ArrayList edgesList2 = edgesHelper.get(neighborID);
-
-                for (int j = 0; j < edgesList2.size(); j++) {
-                    int EID2 = (int) edgesList2.get(j);
-                    //Get vertices for this edge
-                    LinkedHashMap edgesMap2 = edges.get(EID2);
-                    int sourceID2 = (int) edgesMap2.get("S");
-                    int destID2 = (int) edgesMap2.get("D");
-
-                    int neighborID2 = -1;
-                    if (sourceID2 == neighborID) {
-                        neighborID2 = destID2;
-                    }
-                    if (destID2 == neighborID) {
-                        neighborID2 = sourceID2;
-                    }
-                    if (VID1 == neighborID2) {
-                        continue;
-                    }
-                    //Find if VID1 is connected to neighborID2
-                    int weight = getWeightofEdge(VID1, neighborID2);
-                    if (weight != -1) {
-                        ArrayList<Integer> innerCyclicPaths = new ArrayList();
-                        String pathString = neighborID + "" + neighborID2;
-                        char[] chars = pathString.toCharArray();
-                        Arrays.sort(chars);
-                        String sortedPathString = new String(chars);
-
-                        if (!sortedPathList.contains(sortedPathString)) {
-                            sortedPathList.add(sortedPathString);
-                            innerCyclicPaths.add(VID1);
-                            innerCyclicPaths.add(neighborID);
-                            innerCyclicPaths.add(neighborID2);
-                            innerCyclicPaths.add(VID1);
-                            cyclicPaths.add(innerCyclicPaths);
-                        }
-                        //System.out.println(sortedPathString);
+        if (config.isComputeHotspots()) {
+            Logger.getLogger(FastGraph.class.getName()).log(Level.INFO, "FastGraph: Computing hot spots...");
 
-                    }
+            start = startTimer();
+            getRankByTrianglesCount(0);
+            stopLoadPhase(GraphMetrics.PHASE_HOTSPOTS, start);
 
-                }
+            if (hotSpots != null) {
+                Logger.getLogger(FastGraph.class.getName()).log(Level.INFO, "FastGraph: Computing hot spots for {0} vertices...DONE", hotSpots.length);
             }
         }
 
-        return cyclicPaths;
+        if (config.isComputeComponents()) {
+            start = startTimer();
+            getStrongComponents();
+            stopLoadPhase(GraphMetrics.PHASE_COMPONENTS, start);
+        }
     }
 
     /**
-     * Get the weigh of the edge between 2 vertices
+     * Get the internal ID for a vertex, assigning the next one if the vertex
+     * is new
      *
-     * @param VID1 Vertex 1
-     * @param VID2 Vertex 2
-     * @return The weight or the connection strength between these 2 vertices
+     * @param VID The vertex ID used in the input files
+     * @return The internal vertex ID
      */
-    public int getWeightofEdge(int VID1, int VID2) {
-        //Get weight between edges
-        if (VID1 == -1 || VID2 == -1) {
-            return -1;
-        }
-        ArrayList<Integer> edgeCandidates = new ArrayList();
-        edgeCandidates.addAll(edgesHelper.get(VID1));
-        edgeCandidates.addAll(edgesHelper.get(VID2));
-
-        for (int i = 0; i < edgeCandidates.size(); i++) {
-            int EID = edgeCandidates.get(i);
-            LinkedHashMap edgesMap = edges.get(EID);
-            int sourceID = (int) edgesMap.get("S");
-            int destID = (int) edgesMap.get("D");
-
-            if (sourceID == VID1 && destID == VID2) {
-                return (int) edgesMap.get("W");
-            }
-            if (sourceID == VID2 && destID == VID1) {
-                return (int) edgesMap.get("W");
+    private int addVertex(int VID) {
+        int IVID = internalIDs.putIfAbsent(VID, verticesCount);
+        if (IVID == verticesCount) {
+            if (verticesCount == externalIDs.length()) {
+                externalIDs = externalIDs.copyOf(verticesCount << 1, StorageMode.HEAP);
             }
-
+            externalIDs.set(verticesCount, VID);
+            verticesCount++;
         }
+        return IVID;
+    }
 
-        return -1;
+    /**
+     * Trim the vertex and edge arrays and build the sorted neighbor rows
+     */
+    private void buildAdjacency() {
+        externalIDs = externalIDs.copyOf(verticesCount, StorageMode.HEAP);
+        nameStore.trim(verticesCount);
+        edgeSources = edgeSources.copyOf(edgesCount, StorageMode.HEAP);
+        edgeTargets = edgeTargets.copyOf(edgesCount, StorageMode.HEAP);
+        edgeWeights = edgeWeights.copyOf(edgesCount, StorageMode.HEAP);
+        vertexProperties.resize(verticesCount);
+        edgeProperties.resize(edgesCount);
+
+        if (directed) {
+            Adjacency out = CsrAdjacency.buildDirected(verticesCount, edgeSources, edgeTargets, edgesCount);
+            adjacency = new DirectedAdjacency(out, CsrAdjacency.buildDirected(verticesCount, edgeTargets, edgeSources, edgesCount));
+        } else {
+            adjacency = CsrAdjacency.build(verticesCount, edgeSources, edgeTargets, edgesCount);
+        }
+        if (temporalEdges != null) {
+            temporalEdges.build(verticesCount, edgeSources, edgeTargets, edgesCount, directed);
+        }
     }
 
     /**
-     * Get the count of edges for the vertex denoted by its ID
+     * Read rows written by Adjacency.write
      *
-     * @param VID The vertex ID
-     * @return The total number of edges for this vertex ID
+     * @param in The snapshot stream
+     * @param version The snapshot version
+     * @param format The format of the rows
+     * @param mode Where plain rows are kept
+     * @param reversed True for the in rows of a directed graph
+     * @return The rows
+     * @throws IOException If the rows cannot be read
      */
-    public int getEdgesCountForVertex(int VID) {
-        return getNumOfNeighbors(VID);
+    private Adjacency readRows(DataInputStream in, int version, AdjacencyFormat format, StorageMode mode, boolean reversed) throws IOException {
+        if (format == AdjacencyFormat.COMPRESSED) {
+            if (version <= SNAPSHOT_VERSION_NO_EDGE_GAPS) {
+                return CompressedAdjacency.readWithoutEdges(in, edgeIndex, reversed);
+            }
+            return CompressedAdjacency.read(in);
+        }
+        return CsrAdjacency.read(in, mode);
     }
 
     /**
-     * Get the count of edges for the vertex denoted by its ID
+     * Decode rows into plain rows, each direction apart if directed
      *
-     * @param VID The vertex ID
-     * @return The total number of edges for this vertex ID
+     * @param rows The rows to copy
+     * @param mode Where the rows are kept
+     * @return The plain rows
      */
-    public int getDegreeForVertex(int VID) {
-        return getNumOfNeighbors(VID);
+    private static Adjacency copyRows(Adjacency rows, StorageMode mode) {
+        if (rows instanceof DirectedAdjacency) {
+            DirectedAdjacency directedRows = (DirectedAdjacency) rows;
+            Adjacency out = CsrAdjacency.copyOf(directedRows.getOut(), mode);
+            return new DirectedAdjacency(out, CsrAdjacency.copyOf(directedRows.getIn(), mode));
+        }
+        return CsrAdjacency.copyOf(rows, mode);
     }
 
     /**
-     * Get the total number of neighbors for a vertex
+     * Compress rows, each direction apart if directed
      *
-     * @param VID The vertex ID
-     * @return The count of neighbors (vertices) for this vertex
+     * @param rows The rows to compress
+     * @return The compressed rows
      */
-    public int getNumOfNeighbors(int VID) {
-        //Try edgesHelper
-        if (VID == -1) {
-            return VID;
-        } else {
-            return edgesHelper.get(VID).size();
+    private static Adjacency compressRows(Adjacency rows) {
+        if (rows instanceof DirectedAdjacency) {
+            DirectedAdjacency directedRows = (DirectedAdjacency) rows;
+            Adjacency out = CompressedAdjacency.encode(directedRows.getOut());
+            return new DirectedAdjacency(out, CompressedAdjacency.encode(directedRows.getIn()));
         }
-        //Another way
-        //return (getNeighbors(VID, 1, false)).size();
+        return CompressedAdjacency.encode(rows);
     }
 
     /**
-     * Ranking algorithm. Get the best ranked vertices in this graph based on
-     * the triangles count
+     * Relabel the internal vertex IDs for better memory locality and rebuild
+     * the adjacency. Edge IDs and the IDs used by the public API do not
+     * change.
      *
-     * @param maxVertices The maximum number of vertices to be returned. For
-     * example, 20, indicates, top 20 ranked vertices.
-     * @return A sorted map containing (Vertex ID, Rank) containing the
-     * top-ranked vertices and their ranks.
+     * @param ordering The ordering to apply
      */
-    public Map getRankByTrianglesCount(int maxVertices) {
-
-        //If hotspots are available and not corrupted, return the hotspots instead
-        //as they already contain the traingles count.
-        if (hotSpots.size() == edgesHelper.size()) {
-            System.out.println("Hotspots in synch with edges");
-            LinkedHashMap<Integer, Integer> resultsMap = new LinkedHashMap();
+    private void reorderVertices(VertexOrdering ordering) {
+        int[] permutation = VertexReorderer.computePermutation(ordering, adjacency);
 
-            Iterator iter = hotSpots.keySet().iterator();
-
-            int count = 0;
-            while (iter.hasNext()) {
-                if (count == maxVertices) {
-                    break;
-                }
-                int VID = (int) iter.next();
-                int size = hotSpots.get(VID);
-                resultsMap.put(VID, size);
-                count++;
-            }
-            return resultsMap;
+        IntArray reorderedIDs = IntArray.allocate(verticesCount, StorageMode.HEAP);
+        for (int IVID = 0; IVID < verticesCount; IVID++) {
+            reorderedIDs.set(permutation[IVID], externalIDs.get(IVID));
+            internalIDs.put(externalIDs.get(IVID), permutation[IVID]);
+        }
+        externalIDs = reorderedIDs;
+        nameStore.reorder(permutation, verticesCount);
+        nameIndex = null;
+        vertexProperties.reorder(permutation, verticesCount);
+
+        edgeIndex = new EdgeIndex(edgesCount, directed);
+        for (int e = 0; e < edgesCount; e++) {
+            edgeSources.set(e, permutation[edgeSources.get(e)]);
+            edgeTargets.set(e, permutation[edgeTargets.get(e)]);
+            edgeIndex.putIfAbsent(edgeSources.get(e), edgeTargets.get(e), e + 1);
         }
 
-        LinkedHashMap rankedMap = new LinkedHashMap();
-        //Faster way
-        edgesHelper.keySet().forEach((VID) -> {
-            int trianglesCount = getTrianglesCountForVertex(VID);
-            rankedMap.put(VID, trianglesCount);
-        });
-
-        Map<Integer, Integer> sortedNeighborsMap = sortByComparator(rankedMap, false);
-        //Update internal hotspots
-        hotSpots = new LinkedHashMap();
-        hotSpots.putAll(sortedNeighborsMap);
-
-        LinkedHashMap<Integer, Integer> resultsMap = new LinkedHashMap();
+        buildAdjacency();
+        vertexOrdering = ordering;
+    }
 
-        Iterator iter = sortedNeighborsMap.keySet().iterator();
+    /**
+     * Move the vertex and edge arrays and the CSR rows to direct memory. The
+     * hash maps are replaced by binary searches over the off-heap arrays so
+     * that the heap only holds a few small objects. Compressed rows stay on
+     * the heap, they carry their own edge IDs so the edge index is dropped
+     * in both formats.
+     */
+    private void moveOffHeap() {
+        externalIDs = moveOffHeap(externalIDs);
+        edgeSources = moveOffHeap(edgeSources);
+        edgeTargets = moveOffHeap(edgeTargets);
+        edgeWeights = moveOffHeap(edgeWeights);
+        if (adjacency.getFormat() == AdjacencyFormat.CSR && adjacency.getStorageMode() != StorageMode.OFF_HEAP) {
+            Adjacency heapRows = adjacency;
+            adjacency = copyRows(heapRows, StorageMode.OFF_HEAP);
+            heapRows.close();
+        }
+        edgeIndex = null;
 
-        int count = 0;
-        while (iter.hasNext()) {
-            if (count == maxVertices) {
-                break;
-            }
-            int VID = (int) iter.next();
-            int size = sortedNeighborsMap.get(VID);
-            resultsMap.put(VID, size);
-            count++;
+        //Sort (external ID, internal ID) pairs by external ID
+        long[] pairs = new long[verticesCount];
+        for (int IVID = 0; IVID < verticesCount; IVID++) {
+            pairs[IVID] = ((long) externalIDs.get(IVID) << 32) | IVID;
         }
-        return resultsMap;
+        Arrays.sort(pairs);
+        sortedExternalIDs = IntArray.allocate(verticesCount, StorageMode.OFF_HEAP);
+        sortedInternalIDs = IntArray.allocate(verticesCount, StorageMode.OFF_HEAP);
+        for (int i = 0; i < verticesCount; i++) {
+            sortedExternalIDs.set(i, (int) (pairs[i] >> 32));
+            sortedInternalIDs.set(i, (int) pairs[i]);
+        }
+        internalIDs = null;
+        storageMode = StorageMode.OFF_HEAP;
+    }
 
+    private static IntArray moveOffHeap(IntArray array) {
+        if (array.getStorageMode() == StorageMode.OFF_HEAP) {
+            return array;
+        }
+        IntArray moved = array.copyOf(array.length(), StorageMode.OFF_HEAP);
+        array.close();
+        return moved;
     }
 
     /**
-     * Ranking algorithm. Get the best ranked vertices in this graph based on
-     * edges count.
+     * Translate a vertex ID from the input files to its internal ID
      *
-     * @param maxVertices The maximum number of vertices to be returned. For
-     * example, 20, indicates, top 20 ranked vertices.
-     * @return A sorted map containing (Vertex ID, Rank) containing the
-     * top-ranked vertices and their ranks.
+     * @param VID The vertex ID
+     * @return The internal ID or -1 if the vertex is not in this graph
      */
-    public Map getRankByEdgesCount(int maxVertices) {
-        LinkedHashMap rankedMap = new LinkedHashMap();
-        //Faster way
-        edgesHelper.keySet().forEach((VID) -> {
-            ArrayList edgesList = edgesHelper.get(VID);
-            //System.out.println(VID + " - " + edgesList.size());
-            rankedMap.put(VID, edgesList.size());
-        });
-
-        /*
-        //Method 2: Rank all vertices based on neighbor strength
-        vertices.keySet().forEach((VID) -> {
-            int numNeighbors = getNumOfNeighbors(VID);
-            //System.out.println(VID + " - " + numNeighbors);
-            rankedMap.put(VID, numNeighbors);
-        });
-         */
-        Map<Integer, Integer> sortedNeighborsMap = sortByComparator(rankedMap, false);
-
-        LinkedHashMap<Integer, Integer> resultsMap = new LinkedHashMap();
-
-        Iterator iter = sortedNeighborsMap.keySet().iterator();
-
-        int count = 0;
-        while (iter.hasNext()) {
-            if (count == maxVertices) {
-                break;
+    private int toInternal(int VID) {
+        if (VID == -1) {
+            return -1;
+        }
+        if (internalIDs != null) {
+            return internalIDs.get(VID);
+        }
+        int low = 0;
+        int high = verticesCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midVID = sortedExternalIDs.get(mid);
+            if (midVID < VID) {
+                low = mid + 1;
+            } else if (midVID > VID) {
+                high = mid - 1;
+            } else {
+                return sortedInternalIDs.get(mid);
             }
-            int VID = (int) iter.next();
-            int size = sortedNeighborsMap.get(VID);
-            resultsMap.put(VID, size);
-            count++;
         }
-        return resultsMap;
-
+        return -1;
     }
 
     /**
-     * Get the best trail (path) length for this vertex
+     * Find the edge between 2 vertices
      *
-     * @param VID The vertex ID
-     * @param depth The maximum depth (hops) of search
-     * @return The count of hops after which teh path ends
+     * @param IVID1 Internal ID of vertex 1
+     * @param IVID2 Internal ID of vertex 2
+     * @return The edge ID or -1 if the vertices are not connected
      */
-    public int getBestTrailLength(int VID, int depth) {
-        return getBestTrail(VID, depth, false).size();
+    private int findEdge(int IVID1, int IVID2) {
+        if (directed) {
+            //Prefer the edge from vertex 1 to vertex 2
+            int EID = findEdge(IVID1, IVID2, Direction.OUT);
+            return EID != -1 ? EID : findEdge(IVID1, IVID2, Direction.IN);
+        }
+        if (edgeIndex != null) {
+            return edgeIndex.get(IVID1, IVID2);
+        }
+        //Binary search the shorter row
+        if (adjacency.degree(IVID1) > adjacency.degree(IVID2)) {
+            int swap = IVID1;
+            IVID1 = IVID2;
+            IVID2 = swap;
+        }
+        NeighborCursor cursor = adjacency.cursor();
+        cursor.reset(IVID1);
+        if (cursor.skipPast(IVID2 - 1) && cursor.neighbor() == IVID2) {
+            return cursor.edge() + 1;
+        }
+        return -1;
     }
 
     /**
-     * Get the best trail (path) in the graph
+     * Find the edge between 2 vertices in a direction
      *
-     * @param depth The maximum depth (hops) of search
-     * @return A LinkedHashMap (VID, ArrayList of paths) representing the best
-     * trail in the graph.
+     * @param IVID1 Internal ID of vertex 1
+     * @param IVID2 Internal ID of vertex 2
+     * @param direction OUT for an edge from vertex 1 to vertex 2, IN for an
+     * edge from vertex 2 to vertex 1
+     * @return The edge ID or -1 if there is no such edge
      */
-    public LinkedHashMap getBestTrailInGraph(int depth) {
-
-        ArrayList path = new ArrayList();
-        int bestVID = -1;
-
-        for (int VID : vertices.keySet()) {
-            ArrayList bestTrail = getBestTrail(VID, depth, false);
-            System.out.println(VID + ": " + bestTrail.size());
-            if (bestTrail.size() > path.size()) {
-                path = bestTrail;
-                bestVID = VID;
-            }
+    private int findEdge(int IVID1, int IVID2, Direction direction) {
+        if (!directed || direction == Direction.BOTH) {
+            return findEdge(IVID1, IVID2);
         }
-
-        LinkedHashMap<Integer, ArrayList> bestTrail = new LinkedHashMap();
-        bestTrail.put(bestVID, path);
-        return bestTrail;
-
+        if (direction == Direction.IN) {
+            int swap = IVID1;
+            IVID1 = IVID2;
+            IVID2 = swap;
+        }
+        if (edgeIndex != null) {
+            return edgeIndex.get(IVID1, IVID2);
+        }
+        NeighborCursor cursor = rows(Direction.OUT).cursor();
+        cursor.reset(IVID1);
+        if (cursor.skipPast(IVID2 - 1) && cursor.neighbor() == IVID2) {
+            return cursor.edge() + 1;
+        }
+        return -1;
     }
 
     /**
-     * Get the best trail (path) for this vertex
+     * Find the edge between 2 vertices in the rows a search walks
      *
-     * @param VID The Vertex ID
-     * @param depth The maximum depth (hops) of search
-     * @param sortByWeights Should the connections be sorted by its weight?
-     * @return An ArrayList (Vertex IDs) containing the vertices of the trail.
+     * @param IVID1 Internal ID of vertex 1
+     * @param IVID2 Internal ID of vertex 2
+     * @param direction The direction of the search
+     * @param rows The rows of the graph in that direction, or other rows
+     * such as the rows of a time window
+     * @return The internal edge ID (EID - 1), or -1 if the row of vertex 1
+     * does not hold vertex 2
      */
-    public ArrayList getBestTrail(int VID, int depth, boolean sortByWeights) {
-
-        ArrayList<Integer> strongPathList = new ArrayList();
-        if (VID == -1) {
-            return strongPathList;
+    private int findEdge(int IVID1, int IVID2, Direction direction, NeighborRows rows) {
+        if (rows == rows(direction)) {
+            int EID = findEdge(IVID1, IVID2, direction);
+            return EID == -1 ? -1 : EID - 1;
         }
-        ArrayList<Integer> visitedList = new ArrayList();
-
-        ArrayList<Integer> hotSpotsList = new ArrayList();
-
-        Iterator hotSpotIter = hotSpots.keySet().iterator();
-
-        int count = 0;
-        int maxCount = edgesHelper.size() / 10;
-        while (hotSpotIter.hasNext()) {
-            //Prefer one tenth of the top vertices only
-            if (count == maxCount) {
-                break;
+        //Other rows are not sorted by neighbor
+        NeighborCursor cursor = rows.cursor();
+        cursor.reset(IVID1);
+        while (cursor.next()) {
+            if (cursor.neighbor() == IVID2) {
+                return cursor.edge();
             }
-            int vertexID = (int) hotSpotIter.next();
-            hotSpotsList.add(vertexID);
-            count++;
         }
+        return -1;
+    }
 
-        int SVID = VID;
-        for (int i = 0; i < depth; i++) {
-            //One hop only
-            //System.out.println("HOP: "+i+" with "+SVID);
-            Map neighbors = getNeighbors(SVID, 1, sortByWeights);
-            //System.out.println(neighbors.toString());
-
-            Iterator iter = neighbors.keySet().iterator();
-            while (iter.hasNext()) {
-                SVID = (int) iter.next();
-                //Prefer hotspot
-                if (hotSpotsList.contains(SVID)) {
-                    if (!visitedList.contains(SVID)) {
-                        visitedList.add(SVID);
-                        if (SVID != VID) {
-                            //System.out.println(SVID + ":" + VID + "  " + neighbor);
-                            strongPathList.add(SVID);
-                        }
-
-                    }
-                    break;
-                }
-                //Else the last connection is used for traversal
-            }
-
+    /**
+     * Get the rows to follow in a direction
+     *
+     * @param direction The direction
+     * @return The out or in rows of a directed graph, or all the rows
+     */
+    private Adjacency rows(Direction direction) {
+        if (!directed || direction == Direction.BOTH) {
+            return adjacency;
         }
-
-        return strongPathList;
-
+        DirectedAdjacency directedRows = (DirectedAdjacency) adjacency;
+        return direction == Direction.OUT ? directedRows.getOut() : directedRows.getIn();
     }
 
     /**
-     * Find if 2 vertices are directly connected
+     * Are the edges of this graph directed?
      *
-     * @param VID1 Vertex 1
-     * @param VID2 Vertex 2
-     * @return True if the 2 vertices are directly connected
+     * @return True if a:b and b:a are different edges
      */
-    public boolean isDirectlyConnected(int VID1, int VID2) {
-        ArrayList edgeList1 = edgesHelper.get(VID1);
-        //Create a scratch list because retainAll removes from
-        //the original list
-        ArrayList dup_edgeList1 = new ArrayList();
-        dup_edgeList1.addAll(edgeList1);
-
-        ArrayList edgeList2 = edgesHelper.get(VID2);
-        ArrayList dup_edgeList2 = new ArrayList();
-        dup_edgeList2.addAll(edgeList2);
-
-        dup_edgeList1.retainAll(dup_edgeList2);
+    public boolean isDirected() {
+        return directed;
+    }
 
-        return !dup_edgeList1.isEmpty(); //Not directly connected
+    /**
+     * Were the edges loaded with timestamps?
+     *
+     * @return True if the queries taking a time window can be used
+     */
+    public boolean hasEdgeTimestamps() {
+        return temporalEdges != null;
     }
 
     /**
-     * Find the best path between 2 vertices. A long-running operation for
-     * massive graphs. Only 20 hops are made.
+     * Get the timestamps of the edges for a windowed query
      *
-     * @param VID1 Vertex I
-     * @param VID2 Vertex 2
+     * @return The events of the edges
+     * @throws IllegalStateException If the edges have no timestamps
+     */
+    private TemporalEdges getTemporalEdges() {
+        if (temporalEdges == null) {
+            throw new IllegalStateException("The edges have no timestamps");
+        }
+        return temporalEdges;
+    }
+
+    private int getRandomInt(int minInt, int maxInt) {
+        return new Random().nextInt(maxInt - minInt) + minInt;
+    }
+
+    /**
+     * Extract the vertices at most some hops away from seed vertices, with
+     * the edges between them, as a new graph. The cost grows with the rows
+     * of the extracted vertices, not with the size of this graph.
+     *
+     * @param seeds The vertex IDs to start from. IDs that are not in the
+     * graph are ignored.
+     * @param hops The maximum number of hops from the seeds, 0 for the seeds
+     * only
+     * @return An independent graph holding the extracted vertices, with their
+     * names and properties, and the edges between them, with their weights,
+     * properties and timestamps
+     */
+    public FastGraph extractSubgraph(int[] seeds, int hops) {
+        return extractSubgraph(seeds, hops, new FastGraphConfig().setThreads(threads));
+    }
+
+    /**
+     * Extract the vertices at most some hops away from seed vertices, with
+     * the edges between them, as a new graph built with a config
+     *
+     * @param seeds The vertex IDs to start from
+     * @param hops The maximum number of hops from the seeds
+     * @param config The options used to build the new graph
+     * @return An independent graph holding the extracted vertices and the
+     * edges between them
+     */
+    public FastGraph extractSubgraph(int[] seeds, int hops, FastGraphConfig config) {
+        long start = startTimer();
+        FastGraph subgraph = extract(seeds, hops, config, "extractSubgraph");
+        stopQuery("extractSubgraph", start);
+        return subgraph;
+    }
+
+    /**
+     * Extract some vertices with the edges between them as a new graph
+     *
+     * @param VIDs The vertex IDs to extract. IDs that are not in the graph
+     * are ignored.
+     * @return An independent graph holding the vertices, with their names
+     * and properties, and the edges between them, with their weights,
+     * properties and timestamps
+     */
+    public FastGraph extractInducedSubgraph(int[] VIDs) {
+        return extractInducedSubgraph(VIDs, new FastGraphConfig().setThreads(threads));
+    }
+
+    /**
+     * Extract some vertices with the edges between them as a new graph built
+     * with a config
+     *
+     * @param VIDs The vertex IDs to extract
+     * @param config The options used to build the new graph
+     * @return An independent graph holding the vertices and the edges between
+     * them
+     */
+    public FastGraph extractInducedSubgraph(int[] VIDs, FastGraphConfig config) {
+        long start = startTimer();
+        FastGraph subgraph = extract(VIDs, 0, config, "extractInducedSubgraph");
+        stopQuery("extractInducedSubgraph", start);
+        return subgraph;
+    }
+
+    private FastGraph extract(int[] seeds, int hops, FastGraphConfig config, String query) {
+        //Extracted vertices in the order they are found, by internal ID
+        IntIntHashMap extracted = new IntIntHashMap(seeds.length);
+        int[] found = new int[Math.max(16, seeds.length)];
+        int foundCount = 0;
+        for (int VID : seeds) {
+            int IVID = toInternal(VID);
+            if (IVID != -1 && extracted.putIfAbsent(IVID, foundCount) == foundCount) {
+                found[foundCount++] = IVID;
+            }
+        }
+
+        //Breadth first, one hop at a time
+        NeighborCursor cursor = adjacency.cursor();
+        int levelStart = 0;
+        for (int hop = 0; hop < hops && levelStart < foundCount; hop++) {
+            int levelEnd = foundCount;
+            for (int i = levelStart; i < levelEnd; i++) {
+                cursor.reset(found[i]);
+                while (cursor.next()) {
+                    int neighbor = cursor.neighbor();
+                    if (extracted.putIfAbsent(neighbor, foundCount) == foundCount) {
+                        if (foundCount == found.length) {
+                            found = Arrays.copyOf(found, foundCount << 1);
+                        }
+                        found[foundCount++] = neighbor;
+                    }
+                }
+            }
+            levelStart = levelEnd;
+        }
+        return copySubgraph(found, foundCount, extracted, config, query);
+    }
+
+    /**
+     * Copy vertices and the edges between them to a new graph
+     *
+     * @param found The internal IDs of the vertices
+     * @param foundCount The number of vertices
+     * @param extracted The vertices, by internal ID
+     * @param config The options used to build the new graph
+     * @param query The name of the query, for the metrics
+     * @return The new graph
+     */
+    private FastGraph copySubgraph(int[] found, int foundCount, IntIntHashMap extracted, FastGraphConfig config, String query) {
+        FastGraph subgraph = new FastGraph(directed);
+        subgraph.vertexProperties = vertexProperties.emptyCopy();
+        subgraph.edgeProperties = edgeProperties.emptyCopy();
+        subgraph.temporalEdges = temporalEdges == null ? null : new TemporalEdges();
+        for (int i = 0; i < foundCount; i++) {
+            String name = nameStore.getName(found[i]);
+            int IVID = name == null ? subgraph.addVertex(externalIDs.get(found[i])) : subgraph.addVertex(externalIDs.get(found[i]), name);
+            subgraph.vertexProperties.copy(IVID, vertexProperties, found[i]);
+        }
+        //Each edge once, from the row of its smaller vertex, or from the out
+        //row of its source if directed
+        Adjacency rows = rows(Direction.OUT);
+        NeighborCursor cursor = rows.cursor();
+        long edgesVisited = 0;
+        for (int i = 0; i < foundCount; i++) {
+            int IVID = found[i];
+            cursor.reset(IVID);
+            while (cursor.next()) {
+                int neighbor = cursor.neighbor();
+                if ((directed || neighbor >= IVID) && extracted.containsKey(neighbor)) {
+                    int e = cursor.edge();
+                    int edge = subgraph.addEdge(externalIDs.get(edgeSources.get(e)), externalIDs.get(edgeTargets.get(e)), edgeWeights.get(e));
+                    subgraph.edgeProperties.copy(edge, edgeProperties, e);
+                    if (temporalEdges != null) {
+                        temporalEdges.copyEvents(e, subgraph.temporalEdges, edge);
+                    }
+                }
+            }
+            edgesVisited += rows.degree(IVID);
+        }
+        if (metrics != null) {
+            metrics.recordVisits(query, foundCount, edgesVisited);
+        }
+        subgraph.finishLoading(config);
+        return subgraph;
+    }
+
+    public String exportDotForGraph(int processOnly) {
+
+        StringBuilder dotString = new StringBuilder(directed ? "digraph FastGraph {\r\n" : "graph FastGraph {\r\n");
+        String edgeOperator = directed ? " -> " : " -- ";
+        Progress progress = new Progress(progressListener, ProgressListener.EXPORT, edgesCount);
+
+        int e = 0;
+        for (; e < edgesCount; e++) {
+
+            if (e == processOnly || !progress.step(e)) {
+                break;
+            }
+            String source = "\"" + nameStore.getName(edgeSources.get(e)) + "\"";
+            String dest = "\"" + nameStore.getName(edgeTargets.get(e)) + "\"";
+            dotString.append("    ").append(source).append(edgeOperator).append(dest).append(";\r\n");
+        }
+
+        dotString.append("\r\n}");
+        progress.finish(e);
+
+        return dotString.toString();
+    }
+
+    /**
+     * Get the JSON representation of one vertex and all its neighbors
+     *
+     * @param vertexID The Vertex ID of the graph and all its children will be
+     * exported.
+     * @param processOnly Maximum number of vertices to convert to JSON. If -1,
+     * the whole graph is converted into a JSON.
+     * @param maxXY The exported JSON will contain values for X and Y
+     * coordinates. These values are required for SigmaJS to render the
+     * vertices. maxXY is the maximum value X or Y can have.
+     * @param indent The indent for JSON string
+     * @return a JSON string that can be used to visualize the graph using
+     * SigmaJS library.
+     */
+    public String exportJSONForVertex(int vertexID, int processOnly, int maxXY, int indent) {
+        return getJSON(processOnly, maxXY, indent, false, -1, true, vertexID, Direction.BOTH);
+    }
+
+    /**
+     * Get the JSON representation of one vertex and its neighbors in a
+     * direction
+     *
+     * @param vertexID The Vertex ID of the graph and all its children will be
+     * exported.
+     * @param processOnly Maximum number of vertices to convert to JSON. If -1,
+     * the whole graph is converted into a JSON.
+     * @param maxXY The maximum value X or Y can have
+     * @param indent The indent for JSON string
+     * @param direction The edges followed to the children
+     * @return a JSON string that can be used to visualize the graph using
+     * SigmaJS library.
+     */
+    public String exportJSONForVertex(int vertexID, int processOnly, int maxXY, int indent, Direction direction) {
+        return getJSON(processOnly, maxXY, indent, false, -1, true, vertexID, direction);
+    }
+
+    /**
+     * Get the JSON representation of the current graph
+     *
+     * @param processOnly Maximum number of vertices to convert to JSON. If -1,
+     * the whole graph is converted into a JSON.
+     * @param maxXY The exported JSON will contain values for X and Y
+     * coordinates. These values are required for SigmaJS to render the
+     * vertices. maxXY is the maximum value X or Y can have.
+     * @param indent The indent for JSON string
+     * @param forRankedVerticesOnly A subgraph containing best vertices will
+     * only be exported to JSON.
+     * @param topRanksOnly If forRankedVerticesOnly is True, you can specify the
+     * number of vertices to include as the root nodes.
+     * @return a JSON string that can be used to visualize the graph using
+     * SigmaJS library.
+     */
+    public String exportJSONForGraph(int processOnly, int maxXY, int indent, boolean forRankedVerticesOnly, int topRanksOnly) {
+        return getJSON(processOnly, maxXY, indent, forRankedVerticesOnly, topRanksOnly, false, -1, Direction.BOTH);
+    }
+
+    /**
+     * Get the JSON representation of the current graph
+     *
+     * @param processOnly Maximum number of vertices to convert to JSON. If -1,
+     * the whole graph is converted into a JSON.
+     * @param maxXY The exported JSON will contain values for X and Y
+     * coordinates. These values are required for SigmaJS to render the
+     * vertices. maxXY is the maximum value X or Y can have.
+     * @param indent The indent for JSON string
+     * @param forRankedVerticesOnly A subgraph containing best vertices will
+     * only be exported to JSON.
+     * @param topRanksOnly If forRankedVerticesOnly is True, you can specify the
+     * number of vertices to include as the root nodes.
+     * @param processOneVertexOnly A JSON of the graph can be exported for only
+     * one vertex only
+     * @param vertexID The Vertex ID of the graph and all its children will be
+     * exported.
+     * @param direction The edges followed to the children
+     * @return a JSON string that can be used to visualize the graph using
+     * SigmaJS library.
+     */
+    private String getJSON(int processOnly, int maxXY, int indent, boolean forRankedVerticesOnly, int topRanksOnly, boolean processOneVertexOnly, int vertexID, Direction direction) {
+
+        if (processOnly == -1) {
+            processOnly = verticesCount;
+        }
+        boolean[] rankedNeighborVertices = null;
+
+        if (forRankedVerticesOnly || processOneVertexOnly) {
+            Map<Integer, Integer> rankedVertices;
+            if (processOneVertexOnly) {
+                rankedVertices = new LinkedHashMap();
+                rankedVertices.put(vertexID, 100);
+            } else {
+                rankedVertices = getRankByTrianglesCount(topRanksOnly);
+            }
+
+            rankedNeighborVertices = new boolean[verticesCount];
+            NeighborCursor cursor = rows(direction).cursor();
+            for (int VID : rankedVertices.keySet()) {
+                int IVID = toInternal(VID);
+                if (IVID == -1) {
+                    continue;
+                }
+                //Get children
+                rankedNeighborVertices[IVID] = true;
+                cursor.reset(IVID);
+                while (cursor.next()) {
+                    rankedNeighborVertices[cursor.neighbor()] = true;
+                }
+            }
+        }
+
+        //Populate
+        int boundingLimit = processOnly / 2;
+        //Create subsets. Space is precious...consider only top vertices and
+        //their children if ranked.
+        boolean[] processedVertices = new boolean[verticesCount];
+
+        JSONArray nodesArray = new JSONArray();
+        TriangleVisitor triangles = new TriangleVisitor();
+        Progress progress = new Progress(progressListener, ProgressListener.EXPORT, verticesCount, 64);
+
+        int count = 0;
+
+        int IVID = 0;
+        for (; IVID < verticesCount; IVID++) {
+            if (count == processOnly || !progress.step(IVID)) {
+                break;
+            }
+            if (rankedNeighborVertices != null && !rankedNeighborVertices[IVID]) {
+                continue;
+            }
+            processedVertices[IVID] = true;
+
+            //Check bounding limt
+            int boundingMaxX = 0;
+            int boundingMaxY = 0;
+            int boundingMinX = 0;
+            int boundingMinY = 0;
+            if (count > boundingLimit) {
+                boundingMaxX = maxXY;
+                boundingMaxY = maxXY / 2;
+                boundingMinX = maxXY / 2;
+                boundingMinY = 0;
+            } else {
+                boundingMaxX = maxXY / 2;
+                boundingMaxY = maxXY / 2;
+                boundingMinX = 0;
+                boundingMinY = 0;
+            }
+
+            JSONObject nodeObject = new JSONObject();
+            nodeObject.put("id", "" + externalIDs.get(IVID));
+            int trianglesCount = triangles.visit(IVID, false, null);
+            nodeObject.put("label", nameStore.getName(IVID) + " (" + trianglesCount + ")");
+            nodeObject.put("x", getRandomInt(boundingMinX, boundingMaxX));
+            nodeObject.put("y", getRandomInt(boundingMinY, boundingMaxY));
+            nodeObject.put("size", 1);
+            nodesArray.put(nodeObject);
+
+            count++;
+        }
+
+        JSONArray edgesArray = new JSONArray();
+
+        for (int e = 0; e < edgesCount; e++) {
+            if (processedVertices[edgeSources.get(e)] && processedVertices[edgeTargets.get(e)]) {
+                JSONObject edgeObject = new JSONObject();
+                edgeObject.put("id", "" + (e + 1));
+                edgeObject.put("source", "" + externalIDs.get(edgeSources.get(e)));
+                edgeObject.put("target", "" + externalIDs.get(edgeTargets.get(e)));
+                if (directed) {
+                    edgeObject.put("type", "arrow");
+                }
+
+                edgesArray.put(edgeObject);
+            }
+        }
+
+        progress.finish(IVID);
+
+        JSONObject graphOuterWrapper = new JSONObject();
+        graphOuterWrapper.put("nodes", nodesArray);
+        graphOuterWrapper.put("edges", edgesArray);
+
+        return graphOuterWrapper.toString(indent);
+    }
+
+    /**
+     * A static utility function to convert any text file to FastGraph files
+     *
+     * @param inputTextFile File containing the lines of text to tokenize
+     * @param outputVerticesFile A file containing comma-separated list of
+     * vertices ID and vertices name. This will be generated.
+     * @param outputEdgesFile A file containing comma-separated list of two
+     * vertices ID. For example, one row could be 25432, 1276287. This will be
+     * generated.
+     */
+    public static void createFastGraphFiles(File inputTextFile, File outputVerticesFile, File outputEdgesFile) {
+        new TextGraphConverter().convert(inputTextFile, outputVerticesFile, outputEdgesFile);
+    }
+
+    /**
+     * A static utility function to convert any text file straight to a
+     * FastGraph snapshot that can be opened with FastGraph(File)
+     *
+     * @param inputTextFile File containing the lines of text to tokenize
+     * @param snapshotFile The snapshot to write
+     */
+    public static void createFastGraphSnapshot(File inputTextFile, File snapshotFile) {
+        new TextGraphConverter().convertToSnapshot(inputTextFile, snapshotFile, new FastGraphConfig());
+    }
+
+    /**
+     * Get all dangling vertices without any edges. These vertices are not
+     * connect with any other vertices
+     *
+     * @return a Set containing the vertices IDs
+     */
+    public Set getAllVerticesWithNoEdges() {
+        Set<Integer> allVertices = new HashSet<>();
+        for (int IVID = 0; IVID < verticesCount; IVID++) {
+            if (adjacency.degree(IVID) == 0) {
+                allVertices.add(externalIDs.get(IVID));
+            }
+        }
+
+        return allVertices;
+    }
+
+    /**
+     * Get the ID of the vertex by its name
+     *
+     * @param line The name of the vertex
+     * @param patternMatch Should vertex name be pattern-matched if the exact
+     * vertex name is not available?
+     * @return Returns vertex ID, the best match if the name was
+     * pattern-matched, or -1 if no vertex matches
+     */
+    public Integer getVertexByName(String line, boolean patternMatch) {
+
+        long start = startTimer();
+        int IVID = nameStore.getVertex(line);
+        if (IVID == -1 && patternMatch) {
+            //Check pattern match
+            int[] matches = getNameIndex().findBySubstring(line, 1);
+            IVID = matches.length == 0 ? -1 : matches[0];
+        }
+        stopQuery("getVertexByName", start);
+        return IVID == -1 ? -1 : externalIDs.get(IVID);
+
+    }
+
+    /**
+     * Find the vertices whose name starts with a prefix. Exact matches come
+     * first, then shorter names.
+     *
+     * @param prefix The start of the vertex name
+     * @param limit The maximum number of vertices to return
+     * @return The IDs of the best matching vertices, best first
+     */
+    public ArrayList<Integer> findVerticesByPrefix(String prefix, int limit) {
+        long start = startTimer();
+        ArrayList<Integer> VIDs = toExternalList(getNameIndex().findByPrefix(prefix, limit));
+        stopQuery("findVerticesByPrefix", start);
+        return VIDs;
+    }
+
+    /**
+     * Find the vertices whose name contains a string. Exact matches come
+     * first, then names starting with the string, then shorter names.
+     *
+     * @param pattern The string to look for in the vertex names
+     * @param limit The maximum number of vertices to return
+     * @return The IDs of the best matching vertices, best first
+     */
+    public ArrayList<Integer> findVerticesByName(String pattern, int limit) {
+        long start = startTimer();
+        ArrayList<Integer> VIDs = toExternalList(getNameIndex().findBySubstring(pattern, limit));
+        stopQuery("findVerticesByName", start);
+        return VIDs;
+    }
+
+    private NameIndex getNameIndex() {
+        if (nameIndex == null) {
+            nameIndex = NameIndex.build(nameStore);
+        }
+        return nameIndex;
+    }
+
+    private ArrayList<Integer> toExternalList(int[] IVIDs) {
+        ArrayList<Integer> VIDs = new ArrayList<>(IVIDs.length);
+        for (int IVID : IVIDs) {
+            VIDs.add(externalIDs.get(IVID));
+        }
+        return VIDs;
+    }
+
+    /**
+     * Get the vertex name from its ID
+     *
+     * @param VID The vertex ID
+     * @return The vertex name
+     */
+    public String getVertexByID(int VID) {
+        int IVID = toInternal(VID);
+        if (IVID == -1) {
+            return null;
+        } else {
+            return nameStore.getName(IVID);
+        }
+    }
+
+    /**
+     * Get all the connections for the edge denoted by this edge ID
+     *
+     * @param EID The Edge ID
+     * @return A LinkedHashMap containing the Source VID, Destination VID and
+     * the connection weight
+     */
+    public LinkedHashMap getVerticesForEdge(int EID) {
+        if (EID < 1 || EID > edgesCount) {
+            return null;
+        }
+        LinkedHashMap edgesMap = new LinkedHashMap();
+        edgesMap.put("S", externalIDs.get(edgeSources.get(EID - 1)));
+        edgesMap.put("D", externalIDs.get(edgeTargets.get(EID - 1)));
+        edgesMap.put("W", edgeWeights.get(EID - 1));
+        return edgesMap;
+    }
+
+    /**
+     * Get all the edges for the vertex denoted by this vertex ID
+     *
+     * @param VID The Vertex ID
+     * @return An ArrayList containing the list of all Edge IDs
+     */
+    public ArrayList getAllEdgesForVertex(int VID) {
+        int IVID = toInternal(VID);
+        if (IVID == -1 || adjacency.degree(IVID) == 0) {
+            return null;
+        }
+        ArrayList<Integer> edgesList = new ArrayList(adjacency.degree(IVID));
+        NeighborCursor cursor = adjacency.cursor();
+        cursor.reset(IVID);
+        while (cursor.next()) {
+            edgesList.add(cursor.edge() + 1);
+        }
+        return edgesList;
+    }
+
+    /**
+     * Get the vertices count for the graph
+     *
+     * @return The vertices count
+     */
+    public int getVerticesSize() {
+        return verticesCount;
+    }
+
+    /**
+     * Get the edges size for the graph
+     *
+     * @return The edges size
+     */
+    public int getEdgesSize() {
+        return edgesCount;
+    }
+
+    /**
+     * Find the number of triangles for this vertex
+     *
+     * @param VID1 The vertex ID
+     * @return The number of triangles connecting to this vertex
+     */
+    public int getTrianglesCountForVertex(int VID1) {
+        long start = startTimer();
+        int IVID = toInternal(VID1);
+        int count = IVID == -1 ? 0 : new TriangleVisitor().visit(IVID, false, null);
+        stopQuery("getTrianglesCountForVertex", start);
+        return count;
+    }
+
+    /**
+     * Find all the triangles for this vertex
+     *
+     * @param VID1 The vertex ID
+     * @return An ArrayList of ArrayLIst containing all the cyclic paths. The
+     * paths are denoted by vertex IDs. Use getVertexByID method to get the
+     * vertex name.
+     */
+    public ArrayList getTrianglesForVertex(int VID1) {
+        ArrayList<ArrayList> cyclicPaths = new ArrayList();
+        forEachTriangleForVertex(VID1, (int VID, int neighborID, int neighborID2) -> {
+            cyclicPaths.add(toCyclicPath(VID, neighborID, neighborID2));
+        });
+        return cyclicPaths;
+    }
+
+    /**
+     * Stream all the triangles for this vertex without materializing them.
+     * Every triangle is reported once as (VID1, neighbor 1, neighbor 2).
+     *
+     * @param VID1 The vertex ID
+     * @param consumer The callback receiving the vertex IDs of each triangle
+     */
+    public void forEachTriangleForVertex(int VID1, IntTriConsumer consumer) {
+        int IVID = toInternal(VID1);
+        if (IVID != -1) {
+            new TriangleVisitor().visit(IVID, false, consumer);
+        }
+    }
+
+    /**
+     * Count the number of triangles for this graph
+     *
+     * @return The number of triangles present in this graph
+     */
+    public int getTrianglesCount() {
+        return countTriangles(QueryGuard.NONE);
+    }
+
+    /**
+     * Count the number of triangles for this graph, within the bounds of a
+     * token
+     *
+     * @param token The token bounding the count
+     * @return The number of triangles present in this graph, or the number
+     * found before the token fired
+     */
+    public QueryResult<Integer> getTrianglesCount(CancellationToken token) {
+        QueryGuard guard = new QueryGuard(token);
+        int count = countTriangles(guard);
+        return new QueryResult<>(count, guard.getStatus());
+    }
+
+    private int countTriangles(QueryGuard guard) {
+        long start = startTimer();
+        TriangleVisitor triangles = new TriangleVisitor(guard);
+        int count = 0;
+        for (int IVID = 0; IVID < verticesCount && !guard.stop(1); IVID++) {
+            count += triangles.visit(IVID, true, null);
+        }
+        stopQuery("getTrianglesCount", start);
+        return count;
+    }
+
+    /**
+     * Get all the triangles present in this graph
+     *
+     * @return An ArrayList of ArrayList containing all the triangles in this
+     * graph. The paths are denoted by vertex IDs. Use getVertexByID method to
+     * get the vertex name.
+     */
+    public ArrayList getAllTriangles() {
+        ArrayList<ArrayList> cyclicPaths = new ArrayList();
+        forEachTriangle((int VID1, int VID2, int VID3) -> {
+            cyclicPaths.add(toCyclicPath(VID1, VID2, VID3));
+        });
+        return cyclicPaths;
+    }
+
+    /**
+     * Stream all the triangles present in this graph without materializing
+     * them. Every triangle is reported exactly once.
+     *
+     * @param consumer The callback receiving the vertex IDs of each triangle
+     */
+    public void forEachTriangle(IntTriConsumer consumer) {
+        forEachTriangle(consumer, QueryGuard.NONE);
+    }
+
+    /**
+     * Stream all the triangles present in this graph, within the bounds of a
+     * token. Every triangle is reported at most once.
+     *
+     * @param consumer The callback receiving the vertex IDs of each triangle
+     * @param token The token bounding the scan
+     * @return COMPLETE if every triangle was reported, or why the scan stopped
+     */
+    public QueryStatus forEachTriangle(IntTriConsumer consumer, CancellationToken token) {
+        QueryGuard guard = new QueryGuard(token);
+        forEachTriangle(consumer, guard);
+        return guard.getStatus();
+    }
+
+    private void forEachTriangle(IntTriConsumer consumer, QueryGuard guard) {
+        TriangleVisitor triangles = new TriangleVisitor(guard);
+        for (int IVID = 0; IVID < verticesCount && !guard.stop(1); IVID++) {
+            triangles.visit(IVID, true, consumer);
+        }
+    }
+
+    /**
+     * Find the number of triangles for this vertex whose 3 edges all have a
+     * row within a time window
+     *
+     * @param VID1 The vertex ID
+     * @param from The first time of the window
+     * @param to The last time of the window, included
+     * @return The number of triangles connecting to this vertex in the window
+     * @throws IllegalStateException If the edges have no timestamps
+     */
+    public int getTrianglesCountForVertex(int VID1, long from, long to) {
+        long start = startTimer();
+        TriangleVisitor triangles = new TriangleVisitor(QueryGuard.NONE, getTemporalEdges().window(Direction.BOTH, from, to));
+        int IVID = toInternal(VID1);
+        int count = IVID == -1 ? 0 : triangles.visit(IVID, false, null);
+        stopQuery("getTrianglesCountForVertex", start);
+        return count;
+    }
+
+    /**
+     * Stream the triangles for this vertex whose 3 edges all have a row
+     * within a time window. Every triangle is reported once as (VID1,
+     * neighbor 1, neighbor 2).
+     *
+     * @param VID1 The vertex ID
+     * @param from The first time of the window
+     * @param to The last time of the window, included
+     * @param consumer The callback receiving the vertex IDs of each triangle
+     * @throws IllegalStateException If the edges have no timestamps
+     */
+    public void forEachTriangleForVertex(int VID1, long from, long to, IntTriConsumer consumer) {
+        TriangleVisitor triangles = new TriangleVisitor(QueryGuard.NONE, getTemporalEdges().window(Direction.BOTH, from, to));
+        int IVID = toInternal(VID1);
+        if (IVID != -1) {
+            triangles.visit(IVID, false, consumer);
+        }
+    }
+
+    /**
+     * Count the triangles of this graph whose 3 edges all have a row within
+     * a time window
+     *
+     * @param from The first time of the window
+     * @param to The last time of the window, included
+     * @return The number of triangles present in the window
+     * @throws IllegalStateException If the edges have no timestamps
+     */
+    public int getTrianglesCount(long from, long to) {
+        long start = startTimer();
+        NeighborRows window = getTemporalEdges().window(Direction.BOTH, from, to);
+        ArrayList<TriangleVisitor> visitors = forEachBlock(() -> new TriangleVisitor(QueryGuard.NONE, window), (TriangleVisitor triangles, int first, int last) -> {
+            for (int IVID = first; IVID < last; IVID++) {
+                triangles.counted += triangles.visit(IVID, true, null);
+            }
+        }, new Progress(null, null, 0), new AtomicInteger(), QueryGuard.NONE);
+        long count = 0;
+        for (TriangleVisitor triangles : visitors) {
+            count += triangles.counted;
+        }
+        stopQuery("getTrianglesCount", start);
+        return (int) count;
+    }
+
+    /**
+     * Stream the triangles of this graph whose 3 edges all have a row within
+     * a time window. Every triangle is reported exactly once.
+     *
+     * @param from The first time of the window
+     * @param to The last time of the window, included
+     * @param consumer The callback receiving the vertex IDs of each triangle
+     * @throws IllegalStateException If the edges have no timestamps
+     */
+    public void forEachTriangle(long from, long to, IntTriConsumer consumer) {
+        TriangleVisitor triangles = new TriangleVisitor(QueryGuard.NONE, getTemporalEdges().window(Direction.BOTH, from, to));
+        for (int IVID = 0; IVID < verticesCount; IVID++) {
+            triangles.visit(IVID, true, consumer);
+        }
+    }
+
+    /**
+     * Walks the triangles of one vertex at a time by intersecting its sorted
+     * neighbor row with the rows of its neighbors. The row buffers and the
+     * cursor are reused from one vertex to the next. A guard is checked
+     * before every row merge, so a vertex with a huge row can be stopped in
+     * the middle. Rows that are not sorted by neighbor, such as the rows of
+     * a time window, are copied and sorted before they are merged.
+     */
+    private final class TriangleVisitor {
+
+        private final NeighborRows rows;
+        private final NeighborCursor cursor;
+        private final QueryGuard guard;
+        private final boolean sorted;
+        private int[] row = new int[16];
+        //The neighbor row being merged, for rows that are not sorted
+        private int[] other = new int[16];
+        //Triangles counted by the thread, used by getTrianglesCount(long, long)
+        long counted;
+
+        TriangleVisitor() {
+            this(QueryGuard.NONE);
+        }
+
+        TriangleVisitor(QueryGuard guard) {
+            this(guard, adjacency);
+        }
+
+        TriangleVisitor(QueryGuard guard, NeighborRows rows) {
+            this.guard = guard;
+            this.rows = rows;
+            cursor = rows.cursor();
+            sorted = rows == adjacency;
+        }
+
+        /**
+         * Visit the triangles of a vertex. A triangle (v, a, b) is reported
+         * only when a < b so that each pair of neighbors is seen once. If
+         * ascendingOnly is True, it is also required that v < a, so every
+         * triangle of the graph is reported from its smallest vertex only.
+         *
+         * @param IVID The internal vertex ID
+         * @param ascendingOnly Report only triangles where IVID is the
+         * smallest vertex
+         * @param consumer The callback for each triangle, can be null for
+         * counting
+         * @return The number of triangles visited
+         */
+        int visit(int IVID, boolean ascendingOnly, IntTriConsumer consumer) {
+            int size;
+            if (sorted) {
+                int degree = rows.degree(IVID);
+                if (degree > row.length) {
+                    row = new int[Math.max(degree, row.length << 1)];
+                }
+                size = 0;
+                cursor.reset(IVID);
+                while (cursor.next()) {
+                    row[size++] = cursor.neighbor();
+                }
+            } else {
+                int length = readSorted(IVID, -1);
+                int[] swap = row;
+                row = other;
+                other = swap;
+                //A neighbor linked both ways is in both rows of a directed
+                //graph
+                size = 0;
+                for (int i = 0; i < length; i++) {
+                    if (size == 0 || row[size - 1] != row[i]) {
+                        row[size++] = row[i];
+                    }
+                }
+            }
+
+            int count = 0;
+            for (int i = 0; i < size; i++) {
+                int neighbor = row[i];
+                if (neighbor == IVID || (ascendingOnly && neighbor < IVID)) {
+                    continue;
+                }
+                if (guard.stop(rows.degree(neighbor) + 1)) {
+                    break;
+                }
+                //Common neighbors greater than neighbor, merged from both rows
+                int p = i + 1;
+                if (sorted) {
+                    cursor.reset(neighbor);
+                    boolean more = cursor.skipPast(neighbor);
+                    while (p < size && more) {
+                        int a = row[p];
+                        int b = cursor.neighbor();
+                        if (a < b) {
+                            p++;
+                        } else if (a > b) {
+                            more = cursor.next();
+                        } else {
+                            count += report(IVID, neighbor, a, consumer);
+                            p++;
+                            more = cursor.next();
+                        }
+                    }
+                } else {
+                    int length = readSorted(neighbor, neighbor);
+                    int q = 0;
+                    while (p < size && q < length) {
+                        int a = row[p];
+                        int b = other[q];
+                        if (a < b) {
+                            p++;
+                        } else if (a > b) {
+                            q++;
+                        } else {
+                            count += report(IVID, neighbor, a, consumer);
+                            p++;
+                            q++;
+                        }
+                    }
+                }
+            }
+            return count;
+        }
+
+        //Report a triangle closed by a common neighbor, unless it is the
+        //vertex itself through a self-loop
+        private int report(int IVID, int neighbor, int common, IntTriConsumer consumer) {
+            if (common == IVID) {
+                return 0;
+            }
+            if (consumer != null) {
+                consumer.accept(externalIDs.get(IVID), externalIDs.get(neighbor), externalIDs.get(common));
+            }
+            return 1;
+        }
+
+        /**
+         * Read the neighbors of a row greater than a value into other, sorted
+         *
+         * @param IVID The internal vertex ID
+         * @param min The value the neighbors must be greater than
+         * @return The number of neighbors read
+         */
+        private int readSorted(int IVID, int min) {
+            int size = 0;
+            cursor.reset(IVID);
+            while (cursor.next()) {
+                if (cursor.neighbor() > min) {
+                    if (size == other.length) {
+                        other = Arrays.copyOf(other, size << 1);
+                    }
+                    other[size++] = cursor.neighbor();
+                }
+            }
+            Arrays.sort(other, 0, size);
+            return size;
+        }
+    }
+
+    private ArrayList<Integer> toCyclicPath(int VID1, int VID2, int VID3) {
+        ArrayList<Integer> innerCyclicPaths = new ArrayList(4);
+        innerCyclicPaths.add(VID1);
+        innerCyclicPaths.add(VID2);
+        innerCyclicPaths.add(VID3);
+        innerCyclicPaths.add(VID1);
+        return innerCyclicPaths;
+    }
+
+    /**
+     * Get the weigh of the edge between 2 vertices
+     *
+     * @param VID1 Vertex 1
+     * @param VID2 Vertex 2
+     * @return The weight or the connection strength between these 2 vertices
+     */
+    public int getWeightofEdge(int VID1, int VID2) {
+        int EID = getEdgeID(VID1, VID2);
+        if (EID == -1) {
+            return -1;
+        }
+        return edgeWeights.get(EID - 1);
+    }
+
+    /**
+     * Get the weight of the edge between 2 vertices within a time window:
+     * the sum of the weights of its rows with a timestamp in the window,
+     * instead of all its rows. Takes 2 binary searches over the rows of the
+     * edge, whatever the size of the window. The sum is capped at
+     * Integer.MAX_VALUE.
+     *
+     * @param VID1 Vertex 1
+     * @param VID2 Vertex 2
+     * @param from The first time of the window
+     * @param to The last time of the window, included
+     * @return The weight within the window, 0 if the edge has no row in the
+     * window, or -1 if the vertices are not directly connected
+     * @throws IllegalStateException If the edges have no timestamps
+     */
+    public int getWeightofEdge(int VID1, int VID2, long from, long to) {
+        TemporalEdges events = getTemporalEdges();
+        int EID = getEdgeID(VID1, VID2);
+        if (EID == -1) {
+            return -1;
+        }
+        return events.weight(EID - 1, from, to);
+    }
+
+    /**
+     * Get the ID of the edge between 2 vertices
+     *
+     * @param VID1 Vertex 1
+     * @param VID2 Vertex 2
+     * @return The edge ID or -1 if the vertices are not directly connected
+     */
+    public int getEdgeID(int VID1, int VID2) {
+        int IVID1 = toInternal(VID1);
+        int IVID2 = toInternal(VID2);
+        if (IVID1 == -1 || IVID2 == -1) {
+            return -1;
+        }
+        return findEdge(IVID1, IVID2);
+    }
+
+    /**
+     * Get the properties of the vertices
+     *
+     * @return The type of every vertex property, in column order
+     */
+    public Map<String, PropertyType> getVertexProperties() {
+        return vertexProperties.getTypes();
+    }
+
+    /**
+     * Get the properties of the edges
+     *
+     * @return The type of every edge property, in column order
+     */
+    public Map<String, PropertyType> getEdgeProperties() {
+        return edgeProperties.getTypes();
+    }
+
+    /**
+     * Get a number property of a vertex as an integer. Decimals are
+     * truncated.
+     *
+     * @param VID The Vertex ID
+     * @param property The property name
+     * @return The value, 0 if the vertex is not in the graph or was loaded
+     * without a value
+     * @throws IllegalArgumentException If there is no such number property
+     */
+    public long getVertexLongProperty(int VID, String property) {
+        PropertyColumn column = vertexProperties.get(property);
+        int IVID = toInternal(VID);
+        return IVID == -1 ? 0 : column.getLong(IVID);
+    }
+
+    /**
+     * Get a number property of a vertex as a decimal
+     *
+     * @param VID The Vertex ID
+     * @param property The property name
+     * @return The value, 0 if the vertex is not in the graph or was loaded
+     * without a value
+     * @throws IllegalArgumentException If there is no such number property
+     */
+    public double getVertexDoubleProperty(int VID, String property) {
+        PropertyColumn column = vertexProperties.get(property);
+        int IVID = toInternal(VID);
+        return IVID == -1 ? 0 : column.getDouble(IVID);
+    }
+
+    /**
+     * Get a property of a vertex as a string
+     *
+     * @param VID The Vertex ID
+     * @param property The property name
+     * @return The value, null if the vertex is not in the graph or a string
+     * property was loaded without a value
+     * @throws IllegalArgumentException If there is no such property
+     */
+    public String getVertexStringProperty(int VID, String property) {
+        PropertyColumn column = vertexProperties.get(property);
+        int IVID = toInternal(VID);
+        return IVID == -1 ? null : column.getString(IVID);
+    }
+
+    /**
+     * Get a number property of the edge between 2 vertices as an integer.
+     * Decimals are truncated.
+     *
+     * @param VID1 Vertex 1
+     * @param VID2 Vertex 2
+     * @param property The property name
+     * @return The value, 0 if the vertices are not directly connected or the
+     * edge was loaded without a value
+     * @throws IllegalArgumentException If there is no such number property
+     */
+    public long getEdgeLongProperty(int VID1, int VID2, String property) {
+        PropertyColumn column = edgeProperties.get(property);
+        int EID = getEdgeID(VID1, VID2);
+        return EID == -1 ? 0 : column.getLong(EID - 1);
+    }
+
+    /**
+     * Get a number property of the edge between 2 vertices as a decimal
+     *
+     * @param VID1 Vertex 1
+     * @param VID2 Vertex 2
+     * @param property The property name
+     * @return The value, 0 if the vertices are not directly connected or the
+     * edge was loaded without a value
+     * @throws IllegalArgumentException If there is no such number property
+     */
+    public double getEdgeDoubleProperty(int VID1, int VID2, String property) {
+        PropertyColumn column = edgeProperties.get(property);
+        int EID = getEdgeID(VID1, VID2);
+        return EID == -1 ? 0 : column.getDouble(EID - 1);
+    }
+
+    /**
+     * Get a property of the edge between 2 vertices as a string
+     *
+     * @param VID1 Vertex 1
+     * @param VID2 Vertex 2
+     * @param property The property name
+     * @return The value, null if the vertices are not directly connected or a
+     * string property was loaded without a value
+     * @throws IllegalArgumentException If there is no such property
+     */
+    public String getEdgeStringProperty(int VID1, int VID2, String property) {
+        PropertyColumn column = edgeProperties.get(property);
+        int EID = getEdgeID(VID1, VID2);
+        return EID == -1 ? null : column.getString(EID - 1);
+    }
+
+    /**
+     * Get the count of edges for the vertex denoted by its ID
+     *
+     * @param VID The vertex ID
+     * @return The total number of edges for this vertex ID
+     */
+    public int getEdgesCountForVertex(int VID) {
+        return getNumOfNeighbors(VID);
+    }
+
+    /**
+     * Get the count of edges for the vertex denoted by its ID
+     *
+     * @param VID The vertex ID
+     * @return The total number of edges for this vertex ID
+     */
+    public int getDegreeForVertex(int VID) {
+        return getNumOfNeighbors(VID);
+    }
+
+    /**
+     * Get the total number of neighbors for a vertex
+     *
+     * @param VID The vertex ID
+     * @return The count of neighbors (vertices) for this vertex
+     */
+    public int getNumOfNeighbors(int VID) {
+        int IVID = toInternal(VID);
+        if (IVID == -1) {
+            return -1;
+        }
+        return adjacency.degree(IVID);
+    }
+
+    /**
+     * Ranking algorithm. Get the best ranked vertices in this graph based on
+     * the triangles count
+     *
+     * @param maxVertices The maximum number of vertices to be returned. For
+     * example, 20, indicates, top 20 ranked vertices.
+     * @return A sorted map containing (Vertex ID, Rank) containing the
+     * top-ranked vertices and their ranks. The map is empty if the progress
+     * listener cancelled the count.
+     */
+    public Map getRankByTrianglesCount(int maxVertices) {
+        return rankByTriangles(maxVertices, QueryGuard.NONE);
+    }
+
+    /**
+     * Ranking algorithm. Get the best ranked vertices in this graph based on
+     * the triangles count, within the bounds of a token. The hot spots are
+     * only kept if the count completes.
+     *
+     * @param maxVertices The maximum number of vertices to be returned
+     * @param token The token bounding the count
+     * @return A sorted map containing (Vertex ID, Rank) containing the
+     * top-ranked vertices and their ranks, empty if the token fired
+     */
+    public QueryResult<Map> getRankByTrianglesCount(int maxVertices, CancellationToken token) {
+        QueryGuard guard = new QueryGuard(token);
+        Map ranks = rankByTriangles(maxVertices, guard);
+        return new QueryResult<>(ranks, guard.getStatus());
+    }
+
+    private Map rankByTriangles(int maxVertices, QueryGuard guard) {
+
+        //If hotspots are available, return the hotspots instead
+        //as they already contain the traingles count.
+        if (hotSpots != null) {
+            return toRankMap(hotSpots, trianglesCounts, maxVertices);
+        }
+
+        long start = startTimer();
+        int[] counts = new int[verticesCount];
+        TriangleVisitor triangles = new TriangleVisitor(guard);
+        Progress progress = new Progress(progressListener, ProgressListener.HOTSPOTS, verticesCount);
+        for (int IVID = 0; IVID < verticesCount; IVID++) {
+            if (!progress.step(IVID) || guard.stop(1)) {
+                if (progress.isCancelled()) {
+                    guard.cancelled();
+                }
+                //Partial counts would rank the vertices wrongly
+                progress.finish(IVID);
+                stopQuery("getRankByTrianglesCount", start);
+                return new LinkedHashMap();
+            }
+            counts[IVID] = triangles.visit(IVID, false, null);
+        }
+        if (guard.getStatus() != QueryStatus.COMPLETE) {
+            //Stopped in the last vertex
+            stopQuery("getRankByTrianglesCount", start);
+            return new LinkedHashMap();
+        }
+        progress.finish(verticesCount);
+
+        //Update internal hotspots
+        trianglesCounts = counts;
+        hotSpots = sortByRank(counts);
+        //Neighbors are ranked by triangles from now on
+        invalidateQueryCache();
+        stopQuery("getRankByTrianglesCount", start);
+
+        return toRankMap(hotSpots, trianglesCounts, maxVertices);
+
+    }
+
+    /**
+     * Ranking algorithm. Get the best ranked vertices in this graph based on
+     * edges count.
+     *
+     * @param maxVertices The maximum number of vertices to be returned. For
+     * example, 20, indicates, top 20 ranked vertices.
+     * @return A sorted map containing (Vertex ID, Rank) containing the
+     * top-ranked vertices and their ranks.
+     */
+    public Map getRankByEdgesCount(int maxVertices) {
+        return getRankByEdgesCount(maxVertices, Direction.BOTH);
+    }
+
+    /**
+     * Ranking algorithm. Get the best ranked vertices in this graph based on
+     * the count of edges in a direction, such as the most cited vertices of
+     * a citation graph with IN.
+     *
+     * @param maxVertices The maximum number of vertices to be returned. For
+     * example, 20, indicates, top 20 ranked vertices.
+     * @param direction The edges counted
+     * @return A sorted map containing (Vertex ID, Rank) containing the
+     * top-ranked vertices and their ranks.
+     */
+    public Map getRankByEdgesCount(int maxVertices, Direction direction) {
+        Adjacency rows = rows(direction);
+        int[] degrees = new int[verticesCount];
+        for (int IVID = 0; IVID < verticesCount; IVID++) {
+            degrees[IVID] = rows.degree(IVID);
+        }
+
+        return toRankMap(sortByRank(degrees), degrees, maxVertices);
+
+    }
+
+    /**
+     * Ranking algorithm. Get the best ranked vertices in this graph based on
+     * PageRank. The ranks are computed on the first call and kept. In a
+     * directed graph the ranks flow along the edge directions.
+     *
+     * @param maxVertices The maximum number of vertices to be returned. For
+     * example, 20, indicates, top 20 ranked vertices.
+     * @return A sorted map containing (Vertex ID, PageRank) containing the
+     * top-ranked vertices and their ranks. The ranks of all the vertices add
+     * up to 1.
+     */
+    public Map getRankByPageRank(int maxVertices) {
+        double[] ranks = getPageRanks();
+
+        //Positive floats sort like their bits, ties keep the order of the
+        //internal IDs
+        long[] keys = new long[verticesCount];
+        int size = 0;
+        for (int IVID = 0; IVID < verticesCount; IVID++) {
+            if (adjacency.degree(IVID) != 0) {
+                keys[size++] = ((long) (Integer.MAX_VALUE - Float.floatToIntBits((float) ranks[IVID])) << 32) | IVID;
+            }
+        }
+        Arrays.sort(keys, 0, size);
+
+        LinkedHashMap<Integer, Double> resultsMap = new LinkedHashMap();
+        for (int i = 0; i < size && i != maxVertices; i++) {
+            int IVID = (int) keys[i];
+            resultsMap.put(externalIDs.get(IVID), ranks[IVID]);
+        }
+        return resultsMap;
+    }
+
+    /**
+     * Get the PageRank of every vertex, computing it on the first call. The
+     * ranks are pulled from the in rows, which are all the rows when the
+     * graph is undirected, and every iteration runs in parallel. The rank of
+     * the vertices without edges out is spread over all the vertices.
+     *
+     * @return The ranks, indexed by internal ID
+     */
+    private double[] getPageRanks() {
+        double[] ranks = pageRanks;
+        if (ranks != null) {
+            return ranks;
+        }
+        long start = startTimer();
+        ranks = new double[verticesCount];
+        Arrays.fill(ranks, 1.0 / verticesCount);
+        double[] shares = new double[verticesCount];
+        double[] next = new double[verticesCount];
+        Progress none = new Progress(null, null, 0);
+        Adjacency out = rows(Direction.OUT);
+        Adjacency in = rows(Direction.IN);
+        //One pool for all the iterations
+        ExecutorService executor = newBlockExecutor();
+        try {
+            for (int iteration = 0; iteration < PAGERANK_ITERATIONS; iteration++) {
+                double dangling = 0;
+                for (int IVID = 0; IVID < verticesCount; IVID++) {
+                    int degree = out.degree(IVID);
+                    if (degree == 0) {
+                        dangling += ranks[IVID];
+                        shares[IVID] = 0;
+                    } else {
+                        shares[IVID] = ranks[IVID] / degree;
+                    }
+                }
+                double base = (1 - PAGERANK_DAMPING + PAGERANK_DAMPING * dangling) / verticesCount;
+                double[] current = ranks;
+                forEachBlock(in::cursor, (NeighborCursor cursor, int from, int to) -> {
+                    for (int IVID = from; IVID < to; IVID++) {
+                        double sum = 0;
+                        cursor.reset(IVID);
+                        while (cursor.next()) {
+                            sum += shares[cursor.neighbor()];
+                        }
+                        next[IVID] = base + PAGERANK_DAMPING * sum;
+                    }
+                }, none, new AtomicInteger(), QueryGuard.NONE, executor);
+
+                double delta = 0;
+                for (int IVID = 0; IVID < verticesCount; IVID++) {
+                    delta += Math.abs(next[IVID] - current[IVID]);
+                }
+                System.arraycopy(next, 0, ranks, 0, verticesCount);
+                if (delta < PAGERANK_TOLERANCE) {
+                    break;
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+        pageRanks = ranks;
+        stopQuery("getRankByPageRank", start);
+        return ranks;
+    }
+
+    /**
+     * Get the number of strongly connected components. Every vertex belongs
+     * to one component, and 2 vertices share a component if each is reached
+     * from the other along the edge directions. In an undirected graph the
+     * components are the connected components. They are split on the first
+     * call and kept.
+     *
+     * @return The number of components
+     */
+    public int getStronglyConnectedComponentsCount() {
+        return getStrongComponents().getCount();
+    }
+
+    /**
+     * Get the strongly connected component of a vertex. Components are
+     * numbered from 0 in topological order: every edge between 2 components
+     * goes from the smaller ID to the larger one.
+     *
+     * @param VID The Vertex ID
+     * @return The component ID or -1 if the vertex is not in the graph
+     */
+    public int getComponentID(int VID) {
+        int IVID = toInternal(VID);
+        if (IVID == -1) {
+            return -1;
+        }
+        return getStrongComponents().getComponents()[IVID];
+    }
+
+    /**
+     * Get the vertices in the strongly connected component of a vertex
+     *
+     * @param VID The Vertex ID
+     * @return An ArrayList (Vertex IDs) containing the vertex and all the
+     * vertices in its component
+     */
+    public ArrayList getComponentForVertex(int VID) {
+        int IVID = toInternal(VID);
+        if (IVID == -1) {
+            return new ArrayList();
+        }
+        StrongComponents split = getStrongComponents();
+        return toExternalList(split.getMembers(split.getComponents()[IVID]));
+    }
+
+    /**
+     * Condense the strongly connected components into a new graph with a
+     * vertex per component. The vertex IDs are the component IDs, and the
+     * edges between 2 components are merged into one edge weighing their
+     * total weight, so a directed graph condenses into a DAG.
+     *
+     * @return An independent graph of the components
+     */
+    public FastGraph getCondensedGraph() {
+        return getCondensedGraph(new FastGraphConfig().setThreads(threads));
+    }
+
+    /**
+     * Condense the strongly connected components into a new graph built with
+     * a config
+     *
+     * @param config The options used to build the new graph
+     * @return An independent graph of the components
+     */
+    public FastGraph getCondensedGraph(FastGraphConfig config) {
+        long start = startTimer();
+        StrongComponents split = getStrongComponents();
+        int[] components = split.getComponents();
+        FastGraph condensed = new FastGraph(directed);
+        for (int c = 0; c < split.getCount(); c++) {
+            condensed.addVertex(c);
+        }
+        //Duplicate edges add their weights up
+        for (int e = 0; e < edgesCount; e++) {
+            int source = components[edgeSources.get(e)];
+            int target = components[edgeTargets.get(e)];
+            if (source != target) {
+                condensed.addEdge(source, target, edgeWeights.get(e));
+            }
+        }
+        condensed.finishLoading(config);
+        stopQuery("getCondensedGraph", start);
+        return condensed;
+    }
+
+    /**
+     * Split the graph into strongly connected components, on the first call.
+     * One thread runs an iterative Tarjan. With more threads the vertices
+     * that cannot be on a cycle are trimmed, the largest component is peeled
+     * by a forward-backward sweep, and the rest is split by coloring rounds
+     * that run in parallel. If a parallel step fails or the thread is
+     * interrupted, the split starts over with Tarjan.
+     *
+     * @return The components
+     */
+    private StrongComponents getStrongComponents() {
+        StrongComponents split = strongComponents;
+        if (split != null) {
+            return split;
+        }
+        long start = startTimer();
+        StrongComponents components = new StrongComponents(rows(Direction.OUT), rows(Direction.IN), verticesCount);
+        if (threads > 1 && verticesCount > PARALLEL_BLOCK) {
+            if (!splitInParallel(components)) {
+                Logger.getLogger(FastGraph.class.getName()).log(Level.WARNING, "FastGraph: Parallel component split stopped, running Tarjan");
+                components = new StrongComponents(rows(Direction.OUT), rows(Direction.IN), verticesCount);
+                components.tarjan();
+            }
+        } else {
+            components.tarjan();
+        }
+        components.number();
+        strongComponents = components;
+        stopQuery("getStronglyConnectedComponents", start);
+        return components;
+    }
+
+    /**
+     * Label the components with the parallel steps, on one pool shared by
+     * the sweep and all the coloring rounds. A failed block leaves its
+     * vertices unlabeled, so the split gives up instead of looping.
+     *
+     * @param components The components to label
+     * @return False if a step failed or the thread was interrupted
+     */
+    private boolean splitInParallel(StrongComponents components) {
+        ExecutorService executor = newBlockExecutor();
+        try {
+            components.trim();
+            if (!components.sweep(executor)) {
+                return false;
+            }
+            Progress none = new Progress(null, null, 0);
+            AtomicBoolean changed = new AtomicBoolean();
+            AtomicBoolean failed = new AtomicBoolean();
+            BlockTask<StrongComponents.Scratch> pull = flagFailures((StrongComponents.Scratch scratch, int from, int to) -> {
+                if (components.pullColors(scratch, from, to)) {
+                    changed.set(true);
+                }
+            }, failed);
+            BlockTask<StrongComponents.Scratch> label = flagFailures(components::labelRoots, failed);
+            while (components.hasUnlabeled()) {
+                components.resetColors();
+                do {
+                    changed.set(false);
+                    forEachBlock(components::scratch, pull, none, new AtomicInteger(), QueryGuard.NONE, executor);
+                    if (failed.get() || Thread.currentThread().isInterrupted()) {
+                        return false;
+                    }
+                } while (changed.get());
+                forEachBlock(components::scratch, label, none, new AtomicInteger(), QueryGuard.NONE, executor);
+                if (failed.get() || Thread.currentThread().isInterrupted()) {
+                    return false;
+                }
+            }
+            return true;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Wrap a block task so that a failure is flagged, since forEachBlock
+     * only logs it
+     *
+     * @param task The task
+     * @param failed Set when a block of the task throws
+     * @return The wrapped task
+     */
+    private static <T> BlockTask<T> flagFailures(BlockTask<T> task, AtomicBoolean failed) {
+        return (T scratch, int from, int to) -> {
+            boolean done = false;
+            try {
+                task.run(scratch, from, to);
+                done = true;
+            } finally {
+                if (!done) {
+                    failed.set(true);
+                }
+            }
+        };
+    }
+
+    /**
+     * Create an engine walking greedy trails, scored by one of the built-in
+     * scorings
+     *
+     * @param scoring How the neighbors are scored
+     * @return The walk engine
+     */
+    public WalkEngine createWalkEngine(WalkScoring scoring) {
+        double[] vertexScores = null;
+        switch (scoring) {
+            case TRIANGLES:
+                if (trianglesCounts == null) {
+                    getRankByTrianglesCount(0);
+                }
+                vertexScores = new double[verticesCount];
+                //Empty if the count was cancelled
+                if (trianglesCounts != null) {
+                    for (int IVID = 0; IVID < verticesCount; IVID++) {
+                        vertexScores[IVID] = trianglesCounts[IVID];
+                    }
+                }
+                break;
+            case DEGREE:
+                vertexScores = new double[verticesCount];
+                for (int IVID = 0; IVID < verticesCount; IVID++) {
+                    vertexScores[IVID] = adjacency.degree(IVID);
+                }
+                break;
+            case PAGERANK:
+                vertexScores = getPageRanks();
+                break;
+            default:
+                //Edge weights are read from the edges
+                break;
+        }
+        return new WalkEngine(adjacency, externalIDs, edgeWeights, this::toInternal, verticesCount, vertexScores, null, hotSpots == null ? null : getTrailHotSpots());
+    }
+
+    /**
+     * Create an engine walking greedy trails, scored by a custom scorer
+     *
+     * @param scorer How the moves are scored
+     * @return The walk engine
+     */
+    public WalkEngine createWalkEngine(WalkScorer scorer) {
+        return new WalkEngine(adjacency, externalIDs, edgeWeights, this::toInternal, verticesCount, null, scorer, hotSpots == null ? null : getTrailHotSpots());
+    }
+
+    /**
+     * Generate random walks from every vertex having edges, in parallel. The
+     * walks can be uniform, weighted by the edge weights or biased by the
+     * node2vec parameters p and q, see RandomWalkConfig. The same config
+     * gives the same walks, in an order that depends on the threads.
+     *
+     * @param config The options of the walks
+     * @param consumer Receives the walks, from several threads at once
+     * @return The number of walks generated
+     */
+    public long generateRandomWalks(RandomWalkConfig config, WalkConsumer consumer) {
+        return generateWalks(config, consumer, QueryGuard.NONE);
+    }
+
+    /**
+     * Generate random walks from every vertex having edges, within the bounds
+     * of a token
+     *
+     * @param config The options of the walks
+     * @param consumer Receives the walks, from several threads at once
+     * @param token The token bounding the generation
+     * @return The number of walks generated, before the token fired if the
+     * generation did not complete
+     */
+    public QueryResult<Long> generateRandomWalks(RandomWalkConfig config, WalkConsumer consumer, CancellationToken token) {
+        QueryGuard guard = new QueryGuard(token);
+        long walks = generateWalks(config, consumer, guard);
+        return new QueryResult<>(walks, guard.getStatus());
+    }
+
+    /**
+     * Generate random walks from every vertex having edges to a file. Each
+     * walk is written as big-endian ints, its length followed by its vertex
+     * IDs, which can be read back with DataInputStream.readInt.
+     *
+     * @param config The options of the walks
+     * @param walksFile The file to write
+     * @return The number of walks written
+     */
+    public long generateRandomWalks(RandomWalkConfig config, File walksFile) {
+        long walks = 0;
+        try (WalkFileWriter writer = new WalkFileWriter(walksFile, config.getWalkLength())) {
+            walks = generateWalks(config, writer, QueryGuard.NONE);
+        } catch (IOException ex) {
+            Logger.getLogger(FastGraph.class.getName()).log(Level.SEVERE, null, ex);
+        }
+        return walks;
+    }
+
+    private long generateWalks(RandomWalkConfig config, WalkConsumer consumer, QueryGuard guard) {
+        long start = startTimer();
+        RandomWalker walker = randomWalker;
+        if (walker == null) {
+            walker = new RandomWalker(adjacency, externalIDs, verticesCount);
+            randomWalker = walker;
+        }
+        if (config.isWeighted() && !walker.hasAliases()) {
+            walker.buildAliases(adjacency, edgeWeights);
+        }
+        int walksPerVertex = config.getWalksPerVertex();
+        RandomWalker rows = walker;
+        Progress progress = new Progress(progressListener, ProgressListener.RANDOM_WALKS, verticesCount);
+        AtomicInteger done = new AtomicInteger();
+        ArrayList<RandomWalker.Scratch> scratches = forEachBlock(() -> rows.scratch(config, consumer), (RandomWalker.Scratch scratch, int from, int to) -> {
+            for (int IVID = from; IVID < to; IVID++) {
+                if (rows.degree(IVID) != 0) {
+                    for (int round = 0; round < walksPerVertex; round++) {
+                        scratch.walk(IVID, round);
+                    }
+                }
+            }
+        }, progress, done, guard);
+        progress.finish(done.get());
+
+        long walks = 0;
+        long steps = 0;
+        for (RandomWalker.Scratch scratch : scratches) {
+            walks += scratch.walks;
+            steps += scratch.steps;
+        }
+        if (metrics != null) {
+            metrics.recordVisits("generateRandomWalks", walks + steps, steps);
+        }
+        stopQuery("generateRandomWalks", start);
+        return walks;
+    }
+
+    /**
+     * Predict the links of a vertex. Every vertex 2 hops away that is not a
+     * neighbor yet is scored from the neighbors it shares with the vertex,
+     * and the best scored ones are returned.
+     *
+     * @param VID The Vertex ID
+     * @param maxVertices The maximum number of vertices to be returned
+     * @param measure How the shared neighbors are scored
+     * @return A sorted map containing (Vertex ID, score) of the best scored
+     * vertices, best first. Ties keep the order of the internal IDs.
+     */
+    public Map getPredictedLinks(int VID, int maxVertices, LinkPrediction measure) {
+        long start = startTimer();
+        LinkedHashMap<Integer, Double> resultsMap = new LinkedHashMap();
+        int IVID = toInternal(VID);
+        if (IVID == -1 || maxVertices < 1) {
+            stopQuery("getPredictedLinks", start);
+            return resultsMap;
+        }
+        SparseAccumulator scores = linkScores.get();
+        scores.clear();
+        NeighborCursor cursor = adjacency.cursor();
+        NeighborCursor inner = adjacency.cursor();
+
+        //The vertex and its neighbors are not predicted
+        scores.exclude(IVID);
+        cursor.reset(IVID);
+        while (cursor.next()) {
+            scores.exclude(cursor.neighbor());
+        }
+
+        long edgesVisited = 0;
+        cursor.reset(IVID);
+        while (cursor.next()) {
+            int shared = cursor.neighbor();
+            int degree = adjacency.degree(shared);
+            if (shared == IVID || degree < 2) {
+                //Shares nothing but the vertex itself
+                continue;
+            }
+            double score;
+            switch (measure) {
+                case ADAMIC_ADAR:
+                    score = 1 / Math.log(degree);
+                    break;
+                case RESOURCE_ALLOCATION:
+                    score = 1.0 / degree;
+                    break;
+                default:
+                    score = 1;
+                    break;
+            }
+            inner.reset(shared);
+            while (inner.next()) {
+                scores.add(inner.neighbor(), score);
+            }
+            edgesVisited += degree;
+        }
+
+        LongMaxHeap best = new LongMaxHeap(Math.min(maxVertices, scores.size() + 1));
+        for (int i = 0; i < scores.size(); i++) {
+            int candidate = scores.key(i);
+            double score = linkScore(IVID, candidate, scores, measure);
+            if (score > 0) {
+                //Positive floats sort like their bits
+                best.offerSmallest(((long) (Integer.MAX_VALUE - Float.floatToIntBits((float) score)) << 32) | candidate, maxVertices);
+            }
+        }
+        for (long key : best.drainAscending()) {
+            int candidate = (int) key;
+            resultsMap.put(externalIDs.get(candidate), linkScore(IVID, candidate, scores, measure));
+        }
+        if (metrics != null) {
+            metrics.recordVisits("getPredictedLinks", scores.size(), edgesVisited);
+        }
+        stopQuery("getPredictedLinks", start);
+        return resultsMap;
+    }
+
+    private double linkScore(int IVID, int candidate, SparseAccumulator scores, LinkPrediction measure) {
+        double score = scores.get(candidate);
+        if (measure == LinkPrediction.JACCARD && score > 0) {
+            //Shared over the union of the 2 rows
+            score /= adjacency.degree(IVID) + adjacency.degree(candidate) - score;
+        }
+        return score;
+    }
+
+    /**
+     * Sort the vertices having edges by descending rank. Ties keep the order
+     * of the internal IDs.
+     *
+     * @param ranks The rank of every vertex, indexed by internal ID
+     * @return The internal IDs of the ranked vertices
+     */
+    private int[] sortByRank(int[] ranks) {
+        long[] keys = new long[verticesCount];
+        int size = 0;
+        for (int IVID = 0; IVID < verticesCount; IVID++) {
+            if (adjacency.degree(IVID) != 0) {
+                keys[size++] = ((long) (Integer.MAX_VALUE - ranks[IVID]) << 32) | IVID;
+            }
+        }
+        Arrays.sort(keys, 0, size);
+        int[] sorted = new int[size];
+        for (int i = 0; i < size; i++) {
+            sorted[i] = (int) keys[i];
+        }
+        return sorted;
+    }
+
+    private Map<Integer, Integer> toRankMap(int[] sorted, int[] ranks, int maxVertices) {
+        LinkedHashMap<Integer, Integer> resultsMap = new LinkedHashMap();
+        for (int i = 0; i < sorted.length && i != maxVertices; i++) {
+            resultsMap.put(externalIDs.get(sorted[i]), ranks[sorted[i]]);
+        }
+        return resultsMap;
+    }
+
+    /**
+     * Get the best trail (path) length for this vertex
+     *
+     * @param VID The vertex ID
+     * @param depth The maximum depth (hops) of search
+     * @return The count of hops after which teh path ends
+     */
+    public int getBestTrailLength(int VID, int depth) {
+        return getBestTrail(VID, depth, false).size();
+    }
+
+    /**
+     * Get the best trail (path) in the graph. The trails of all the vertices
+     * are walked in parallel, on the threads set in the config.
+     *
+     * @param depth The maximum depth (hops) of search
+     * @return A LinkedHashMap (VID, ArrayList of paths) representing the best
+     * trail in the graph. If the progress listener cancelled the search, the
+     * best trail found so far.
+     */
+    public LinkedHashMap getBestTrailInGraph(int depth) {
+        return findBestTrailInGraph(depth, QueryGuard.NONE);
+    }
+
+    /**
+     * Get the best trail (path) in the graph, within the bounds of a token
+     *
+     * @param depth The maximum depth (hops) of search
+     * @param token The token bounding the search
+     * @return A LinkedHashMap (VID, ArrayList of paths) representing the best
+     * trail in the graph, or the best trail found before the token fired
+     */
+    public QueryResult<LinkedHashMap> getBestTrailInGraph(int depth, CancellationToken token) {
+        QueryGuard guard = new QueryGuard(token);
+        LinkedHashMap bestTrail = findBestTrailInGraph(depth, guard);
+        return new QueryResult<>(bestTrail, guard.getStatus());
+    }
+
+    private LinkedHashMap findBestTrailInGraph(int depth, QueryGuard guard) {
+
+        long start = startTimer();
+        LinkedHashMap<Integer, ArrayList> bestTrail = new LinkedHashMap();
+        if (hotSpots == null) {
+            //Without hot spots there is nothing to prefer
+            bestTrail.put(-1, new ArrayList());
+            stopQuery("getBestTrailInGraph", start);
+            return bestTrail;
+        }
+        long[] hot = getTrailHotSpots();
+        Progress progress = new Progress(progressListener, ProgressListener.BEST_TRAIL, verticesCount * 2L);
+        AtomicInteger done = new AtomicInteger();
+
+        //The hop from a vertex does not depend on the walk, find them all once
+        int[] hops = new int[verticesCount];
+        ArrayList<TrailWalker> walkers = forEachBlock(() -> new TrailWalker(hot), (TrailWalker walker, int from, int to) -> {
+            for (int IVID = from; IVID < to; IVID++) {
+                hops[IVID] = walker.hop(IVID, false);
+            }
+        }, progress, done, guard);
+        long edgesVisited = 0;
+        for (TrailWalker walker : walkers) {
+            edgesVisited += walker.edgesVisited;
+        }
+
+        //Each walker keeps its longest trail, the one starting at the smallest
+        //internal ID on ties, as length << 32 | (n - IVID)
+        long best = -1;
+        if (guard.getStatus() == QueryStatus.COMPLETE) {
+            walkers = forEachBlock(() -> new TrailWalker(hot), (TrailWalker walker, int from, int to) -> {
+                for (int IVID = from; IVID < to; IVID++) {
+                    int length = walker.walk(IVID, depth, hops, null);
+                    walker.best = Math.max(walker.best, ((long) length << 32) | (verticesCount - IVID));
+                }
+            }, progress, done, guard);
+            for (TrailWalker walker : walkers) {
+                best = Math.max(best, walker.best);
+            }
+        }
+        progress.finish(done.get());
+
+        //Walk the best trail again to get its vertices
+        ArrayList<Integer> path = new ArrayList();
+        int bestVID = -1;
+        if ((best >> 32) > 0) {
+            int bestIVID = verticesCount - (int) best;
+            new TrailWalker(hot).walk(bestIVID, depth, hops, path);
+            bestVID = externalIDs.get(bestIVID);
+        }
+        if (metrics != null) {
+            metrics.recordVisits("getBestTrailInGraph", verticesCount, edgesVisited);
+        }
+
+        bestTrail.put(bestVID, path);
+        stopQuery("getBestTrailInGraph", start);
+        return bestTrail;
+
+    }
+
+    /**
+     * Work done on a block of internal IDs with the scratch space of one
+     * thread
+     */
+    @FunctionalInterface
+    private interface BlockTask<T> {
+
+        void run(T scratch, int from, int to);
+    }
+
+    /**
+     * Run a task over all the internal IDs on the analytics threads. The
+     * threads take blocks of IDs until all are done or the listener or the
+     * guard stops the run, which are checked by the calling thread while it
+     * waits. A stopped run returns once the blocks being run are done.
+     *
+     * @param scratches Creates the scratch space of a thread
+     * @param task The work done on each block
+     * @param progress Reports the work done
+     * @param done Counts the IDs done, shared with other runs of the same
+     * operation
+     * @param guard Stops the run
+     * @return The scratch spaces of the threads, to reduce their results
+     */
+    private <T> ArrayList<T> forEachBlock(Supplier<T> scratches, BlockTask<T> task, Progress progress, AtomicInteger done, QueryGuard guard) {
+        ExecutorService executor = newBlockExecutor();
+        try {
+            return forEachBlock(scratches, task, progress, done, guard, executor);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Run a task over all the internal IDs on the threads of a pool created
+     * by newBlockExecutor, leaving the pool running for the next run
+     *
+     * @param scratches Creates the scratch space of a thread
+     * @param task The work done on each block
+     * @param progress Reports the work done
+     * @param done Counts the IDs done, shared with other runs of the same
+     * operation
+     * @param guard Stops the run
+     * @param executor The pool of the operation
+     * @return The scratch spaces of the threads, to reduce their results
+     */
+    private <T> ArrayList<T> forEachBlock(Supplier<T> scratches, BlockTask<T> task, Progress progress, AtomicInteger done, QueryGuard guard, ExecutorService executor) {
+        AtomicInteger nextBlock = new AtomicInteger();
+        AtomicBoolean stopped = new AtomicBoolean(guard.stop());
+        int workers = getBlockWorkers();
+        ArrayList<Future<T>> results = new ArrayList<>(workers);
+        ArrayList<T> scratchList = new ArrayList<>(workers);
+        try {
+            for (int w = 0; w < workers; w++) {
+                results.add(executor.submit(() -> {
+                    T scratch = scratches.get();
+                    for (int block = nextBlock.getAndIncrement(); (long) block * PARALLEL_BLOCK < verticesCount && !stopped.get(); block = nextBlock.getAndIncrement()) {
+                        int from = block * PARALLEL_BLOCK;
+                        int to = (int) Math.min(verticesCount, (long) from + PARALLEL_BLOCK);
+                        task.run(scratch, from, to);
+                        done.addAndGet(to - from);
+                    }
+                    return scratch;
+                }));
+            }
+            for (Future<T> result : results) {
+                T scratch = null;
+                while (scratch == null) {
+                    try {
+                        scratch = result.get(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                    } catch (TimeoutException ex) {
+                        if (!progress.poll(done.get())) {
+                            guard.cancelled();
+                            stopped.set(true);
+                        } else if (guard.stop()) {
+                            stopped.set(true);
+                        }
+                    }
+                }
+                scratchList.add(scratch);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            guard.cancelled();
+        } catch (ExecutionException ex) {
+            Logger.getLogger(FastGraph.class.getName()).log(Level.SEVERE, null, ex);
+        } finally {
+            //Wait for every worker, even when interrupted, so that nothing a
+            //task uses, such as the writer of a consumer, is closed under it
+            stopped.set(true);
+            boolean interrupted = Thread.interrupted();
+            for (Future<T> result : results) {
+                interrupted |= awaitWorker(result);
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return scratchList;
+    }
+
+    /**
+     * Wait until a worker of forEachBlock has returned
+     *
+     * @param result The result of the worker
+     * @return True if the calling thread was interrupted while waiting
+     */
+    private static boolean awaitWorker(Future<?> result) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                result.get();
+                return interrupted;
+            } catch (InterruptedException ex) {
+                interrupted = true;
+            } catch (ExecutionException ex) {
+                //Only the first failure is logged
+                return interrupted;
+            }
+        }
+    }
+
+    /**
+     * Create the pool of the analytics threads for an operation. An
+     * operation running several rounds over the vertices passes the same
+     * pool to every round and shuts it down once done.
+     *
+     * @return A pool with a thread per worker of forEachBlock
+     */
+    private ExecutorService newBlockExecutor() {
+        return Executors.newFixedThreadPool(getBlockWorkers());
+    }
+
+    //No more threads than blocks
+    private int getBlockWorkers() {
+        return Math.max(1, Math.min(threads, (verticesCount + PARALLEL_BLOCK - 1) / PARALLEL_BLOCK));
+    }
+
+    /**
+     * Get the best trail (path) for this vertex
+     *
+     * @param VID The Vertex ID
+     * @param depth The maximum depth (hops) of search
+     * @param sortByWeights Should the connections be sorted by its weight?
+     * @return An ArrayList (Vertex IDs) containing the vertices of the trail.
+     */
+    public ArrayList getBestTrail(int VID, int depth, boolean sortByWeights) {
+        long start = startTimer();
+        ArrayList trail = findBestTrail(toInternal(VID), depth, sortByWeights, "getBestTrail", QueryGuard.NONE);
+        stopQuery("getBestTrail", start);
+        return trail;
+    }
+
+    /**
+     * Get the best trail (path) for this vertex, within the bounds of a token
+     *
+     * @param VID The Vertex ID
+     * @param depth The maximum depth (hops) of search
+     * @param sortByWeights Should the connections be sorted by its weight?
+     * @param token The token bounding the walk
+     * @return An ArrayList (Vertex IDs) containing the vertices of the trail,
+     * or of the trail walked before the token fired
+     */
+    public QueryResult<ArrayList> getBestTrail(int VID, int depth, boolean sortByWeights, CancellationToken token) {
+        long start = startTimer();
+        QueryGuard guard = new QueryGuard(token);
+        ArrayList trail = findBestTrail(toInternal(VID), depth, sortByWeights, "getBestTrail", guard);
+        stopQuery("getBestTrail", start);
+        return new QueryResult<>(trail, guard.getStatus());
+    }
+
+    /**
+     * Walk the best trail from a vertex
+     *
+     * @param IVID The internal vertex ID, -1 for none
+     * @param depth The maximum depth (hops) of search
+     * @param sortByWeights Should the connections be sorted by its weight?
+     * @param query The query the visits are recorded for
+     * @param guard Checked before every hop
+     * @return The vertex IDs of the trail
+     */
+    private ArrayList findBestTrail(int IVID, int depth, boolean sortByWeights, String query, QueryGuard guard) {
+
+        ArrayList<Integer> strongPathList = new ArrayList();
+        if (IVID == -1 || hotSpots == null) {
+            //Without hot spots there is nothing to prefer
+            return strongPathList;
+        }
+        TrailWalker walker = new TrailWalker(getTrailHotSpots());
+        walker.walk(IVID, depth, sortByWeights, null, strongPathList, guard);
+
+        if (metrics != null) {
+            metrics.recordVisits(query, strongPathList.size(), walker.edgesVisited);
+        }
+        return strongPathList;
+
+    }
+
+    /**
+     * Get the vertices a trail prefers: one tenth of the top hot spots
+     *
+     * @return A bitset indexed by internal ID
+     */
+    private long[] getTrailHotSpots() {
+        long[] hot = trailHotSpots;
+        if (hot == null) {
+            hot = new long[(verticesCount + 63) >>> 6];
+            int maxCount = hotSpots.length / 10;
+            for (int i = 0; i < maxCount; i++) {
+                hot[hotSpots[i] >>> 6] |= 1L << hotSpots[i];
+            }
+            trailHotSpots = hot;
+        }
+        return hot;
+    }
+
+    /**
+     * Walks trails for one thread. At every hop the trail moves to the hot
+     * spot neighbor ranked first, or else to the neighbor ranked last, with
+     * neighbors ranked as getNeighbors orders them. The ranks are compared in
+     * one pass over the row instead of sorting it. The visited vertices are
+     * stamped with the number of the walk, so the stamps are reused from one
+     * walk to the next without clearing them.
+     */
+    private final class TrailWalker {
+
+        //Hop to a vertex that is not a hot spot, stored as ~IVID
+        private static final int NO_HOP = Integer.MIN_VALUE;
+
+        private final NeighborCursor cursor = adjacency.cursor();
+        private final long[] hot;
+        //Allocated on the first walk
+        private int[] visited;
+        private int walk;
+        //Neighbors looked at by all the walks
+        long edgesVisited;
+        //Longest trail found by the thread, used by getBestTrailInGraph
+        long best = -1;
+
+        TrailWalker(long[] hot) {
+            this.hot = hot;
+        }
+
+        /**
+         * Find where a trail goes from a vertex
+         *
+         * @param SVID The internal vertex ID
+         * @param sortByWeights Rank the neighbors by edge weight instead of
+         * triangles
+         * @return The hot spot to go to, or ~IVID of the vertex to go to if
+         * no neighbor is a hot spot, or NO_HOP if the vertex has no neighbor
+         */
+        int hop(int SVID, boolean sortByWeights) {
+            int firstHot = -1;
+            int firstHotRank = 0;
+            int last = -1;
+            int lastRank = 0;
+            cursor.reset(SVID);
+            while (cursor.next()) {
+                edgesVisited++;
+                int neighbor = cursor.neighbor();
+                int rank = sortByWeights ? edgeWeights.get(cursor.edge()) : trianglesCounts[neighbor];
+                //Prefer hotspot, the first one of the highest rank
+                if ((hot[neighbor >>> 6] & (1L << neighbor)) != 0 && (firstHot == -1 || rank > firstHotRank)) {
+                    firstHot = neighbor;
+                    firstHotRank = rank;
+                }
+                //Else the last connection is used for traversal
+                if (last == -1 || rank <= lastRank) {
+                    last = neighbor;
+                    lastRank = rank;
+                }
+            }
+            if (firstHot != -1) {
+                return firstHot;
+            }
+            return last == -1 ? NO_HOP : ~last;
+        }
+
+        /**
+         * Walk the trail from a vertex with hops found beforehand
+         *
+         * @param IVID The internal vertex ID
+         * @param depth The maximum depth (hops) of search
+         * @param hops The hop of every vertex, as returned by hop
+         * @param trail Receives the vertex IDs of the trail, can be null
+         * @return The length of the trail
+         */
+        int walk(int IVID, int depth, int[] hops, ArrayList<Integer> trail) {
+            return walk(IVID, depth, false, hops, trail, QueryGuard.NONE);
+        }
+
+        /**
+         * Walk the trail from a vertex
+         *
+         * @param IVID The internal vertex ID
+         * @param depth The maximum depth (hops) of search
+         * @param sortByWeights Rank the neighbors by edge weight instead of
+         * triangles
+         * @param hops The hop of every vertex, or null to find the hops on
+         * the way
+         * @param trail Receives the vertex IDs of the trail, can be null
+         * @param guard Checked before every hop
+         * @return The length of the trail
+         */
+        int walk(int IVID, int depth, boolean sortByWeights, int[] hops, ArrayList<Integer> trail, QueryGuard guard) {
+            if (visited == null) {
+                visited = new int[verticesCount];
+            }
+            if (++walk == 0) {
+                Arrays.fill(visited, 0);
+                walk = 1;
+            }
+            int length = 0;
+            int SVID = IVID;
+            for (int i = 0; i < depth && !guard.stop(); i++) {
+                //One hop only
+                int next = hops != null ? hops[SVID] : hop(SVID, sortByWeights);
+                if (next >= 0) {
+                    SVID = next;
+                    if (visited[SVID] != walk) {
+                        visited[SVID] = walk;
+                        if (SVID != IVID) {
+                            length++;
+                            if (trail != null) {
+                                trail.add(externalIDs.get(SVID));
+                            }
+                        }
+                    }
+                } else if (next != NO_HOP) {
+                    SVID = ~next;
+                }
+            }
+            return length;
+        }
+    }
+
+    /**
+     * Get the immediate neighbors of a vertex in the order getNeighbors
+     * returns them: by edge weight, or by triangles owned when the hot spots
+     * are available.
+     *
+     * @param IVID The internal vertex ID
+     * @param sortByWeights Should the connections be sorted by its weight?
+     * @param rows The rows to read the neighbors from
+     * @param filter The edges to keep
+     * @param weights The weight of every edge, by internal edge ID
+     * @return The internal IDs of the neighbors
+     */
+    private int[] getOrderedNeighbors(int IVID, boolean sortByWeights, NeighborRows rows, TraversalFilter filter, IntUnaryOperator weights) {
+        int size = rows.degree(IVID);
+        int[] neighbors = new int[size];
+        NeighborCursor cursor = rows.cursor();
+        cursor.reset(IVID);
+        boolean edgeTest = filter.hasEdgeTest();
+        if (!sortByWeights && trianglesCounts == null) {
+            int count = 0;
+            while (cursor.next()) {
+                if (!edgeTest || filter.acceptEdge(IVID, cursor.neighbor(), cursor.edge())) {
+                    neighbors[count++] = cursor.neighbor();
+                }
+            }
+            return count == size ? neighbors : Arrays.copyOf(neighbors, count);
+        }
+        long[] keys = new long[size];
+        int count = 0;
+        while (cursor.next()) {
+            if (edgeTest && !filter.acceptEdge(IVID, cursor.neighbor(), cursor.edge())) {
+                continue;
+            }
+            neighbors[count] = cursor.neighbor();
+            int rank = sortByWeights ? weights.applyAsInt(cursor.edge()) : trianglesCounts[cursor.neighbor()];
+            keys[count] = ((long) (Integer.MAX_VALUE - rank) << 32) | count;
+            count++;
+        }
+        Arrays.sort(keys, 0, count);
+        int[] ordered = new int[count];
+        for (int i = 0; i < count; i++) {
+            ordered[i] = neighbors[(int) keys[i]];
+        }
+        return ordered;
+    }
+
+    /**
+     * Find if 2 vertices are directly connected
+     *
+     * @param VID1 Vertex 1
+     * @param VID2 Vertex 2
+     * @return True if the 2 vertices are directly connected
+     */
+    public boolean isDirectlyConnected(int VID1, int VID2) {
+        return getEdgeID(VID1, VID2) != -1;
+    }
+
+    /**
+     * Find the best path between 2 vertices. A long-running operation for
+     * massive graphs. The search is breadth-first, so the path found has the
+     * fewest hops, and gives up after 20 hops for each unit of depth. Once
+     * the strongly connected components are split, by a component query or
+     * by FastGraphConfig.setComputeComponents, the vertices of the components
+     * that cannot lead to VID2 are skipped, so a pair with no path returns
+     * without a search.
+     *
+     * @param VID1 Vertex I
+     * @param VID2 Vertex 2
      * @param depth The maximum depth (hops) of search
      * @param sortByWeights Should the connections be sorted by its weight?
      * @return An ArrayList of vertex IDs denoting the path between the 2 given
      * vertices
      */
     public ArrayList getPathBetweenVertices(int VID1, int VID2, int depth, boolean sortByWeights) {
+        return queryPath(VID1, VID2, depth, sortByWeights, Direction.BOTH, rows(Direction.BOTH), TraversalFilter.NONE, edgeWeights::get, QueryGuard.NONE);
+    }
+
+    /**
+     * Find the best path between 2 vertices following the edges in a
+     * direction. OUT finds a path along the edges leaving each vertex, IN a
+     * path along the edges reaching each vertex. Only the rows of that
+     * direction are read. The components skip the vertices that cannot
+     * lead to VID2 along that direction, except for BOTH in a directed graph.
+     *
+     * @param VID1 Vertex I
+     * @param VID2 Vertex 2
+     * @param depth The maximum depth (hops) of search
+     * @param sortByWeights Should the connections be sorted by its weight?
+     * @param direction The edges to follow
+     * @return An ArrayList of vertex IDs denoting the path between the 2 given
+     * vertices
+     */
+    public ArrayList getPathBetweenVertices(int VID1, int VID2, int depth, boolean sortByWeights, Direction direction) {
+        return queryPath(VID1, VID2, depth, sortByWeights, direction, rows(direction), TraversalFilter.NONE, edgeWeights::get, QueryGuard.NONE);
+    }
+
+    /**
+     * Find the best path between 2 vertices through the vertices and edges
+     * accepted by a filter on their properties. Every edge of the path is
+     * tested, and every vertex except the 2 ends. The tests run as the
+     * search expands, so what is rejected is never explored. Filtered paths
+     * are not cached.
+     *
+     * @param VID1 Vertex I
+     * @param VID2 Vertex 2
+     * @param depth The maximum depth (hops) of search
+     * @param sortByWeights Should the connections be sorted by its weight?
+     * @param direction The edges to follow, BOTH in an undirected graph
+     * @param filter The vertices and edges the path may use
+     * @return An ArrayList of vertex IDs denoting the path between the 2 given
+     * vertices
+     * @throws IllegalArgumentException If a property of the filter is missing
+     * or has the wrong type
+     */
+    public ArrayList getPathBetweenVertices(int VID1, int VID2, int depth, boolean sortByWeights, Direction direction, PropertyFilter filter) {
+        return queryPath(VID1, VID2, depth, sortByWeights, direction, rows(direction), filter.bind(vertexProperties, edgeProperties), edgeWeights::get, QueryGuard.NONE);
+    }
+
+    /**
+     * Find the best path between 2 vertices through the vertices and edges
+     * accepted by 2 tests. Every edge of the path is tested, and every vertex
+     * except the 2 ends. The tests run as the search expands, so a path
+     * using only the edges with a weight of at least 3,
+     *
+     * getPathBetweenVertices(VID1, VID2, 2, false, Direction.BOTH, null, (from, to, W) -> W >= 3)
+     *
+     * never explores the lighter edges. Filtered paths are not cached.
+     *
+     * @param VID1 Vertex I
+     * @param VID2 Vertex 2
+     * @param depth The maximum depth (hops) of search
+     * @param sortByWeights Should the connections be sorted by its weight?
+     * @param direction The edges to follow, BOTH in an undirected graph
+     * @param vertexFilter The vertex IDs the path may go through, or null
+     * for all
+     * @param edgeFilter The edges the path may follow, or null for all
+     * @return An ArrayList of vertex IDs denoting the path between the 2 given
+     * vertices
+     */
+    public ArrayList getPathBetweenVertices(int VID1, int VID2, int depth, boolean sortByWeights, Direction direction, IntPredicate vertexFilter, EdgePredicate edgeFilter) {
+        return queryPath(VID1, VID2, depth, sortByWeights, direction, rows(direction), toTraversalFilter(vertexFilter, edgeFilter, edgeWeights::get), edgeWeights::get, QueryGuard.NONE);
+    }
+
+    /**
+     * Find the best path between 2 vertices through the edges with a row
+     * within a time window, such as a path active in the last 24 hours:
+     *
+     * getPathBetweenVertices(VID1, VID2, 2, Direction.BOTH, now - 86400000L, now)
+     *
+     * The rows of every vertex are kept sorted by time and the search opens
+     * each of them on the window with 2 binary searches, so it only walks
+     * the rows within the window. Windowed paths are not cached.
+     *
+     * @param VID1 Vertex I
+     * @param VID2 Vertex 2
+     * @param depth The maximum depth (hops) of search
+     * @param direction The edges to follow, BOTH in an undirected graph
+     * @param from The first time of the window
+     * @param to The last time of the window, included
+     * @return An ArrayList of vertex IDs denoting the path between the 2 given
+     * vertices
+     * @throws IllegalStateException If the edges have no timestamps
+     */
+    public ArrayList getPathBetweenVertices(int VID1, int VID2, int depth, Direction direction, long from, long to) {
+        TimeWindow window = new TimeWindow(direction, from, to);
+        return queryPath(VID1, VID2, depth, false, direction, window.rows, TraversalFilter.NONE, window::weight, QueryGuard.NONE);
+    }
+
+    /**
+     * Find the best path between 2 vertices through the edges with a row
+     * within a time window, and through the vertices and edges accepted by a
+     * filter on their properties
+     *
+     * @param VID1 Vertex I
+     * @param VID2 Vertex 2
+     * @param depth The maximum depth (hops) of search
+     * @param direction The edges to follow, BOTH in an undirected graph
+     * @param from The first time of the window
+     * @param to The last time of the window, included
+     * @param filter The vertices and edges the path may use
+     * @return An ArrayList of vertex IDs denoting the path between the 2 given
+     * vertices
+     * @throws IllegalStateException If the edges have no timestamps
+     * @throws IllegalArgumentException If a property of the filter is missing
+     * or has the wrong type
+     */
+    public ArrayList getPathBetweenVertices(int VID1, int VID2, int depth, Direction direction, long from, long to, PropertyFilter filter) {
+        TimeWindow window = new TimeWindow(direction, from, to);
+        return queryPath(VID1, VID2, depth, false, direction, window.rows, filter.bind(vertexProperties, edgeProperties), window::weight, QueryGuard.NONE);
+    }
+
+    /**
+     * Find the best path between 2 vertices through the edges with a row
+     * within a time window, and through the vertices and edges accepted by 2
+     * tests. The edge test is given the weight of the edge within the window.
+     *
+     * @param VID1 Vertex I
+     * @param VID2 Vertex 2
+     * @param depth The maximum depth (hops) of search
+     * @param direction The edges to follow, BOTH in an undirected graph
+     * @param from The first time of the window
+     * @param to The last time of the window, included
+     * @param vertexFilter The vertex IDs the path may go through, or null
+     * for all
+     * @param edgeFilter The edges the path may follow, or null for all
+     * @return An ArrayList of vertex IDs denoting the path between the 2 given
+     * vertices
+     * @throws IllegalStateException If the edges have no timestamps
+     */
+    public ArrayList getPathBetweenVertices(int VID1, int VID2, int depth, Direction direction, long from, long to, IntPredicate vertexFilter, EdgePredicate edgeFilter) {
+        TimeWindow window = new TimeWindow(direction, from, to);
+        return queryPath(VID1, VID2, depth, false, direction, window.rows, toTraversalFilter(vertexFilter, edgeFilter, window::weight), window::weight, QueryGuard.NONE);
+    }
+
+    /**
+     * Find the best path between 2 vertices through the edges with a row
+     * within a time window, within the bounds of a token. The token is
+     * checked before every hop of the search.
+     *
+     * @param VID1 Vertex I
+     * @param VID2 Vertex 2
+     * @param depth The maximum depth (hops) of search
+     * @param direction The edges to follow, BOTH in an undirected graph
+     * @param from The first time of the window
+     * @param to The last time of the window, included
+     * @param token The token bounding the search
+     * @return An ArrayList of vertex IDs denoting the path between the 2 given
+     * vertices, empty if the token fired before a path was found
+     * @throws IllegalStateException If the edges have no timestamps
+     */
+    public QueryResult<ArrayList> getPathBetweenVertices(int VID1, int VID2, int depth, Direction direction, long from, long to, CancellationToken token) {
+        TimeWindow window = new TimeWindow(direction, from, to);
+        QueryGuard guard = new QueryGuard(token);
+        ArrayList paths = queryPath(VID1, VID2, depth, false, direction, window.rows, TraversalFilter.NONE, window::weight, guard);
+        return new QueryResult<>(paths, guard.getStatus());
+    }
+
+    /**
+     * Find the best path between 2 vertices, within the bounds of a token.
+     * The token is checked before every hop of the search.
+     *
+     * @param VID1 Vertex I
+     * @param VID2 Vertex 2
+     * @param depth The maximum depth (hops) of search
+     * @param sortByWeights Should the connections be sorted by its weight?
+     * @param token The token bounding the search
+     * @return An ArrayList of vertex IDs denoting the path between the 2 given
+     * vertices, empty if the token fired before a path was found
+     */
+    public QueryResult<ArrayList> getPathBetweenVertices(int VID1, int VID2, int depth, boolean sortByWeights, CancellationToken token) {
+        QueryGuard guard = new QueryGuard(token);
+        ArrayList paths = queryPath(VID1, VID2, depth, sortByWeights, Direction.BOTH, rows(Direction.BOTH), TraversalFilter.NONE, edgeWeights::get, guard);
+        return new QueryResult<>(paths, guard.getStatus());
+    }
+
+    private ArrayList queryPath(int VID1, int VID2, int depth, boolean sortByWeights, Direction direction, NeighborRows rows, TraversalFilter filter, IntUnaryOperator weights, QueryGuard guard) {
+        long start = startTimer();
+        ArrayList paths;
+        //The cache keys do not hold the filters or the time windows
+        if (queryCache == null || filter != TraversalFilter.NONE || rows != rows(direction)) {
+            paths = findPath(VID1, VID2, depth, sortByWeights, direction, rows, filter, weights, guard);
+        } else {
+            QueryCache.Key key = new QueryCache.Key(QueryCache.PATH, VID1, VID2, depth, sortByWeights, direction);
+            ArrayList cached = (ArrayList) queryCache.get(key);
+            if (cached != null) {
+                paths = new ArrayList(cached);
+            } else {
+                paths = findPath(VID1, VID2, depth, sortByWeights, direction, rows, filter, weights, guard);
+                //Partial results are not cached
+                if (guard.getStatus() == QueryStatus.COMPLETE) {
+                    queryCache.put(key, new ArrayList(paths), QueryCache.sizeOfList(paths.size()));
+                }
+            }
+            if (metrics != null) {
+                metrics.recordCacheAccess("getPathBetweenVertices", cached != null);
+            }
+        }
+        stopQuery("getPathBetweenVertices", start);
+        return paths;
+    }
+
+    private ArrayList findPath(int VID1, int VID2, int depth, boolean sortByWeights, Direction direction, NeighborRows rows, TraversalFilter filter, IntUnaryOperator weights, QueryGuard guard) {
         ArrayList paths = new ArrayList();
-        if (VID1 == -1 || VID2 == -1) {
+        int IVID1 = toInternal(VID1);
+        int IVID2 = toInternal(VID2);
+        if (IVID1 == -1 || IVID2 == -1) {
             return paths;
         }
 
         //Find if they are directly connected
-        if (isDirectlyConnected(VID1, VID2)) {
+        int edge = findEdge(IVID1, IVID2, direction, rows);
+        if (edge != -1 && filter.acceptEdge(IVID1, IVID2, edge)) {
             paths.add(VID1);
             paths.add(VID2);
 
             return paths;
         }
-        //We'll use nested loops instead of recursion to avoid heap issues
-        //Also we search in fixed depth only
-        ArrayList visitedParents = new ArrayList();
-
-        Map cneighbors = getNeighbors(VID1, depth, sortByWeights);
-        //Root
-        visitedParents.add(VID1);
-        Iterator iter = cneighbors.keySet().iterator();
-
-        outerloop:
-        while (iter.hasNext()) {
-            int neighborID = (int) iter.next();
-            //System.out.println(getVertexByID(neighborID) + " - " + cneighbors.get(neighborID));
-            //Check Hit
-            if (neighborID == VID2) {
-                paths.add(neighborID);
-                paths.add(VID1);
-                //System.out.println("Found!");
-                break outerloop;
-            }
-            //2nd
-            if (visitedParents.contains(neighborID)) {
-                continue;
+        if (depth < 1) {
+            return paths;
+        }
+
+        //Components are numbered in topological order, so VID2 is only
+        //reached through the vertices of the components between VID1 and
+        //VID2. The union of both directions has no such order. The split
+        //is only used once done, never started by a search.
+        StrongComponents split = strongComponents;
+        int[] components = null;
+        int minComponent = Integer.MIN_VALUE;
+        int maxComponent = Integer.MAX_VALUE;
+        if (split != null && (!directed || direction != Direction.BOTH)) {
+            components = split.getComponents();
+            int target = components[IVID2];
+            if (!directed || direction == Direction.OUT) {
+                maxComponent = target;
             }
-            Map cneighbors2 = getNeighbors(neighborID, depth, sortByWeights);
-            visitedParents.add(neighborID);
-            Iterator iter2 = cneighbors2.keySet().iterator();
-            while (iter2.hasNext()) {
-                int neighborID2 = (int) iter2.next();
-                //System.out.println("-- " + getVertexByID(neighborID2) + " - " + cneighbors2.get(neighborID2));
-                //Check Hit
-                if (neighborID2 == VID2) {
-
-                    paths.add(neighborID2);
-                    paths.add(neighborID);
-                    paths.add(VID1);
-                    //System.out.println("Found!");
-                    break outerloop;
-                }
-                //3rd
-                if (visitedParents.contains(neighborID2)) {
-                    continue;
-                }
-                Map cneighbors3 = getNeighbors(neighborID2, depth, sortByWeights);
-                visitedParents.add(neighborID2);
-                Iterator iter3 = cneighbors3.keySet().iterator();
-                while (iter3.hasNext()) {
-                    int neighborID3 = (int) iter3.next();
-                    //System.out.println("--- " + getVertexByID(neighborID3) + " - " + cneighbors3.get(neighborID3));
-                    //Check Hit
-                    if (neighborID3 == VID2) {
+            if (!directed || direction == Direction.IN) {
+                minComponent = target;
+            }
+            if (components[IVID1] < minComponent || components[IVID1] > maxComponent) {
+                return paths;
+            }
+        }
 
-                        paths.add(neighborID3);
-                        paths.add(neighborID2);
-                        paths.add(neighborID);
-                        paths.add(VID1);
-                        //System.out.println("Found!");
-                        break outerloop;
+        //Breadth-first, one frontier per hop. Parents are kept in a sparse
+        //map so the cost follows the explored region, not the graph size.
+        IntIntHashMap parents = new IntIntHashMap();
+        parents.put(IVID1, IVID1);
+        int[] frontier = {IVID1};
+        int maxHops = MAX_PATH_HOPS * depth;
+        long edgesVisited = 0;
+
+        for (int hop = 0; hop < maxHops && frontier.length > 0 && !guard.stop(); hop++) {
+            int[] nextFrontier = new int[16];
+            int nextSize = 0;
+            for (int i = 0; i < frontier.length; i++) {
+                int SVID = frontier[i];
+                //Large frontiers are checked while they are expanded too
+                if (guard.stop(rows.degree(SVID) + 1)) {
+                    break;
+                }
+                int[] neighbors = getOrderedNeighbors(SVID, sortByWeights, rows, filter, weights);
+                edgesVisited += rows.degree(SVID);
+                for (int neighbor : neighbors) {
+                    if (parents.containsKey(neighbor)) {
+                        continue;
                     }
-                    //4th
-                    if (visitedParents.contains(neighborID3)) {
+                    //The 2 ends are given, only the vertices between them
+                    //are filtered
+                    if (neighbor != IVID2 && !filter.acceptVertex(neighbor)) {
                         continue;
                     }
-                    Map cneighbors4 = getNeighbors(neighborID3, depth, sortByWeights);
-                    visitedParents.add(neighborID3);
-                    Iterator iter4 = cneighbors4.keySet().iterator();
-                    while (iter4.hasNext()) {
-                        int neighborID4 = (int) iter4.next();
-                        //System.out.println("---- " + getVertexByID(neighborID4) + " - " + cneighbors4.get(neighborID4));
-                        //Check Hit
-                        if (neighborID4 == VID2) {
-                            paths.add(neighborID4);
-                            paths.add(neighborID3);
-                            paths.add(neighborID2);
-                            paths.add(neighborID);
-                            paths.add(VID1);
-                            //System.out.println("Found!");
-                            break outerloop;
-                        }
-                        //5th
-                        if (visitedParents.contains(neighborID4)) {
-                            continue;
+                    if (components != null && (components[neighbor] < minComponent || components[neighbor] > maxComponent)) {
+                        continue;
+                    }
+                    parents.put(neighbor, SVID);
+                    //Check Hit
+                    if (neighbor == IVID2) {
+                        for (int v = IVID2; v != IVID1; v = parents.get(v)) {
+                            paths.add(externalIDs.get(v));
                         }
-                        Map cneighbors5 = getNeighbors(neighborID4, depth, sortByWeights);
-                        visitedParents.add(neighborID4);
-                        Iterator iter5 = cneighbors5.keySet().iterator();
-                        while (iter5.hasNext()) {
-                            int neighborID5 = (int) iter5.next();
-                            //System.out.println("----- " + graph.getVertexByID(neighborID5) + " - " + cneighbors4.get(neighborID5));
-                            //Check Hit
-                            if (neighborID5 == VID2) {
-                                paths.add(neighborID5);
-                                paths.add(neighborID4);
-                                paths.add(neighborID3);
-                                paths.add(neighborID2);
-                                paths.add(neighborID);
-                                paths.add(VID1);
-                                //System.out.println("Found!");
-                                break outerloop;
-                            }
-                            //6th
-                            if (visitedParents.contains(neighborID5)) {
-                                continue;
-                            }
-                            Map cneighbors6 = getNeighbors(neighborID5, depth, sortByWeights);
-                            visitedParents.add(neighborID5);
-                            Iterator iter6 = cneighbors6.keySet().iterator();
-                            while (iter6.hasNext()) {
-                                int neighborID6 = (int) iter6.next();
-                                //System.out.println("------ " + getVertexByID(neighborID6) + " - " + cneighbors6.get(neighborID6));
-                                //Check Hit
-                                if (neighborID6 == VID2) {
-                                    paths.add(neighborID6);
-                                    paths.add(neighborID5);
-                                    paths.add(neighborID4);
-                                    paths.add(neighborID3);
-                                    paths.add(neighborID2);
-                                    paths.add(neighborID);
-                                    paths.add(VID1);
-                                    //System.out.println("Found!");
-                                    break outerloop;
-                                }
-                                //7th
-                                if (visitedParents.contains(neighborID6)) {
-                                    continue;
-                                }
-                                Map cneighbors7 = getNeighbors(neighborID6, depth, sortByWeights);
-                                visitedParents.add(neighborID6);
-                                Iterator iter7 = cneighbors7.keySet().iterator();
-                                while (iter7.hasNext()) {
-                                    int neighborID7 = (int) iter7.next();
-                                    //System.out.println("------ " + getVertexByID(neighborID6) + " - " + cneighbors6.get(neighborID6));
-                                    //Check Hit
-                                    if (neighborID7 == VID2) {
-                                        paths.add(neighborID7);
-                                        paths.add(neighborID6);
-                                        paths.add(neighborID5);
-                                        paths.add(neighborID4);
-                                        paths.add(neighborID3);
-                                        paths.add(neighborID2);
-                                        paths.add(neighborID);
-                                        paths.add(VID1);
-                                        //System.out.println("Found!");
-                                        break outerloop;
-                                    }
-                                    //8th
-                                    if (visitedParents.contains(neighborID7)) {
-                                        continue;
-                                    }
-                                    Map cneighbors8 = getNeighbors(neighborID7, depth, sortByWeights);
-                                    visitedParents.add(neighborID7);
-                                    Iterator iter8 = cneighbors8.keySet().iterator();
-                                    while (iter8.hasNext()) {
-                                        int neighborID8 = (int) iter8.next();
-                                        //System.out.println("------ " + getVertexByID(neighborID6) + " - " + cneighbors6.get(neighborID6));
-                                        //Check Hit
-                                        if (neighborID8 == VID2) {
-                                            paths.add(neighborID8);
-                                            paths.add(neighborID7);
-                                            paths.add(neighborID6);
-                                            paths.add(neighborID5);
-                                            paths.add(neighborID4);
-                                            paths.add(neighborID3);
-                                            paths.add(neighborID2);
-                                            paths.add(neighborID);
-                                            paths.add(VID1);
-                                            //System.out.println("Found!");
-                                            break outerloop;
-                                        }
-                                        //9th
-                                        if (visitedParents.contains(neighborID8)) {
-                                            continue;
-                                        }
-                                        Map cneighbors9 = getNeighbors(neighborID8, depth, sortByWeights);
-                                        visitedParents.add(neighborID8);
-                                        Iterator iter9 = cneighbors9.keySet().iterator();
-                                        while (iter9.hasNext()) {
-                                            int neighborID9 = (int) iter9.next();
-                                            //System.out.println("------ " + getVertexByID(neighborID6) + " - " + cneighbors6.get(neighborID6));
-                                            //Check Hit
-                                            if (neighborID9 == VID2) {
-                                                paths.add(neighborID9);
-                                                paths.add(neighborID8);
-                                                paths.add(neighborID7);
-                                                paths.add(neighborID6);
-                                                paths.add(neighborID5);
-                                                paths.add(neighborID4);
-                                                paths.add(neighborID3);
-                                                paths.add(neighborID2);
-                                                paths.add(neighborID);
-                                                paths.add(VID1);
-                                                //System.out.println("Found!");
-                                                break outerloop;
-                                            }
-                                            //10th
-                                            if (visitedParents.contains(neighborID9)) {
-                                                continue;
-                                            }
-                                            Map cneighbors10 = getNeighbors(neighborID9, depth, sortByWeights);
-                                            visitedParents.add(neighborID9);
-                                            Iterator iter10 = cneighbors10.keySet().iterator();
-                                            while (iter10.hasNext()) {
-                                                int neighborID10 = (int) iter10.next();
-                                                //System.out.println("------ " + getVertexByID(neighborID6) + " - " + cneighbors6.get(neighborID6));
-                                                //Check Hit
-                                                if (neighborID10 == VID2) {
-                                                    paths.add(neighborID10);
-                                                    paths.add(neighborID9);
-                                                    paths.add(neighborID8);
-                                                    paths.add(neighborID7);
-                                                    paths.add(neighborID6);
-                                                    paths.add(neighborID5);
-                                                    paths.add(neighborID4);
-                                                    paths.add(neighborID3);
-                                                    paths.add(neighborID2);
-                                                    paths.add(neighborID);
-                                                    paths.add(VID1);
-                                                    //System.out.println("Found!");
-                                                    break outerloop;
-                                                }
-                                                //11th
-                                                if (visitedParents.contains(neighborID10)) {
-                                                    continue;
-                                                }
-                                                Map cneighbors11 = getNeighbors(neighborID10, depth, sortByWeights);
-                                                visitedParents.add(neighborID10);
-                                                Iterator iter11 = cneighbors11.keySet().iterator();
-                                                while (iter11.hasNext()) {
-                                                    int neighborID11 = (int) iter11.next();
-                                                    //System.out.println("------ " + getVertexByID(neighborID6) + " - " + cneighbors6.get(neighborID6));
-                                                    //Check Hit
-                                                    if (neighborID11 == VID2) {
-                                                        paths.add(neighborID11);
-                                                        paths.add(neighborID10);
-                                                        paths.add(neighborID9);
-                                                        paths.add(neighborID8);
-                                                        paths.add(neighborID7);
-                                                        paths.add(neighborID6);
-                                                        paths.add(neighborID5);
-                                                        paths.add(neighborID4);
-                                                        paths.add(neighborID3);
-                                                        paths.add(neighborID2);
-                                                        paths.add(neighborID);
-                                                        paths.add(VID1);
-                                                        //System.out.println("Found!");
-                                                        break outerloop;
-                                                    }
-                                                    //12th
-                                                    if (visitedParents.contains(neighborID11)) {
-                                                        continue;
-                                                    }
-                                                    Map cneighbors12 = getNeighbors(neighborID11, depth, sortByWeights);
-                                                    visitedParents.add(neighborID11);
-                                                    Iterator iter12 = cneighbors12.keySet().iterator();
-                                                    while (iter12.hasNext()) {
-                                                        int neighborID12 = (int) iter12.next();
-                                                        //System.out.println("------ " + getVertexByID(neighborID6) + " - " + cneighbors6.get(neighborID6));
-                                                        //Check Hit
-                                                        if (neighborID12 == VID2) {
-                                                            paths.add(neighborID12);
-                                                            paths.add(neighborID11);
-                                                            paths.add(neighborID10);
-                                                            paths.add(neighborID9);
-                                                            paths.add(neighborID8);
-                                                            paths.add(neighborID7);
-                                                            paths.add(neighborID6);
-                                                            paths.add(neighborID5);
-                                                            paths.add(neighborID4);
-                                                            paths.add(neighborID3);
-                                                            paths.add(neighborID2);
-                                                            paths.add(neighborID);
-                                                            paths.add(VID1);
-                                                            //System.out.println("Found!");
-                                                            break outerloop;
-                                                        }
-                                                        //13th
-                                                        if (visitedParents.contains(neighborID12)) {
-                                                            continue;
-                                                        }
-                                                        Map cneighbors13 = getNeighbors(neighborID12, depth, sortByWeights);
-                                                        visitedParents.add(neighborID12);
-                                                        Iterator iter13 = cneighbors13.keySet().iterator();
-                                                        while (iter13.hasNext()) {
-                                                            int neighborID13 = (int) iter13.next();
-                                                            //System.out.println("------ " + getVertexByID(neighborID6) + " - " + cneighbors6.get(neighborID6));
-                                                            //Check Hit
-                                                            if (neighborID13 == VID2) {
-                                                                paths.add(neighborID13);
-                                                                paths.add(neighborID12);
-                                                                paths.add(neighborID11);
-                                                                paths.add(neighborID10);
-                                                                paths.add(neighborID9);
-                                                                paths.add(neighborID8);
-                                                                paths.add(neighborID7);
-                                                                paths.add(neighborID6);
-                                                                paths.add(neighborID5);
-                                                                paths.add(neighborID4);
-                                                                paths.add(neighborID3);
-                                                                paths.add(neighborID2);
-                                                                paths.add(neighborID);
-                                                                paths.add(VID1);
-                                                                //System.out.println("Found!");
-                                                                break outerloop;
-                                                            }
-                                                            //14th
-                                                            if (visitedParents.contains(neighborID13)) {
-                                                                continue;
-                                                            }
-                                                            Map cneighbors14 = getNeighbors(neighborID13, depth, sortByWeights);
-                                                            visitedParents.add(neighborID13);
-                                                            Iterator iter14 = cneighbors14.keySet().iterator();
-                                                            while (iter14.hasNext()) {
-                                                                int neighborID14 = (int) iter14.next();
-                                                                //System.out.println("------ " + getVertexByID(neighborID6) + " - " + cneighbors6.get(neighborID6));
-                                                                //Check Hit
-                                                                if (neighborID14 == VID2) {
-                                                                    paths.add(neighborID14);
-                                                                    paths.add(neighborID13);
-                                                                    paths.add(neighborID12);
-                                                                    paths.add(neighborID11);
-                                                                    paths.add(neighborID10);
-                                                                    paths.add(neighborID9);
-                                                                    paths.add(neighborID8);
-                                                                    paths.add(neighborID7);
-                                                                    paths.add(neighborID6);
-                                                                    paths.add(neighborID5);
-                                                                    paths.add(neighborID4);
-                                                                    paths.add(neighborID3);
-                                                                    paths.add(neighborID2);
-                                                                    paths.add(neighborID);
-                                                                    paths.add(VID1);
-                                                                    //System.out.println("Found!");
-                                                                    break outerloop;
-                                                                }
-                                                                //15th
-                                                                if (visitedParents.contains(neighborID14)) {
-                                                                    continue;
-                                                                }
-                                                                Map cneighbors15 = getNeighbors(neighborID14, depth, sortByWeights);
-                                                                visitedParents.add(neighborID14);
-                                                                Iterator iter15 = cneighbors15.keySet().iterator();
-                                                                while (iter15.hasNext()) {
-                                                                    int neighborID15 = (int) iter15.next();
-                                                                    //System.out.println("------ " + getVertexByID(neighborID6) + " - " + cneighbors6.get(neighborID6));
-                                                                    //Check Hit
-                                                                    if (neighborID15 == VID2) {
-                                                                        paths.add(neighborID15);
-                                                                        paths.add(neighborID14);
-                                                                        paths.add(neighborID13);
-                                                                        paths.add(neighborID12);
-                                                                        paths.add(neighborID11);
-                                                                        paths.add(neighborID10);
-                                                                        paths.add(neighborID9);
-                                                                        paths.add(neighborID8);
-                                                                        paths.add(neighborID7);
-                                                                        paths.add(neighborID6);
-                                                                        paths.add(neighborID5);
-                                                                        paths.add(neighborID4);
-                                                                        paths.add(neighborID3);
-                                                                        paths.add(neighborID2);
-                                                                        paths.add(neighborID);
-                                                                        paths.add(VID1);
-                                                                        //System.out.println("Found!");
-                                                                        break outerloop;
-                                                                    }
-                                                                    //16th 2^4 and give up
-                                                                    if (visitedParents.contains(neighborID15)) {
-                                                                        continue;
-                                                                    }
-                                                                    Map cneighbors16 = getNeighbors(neighborID15, depth, sortByWeights);
-                                                                    visitedParents.add(neighborID15);
-                                                                    Iterator iter16 = cneighbors16.keySet().iterator();
-                                                                    while (iter16.hasNext()) {
-                                                                        int neighborID16 = (int) iter16.next();
-                                                                        //System.out.println("------ " + getVertexByID(neighborID6) + " - " + cneighbors6.get(neighborID6));
-                                                                        //Check Hit
-                                                                        if (neighborID16 == VID2) {
-                                                                            paths.add(neighborID16);
-                                                                            paths.add(neighborID15);
-                                                                            paths.add(neighborID14);
-                                                                            paths.add(neighborID13);
-                                                                            paths.add(neighborID12);
-                                                                            paths.add(neighborID11);
-                                                                            paths.add(neighborID10);
-                                                                            paths.add(neighborID9);
-                                                                            paths.add(neighborID8);
-                                                                            paths.add(neighborID7);
-                                                                            paths.add(neighborID6);
-                                                                            paths.add(neighborID5);
-                                                                            paths.add(neighborID4);
-                                                                            paths.add(neighborID3);
-                                                                            paths.add(neighborID2);
-                                                                            paths.add(neighborID);
-                                                                            paths.add(VID1);
-                                                                            //System.out.println("Found!");
-                                                                            break outerloop;
-                                                                        }
-                                                                        //17th
-                                                                        if (visitedParents.contains(neighborID16)) {
-                                                                            continue;
-                                                                        }
-                                                                        Map cneighbors17 = getNeighbors(neighborID16, depth, sortByWeights);
-                                                                        visitedParents.add(neighborID16);
-                                                                        Iterator iter17 = cneighbors17.keySet().iterator();
-                                                                        while (iter17.hasNext()) {
-                                                                            int neighborID17 = (int) iter17.next();
-                                                                            //System.out.println("------ " + getVertexByID(neighborID6) + " - " + cneighbors6.get(neighborID6));
-                                                                            //Check Hit
-                                                                            if (neighborID17 == VID2) {
-                                                                                paths.add(neighborID17);
-                                                                                paths.add(neighborID16);
-                                                                                paths.add(neighborID15);
-                                                                                paths.add(neighborID14);
-                                                                                paths.add(neighborID13);
-                                                                                paths.add(neighborID12);
-                                                                                paths.add(neighborID11);
-                                                                                paths.add(neighborID10);
-                                                                                paths.add(neighborID9);
-                                                                                paths.add(neighborID8);
-                                                                                paths.add(neighborID7);
-                                                                                paths.add(neighborID6);
-                                                                                paths.add(neighborID5);
-                                                                                paths.add(neighborID4);
-                                                                                paths.add(neighborID3);
-                                                                                paths.add(neighborID2);
-                                                                                paths.add(neighborID);
-                                                                                paths.add(VID1);
-                                                                                //System.out.println("Found!");
-                                                                                break outerloop;
-                                                                            }
-                                                                            //18th
-                                                                            if (visitedParents.contains(neighborID17)) {
-                                                                                continue;
-                                                                            }
-                                                                            Map cneighbors18 = getNeighbors(neighborID17, depth, sortByWeights);
-                                                                            visitedParents.add(neighborID17);
-                                                                            Iterator iter18 = cneighbors18.keySet().iterator();
-                                                                            while (iter18.hasNext()) {
-                                                                                int neighborID18 = (int) iter18.next();
-                                                                                //System.out.println("------ " + getVertexByID(neighborID6) + " - " + cneighbors6.get(neighborID6));
-                                                                                //Check Hit
-                                                                                if (neighborID18 == VID2) {
-                                                                                    paths.add(neighborID18);
-                                                                                    paths.add(neighborID17);
-                                                                                    paths.add(neighborID16);
-                                                                                    paths.add(neighborID15);
-                                                                                    paths.add(neighborID14);
-                                                                                    paths.add(neighborID13);
-                                                                                    paths.add(neighborID12);
-                                                                                    paths.add(neighborID11);
-                                                                                    paths.add(neighborID10);
-                                                                                    paths.add(neighborID9);
-                                                                                    paths.add(neighborID8);
-                                                                                    paths.add(neighborID7);
-                                                                                    paths.add(neighborID6);
-                                                                                    paths.add(neighborID5);
-                                                                                    paths.add(neighborID4);
-                                                                                    paths.add(neighborID3);
-                                                                                    paths.add(neighborID2);
-                                                                                    paths.add(neighborID);
-                                                                                    paths.add(VID1);
-                                                                                    //System.out.println("Found!");
-                                                                                    break outerloop;
-                                                                                }
-                                                                                //19th
-                                                                                if (visitedParents.contains(neighborID18)) {
-                                                                                    continue;
-                                                                                }
-                                                                                Map cneighbors19 = getNeighbors(neighborID18, depth, sortByWeights);
-                                                                                visitedParents.add(neighborID18);
-                                                                                Iterator iter19 = cneighbors19.keySet().iterator();
-                                                                                while (iter19.hasNext()) {
-                                                                                    int neighborID19 = (int) iter19.next();
-                                                                                    //System.out.println("------ " + getVertexByID(neighborID6) + " - " + cneighbors6.get(neighborID6));
-                                                                                    //Check Hit
-                                                                                    if (neighborID19 == VID2) {
-                                                                                        paths.add(neighborID19);
-                                                                                        paths.add(neighborID18);
-                                                                                        paths.add(neighborID17);
-                                                                                        paths.add(neighborID16);
-                                                                                        paths.add(neighborID15);
-                                                                                        paths.add(neighborID14);
-                                                                                        paths.add(neighborID13);
-                                                                                        paths.add(neighborID12);
-                                                                                        paths.add(neighborID11);
-                                                                                        paths.add(neighborID10);
-                                                                                        paths.add(neighborID9);
-                                                                                        paths.add(neighborID8);
-                                                                                        paths.add(neighborID7);
-                                                                                        paths.add(neighborID6);
-                                                                                        paths.add(neighborID5);
-                                                                                        paths.add(neighborID4);
-                                                                                        paths.add(neighborID3);
-                                                                                        paths.add(neighborID2);
-                                                                                        paths.add(neighborID);
-                                                                                        paths.add(VID1);
-                                                                                        //System.out.println("Found!");
-                                                                                        break outerloop;
-                                                                                    }
-                                                                                    //20th
-                                                                                    if (visitedParents.contains(neighborID19)) {
-                                                                                        continue;
-                                                                                    }
-                                                                                    Map cneighbors20 = getNeighbors(neighborID19, depth, sortByWeights);
-                                                                                    visitedParents.add(neighborID19);
-                                                                                    Iterator iter20 = cneighbors20.keySet().iterator();
-                                                                                    while (iter20.hasNext()) {
-                                                                                        int neighborID20 = (int) iter20.next();
-                                                                                        //System.out.println("------ " + getVertexByID(neighborID6) + " - " + cneighbors6.get(neighborID6));
-                                                                                        //Check Hit
-                                                                                        if (neighborID20 == VID2) {
-                                                                                            paths.add(neighborID20);
-                                                                                            paths.add(neighborID19);
-                                                                                            paths.add(neighborID18);
-                                                                                            paths.add(neighborID17);
-                                                                                            paths.add(neighborID16);
-                                                                                            paths.add(neighborID15);
-                                                                                            paths.add(neighborID14);
-                                                                                            paths.add(neighborID13);
-                                                                                            paths.add(neighborID12);
-                                                                                            paths.add(neighborID11);
-                                                                                            paths.add(neighborID10);
-                                                                                            paths.add(neighborID9);
-                                                                                            paths.add(neighborID8);
-                                                                                            paths.add(neighborID7);
-                                                                                            paths.add(neighborID6);
-                                                                                            paths.add(neighborID5);
-                                                                                            paths.add(neighborID4);
-                                                                                            paths.add(neighborID3);
-                                                                                            paths.add(neighborID2);
-                                                                                            paths.add(neighborID);
-                                                                                            paths.add(VID1);
-                                                                                            //System.out.println("Found!");
-                                                                                            break outerloop;
-                                                                                        }
-                                                                                    }
-                                                                                }
-                                                                            }
-                                                                        }
-                                                                    }
-                                                                }
-                                                            }
-                                                        }
-                                                    }
-                                                }
-                                            }
-                                        }
-                                    }
-                                }
-                            }
+                        paths.add(VID1);
+                        if (metrics != null) {
+                            metrics.recordVisits("getPathBetweenVertices", parents.size(), edgesVisited);
                         }
+                        return paths;
                     }
+                    if (nextSize == nextFrontier.length) {
+                        nextFrontier = Arrays.copyOf(nextFrontier, nextSize << 1);
+                    }
+                    nextFrontier[nextSize++] = neighbor;
                 }
             }
+            frontier = Arrays.copyOf(nextFrontier, nextSize);
         }
 
+        if (metrics != null) {
+            metrics.recordVisits("getPathBetweenVertices", parents.size(), edgesVisited);
+        }
         return paths;
 
     }
@@ -1768,7 +3647,9 @@ public class FastGraph {
     }
 
     /**
-     * Find all neighbors (immediate inbound and outbound vertices) for a Vertex
+     * Find all neighbors (immediate inbound and outbound vertices) for a
+     * Vertex. With a depth greater than 1, every vertex reachable within that
+     * many hops is included, weighted by the edge it was first reached by.
      *
      * @param VID The Vertex ID
      * @param depth Maximum hops
@@ -1777,10 +3658,273 @@ public class FastGraph {
      * their connection strengths
      */
     public Map getNeighbors(int VID, int depth, boolean sortByWeights) {
-        //System.out.println("Looking for neighbors for "+VID+" at depth "+depth);
+        return queryNeighbors(VID, depth, sortByWeights, Direction.BOTH, rows(Direction.BOTH), TraversalFilter.NONE, edgeWeights::get, QueryGuard.NONE);
+    }
+
+    /**
+     * Find the neighbors of a Vertex in a direction: the vertices its edges
+     * lead to (OUT), the vertices whose edges lead to it (IN) or both. Only
+     * the rows of that direction are read. With a depth greater than 1 the
+     * same direction is followed at every hop.
+     *
+     * @param VID The Vertex ID
+     * @param depth Maximum hops
+     * @param sortByWeights Should the path be taken based on edge weights
+     * @param direction The edges to follow
+     * @return A map (Vertex ID, Weight of edges) containing the neighbors and
+     * their connection strengths
+     */
+    public Map getNeighbors(int VID, int depth, boolean sortByWeights, Direction direction) {
+        return queryNeighbors(VID, depth, sortByWeights, direction, rows(direction), TraversalFilter.NONE, edgeWeights::get, QueryGuard.NONE);
+    }
+
+    /**
+     * Find the neighbors of a Vertex through the vertices and edges accepted
+     * by a filter on their properties. A rejected vertex is neither returned
+     * nor expanded, and a rejected edge is not followed. The tests run as
+     * the search expands, so what is rejected is never explored. Filtered
+     * neighbors are not cached.
+     *
+     * @param VID The Vertex ID
+     * @param depth Maximum hops
+     * @param sortByWeights Should the path be taken based on edge weights
+     * @param direction The edges to follow, BOTH in an undirected graph
+     * @param filter The vertices and edges the search may use
+     * @return A map (Vertex ID, Weight of edges) containing the neighbors and
+     * their connection strengths
+     * @throws IllegalArgumentException If a property of the filter is missing
+     * or has the wrong type
+     */
+    public Map getNeighbors(int VID, int depth, boolean sortByWeights, Direction direction, PropertyFilter filter) {
+        return queryNeighbors(VID, depth, sortByWeights, direction, rows(direction), filter.bind(vertexProperties, edgeProperties), edgeWeights::get, QueryGuard.NONE);
+    }
+
+    /**
+     * Find the neighbors of a Vertex through the vertices and edges accepted
+     * by 2 tests. A rejected vertex is neither returned nor expanded, and a
+     * rejected edge is not followed. The tests run as the search expands,
+     * so what is rejected is never explored. Filtered neighbors are not
+     * cached.
+     *
+     * @param VID The Vertex ID
+     * @param depth Maximum hops
+     * @param sortByWeights Should the path be taken based on edge weights
+     * @param direction The edges to follow, BOTH in an undirected graph
+     * @param vertexFilter The vertex IDs the search may reach, or null for
+     * all
+     * @param edgeFilter The edges the search may follow, or null for all
+     * @return A map (Vertex ID, Weight of edges) containing the neighbors and
+     * their connection strengths
+     */
+    public Map getNeighbors(int VID, int depth, boolean sortByWeights, Direction direction, IntPredicate vertexFilter, EdgePredicate edgeFilter) {
+        return queryNeighbors(VID, depth, sortByWeights, direction, rows(direction), toTraversalFilter(vertexFilter, edgeFilter, edgeWeights::get), edgeWeights::get, QueryGuard.NONE);
+    }
+
+    /**
+     * Find the neighbors of a Vertex through the edges with a row within a
+     * time window. Every neighbor is weighted by the rows within the window
+     * of the edge it was first reached by, so the weights slide with the
+     * window instead of counting all the rows. The search only walks the
+     * rows of every vertex within the window, found by 2 binary searches in
+     * its rows sorted by time. Windowed neighbors are not cached.
+     *
+     * @param VID The Vertex ID
+     * @param depth Maximum hops
+     * @param sortByWeights Should the neighbors be sorted by their weight in
+     * the window?
+     * @param direction The edges to follow, BOTH in an undirected graph
+     * @param from The first time of the window
+     * @param to The last time of the window, included
+     * @return A map (Vertex ID, Weight of edges in the window) containing the
+     * neighbors and their connection strengths
+     * @throws IllegalStateException If the edges have no timestamps
+     */
+    public Map getNeighbors(int VID, int depth, boolean sortByWeights, Direction direction, long from, long to) {
+        TimeWindow window = new TimeWindow(direction, from, to);
+        return queryNeighbors(VID, depth, sortByWeights, direction, window.rows, TraversalFilter.NONE, window::weight, QueryGuard.NONE);
+    }
+
+    /**
+     * Find the neighbors of a Vertex through the edges with a row within a
+     * time window, and through the vertices and edges accepted by a filter
+     * on their properties
+     *
+     * @param VID The Vertex ID
+     * @param depth Maximum hops
+     * @param sortByWeights Should the neighbors be sorted by their weight in
+     * the window?
+     * @param direction The edges to follow, BOTH in an undirected graph
+     * @param from The first time of the window
+     * @param to The last time of the window, included
+     * @param filter The vertices and edges the search may use
+     * @return A map (Vertex ID, Weight of edges in the window) containing the
+     * neighbors and their connection strengths
+     * @throws IllegalStateException If the edges have no timestamps
+     * @throws IllegalArgumentException If a property of the filter is missing
+     * or has the wrong type
+     */
+    public Map getNeighbors(int VID, int depth, boolean sortByWeights, Direction direction, long from, long to, PropertyFilter filter) {
+        TimeWindow window = new TimeWindow(direction, from, to);
+        return queryNeighbors(VID, depth, sortByWeights, direction, window.rows, filter.bind(vertexProperties, edgeProperties), window::weight, QueryGuard.NONE);
+    }
+
+    /**
+     * Find the neighbors of a Vertex through the edges with a row within a
+     * time window, and through the vertices and edges accepted by 2 tests.
+     * The edge test is given the weight of the edge within the window.
+     *
+     * @param VID The Vertex ID
+     * @param depth Maximum hops
+     * @param sortByWeights Should the neighbors be sorted by their weight in
+     * the window?
+     * @param direction The edges to follow, BOTH in an undirected graph
+     * @param from The first time of the window
+     * @param to The last time of the window, included
+     * @param vertexFilter The vertex IDs the search may go through, or null
+     * for all
+     * @param edgeFilter The edges the search may follow, or null for all
+     * @return A map (Vertex ID, Weight of edges in the window) containing the
+     * neighbors and their connection strengths
+     * @throws IllegalStateException If the edges have no timestamps
+     */
+    public Map getNeighbors(int VID, int depth, boolean sortByWeights, Direction direction, long from, long to, IntPredicate vertexFilter, EdgePredicate edgeFilter) {
+        TimeWindow window = new TimeWindow(direction, from, to);
+        return queryNeighbors(VID, depth, sortByWeights, direction, window.rows, toTraversalFilter(vertexFilter, edgeFilter, window::weight), window::weight, QueryGuard.NONE);
+    }
+
+    /**
+     * Find the neighbors of a Vertex through the edges with a row within a
+     * time window, within the bounds of a token. The token is checked before
+     * every hop.
+     *
+     * @param VID The Vertex ID
+     * @param depth Maximum hops
+     * @param sortByWeights Should the neighbors be sorted by their weight in
+     * the window?
+     * @param direction The edges to follow, BOTH in an undirected graph
+     * @param from The first time of the window
+     * @param to The last time of the window, included
+     * @param token The token bounding the search
+     * @return A map (Vertex ID, Weight of edges in the window) containing the
+     * neighbors and their connection strengths, or the neighbors reached
+     * before the token fired
+     * @throws IllegalStateException If the edges have no timestamps
+     */
+    public QueryResult<Map> getNeighbors(int VID, int depth, boolean sortByWeights, Direction direction, long from, long to, CancellationToken token) {
+        TimeWindow window = new TimeWindow(direction, from, to);
+        QueryGuard guard = new QueryGuard(token);
+        Map neighbors = queryNeighbors(VID, depth, sortByWeights, direction, window.rows, TraversalFilter.NONE, window::weight, guard);
+        return new QueryResult<>(neighbors, guard.getStatus());
+    }
+
+    /**
+     * Run the tests of the callers on vertex IDs and edge weights
+     *
+     * @param vertexFilter The vertex IDs to accept, or null for all
+     * @param edgeFilter The edges to accept, or null for all
+     * @param weights The weight given to the edge test, by internal edge ID
+     * @return The filter to run in the traversal
+     */
+    private TraversalFilter toTraversalFilter(IntPredicate vertexFilter, EdgePredicate edgeFilter, IntUnaryOperator weights) {
+        if (vertexFilter == null && edgeFilter == null) {
+            return TraversalFilter.NONE;
+        }
+        return new TraversalFilter() {
+            @Override
+            public boolean acceptVertex(int IVID) {
+                return vertexFilter == null || vertexFilter.test(externalIDs.get(IVID));
+            }
+
+            @Override
+            public boolean acceptEdge(int from, int to, int edge) {
+                return edgeFilter == null || edgeFilter.test(externalIDs.get(from), externalIDs.get(to), weights.applyAsInt(edge));
+            }
+
+            @Override
+            public boolean hasEdgeTest() {
+                return edgeFilter != null;
+            }
+        };
+    }
+
+    /**
+     * The rows and the edge weights of a time window. The rows only hold the
+     * edges with a row of the edges file in the window, so the searches walk
+     * them with no edge test for the window.
+     */
+    private final class TimeWindow {
+
+        private final TemporalEdges events = getTemporalEdges();
+        private final long from;
+        private final long to;
+        final NeighborRows rows;
+
+        TimeWindow(Direction direction, long from, long to) {
+            this.from = from;
+            this.to = to;
+            rows = events.window(direction, from, to);
+        }
+
+        /**
+         * Get the weight of an edge within the window
+         *
+         * @param edge The internal edge ID (EID - 1)
+         * @return The sum of the weights of its rows in the window
+         */
+        int weight(int edge) {
+            return events.weight(edge, from, to);
+        }
+    }
+
+    /**
+     * Find all neighbors for a Vertex, within the bounds of a token. The
+     * token is checked before every hop.
+     *
+     * @param VID The Vertex ID
+     * @param depth Maximum hops
+     * @param sortByWeights Should the path be taken based on edge weights
+     * @param token The token bounding the search
+     * @return A map (Vertex ID, Weight of edges) containing the neighbors and
+     * their connection strengths, or the neighbors reached before the token
+     * fired
+     */
+    public QueryResult<Map> getNeighbors(int VID, int depth, boolean sortByWeights, CancellationToken token) {
+        QueryGuard guard = new QueryGuard(token);
+        Map neighbors = queryNeighbors(VID, depth, sortByWeights, Direction.BOTH, rows(Direction.BOTH), TraversalFilter.NONE, edgeWeights::get, guard);
+        return new QueryResult<>(neighbors, guard.getStatus());
+    }
+
+    private Map queryNeighbors(int VID, int depth, boolean sortByWeights, Direction direction, NeighborRows rows, TraversalFilter filter, IntUnaryOperator weights, QueryGuard guard) {
+        long start = startTimer();
+        Map neighbors;
+        //The cache keys do not hold the filters or the time windows
+        if (queryCache == null || filter != TraversalFilter.NONE || rows != rows(direction)) {
+            neighbors = findNeighbors(VID, depth, sortByWeights, direction, rows, filter, weights, guard);
+        } else {
+            QueryCache.Key key = new QueryCache.Key(QueryCache.NEIGHBORS, VID, 0, depth, sortByWeights, direction);
+            Map cached = (Map) queryCache.get(key);
+            if (cached != null) {
+                neighbors = new LinkedHashMap(cached);
+            } else {
+                neighbors = findNeighbors(VID, depth, sortByWeights, direction, rows, filter, weights, guard);
+                //Partial results are not cached
+                if (guard.getStatus() == QueryStatus.COMPLETE) {
+                    queryCache.put(key, new LinkedHashMap(neighbors), QueryCache.sizeOfMap(neighbors.size()));
+                }
+            }
+            if (metrics != null) {
+                metrics.recordCacheAccess("getNeighbors", cached != null);
+            }
+        }
+        stopQuery("getNeighbors", start);
+        return neighbors;
+    }
+
+    private Map findNeighbors(int VID, int depth, boolean sortByWeights, Direction direction, NeighborRows rows, TraversalFilter filter, IntUnaryOperator weights, QueryGuard guard) {
         HashMap<Integer, Integer> neighbors = new HashMap();
 
-        if (VID == -1) {
+        int IVID = toInternal(VID);
+        if (IVID == -1) {
             return neighbors;
         }
 
@@ -1788,30 +3932,64 @@ public class FastGraph {
             return neighbors;
         }
 
-        edges.keySet().forEach((EID) -> {
-            //System.out.println("Skipping "+EID+" for "+VID);
-            //Check if this edge can be skipped
-            LinkedHashMap connections = edges.get(EID);
-            int sourceID = (int) connections.get("S");
-            int destID = (int) connections.get("D");
-            int weight = (int) connections.get("W");
-            //System.out.println(VID+" -> "+sourceID+":"+destID);
-            if (sourceID == VID) {
-                //Hit
-                //neighbors.put(getVertexByID(sourceID), weight);
-                neighbors.put(destID, weight);
-                Map distantNeighbors = getNeighbors(destID, depth - 1, sortByWeights);
-                neighbors.putAll(distantNeighbors);
-            }
-            if (destID == VID) {
-                //Hit
-                neighbors.put(sourceID, weight);
-                //neighbors.put(getVertexByID(destID), weight);
-                Map distantNeighbors = getNeighbors(sourceID, depth - 1, sortByWeights);
-                neighbors.putAll(distantNeighbors);
+        //A walk can come back to the vertex itself, through a self-loop or
+        //through any neighbor when more than one hop is allowed. Following
+        //one direction, or a filter, it comes back through a cycle found by
+        //the search.
+        NeighborCursor cursor = rows.cursor();
+        int selfEdge = findEdge(IVID, IVID, direction, rows);
+        cursor.reset(IVID);
+        if (selfEdge != -1 && filter.acceptEdge(IVID, IVID, selfEdge)) {
+            neighbors.put(VID, weights.applyAsInt(selfEdge));
+        } else if (depth > 1 && rows == adjacency && filter == TraversalFilter.NONE && cursor.next()) {
+            neighbors.put(VID, weights.applyAsInt(cursor.edge()));
+        }
+        boolean edgeTest = filter.hasEdgeTest();
+
+        IntIntHashMap visited = new IntIntHashMap();
+        visited.put(IVID, 0);
+        int[] frontier = {IVID};
+        long edgesVisited = 0;
+        for (int hop = 1; hop <= depth && frontier.length > 0 && !guard.stop(); hop++) {
+            int[] nextFrontier = new int[16];
+            int nextSize = 0;
+            for (int i = 0; i < frontier.length; i++) {
+                int SVID = frontier[i];
+                //Large frontiers are checked while they are expanded too
+                if (guard.stop(rows.degree(SVID) + 1)) {
+                    break;
+                }
+                cursor.reset(SVID);
+                while (cursor.next()) {
+                    edgesVisited++;
+                    int neighbor = cursor.neighbor();
+                    boolean seen = visited.containsKey(neighbor);
+                    if (seen && neighbor != IVID) {
+                        continue;
+                    }
+                    if (edgeTest && !filter.acceptEdge(SVID, neighbor, cursor.edge())) {
+                        continue;
+                    }
+                    if (seen) {
+                        neighbors.putIfAbsent(VID, weights.applyAsInt(cursor.edge()));
+                        continue;
+                    }
+                    if (!filter.acceptVertex(neighbor)) {
+                        continue;
+                    }
+                    visited.put(neighbor, hop);
+                    neighbors.put(externalIDs.get(neighbor), weights.applyAsInt(cursor.edge()));
+                    if (nextSize == nextFrontier.length) {
+                        nextFrontier = Arrays.copyOf(nextFrontier, nextSize << 1);
+                    }
+                    nextFrontier[nextSize++] = neighbor;
+                }
             }
-
-        });
+            frontier = Arrays.copyOf(nextFrontier, nextSize);
+        }
+        if (metrics != null) {
+            metrics.recordVisits("getNeighbors", visited.size(), edgesVisited);
+        }
 
         //Sort by value and return
         if (sortByWeights) {
@@ -1819,12 +3997,12 @@ public class FastGraph {
             return sortedNeighborsMap;
         } else {
             //Try to sort by rank
-            if (hotSpots.size() == edgesHelper.size()) {
+            if (trianglesCounts != null) {
                 //Hot spot available. Sort by rank
                 LinkedHashMap<Integer, Integer> rankedNeighborsList = new LinkedHashMap();
 
                 neighbors.keySet().forEach((vertexID) -> {
-                    int triangles = hotSpots.get(vertexID);
+                    int triangles = trianglesCounts[toInternal(vertexID)];
                     rankedNeighborsList.put(vertexID, triangles);
                 });
 
@@ -0,0 +1,347 @@
+/*
+ * Copyright (C) 2018 Frank Jennings
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fj.fastgraph;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Options used when a FastGraph is loaded. The setters return the same
+ * config so that the options can be chained.
+ *
+ * @author Frank Jennings
+ */
+public class FastGraphConfig {
+
+    private boolean computeHotspots = false;
+    private boolean computeComponents = false;
+    private boolean directed = false;
+    private boolean edgeTimestamps = false;
+    private final LinkedHashMap<String, PropertyType> vertexProperties = new LinkedHashMap<>();
+    private final LinkedHashMap<String, PropertyType> edgeProperties = new LinkedHashMap<>();
+    private VertexOrdering vertexOrdering = VertexOrdering.NONE;
+    private AdjacencyFormat adjacencyFormat = null;
+    private StorageMode storageMode = StorageMode.HEAP;
+    private long queryCacheSize = 0;
+    private GraphMetrics metrics = null;
+    private ProgressListener progressListener = null;
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Should the hot spots be computed when the graph is loaded?
+     *
+     * @return True if the hot spots are computed at load time
+     */
+    public boolean isComputeHotspots() {
+        return computeHotspots;
+    }
+
+    /**
+     * If True, when the FastGraph initializes, it creates a map of hot spot
+     * vertices that will be used as preferred traversal paths. The hot spots
+     * are calculated based on the triangles owned by the vertices.
+     *
+     * @param computeHotspots Compute the hot spots at load time
+     * @return This config
+     */
+    public FastGraphConfig setComputeHotspots(boolean computeHotspots) {
+        this.computeHotspots = computeHotspots;
+        return this;
+    }
+
+    /**
+     * Should the strongly connected components be split when the graph is
+     * loaded?
+     *
+     * @return True if the components are split at load time
+     */
+    public boolean isComputeComponents() {
+        return computeComponents;
+    }
+
+    /**
+     * If True, when the FastGraph initializes, it splits the graph into
+     * strongly connected components. The path searches skip the components
+     * that cannot lead to the target only once the components are split,
+     * either here or by the first component query.
+     *
+     * @param computeComponents Split the components at load time
+     * @return This config
+     */
+    public FastGraphConfig setComputeComponents(boolean computeComponents) {
+        this.computeComponents = computeComponents;
+        return this;
+    }
+
+    /**
+     * Are the edges directed?
+     *
+     * @return True if the graph is loaded as a directed graph
+     */
+    public boolean isDirected() {
+        return directed;
+    }
+
+    /**
+     * If True, the edges are directed from the first to the second column of
+     * the edges file. a:b and b:a are then 2 edges, each summing the weights
+     * of its own duplicates, and the out and in rows are kept apart so that
+     * the queries taking a Direction only read the rows they need. Ignored
+     * when a snapshot is opened, which keeps the mode it was saved with.
+     *
+     * @param directed Load the graph as a directed graph
+     * @return This config
+     */
+    public FastGraphConfig setDirected(boolean directed) {
+        this.directed = directed;
+        return this;
+    }
+
+    /**
+     * Do the edges have timestamps?
+     *
+     * @return True if a timestamp is read from every row of the edges file
+     */
+    public boolean isEdgeTimestamps() {
+        return edgeTimestamps;
+    }
+
+    /**
+     * If True, the column after the weight of the edges file holds a
+     * timestamp, such as 25432, 1276287, 1, 1514764800000, and the weight is
+     * then required. Every row is kept as an event of its edge, so a
+     * repeated row still adds up the weight of the edge but the queries
+     * taking a time window only count the rows within the window. Ignored
+     * for snapshots, which keep the timestamps they were saved with.
+     *
+     * @param edgeTimestamps Read a timestamp from every row of the edges file
+     * @return This config
+     */
+    public FastGraphConfig setEdgeTimestamps(boolean edgeTimestamps) {
+        this.edgeTimestamps = edgeTimestamps;
+        return this;
+    }
+
+    /**
+     * Get the vertex properties read from the vertices file
+     *
+     * @return The type of every property, in column order
+     */
+    public Map<String, PropertyType> getVertexProperties() {
+        return Collections.unmodifiableMap(vertexProperties);
+    }
+
+    /**
+     * Read a typed property from the next extra column of the vertices file,
+     * after the name. For example, with an INT "year" then a STRING
+     * "category", a row could be 25432, Dune, 1965, books. Rows with fewer
+     * columns keep the default values. Ignored for snapshots, which keep the
+     * properties they were saved with.
+     *
+     * @param name The property name
+     * @param type The type of the values
+     * @return This config
+     */
+    public FastGraphConfig addVertexProperty(String name, PropertyType type) {
+        if (vertexProperties.putIfAbsent(name, type) != null) {
+            throw new IllegalArgumentException("Duplicate vertex property: " + name);
+        }
+        return this;
+    }
+
+    /**
+     * Get the edge properties read from the edges file
+     *
+     * @return The type of every property, in column order
+     */
+    public Map<String, PropertyType> getEdgeProperties() {
+        return Collections.unmodifiableMap(edgeProperties);
+    }
+
+    /**
+     * Read a typed property from the next extra column of the edges file,
+     * after the weight, which is then required, and after the timestamp if
+     * the edges have timestamps. For example, with a LONG
+     * "time", a row could be 25432, 1276287, 1, 1514764800. A repeated row
+     * adds up its weight and replaces the properties. Ignored for snapshots.
+     *
+     * @param name The property name
+     * @param type The type of the values
+     * @return This config
+     */
+    public FastGraphConfig addEdgeProperty(String name, PropertyType type) {
+        if (edgeProperties.putIfAbsent(name, type) != null) {
+            throw new IllegalArgumentException("Duplicate edge property: " + name);
+        }
+        return this;
+    }
+
+    /**
+     * Get the order in which internal vertex IDs are assigned
+     *
+     * @return The vertex ordering
+     */
+    public VertexOrdering getVertexOrdering() {
+        return vertexOrdering;
+    }
+
+    /**
+     * Set the order in which internal vertex IDs are assigned. The IDs used
+     * by the public API are not affected.
+     *
+     * @param vertexOrdering The vertex ordering
+     * @return This config
+     */
+    public FastGraphConfig setVertexOrdering(VertexOrdering vertexOrdering) {
+        this.vertexOrdering = vertexOrdering;
+        return this;
+    }
+
+    /**
+     * Get the format the neighbor rows are stored in
+     *
+     * @return The adjacency format, or null if it was not set
+     */
+    public AdjacencyFormat getAdjacencyFormat() {
+        return adjacencyFormat;
+    }
+
+    /**
+     * Set the format the neighbor rows are stored in. Graphs loaded from text
+     * files use CSR when no format is set. Snapshots keep the format they were
+     * saved with unless a format is set. Both formats read the edge ID of a
+     * neighbor from the row itself during traversals. Single edge lookups
+     * between 2 given vertices go through a hashed edge index on the heap,
+     * or search the rows once the graph is kept OFF_HEAP.
+     *
+     * @param adjacencyFormat The adjacency format
+     * @return This config
+     */
+    public FastGraphConfig setAdjacencyFormat(AdjacencyFormat adjacencyFormat) {
+        this.adjacencyFormat = adjacencyFormat;
+        return this;
+    }
+
+    /**
+     * Get where the vertex and edge arrays are kept
+     *
+     * @return The storage mode
+     */
+    public StorageMode getStorageMode() {
+        return storageMode;
+    }
+
+    /**
+     * Set where the vertex and edge arrays are kept. Graphs kept OFF_HEAP must
+     * be closed to release their memory.
+     *
+     * @param storageMode The storage mode
+     * @return This config
+     */
+    public FastGraphConfig setStorageMode(StorageMode storageMode) {
+        this.storageMode = storageMode;
+        return this;
+    }
+
+    /**
+     * Get the memory budget of the query cache
+     *
+     * @return The budget in bytes, 0 if the cache is disabled
+     */
+    public long getQueryCacheSize() {
+        return queryCacheSize;
+    }
+
+    /**
+     * Cache the results of getNeighbors and getPathBetweenVertices within a
+     * memory budget. The cache is disabled by default.
+     *
+     * @param queryCacheSize The budget in bytes, 0 to disable the cache
+     * @return This config
+     */
+    public FastGraphConfig setQueryCacheSize(long queryCacheSize) {
+        this.queryCacheSize = Math.max(0, queryCacheSize);
+        return this;
+    }
+
+    /**
+     * Get the receiver of the query and load measurements
+     *
+     * @return The metrics, or null if nothing is measured
+     */
+    public GraphMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Measure the queries and the load phases of the graph. Nothing is
+     * measured by default.
+     *
+     * @param metrics The metrics, for example an InMemoryGraphMetrics, or
+     * null to measure nothing
+     * @return This config
+     */
+    public FastGraphConfig setMetrics(GraphMetrics metrics) {
+        this.metrics = metrics;
+        return this;
+    }
+
+    /**
+     * Get the listener following the load and the other long-running
+     * operations
+     *
+     * @return The listener, or null if none is set
+     */
+    public ProgressListener getProgressListener() {
+        return progressListener;
+    }
+
+    /**
+     * Follow the load of the graph and the long-running operations run on it
+     * later, and allow them to be cancelled. A cancelled load keeps the
+     * vertices and edges read so far.
+     *
+     * @param progressListener The listener, or null for none
+     * @return This config
+     */
+    public FastGraphConfig setProgressListener(ProgressListener progressListener) {
+        this.progressListener = progressListener;
+        return this;
+    }
+
+    /**
+     * Get the number of threads used by the analytics that run in parallel
+     *
+     * @return The number of threads
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Set the number of threads used by the analytics that run in parallel,
+     * such as getBestTrailInGraph. Defaults to the number of processors.
+     *
+     * @param threads The number of threads
+     * @return This config
+     */
+    public FastGraphConfig setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+        return this;
+    }
+}
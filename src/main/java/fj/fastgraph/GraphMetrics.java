@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2018 Frank Jennings
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fj.fastgraph;
+
+/**
+ * Receives measurements from a FastGraph. Set an implementation with
+ * FastGraphConfig.setMetrics to export them to a monitoring system, or use
+ * InMemoryGraphMetrics. Nothing is measured when no metrics are set.
+ *
+ * Queries are named after the public method that ran them, for example
+ * getNeighbors or getPathBetweenVertices. Load phases use the PHASE names
+ * below. Implementations are called from the query threads and must be
+ * thread safe and cheap.
+ *
+ * @author Frank Jennings
+ */
+public interface GraphMetrics {
+
+    //Reading the vertices and edges files
+    String PHASE_READ = "read";
+    //Building the neighbor rows
+    String PHASE_ADJACENCY = "adjacency";
+    //Relabeling the vertices for the configured ordering
+    String PHASE_REORDER = "reorder";
+    //Encoding the compressed neighbor rows
+    String PHASE_COMPRESS = "compress";
+    //Moving the arrays to direct memory
+    String PHASE_OFF_HEAP = "offHeap";
+    //Counting the triangles of every vertex
+    String PHASE_HOTSPOTS = "hotspots";
+    //Splitting the strongly connected components
+    String PHASE_COMPONENTS = "components";
+    //Opening a snapshot
+    String PHASE_SNAPSHOT_READ = "snapshotRead";
+    //Saving a snapshot
+    String PHASE_SNAPSHOT_WRITE = "snapshotWrite";
+
+    /**
+     * Record a finished query
+     *
+     * @param query The name of the query
+     * @param nanos The time the query took, in nanoseconds
+     */
+    void recordQuery(String query, long nanos);
+
+    /**
+     * Record the work done by a traversal
+     *
+     * @param query The name of the query
+     * @param vertices The number of vertices visited
+     * @param edges The number of edges followed
+     */
+    void recordVisits(String query, long vertices, long edges);
+
+    /**
+     * Record a lookup in the query cache
+     *
+     * @param query The name of the query
+     * @param hit True if the result was found in the cache
+     */
+    void recordCacheAccess(String query, boolean hit);
+
+    /**
+     * Record a finished load phase
+     *
+     * @param phase The name of the phase
+     * @param nanos The time the phase took, in nanoseconds
+     */
+    void recordLoadPhase(String phase, long nanos);
+}
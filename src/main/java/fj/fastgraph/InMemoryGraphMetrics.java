@@ -0,0 +1,325 @@
+/*
+ * Copyright (C) 2018 Frank Jennings
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fj.fastgraph;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps the measurements of one or more graphs in memory. Latencies go to a
+ * histogram with 4 buckets per power of two, so percentiles are within 25%
+ * of the real value. The counters can be read one by one or scraped at once
+ * in the Prometheus text format.
+ *
+ * @author Frank Jennings
+ */
+public class InMemoryGraphMetrics implements GraphMetrics {
+
+    //4 sub-buckets for each of the 62 powers of two a positive long can reach
+    private static final int BUCKETS = 248;
+
+    private final ConcurrentHashMap<String, QueryStats> queries = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, LongAdder> loadPhases = new ConcurrentHashMap<>();
+
+    @Override
+    public void recordQuery(String query, long nanos) {
+        QueryStats stats = getStats(query);
+        stats.calls.increment();
+        stats.totalNanos.add(nanos);
+        stats.maxNanos.accumulate(nanos);
+        stats.latencies.incrementAndGet(bucketOf(nanos));
+    }
+
+    @Override
+    public void recordVisits(String query, long vertices, long edges) {
+        QueryStats stats = getStats(query);
+        stats.vertices.add(vertices);
+        stats.edges.add(edges);
+    }
+
+    @Override
+    public void recordCacheAccess(String query, boolean hit) {
+        QueryStats stats = getStats(query);
+        if (hit) {
+            stats.cacheHits.increment();
+        } else {
+            stats.cacheMisses.increment();
+        }
+    }
+
+    @Override
+    public void recordLoadPhase(String phase, long nanos) {
+        loadPhases.computeIfAbsent(phase, (String name) -> new LongAdder()).add(nanos);
+    }
+
+    /**
+     * Get the number of finished calls of a query
+     *
+     * @param query The name of the query
+     * @return The calls count
+     */
+    public long getCalls(String query) {
+        QueryStats stats = queries.get(query);
+        return stats == null ? 0 : stats.calls.sum();
+    }
+
+    /**
+     * Get the total time spent in a query
+     *
+     * @param query The name of the query
+     * @return The time in nanoseconds
+     */
+    public long getTotalNanos(String query) {
+        QueryStats stats = queries.get(query);
+        return stats == null ? 0 : stats.totalNanos.sum();
+    }
+
+    /**
+     * Get the longest call of a query
+     *
+     * @param query The name of the query
+     * @return The time in nanoseconds
+     */
+    public long getMaxNanos(String query) {
+        QueryStats stats = queries.get(query);
+        return stats == null ? 0 : stats.maxNanos.get();
+    }
+
+    /**
+     * Get a latency percentile of a query
+     *
+     * @param query The name of the query
+     * @param percentile The percentile between 0 and 100, for example 99
+     * @return The upper bound of the histogram bucket holding the
+     * percentile, in nanoseconds, or 0 if the query was never called
+     */
+    public long getLatencyPercentile(String query, double percentile) {
+        QueryStats stats = queries.get(query);
+        return stats == null ? 0 : stats.percentile(percentile);
+    }
+
+    /**
+     * Get the number of vertices visited by all the calls of a query
+     *
+     * @param query The name of the query
+     * @return The vertices count
+     */
+    public long getVerticesVisited(String query) {
+        QueryStats stats = queries.get(query);
+        return stats == null ? 0 : stats.vertices.sum();
+    }
+
+    /**
+     * Get the number of edges followed by all the calls of a query
+     *
+     * @param query The name of the query
+     * @return The edges count
+     */
+    public long getEdgesVisited(String query) {
+        QueryStats stats = queries.get(query);
+        return stats == null ? 0 : stats.edges.sum();
+    }
+
+    /**
+     * Get the number of calls of a query answered from the query cache
+     *
+     * @param query The name of the query
+     * @return The hits count
+     */
+    public long getCacheHits(String query) {
+        QueryStats stats = queries.get(query);
+        return stats == null ? 0 : stats.cacheHits.sum();
+    }
+
+    /**
+     * Get the number of calls of a query that missed the query cache
+     *
+     * @param query The name of the query
+     * @return The misses count
+     */
+    public long getCacheMisses(String query) {
+        QueryStats stats = queries.get(query);
+        return stats == null ? 0 : stats.cacheMisses.sum();
+    }
+
+    /**
+     * Get the total time spent in a load phase
+     *
+     * @param phase The name of the phase
+     * @return The time in nanoseconds
+     */
+    public long getLoadPhaseNanos(String phase) {
+        LongAdder nanos = loadPhases.get(phase);
+        return nanos == null ? 0 : nanos.sum();
+    }
+
+    /**
+     * Drop all the measurements
+     */
+    public void reset() {
+        queries.clear();
+        loadPhases.clear();
+    }
+
+    /**
+     * Write all the measurements in the Prometheus text format. Latencies
+     * are exported as a summary with the 50th, 90th, 99th and 99.9th
+     * percentiles.
+     *
+     * @return The measurements, one sample per line
+     */
+    public String scrape() {
+        StringBuilder sb = new StringBuilder();
+        Map<String, QueryStats> sortedQueries = new TreeMap<>(queries);
+        Map<String, LongAdder> sortedPhases = new TreeMap<>(loadPhases);
+
+        sb.append("# TYPE fastgraph_query_seconds summary\n");
+        sortedQueries.forEach((String query, QueryStats stats) -> {
+            for (double quantile : new double[]{0.5, 0.9, 0.99, 0.999}) {
+                sample(sb, "fastgraph_query_seconds", query, "quantile=\"" + quantile + "\"", seconds(stats.percentile(quantile * 100)));
+            }
+            sample(sb, "fastgraph_query_seconds_sum", query, null, seconds(stats.totalNanos.sum()));
+            sample(sb, "fastgraph_query_seconds_count", query, null, Long.toString(stats.calls.sum()));
+        });
+        sb.append("# TYPE fastgraph_query_seconds_max gauge\n");
+        sortedQueries.forEach((String query, QueryStats stats) -> {
+            sample(sb, "fastgraph_query_seconds_max", query, null, seconds(stats.maxNanos.get()));
+        });
+        //Queries that are not traversals or not cached have no samples
+        sb.append("# TYPE fastgraph_vertices_visited_total counter\n");
+        sortedQueries.forEach((String query, QueryStats stats) -> {
+            if (stats.vertices.sum() + stats.edges.sum() > 0) {
+                sample(sb, "fastgraph_vertices_visited_total", query, null, Long.toString(stats.vertices.sum()));
+            }
+        });
+        sb.append("# TYPE fastgraph_edges_visited_total counter\n");
+        sortedQueries.forEach((String query, QueryStats stats) -> {
+            if (stats.vertices.sum() + stats.edges.sum() > 0) {
+                sample(sb, "fastgraph_edges_visited_total", query, null, Long.toString(stats.edges.sum()));
+            }
+        });
+        sb.append("# TYPE fastgraph_cache_requests_total counter\n");
+        sortedQueries.forEach((String query, QueryStats stats) -> {
+            if (stats.cacheHits.sum() + stats.cacheMisses.sum() > 0) {
+                sample(sb, "fastgraph_cache_requests_total", query, "result=\"hit\"", Long.toString(stats.cacheHits.sum()));
+                sample(sb, "fastgraph_cache_requests_total", query, "result=\"miss\"", Long.toString(stats.cacheMisses.sum()));
+            }
+        });
+        sb.append("# TYPE fastgraph_load_phase_seconds counter\n");
+        sortedPhases.forEach((String phase, LongAdder nanos) -> {
+            sb.append("fastgraph_load_phase_seconds{phase=\"").append(phase).append("\"} ").append(seconds(nanos.sum())).append('\n');
+        });
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return scrape();
+    }
+
+    private QueryStats getStats(String query) {
+        QueryStats stats = queries.get(query);
+        if (stats == null) {
+            stats = queries.computeIfAbsent(query, (String name) -> new QueryStats());
+        }
+        return stats;
+    }
+
+    private static void sample(StringBuilder sb, String name, String query, String label, String value) {
+        sb.append(name).append("{query=\"").append(query).append('"');
+        if (label != null) {
+            sb.append(',').append(label);
+        }
+        sb.append("} ").append(value).append('\n');
+    }
+
+    private static String seconds(long nanos) {
+        return Double.toString(nanos / 1e9);
+    }
+
+    /**
+     * Find the histogram bucket of a latency. Values below 4 get a bucket
+     * each, larger values are split by their highest bit and the 2 bits
+     * below it.
+     *
+     * @param nanos The latency in nanoseconds
+     * @return The bucket index
+     */
+    static int bucketOf(long nanos) {
+        if (nanos < 4) {
+            return (int) Math.max(nanos, 0);
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        int sub = (int) (nanos >>> (exponent - 2)) & 3;
+        return (exponent - 1) * 4 + sub;
+    }
+
+    /**
+     * Get the largest latency that falls in a bucket
+     *
+     * @param bucket The bucket index
+     * @return The latency in nanoseconds
+     */
+    static long bucketUpperBound(int bucket) {
+        if (bucket < 4) {
+            return bucket;
+        }
+        int exponent = bucket / 4 + 1;
+        int sub = bucket & 3;
+        return ((4L + sub + 1) << (exponent - 2)) - 1;
+    }
+
+    /**
+     * The counters of one query
+     */
+    private static final class QueryStats {
+
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        private final AtomicLongArray latencies = new AtomicLongArray(BUCKETS);
+        private final LongAdder vertices = new LongAdder();
+        private final LongAdder edges = new LongAdder();
+        private final LongAdder cacheHits = new LongAdder();
+        private final LongAdder cacheMisses = new LongAdder();
+
+        long percentile(double percentile) {
+            long[] counts = new long[BUCKETS];
+            long total = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] = latencies.get(i);
+                total += counts[i];
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(total * Math.min(Math.max(percentile, 0), 100) / 100);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= Math.max(rank, 1)) {
+                    return Math.min(bucketUpperBound(i), maxNanos.get());
+                }
+            }
+            return maxNanos.get();
+        }
+    }
+}
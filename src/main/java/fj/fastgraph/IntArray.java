@@ -0,0 +1,229 @@
+/*
+ * Copyright (C) 2018 Frank Jennings
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fj.fastgraph;
+
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A fixed-length array of ints, either on the heap or in direct memory.
+ * Direct arrays are split into chunks of at most 1 GB and must be closed to
+ * release their memory.
+ *
+ * @author Frank Jennings
+ */
+abstract class IntArray implements AutoCloseable {
+
+    //sun.misc.Unsafe.invokeCleaner releases a direct buffer right away instead
+    //of waiting for the buffer object to be collected
+    private static final Object UNSAFE;
+    private static final Method INVOKE_CLEANER;
+
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            java.lang.reflect.Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            unsafe = field.get(null);
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+        } catch (ReflectiveOperationException | RuntimeException ex) {
+            Logger.getLogger(IntArray.class.getName()).log(Level.FINE, "Direct buffers will be released by the garbage collector", ex);
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+
+    /**
+     * Allocate a zero-filled array
+     *
+     * @param length The number of ints
+     * @param mode Where the array is kept
+     * @return The array
+     */
+    static IntArray allocate(int length, StorageMode mode) {
+        if (mode == StorageMode.OFF_HEAP) {
+            return new DirectIntArray(length);
+        }
+        return new HeapIntArray(new int[length]);
+    }
+
+    /**
+     * Wrap a heap array without copying it
+     *
+     * @param array The array
+     * @return The array as an IntArray
+     */
+    static IntArray wrap(int[] array) {
+        return new HeapIntArray(array);
+    }
+
+    abstract int get(int index);
+
+    abstract void set(int index, int value);
+
+    abstract int length();
+
+    abstract long sizeInBytes();
+
+    abstract StorageMode getStorageMode();
+
+    /**
+     * Copy the array into a new one of a different length. Extra elements
+     * are zero.
+     *
+     * @param newLength The length of the copy
+     * @param mode Where the copy is kept
+     * @return The copy
+     */
+    IntArray copyOf(int newLength, StorageMode mode) {
+        IntArray copy = allocate(newLength, mode);
+        int length = Math.min(newLength, length());
+        for (int i = 0; i < length; i++) {
+            copy.set(i, get(i));
+        }
+        return copy;
+    }
+
+    /**
+     * Release the memory held by the array. The array cannot be used after
+     * it is closed.
+     */
+    @Override
+    public void close() {
+    }
+
+    private static final class HeapIntArray extends IntArray {
+
+        private int[] array;
+
+        HeapIntArray(int[] array) {
+            this.array = array;
+        }
+
+        @Override
+        int get(int index) {
+            return array[index];
+        }
+
+        @Override
+        void set(int index, int value) {
+            array[index] = value;
+        }
+
+        @Override
+        int length() {
+            return array.length;
+        }
+
+        @Override
+        long sizeInBytes() {
+            return 4L * array.length;
+        }
+
+        @Override
+        StorageMode getStorageMode() {
+            return StorageMode.HEAP;
+        }
+
+        @Override
+        IntArray copyOf(int newLength, StorageMode mode) {
+            if (mode == StorageMode.HEAP) {
+                return new HeapIntArray(Arrays.copyOf(array, newLength));
+            }
+            return super.copyOf(newLength, mode);
+        }
+
+        @Override
+        public void close() {
+            array = new int[0];
+        }
+    }
+
+    private static final class DirectIntArray extends IntArray {
+
+        private static final int CHUNK_SHIFT = 28;
+        private static final int CHUNK_MASK = (1 << CHUNK_SHIFT) - 1;
+
+        private ByteBuffer[] buffers;
+        private IntBuffer[] chunks;
+        private final int length;
+
+        DirectIntArray(int length) {
+            this.length = length;
+            int count = (int) (((long) length + CHUNK_MASK) >>> CHUNK_SHIFT);
+            buffers = new ByteBuffer[count];
+            chunks = new IntBuffer[count];
+            for (int i = 0; i < count; i++) {
+                int size = Math.min(1 << CHUNK_SHIFT, length - (i << CHUNK_SHIFT));
+                buffers[i] = ByteBuffer.allocateDirect(size * 4).order(ByteOrder.nativeOrder());
+                chunks[i] = buffers[i].asIntBuffer();
+            }
+        }
+
+        @Override
+        int get(int index) {
+            return chunks[index >>> CHUNK_SHIFT].get(index & CHUNK_MASK);
+        }
+
+        @Override
+        void set(int index, int value) {
+            chunks[index >>> CHUNK_SHIFT].put(index & CHUNK_MASK, value);
+        }
+
+        @Override
+        int length() {
+            return length;
+        }
+
+        @Override
+        long sizeInBytes() {
+            return 4L * length;
+        }
+
+        @Override
+        StorageMode getStorageMode() {
+            return StorageMode.OFF_HEAP;
+        }
+
+        @Override
+        public void close() {
+            for (ByteBuffer buffer : buffers) {
+                free(buffer);
+            }
+            buffers = new ByteBuffer[0];
+            chunks = new IntBuffer[0];
+        }
+    }
+
+    private static void free(ByteBuffer buffer) {
+        if (INVOKE_CLEANER == null) {
+            return;
+        }
+        try {
+            INVOKE_CLEANER.invoke(UNSAFE, buffer);
+        } catch (ReflectiveOperationException ex) {
+            Logger.getLogger(IntArray.class.getName()).log(Level.FINE, null, ex);
+        }
+    }
+}
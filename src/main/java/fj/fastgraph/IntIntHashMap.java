@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2018 Frank Jennings
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fj.fastgraph;
+
+/**
+ * An open-addressing hash map from int keys to non-negative int values. Used
+ * to translate external vertex IDs to internal ones and as a sparse visited
+ * map in traversals without boxing.
+ *
+ * @author Frank Jennings
+ */
+final class IntIntHashMap {
+
+    private static final int MIN_CAPACITY = 16;
+    //Largest power of 2 an array can hold
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private int[] keys;
+    //Stored as value + 1, 0 marks an empty slot
+    private int[] values;
+    private int size;
+    private int mask;
+    private int resizeAt;
+
+    IntIntHashMap() {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * Create a map sized for the expected number of keys
+     *
+     * @param expectedSize The number of keys expected to be added
+     */
+    IntIntHashMap(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < expectedSize * 2L && capacity < MAX_CAPACITY) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+
+    /**
+     * Get the value for a key
+     *
+     * @param key The key
+     * @return The value or -1 if the key is not present
+     */
+    int get(int key) {
+        int slot = mix(key) & mask;
+        while (values[slot] != 0) {
+            if (keys[slot] == key) {
+                return values[slot] - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    boolean containsKey(int key) {
+        return get(key) != -1;
+    }
+
+    /**
+     * Put a value for a key, replacing the existing value
+     *
+     * @param key The key
+     * @param value The value, must not be negative
+     * @throws IllegalStateException If the map is full
+     */
+    void put(int key, int value) {
+        int slot = findSlot(key);
+        if (values[slot] == 0) {
+            checkRoom();
+            keys[slot] = key;
+            values[slot] = value + 1;
+            grow();
+        } else {
+            values[slot] = value + 1;
+        }
+    }
+
+    /**
+     * Put a value for a key only if the key is not present
+     *
+     * @param key The key
+     * @param value The value, must not be negative
+     * @return The existing value, or value if the key was added
+     * @throws IllegalStateException If the map is full
+     */
+    int putIfAbsent(int key, int value) {
+        int slot = findSlot(key);
+        if (values[slot] != 0) {
+            return values[slot] - 1;
+        }
+        checkRoom();
+        keys[slot] = key;
+        values[slot] = value + 1;
+        grow();
+        return value;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private int findSlot(int key) {
+        int slot = mix(key) & mask;
+        while (values[slot] != 0 && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void grow() {
+        size++;
+        if (size >= resizeAt) {
+            int[] oldKeys = keys;
+            int[] oldValues = values;
+            allocate(keys.length << 1);
+            for (int i = 0; i < oldValues.length; i++) {
+                if (oldValues[i] != 0) {
+                    int slot = findSlot(oldKeys[i]);
+                    keys[slot] = oldKeys[i];
+                    values[slot] = oldValues[i];
+                }
+            }
+        }
+    }
+
+    //The table cannot double past MAX_CAPACITY, so a key that would need it
+    //is refused before it is stored
+    private void checkRoom() {
+        if (size + 1 >= resizeAt && keys.length == MAX_CAPACITY) {
+            throw new IllegalStateException("The map is full at " + size + " keys");
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        resizeAt = capacity >>> 1;
+    }
+
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
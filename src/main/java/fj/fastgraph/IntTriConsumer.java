@@ -0,0 +1,36 @@
+/*
+ * Copyright (C) 2018 Frank Jennings
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fj.fastgraph;
+
+/**
+ * A callback receiving three vertex IDs without boxing. Used to stream
+ * triangles out of the graph without holding them in memory.
+ *
+ * @author Frank Jennings
+ */
+@FunctionalInterface
+public interface IntTriConsumer {
+
+    /**
+     * Accept three vertex IDs
+     *
+     * @param VID1 Vertex 1
+     * @param VID2 Vertex 2
+     * @param VID3 Vertex 3
+     */
+    void accept(int VID1, int VID2, int VID3);
+}
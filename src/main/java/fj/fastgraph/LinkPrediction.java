@@ -0,0 +1,44 @@
+/*
+ * Copyright (C) 2018 Frank Jennings
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fj.fastgraph;
+
+/**
+ * How FastGraph.getPredictedLinks scores a vertex that is 2 hops away from
+ * the vertex links are predicted for. Higher scores are better.
+ *
+ * @author Frank Jennings
+ */
+public enum LinkPrediction {
+
+    /**
+     * The number of neighbors the 2 vertices share
+     */
+    COMMON_NEIGHBORS,
+    /**
+     * The shared neighbors over all the neighbors of the 2 vertices
+     */
+    JACCARD,
+    /**
+     * The sum of 1 / log(degree) of the shared neighbors, so that the
+     * neighbors shared by few vertices count more
+     */
+    ADAMIC_ADAR,
+    /**
+     * The sum of 1 / degree of the shared neighbors
+     */
+    RESOURCE_ALLOCATION
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright (C) 2018 Frank Jennings
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fj.fastgraph;
+
+import java.util.Arrays;
+
+/**
+ * An open-addressing hash map from long keys to positive int values, used to
+ * count vertex pairs packed with EdgeIndex.pack without boxing.
+ *
+ * @author Frank Jennings
+ */
+final class LongIntHashMap {
+
+    private static final int MIN_CAPACITY = 16;
+    //Largest power of 2 an array can hold
+    private static final int MAX_CAPACITY = 1 << 30;
+    //Bytes held per entry at the maximum load factor of 1/2
+    static final int BYTES_PER_ENTRY = 2 * (8 + 4);
+
+    private long[] keys;
+    //0 marks an empty slot
+    private int[] values;
+    private int size;
+    private int mask;
+    private int resizeAt;
+
+    LongIntHashMap() {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * Create a map sized for the expected number of keys
+     *
+     * @param expectedSize The number of keys expected to be added
+     */
+    LongIntHashMap(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < expectedSize * 2L && capacity < MAX_CAPACITY) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+
+    /**
+     * Get the value for a key
+     *
+     * @param key The key
+     * @return The value or 0 if the key is not present
+     */
+    int get(long key) {
+        int slot = mix(key) & mask;
+        while (values[slot] != 0) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return 0;
+    }
+
+    /**
+     * Add to the value of a key, adding the key if it is not present. The
+     * sum is capped at Integer.MAX_VALUE, as EdgeRuns caps the merged
+     * weights, so that it stays positive.
+     *
+     * @param key The key
+     * @param delta The amount to add, must be positive
+     * @return The new value
+     * @throws IllegalArgumentException If delta is not positive
+     * @throws IllegalStateException If the map is full
+     */
+    int addTo(long key, int delta) {
+        if (delta <= 0) {
+            throw new IllegalArgumentException("Delta must be positive: " + delta);
+        }
+        int slot = mix(key) & mask;
+        while (values[slot] != 0) {
+            if (keys[slot] == key) {
+                values[slot] = (int) Math.min((long) values[slot] + delta, Integer.MAX_VALUE);
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        checkRoom();
+        keys[slot] = key;
+        values[slot] = delta;
+        size++;
+        if (size >= resizeAt) {
+            rehash(keys.length << 1);
+        }
+        return delta;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Get the keys in ascending order
+     *
+     * @return A new array with the keys
+     */
+    long[] sortedKeys() {
+        long[] sorted = new long[size];
+        int count = 0;
+        for (int slot = 0; slot < values.length; slot++) {
+            if (values[slot] != 0) {
+                sorted[count++] = keys[slot];
+            }
+        }
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    /**
+     * Remove all the keys and release the memory
+     */
+    void clear() {
+        size = 0;
+        allocate(MIN_CAPACITY);
+    }
+
+    //The table cannot double past MAX_CAPACITY, so a key that would need it
+    //is refused before it is stored
+    private void checkRoom() {
+        if (size + 1 >= resizeAt && keys.length == MAX_CAPACITY) {
+            throw new IllegalStateException("The map is full at " + size + " keys");
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        resizeAt = capacity >>> 1;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != 0) {
+                int slot = mix(oldKeys[i]) & mask;
+                while (values[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private static int mix(long key) {
+        //Murmur3 finalizer
+        key ^= key >>> 33;
+        key *= 0xFF51AFD7ED558CCDL;
+        key ^= key >>> 33;
+        key *= 0xC4CEB9FE1A85EC53L;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2018 Frank Jennings
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fj.fastgraph;
+
+import java.util.Arrays;
+
+/**
+ * A binary max-heap of longs. Callers pack a score and an ID into each value
+ * so that the heap orders by score and breaks ties by ID.
+ *
+ * @author Frank Jennings
+ */
+final class LongMaxHeap {
+
+    private long[] heap;
+    private int size;
+
+    LongMaxHeap() {
+        this(64);
+    }
+
+    LongMaxHeap(int capacity) {
+        heap = new long[Math.max(1, capacity)];
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    long peek() {
+        return heap[0];
+    }
+
+    void push(long value) {
+        if (size == heap.length) {
+            heap = Arrays.copyOf(heap, size << 1);
+        }
+        int i = size++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heap[parent] >= value) {
+                break;
+            }
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = value;
+    }
+
+    long pop() {
+        long top = heap[0];
+        long last = heap[--size];
+        int i = 0;
+        while (true) {
+            int child = (i << 1) + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && heap[child + 1] > heap[child]) {
+                child++;
+            }
+            if (heap[child] <= last) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = last;
+        return top;
+    }
+
+    /**
+     * Push a value while keeping only the smallest values seen so far
+     *
+     * @param value The value
+     * @param limit The number of values to keep
+     */
+    void offerSmallest(long value, int limit) {
+        if (size < limit) {
+            push(value);
+        } else if (value < heap[0]) {
+            pop();
+            push(value);
+        }
+    }
+
+    /**
+     * Empty the heap
+     *
+     * @return The values in ascending order
+     */
+    long[] drainAscending() {
+        long[] values = new long[size];
+        for (int i = values.length - 1; i >= 0; i--) {
+            values[i] = pop();
+        }
+        return values;
+    }
+}
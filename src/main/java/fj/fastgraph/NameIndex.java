@@ -0,0 +1,373 @@
+/*
+ * Copyright (C) 2018 Frank Jennings
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fj.fastgraph;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A read-only index of vertex names for prefix and substring search. The
+ * names stay in the byte arena of the NameStore; the index keeps them sorted
+ * byte-wise, so that a prefix is a contiguous range found by binary search.
+ * Substrings are found through an inverted index of the byte trigrams of
+ * every name.
+ *
+ * Matches are ranked exact first, then prefix matches, then other substring
+ * matches, shorter names first within each group.
+ *
+ * @author Frank Jennings
+ */
+final class NameIndex {
+
+    private static final int EXACT = 0;
+    private static final int PREFIX = 1;
+    private static final int SUBSTRING = 2;
+
+    private final NameStore store;
+    private final byte[] arena;
+    //The names of the store sorted byte-wise
+    private final int[] sortedNames;
+
+    //Sorted trigram keys, the names containing gram g are
+    //postings[gramOffsets[g]..gramOffsets[g+1]) in ascending order
+    private final int[] grams;
+    private final int[] gramOffsets;
+    private final int[] postings;
+
+    private NameIndex(NameStore store, int[] sortedNames, int[] grams, int[] gramOffsets, int[] postings) {
+        this.store = store;
+        this.arena = store.getArena();
+        this.sortedNames = sortedNames;
+        this.grams = grams;
+        this.gramOffsets = gramOffsets;
+        this.postings = postings;
+    }
+
+    /**
+     * Build the index
+     *
+     * @param store The vertex names
+     * @return The index
+     */
+    static NameIndex build(NameStore store) {
+        byte[] arena = store.getArena();
+        int count = store.getNamesCount();
+        int[] sortedNames = new int[count];
+        for (int i = 0; i < count; i++) {
+            sortedNames[i] = i;
+        }
+        sortNames(store, sortedNames, new int[count], 0, count);
+
+        //Count the names containing every gram
+        IntIntHashMap gramIDs = new IntIntHashMap();
+        int[] gramKeys = new int[1024];
+        int[] gramCounts = new int[1024];
+        int[] scratch = new int[64];
+        for (int i = 0; i < count; i++) {
+            int nameID = sortedNames[i];
+            int length = store.getNameEnd(nameID) - store.getNameStart(nameID);
+            if (length > scratch.length) {
+                scratch = new int[length];
+            }
+            int distinct = distinctGrams(arena, store.getNameStart(nameID), store.getNameEnd(nameID), scratch);
+            for (int g = 0; g < distinct; g++) {
+                int gramID = gramIDs.putIfAbsent(scratch[g], gramIDs.size());
+                if (gramID == gramCounts.length) {
+                    gramKeys = Arrays.copyOf(gramKeys, gramID << 1);
+                    gramCounts = Arrays.copyOf(gramCounts, gramID << 1);
+                }
+                gramKeys[gramID] = scratch[g];
+                gramCounts[gramID]++;
+            }
+        }
+
+        //Sort the grams and lay out their postings
+        int gramsCount = gramIDs.size();
+        long[] sortedGrams = new long[gramsCount];
+        for (int gramID = 0; gramID < gramsCount; gramID++) {
+            sortedGrams[gramID] = ((long) gramKeys[gramID] << 32) | gramID;
+        }
+        Arrays.sort(sortedGrams);
+        int[] grams = new int[gramsCount];
+        int[] gramOffsets = new int[gramsCount + 1];
+        int[] gramRows = new int[gramsCount];
+        for (int g = 0; g < gramsCount; g++) {
+            int gramID = (int) sortedGrams[g];
+            grams[g] = (int) (sortedGrams[g] >>> 32);
+            gramOffsets[g + 1] = gramOffsets[g] + gramCounts[gramID];
+            gramRows[gramID] = g;
+        }
+        int[] postings = new int[gramOffsets[gramsCount]];
+        int[] cursor = Arrays.copyOf(gramOffsets, gramsCount);
+        for (int i = 0; i < count; i++) {
+            int nameID = sortedNames[i];
+            int distinct = distinctGrams(arena, store.getNameStart(nameID), store.getNameEnd(nameID), scratch);
+            for (int g = 0; g < distinct; g++) {
+                postings[cursor[gramRows[gramIDs.get(scratch[g])]]++] = i;
+            }
+        }
+        return new NameIndex(store, sortedNames, grams, gramOffsets, postings);
+    }
+
+    /**
+     * Find the names starting with a prefix
+     *
+     * @param prefix The prefix
+     * @param limit The maximum number of results
+     * @return The internal IDs of the best matches, best first
+     */
+    int[] findByPrefix(String prefix, int limit) {
+        if (limit < 1) {
+            return new int[0];
+        }
+        byte[] query = prefix.getBytes(StandardCharsets.UTF_8);
+        LongMaxHeap best = new LongMaxHeap(limit);
+        int from = lowerBound(query);
+        for (int i = from; i < sortedNames.length && startsWith(i, query); i++) {
+            best.offerSmallest(score(i, query.length == length(i) ? EXACT : PREFIX), limit);
+        }
+        return toVertices(best);
+    }
+
+    /**
+     * Find the names containing a string
+     *
+     * @param pattern The string to look for
+     * @param limit The maximum number of results
+     * @return The internal IDs of the best matches, best first
+     */
+    int[] findBySubstring(String pattern, int limit) {
+        if (limit < 1) {
+            return new int[0];
+        }
+        byte[] query = pattern.getBytes(StandardCharsets.UTF_8);
+        LongMaxHeap best = new LongMaxHeap(limit);
+        if (query.length < 3) {
+            //Too short for the trigrams, scan the arena
+            for (int i = 0; i < sortedNames.length; i++) {
+                offerMatch(i, query, best, limit);
+            }
+            return toVertices(best);
+        }
+
+        int[] queryGrams = new int[query.length - 2];
+        int distinct = distinctGrams(query, 0, query.length, queryGrams);
+        int[] rows = new int[distinct];
+        for (int g = 0; g < distinct; g++) {
+            rows[g] = Arrays.binarySearch(grams, queryGrams[g]);
+            if (rows[g] < 0) {
+                return new int[0];
+            }
+        }
+        //Walk the shortest postings and skip forward in the others
+        int shortest = 0;
+        for (int g = 1; g < distinct; g++) {
+            if (postingsLength(rows[g]) < postingsLength(rows[shortest])) {
+                shortest = g;
+            }
+        }
+        int[] positions = new int[distinct];
+        for (int g = 0; g < distinct; g++) {
+            positions[g] = gramOffsets[rows[g]];
+        }
+        candidates:
+        for (int p = gramOffsets[rows[shortest]]; p < gramOffsets[rows[shortest] + 1]; p++) {
+            int candidate = postings[p];
+            for (int g = 0; g < distinct; g++) {
+                if (g == shortest) {
+                    continue;
+                }
+                int end = gramOffsets[rows[g] + 1];
+                while (positions[g] < end && postings[positions[g]] < candidate) {
+                    positions[g]++;
+                }
+                if (positions[g] == end) {
+                    break candidates;
+                }
+                if (postings[positions[g]] != candidate) {
+                    continue candidates;
+                }
+            }
+            //The grams may appear apart, check the whole string
+            offerMatch(candidate, query, best, limit);
+        }
+        return toVertices(best);
+    }
+
+    /**
+     * Get the number of indexed names
+     *
+     * @return The names count
+     */
+    int size() {
+        return sortedNames.length;
+    }
+
+    /**
+     * Get the memory held by the index
+     *
+     * @return The approximate size in bytes
+     */
+    long sizeInBytes() {
+        return 4L * (sortedNames.length + grams.length + gramOffsets.length + postings.length);
+    }
+
+    private void offerMatch(int i, byte[] query, LongMaxHeap best, int limit) {
+        int at = indexOf(i, query);
+        if (at == 0) {
+            best.offerSmallest(score(i, query.length == length(i) ? EXACT : PREFIX), limit);
+        } else if (at > 0) {
+            best.offerSmallest(score(i, SUBSTRING), limit);
+        }
+    }
+
+    private long score(int i, int matchType) {
+        //Match type, then name length, then position in the sorted names
+        return ((long) matchType << 60) | ((long) Math.min(length(i), 0xFFFFFFF) << 32) | i;
+    }
+
+    private int[] toVertices(LongMaxHeap best) {
+        long[] scores = best.drainAscending();
+        int[] results = new int[scores.length];
+        for (int r = 0; r < scores.length; r++) {
+            results[r] = store.getNameVertex(sortedNames[(int) scores[r]]);
+        }
+        return results;
+    }
+
+    private int start(int i) {
+        return store.getNameStart(sortedNames[i]);
+    }
+
+    private int end(int i) {
+        return store.getNameEnd(sortedNames[i]);
+    }
+
+    private int length(int i) {
+        return end(i) - start(i);
+    }
+
+    private int postingsLength(int row) {
+        return gramOffsets[row + 1] - gramOffsets[row];
+    }
+
+    private boolean startsWith(int i, byte[] query) {
+        if (length(i) < query.length) {
+            return false;
+        }
+        int start = start(i);
+        for (int k = 0; k < query.length; k++) {
+            if (arena[start + k] != query[k]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int indexOf(int i, byte[] query) {
+        int start = start(i);
+        int last = end(i) - query.length;
+        outer:
+        for (int at = start; at <= last; at++) {
+            for (int k = 0; k < query.length; k++) {
+                if (arena[at + k] != query[k]) {
+                    continue outer;
+                }
+            }
+            return at - start;
+        }
+        return -1;
+    }
+
+    /**
+     * Find the first name that is not smaller than the query
+     */
+    private int lowerBound(byte[] query) {
+        int low = 0;
+        int high = sortedNames.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compare(arena, start(mid), end(mid), query, 0, query.length) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static int compare(byte[] a, int aFrom, int aTo, byte[] b, int bFrom, int bTo) {
+        int length = Math.min(aTo - aFrom, bTo - bFrom);
+        for (int k = 0; k < length; k++) {
+            int diff = (a[aFrom + k] & 0xFF) - (b[bFrom + k] & 0xFF);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return (aTo - aFrom) - (bTo - bFrom);
+    }
+
+    /**
+     * Merge sort name IDs by their bytes without boxing them
+     */
+    private static void sortNames(NameStore store, int[] names, int[] buffer, int from, int to) {
+        if (to - from < 2) {
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        sortNames(store, names, buffer, from, middle);
+        sortNames(store, names, buffer, middle, to);
+        if (compareNames(store, names[middle - 1], names[middle]) <= 0) {
+            return;
+        }
+        System.arraycopy(names, from, buffer, from, to - from);
+        int left = from;
+        int right = middle;
+        for (int i = from; i < to; i++) {
+            if (right == to || (left < middle && compareNames(store, buffer[left], buffer[right]) <= 0)) {
+                names[i] = buffer[left++];
+            } else {
+                names[i] = buffer[right++];
+            }
+        }
+    }
+
+    private static int compareNames(NameStore store, int a, int b) {
+        byte[] arena = store.getArena();
+        return compare(arena, store.getNameStart(a), store.getNameEnd(a), arena, store.getNameStart(b), store.getNameEnd(b));
+    }
+
+    /**
+     * Collect the distinct trigrams of a byte range
+     *
+     * @return The number of distinct grams written to out
+     */
+    private static int distinctGrams(byte[] bytes, int from, int to, int[] out) {
+        int count = 0;
+        for (int at = from; at + 3 <= to && count < out.length; at++) {
+            out[count++] = ((bytes[at] & 0xFF) << 16) | ((bytes[at + 1] & 0xFF) << 8) | (bytes[at + 2] & 0xFF);
+        }
+        Arrays.sort(out, 0, count);
+        int distinct = 0;
+        for (int g = 0; g < count; g++) {
+            if (distinct == 0 || out[distinct - 1] != out[g]) {
+                out[distinct++] = out[g];
+            }
+        }
+        return distinct;
+    }
+}
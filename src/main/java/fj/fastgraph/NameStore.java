@@ -0,0 +1,278 @@
+/*
+ * Copyright (C) 2018 Frank Jennings
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fj.fastgraph;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * The vertex names of a graph. Every distinct name is stored once as UTF-8 in
+ * a single byte arena, with an offset table and an open-addressing hash index
+ * from the name bytes to the name. Vertices refer to their name by its
+ * position in the arena, so the heap holds a few arrays instead of a String
+ * and two map entries per vertex.
+ *
+ * @author Frank Jennings
+ */
+final class NameStore {
+
+    private static final int MIN_CAPACITY = 16;
+
+    //Name n is arena[nameOffsets[n]..nameOffsets[n+1])
+    private byte[] arena = new byte[1024];
+    private int arenaSize;
+    private int[] nameOffsets = new int[MIN_CAPACITY + 1];
+    private int namesCount;
+    //The vertex returned for every name. When several vertices share a name,
+    //the last one named wins.
+    private int[] nameVertices = new int[MIN_CAPACITY];
+
+    //The name of every vertex as name + 1, 0 for vertices without a name
+    private int[] vertexNames = new int[MIN_CAPACITY];
+
+    //Hash index over the names as name + 1, 0 marks an empty slot
+    private int[] slots;
+    private int mask;
+
+    NameStore() {
+        allocateSlots(MIN_CAPACITY);
+    }
+
+    /**
+     * Name a vertex
+     *
+     * @param IVID The internal vertex ID
+     * @param name The name
+     */
+    void setName(int IVID, String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        int slot = findSlot(bytes);
+        int nameID = slots[slot] - 1;
+        if (nameID == -1) {
+            nameID = addName(bytes);
+            slots[slot] = nameID + 1;
+            if (namesCount * 2 > slots.length) {
+                allocateSlots(slots.length << 1);
+                for (int n = 0; n < namesCount; n++) {
+                    slots[findSlot(n)] = n + 1;
+                }
+            }
+        }
+        nameVertices[nameID] = IVID;
+        if (IVID >= vertexNames.length) {
+            vertexNames = Arrays.copyOf(vertexNames, Math.max(IVID + 1, vertexNames.length << 1));
+        }
+        vertexNames[IVID] = nameID + 1;
+    }
+
+    /**
+     * Get the name of a vertex
+     *
+     * @param IVID The internal vertex ID
+     * @return The name or null if the vertex has no name
+     */
+    String getName(int IVID) {
+        if (IVID >= vertexNames.length || vertexNames[IVID] == 0) {
+            return null;
+        }
+        int nameID = vertexNames[IVID] - 1;
+        return new String(arena, nameOffsets[nameID], nameOffsets[nameID + 1] - nameOffsets[nameID], StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Get the vertex with a name
+     *
+     * @param name The name
+     * @return The internal vertex ID or -1 if no vertex has this name
+     */
+    int getVertex(String name) {
+        int nameID = slots[findSlot(name.getBytes(StandardCharsets.UTF_8))] - 1;
+        return nameID == -1 ? -1 : nameVertices[nameID];
+    }
+
+    /**
+     * Relabel the vertices
+     *
+     * @param permutation The new internal ID of every vertex
+     * @param verticesCount The number of vertices
+     */
+    void reorder(int[] permutation, int verticesCount) {
+        int[] reordered = new int[verticesCount];
+        for (int IVID = 0; IVID < Math.min(verticesCount, vertexNames.length); IVID++) {
+            reordered[permutation[IVID]] = vertexNames[IVID];
+        }
+        vertexNames = reordered;
+        for (int n = 0; n < namesCount; n++) {
+            nameVertices[n] = permutation[nameVertices[n]];
+        }
+    }
+
+    /**
+     * Release the spare capacity once all the vertices are named
+     *
+     * @param verticesCount The number of vertices
+     */
+    void trim(int verticesCount) {
+        arena = Arrays.copyOf(arena, arenaSize);
+        nameOffsets = Arrays.copyOf(nameOffsets, namesCount + 1);
+        nameVertices = Arrays.copyOf(nameVertices, namesCount);
+        vertexNames = Arrays.copyOf(vertexNames, verticesCount);
+    }
+
+    /**
+     * Get the number of distinct names
+     *
+     * @return The names count
+     */
+    int getNamesCount() {
+        return namesCount;
+    }
+
+    /**
+     * Get the vertex returned for a name
+     *
+     * @param nameID The name
+     * @return The internal vertex ID
+     */
+    int getNameVertex(int nameID) {
+        return nameVertices[nameID];
+    }
+
+    byte[] getArena() {
+        return arena;
+    }
+
+    int getNameStart(int nameID) {
+        return nameOffsets[nameID];
+    }
+
+    int getNameEnd(int nameID) {
+        return nameOffsets[nameID + 1];
+    }
+
+    /**
+     * Get the memory held by the names
+     *
+     * @return The approximate size in bytes
+     */
+    long sizeInBytes() {
+        return arena.length + 4L * (nameOffsets.length + nameVertices.length + vertexNames.length + slots.length);
+    }
+
+    void write(DataOutputStream out, int verticesCount) throws IOException {
+        out.writeInt(namesCount);
+        out.writeInt(arenaSize);
+        out.write(arena, 0, arenaSize);
+        SnapshotIO.writeIntArray(out, nameOffsets, namesCount + 1);
+        SnapshotIO.writeIntArray(out, nameVertices, namesCount);
+        SnapshotIO.writeIntArray(out, Arrays.copyOf(vertexNames, verticesCount), verticesCount);
+    }
+
+    static NameStore read(DataInputStream in, int verticesCount) throws IOException {
+        NameStore store = new NameStore();
+        store.namesCount = in.readInt();
+        store.arenaSize = in.readInt();
+        store.arena = new byte[store.arenaSize];
+        in.readFully(store.arena);
+        store.nameOffsets = SnapshotIO.readIntArray(in, store.namesCount + 1);
+        store.nameVertices = SnapshotIO.readIntArray(in, store.namesCount);
+        store.vertexNames = SnapshotIO.readIntArray(in, verticesCount);
+        int capacity = MIN_CAPACITY;
+        while (capacity < store.namesCount * 2L && capacity < (1 << 30)) {
+            capacity <<= 1;
+        }
+        store.allocateSlots(capacity);
+        for (int n = 0; n < store.namesCount; n++) {
+            store.slots[store.findSlot(n)] = n + 1;
+        }
+        return store;
+    }
+
+    private int addName(byte[] bytes) {
+        if (arenaSize + (long) bytes.length > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("Vertex names exceed 2 GB");
+        }
+        if (arenaSize + bytes.length > arena.length) {
+            long capacity = Math.max(arenaSize + bytes.length, (long) arena.length << 1);
+            arena = Arrays.copyOf(arena, (int) Math.min(capacity, Integer.MAX_VALUE - 8));
+        }
+        System.arraycopy(bytes, 0, arena, arenaSize, bytes.length);
+        arenaSize += bytes.length;
+        if (namesCount == nameVertices.length) {
+            nameOffsets = Arrays.copyOf(nameOffsets, (namesCount << 1) + 1);
+            nameVertices = Arrays.copyOf(nameVertices, namesCount << 1);
+        }
+        nameOffsets[namesCount + 1] = arenaSize;
+        return namesCount++;
+    }
+
+    /**
+     * Find the slot holding a name, or the empty slot where it belongs
+     */
+    private int findSlot(byte[] bytes) {
+        int slot = hash(bytes, 0, bytes.length) & mask;
+        while (slots[slot] != 0 && !equals(slots[slot] - 1, bytes)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Find the empty slot for a name of the arena while rehashing
+     */
+    private int findSlot(int nameID) {
+        int slot = hash(arena, nameOffsets[nameID], nameOffsets[nameID + 1]) & mask;
+        while (slots[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private boolean equals(int nameID, byte[] bytes) {
+        int start = nameOffsets[nameID];
+        if (nameOffsets[nameID + 1] - start != bytes.length) {
+            return false;
+        }
+        for (int k = 0; k < bytes.length; k++) {
+            if (arena[start + k] != bytes[k]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void allocateSlots(int capacity) {
+        slots = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    private static int hash(byte[] bytes, int from, int to) {
+        //FNV-1a followed by the Murmur3 finalizer
+        int h = 0x811C9DC5;
+        for (int k = from; k < to; k++) {
+            h = (h ^ bytes[k]) * 0x01000193;
+        }
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2018 Frank Jennings
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fj.fastgraph;
+
+/**
+ * Iterates the neighbors of one vertex, in ascending internal ID order in the
+ * rows of an Adjacency. A cursor can be reset to another vertex and reused,
+ * so traversals need only one cursor per thread.
+ *
+ * @author Frank Jennings
+ */
+interface NeighborCursor {
+
+    /**
+     * Position the cursor before the first neighbor of a vertex
+     *
+     * @param IVID The internal vertex ID
+     */
+    void reset(int IVID);
+
+    /**
+     * Move to the next neighbor
+     *
+     * @return False if there are no more neighbors
+     */
+    boolean next();
+
+    /**
+     * Move to the first neighbor greater than a value. In rows that are not
+     * sorted, move to the next such neighbor.
+     *
+     * @param IVID The value to skip
+     * @return False if there is no such neighbor
+     */
+    boolean skipPast(int IVID);
+
+    /**
+     * Get the current neighbor
+     *
+     * @return The internal ID of the neighbor
+     */
+    int neighbor();
+
+    /**
+     * Get the edge the current neighbor is reached by
+     *
+     * @return The internal edge ID (EID - 1)
+     */
+    int edge();
+}
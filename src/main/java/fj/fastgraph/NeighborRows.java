@@ -0,0 +1,43 @@
+/*
+ * Copyright (C) 2018 Frank Jennings
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fj.fastgraph;
+
+/**
+ * Rows of neighbors a traversal can walk, indexed by internal vertex ID. The
+ * rows of an Adjacency are sorted by neighbor ID, other rows, such as the
+ * rows of a time window, may come in any order.
+ *
+ * @author Frank Jennings
+ */
+interface NeighborRows {
+
+    /**
+     * Get the number of neighbor entries of a vertex
+     *
+     * @param IVID The internal vertex ID
+     * @return The number of entries in the row, at least the number of
+     * entries the cursor returns
+     */
+    int degree(int IVID);
+
+    /**
+     * Create a cursor over the rows
+     *
+     * @return A new cursor, not positioned on any row
+     */
+    NeighborCursor cursor();
+}
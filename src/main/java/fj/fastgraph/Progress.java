@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2018 Frank Jennings
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fj.fastgraph;
+
+/**
+ * Reports the progress of one operation to a ProgressListener. The clock and
+ * the listener are only looked at every few steps, so a step costs a
+ * decrement when nothing is due.
+ *
+ * @author Frank Jennings
+ */
+final class Progress {
+
+    //Steps between 2 checks of the listener, for cheap steps
+    static final int CHECK_EVERY = 1024;
+    //Minimum time between 2 reports
+    private static final long REPORT_INTERVAL_NANOS = 250_000_000L;
+
+    private final ProgressListener listener;
+    private final String operation;
+    private final long total;
+    private final int checkEvery;
+    private int countdown;
+    private long nextReport;
+    private boolean cancelled;
+
+    /**
+     * Start an operation
+     *
+     * @param listener The listener, can be null
+     * @param operation The name of the operation
+     * @param total The units of work of the operation, or -1 if not known
+     */
+    Progress(ProgressListener listener, String operation, long total) {
+        this(listener, operation, total, CHECK_EVERY);
+    }
+
+    /**
+     * Start an operation whose steps are expensive
+     *
+     * @param listener The listener, can be null
+     * @param operation The name of the operation
+     * @param total The units of work of the operation, or -1 if not known
+     * @param checkEvery The number of steps between 2 checks of the listener
+     */
+    Progress(ProgressListener listener, String operation, long total, int checkEvery) {
+        this.listener = listener;
+        this.operation = operation;
+        this.total = total;
+        this.checkEvery = checkEvery;
+        if (listener == null) {
+            countdown = Integer.MAX_VALUE;
+        } else {
+            countdown = checkEvery;
+            nextReport = System.nanoTime() + REPORT_INTERVAL_NANOS;
+            listener.onProgress(operation, 0, total);
+        }
+    }
+
+    /**
+     * Count one step of work
+     *
+     * @param done The units of work done so far
+     * @return False if the operation was cancelled and must stop
+     */
+    boolean step(long done) {
+        if (--countdown > 0) {
+            return true;
+        }
+        return check(done);
+    }
+
+    /**
+     * Report the work done if a report is due and check for cancellation,
+     * without counting a step. Used when the work is done by other threads.
+     *
+     * @param done The units of work done so far
+     * @return False if the operation was cancelled and must stop
+     */
+    boolean poll(long done) {
+        return check(done);
+    }
+
+    private boolean check(long done) {
+        if (listener == null) {
+            countdown = Integer.MAX_VALUE;
+            return true;
+        }
+        countdown = checkEvery;
+        if (cancelled || listener.isCancelled()) {
+            cancelled = true;
+            return false;
+        }
+        long now = System.nanoTime();
+        if (now - nextReport >= 0) {
+            listener.onProgress(operation, done, total);
+            nextReport = now + REPORT_INTERVAL_NANOS;
+        }
+        return true;
+    }
+
+    /**
+     * Find if the operation was stopped by the listener
+     *
+     * @return True if the operation was cancelled
+     */
+    boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * End the operation, reporting the work done
+     *
+     * @param done The units of work done
+     */
+    void finish(long done) {
+        if (listener != null) {
+            listener.onProgress(operation, done, total);
+        }
+    }
+}
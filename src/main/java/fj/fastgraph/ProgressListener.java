@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2018 Frank Jennings
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fj.fastgraph;
+
+/**
+ * Follows the long-running operations of a FastGraph and can stop them. Set
+ * a listener with FastGraphConfig.setProgressListener to follow the load, or
+ * with FastGraph.setProgressListener for the operations run later.
+ *
+ * Progress is reported at most a few times per second, and cancellation is
+ * checked every few thousand units of work, so the listener does not slow
+ * the operation down. A cancelled operation stops early and returns what it
+ * has done so far.
+ *
+ * @author Frank Jennings
+ */
+public interface ProgressListener {
+
+    //Reading the vertices and edges files, counted in lines
+    String LOAD = "load";
+    //Counting the triangles of every vertex, counted in vertices
+    String HOTSPOTS = "hotspots";
+    //Finding the best trail in the graph, counted in vertices
+    String BEST_TRAIL = "bestTrail";
+    //Exporting the graph to DOT or JSON, counted in edges or vertices
+    String EXPORT = "export";
+    //Generating random walks, counted in vertices
+    String RANDOM_WALKS = "randomWalks";
+
+    /**
+     * Called when an operation starts, periodically while it runs and when
+     * it ends
+     *
+     * @param operation The name of the operation
+     * @param done The units of work done
+     * @param total The units of work of the whole operation, or -1 if it is
+     * not known
+     */
+    void onProgress(String operation, long done, long total);
+
+    /**
+     * Should the running operation stop?
+     *
+     * @return True to stop the operation
+     */
+    default boolean isCancelled() {
+        return false;
+    }
+}
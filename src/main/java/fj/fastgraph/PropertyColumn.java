@@ -0,0 +1,588 @@
+/*
+ * Copyright (C) 2018 Frank Jennings
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fj.fastgraph;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.function.IntPredicate;
+
+/**
+ * The values of one property, in a primitive array indexed by internal vertex
+ * ID or internal edge ID. Strings are stored as int codes into a dictionary
+ * holding every distinct value once.
+ *
+ * Filters are built as predicates over the index that read the array
+ * directly, so testing a vertex or an edge does not box anything.
+ *
+ * @author Frank Jennings
+ */
+abstract class PropertyColumn {
+
+    private final String name;
+    private final PropertyType type;
+
+    private PropertyColumn(String name, PropertyType type) {
+        this.name = name;
+        this.type = type;
+    }
+
+    /**
+     * Create an empty column
+     *
+     * @param name The property name
+     * @param type The type of the values
+     * @return The column
+     */
+    static PropertyColumn create(String name, PropertyType type) {
+        switch (type) {
+            case INT:
+                return new IntColumn(name);
+            case LONG:
+                return new LongColumn(name);
+            case FLOAT:
+                return new FloatColumn(name);
+            case DOUBLE:
+                return new DoubleColumn(name);
+            default:
+                return new StringColumn(name);
+        }
+    }
+
+    String getName() {
+        return name;
+    }
+
+    PropertyType getType() {
+        return type;
+    }
+
+    /**
+     * Set a value from its text in a file
+     *
+     * @param index The internal ID
+     * @param text The value
+     * @throws NumberFormatException If a number cannot be parsed
+     */
+    abstract void parse(int index, String text);
+
+    /**
+     * Get a value as an integer. Decimals are truncated.
+     *
+     * @param index The internal ID
+     * @return The value
+     * @throws IllegalArgumentException If the values are strings
+     */
+    abstract long getLong(int index);
+
+    /**
+     * Get a value as a decimal
+     *
+     * @param index The internal ID
+     * @return The value
+     * @throws IllegalArgumentException If the values are strings
+     */
+    abstract double getDouble(int index);
+
+    /**
+     * Get a value as a string
+     *
+     * @param index The internal ID
+     * @return The value, null for a string never set
+     */
+    abstract String getString(int index);
+
+    /**
+     * Test if values are within bounds. Integers compare with the bounds
+     * rounded inward, so no value is converted.
+     *
+     * @param min The smallest value accepted
+     * @param max The largest value accepted
+     * @return The test by internal ID
+     */
+    abstract IntPredicate between(double min, double max);
+
+    /**
+     * Test if values are equal to a string
+     *
+     * @param value The string
+     * @return The test by internal ID
+     */
+    IntPredicate equalTo(String value) {
+        throw new IllegalArgumentException("Not a string property: " + name);
+    }
+
+    /**
+     * Copy a value from another column of the same type
+     *
+     * @param index The internal ID in this column
+     * @param from The column to copy from
+     * @param fromIndex The internal ID in that column
+     */
+    abstract void copy(int index, PropertyColumn from, int fromIndex);
+
+    /**
+     * Set the length of the column, new values taking the default
+     *
+     * @param count The number of vertices or edges
+     */
+    abstract void resize(int count);
+
+    /**
+     * Move the values to new internal IDs
+     *
+     * @param permutation The new ID of every internal ID
+     * @param count The number of values
+     */
+    abstract void reorder(int[] permutation, int count);
+
+    /**
+     * Write the values to a snapshot
+     *
+     * @param out The snapshot stream
+     * @param count The number of values
+     * @throws IOException If the values cannot be written
+     */
+    abstract void write(DataOutputStream out, int count) throws IOException;
+
+    /**
+     * Read the values written by write
+     *
+     * @param in The snapshot stream
+     * @param count The number of values
+     * @throws IOException If the values cannot be read
+     */
+    abstract void read(DataInputStream in, int count) throws IOException;
+
+    /**
+     * Get the capacity to grow to so that an index fits
+     *
+     * @param index The index to fit
+     * @param length The current capacity
+     * @return The new capacity
+     */
+    private static int grow(int index, int length) {
+        return Math.max(index + 1, Math.max(16, length << 1));
+    }
+
+    private static final class IntColumn extends PropertyColumn {
+
+        private int[] values = new int[0];
+
+        private IntColumn(String name) {
+            super(name, PropertyType.INT);
+        }
+
+        @Override
+        void parse(int index, String text) {
+            set(index, Integer.parseInt(text.trim()));
+        }
+
+        private void set(int index, int value) {
+            if (index >= values.length) {
+                values = Arrays.copyOf(values, grow(index, values.length));
+            }
+            values[index] = value;
+        }
+
+        @Override
+        long getLong(int index) {
+            return values[index];
+        }
+
+        @Override
+        double getDouble(int index) {
+            return values[index];
+        }
+
+        @Override
+        String getString(int index) {
+            return String.valueOf(values[index]);
+        }
+
+        @Override
+        IntPredicate between(double min, double max) {
+            int[] column = values;
+            long low = (long) Math.ceil(min);
+            long high = (long) Math.floor(max);
+            return index -> column[index] >= low && column[index] <= high;
+        }
+
+        @Override
+        void copy(int index, PropertyColumn from, int fromIndex) {
+            set(index, ((IntColumn) from).values[fromIndex]);
+        }
+
+        @Override
+        void resize(int count) {
+            values = Arrays.copyOf(values, count);
+        }
+
+        @Override
+        void reorder(int[] permutation, int count) {
+            int[] reordered = new int[count];
+            for (int i = 0; i < count; i++) {
+                reordered[permutation[i]] = values[i];
+            }
+            values = reordered;
+        }
+
+        @Override
+        void write(DataOutputStream out, int count) throws IOException {
+            SnapshotIO.writeIntArray(out, values, count);
+        }
+
+        @Override
+        void read(DataInputStream in, int count) throws IOException {
+            values = SnapshotIO.readIntArray(in, count);
+        }
+    }
+
+    private static final class LongColumn extends PropertyColumn {
+
+        private long[] values = new long[0];
+
+        private LongColumn(String name) {
+            super(name, PropertyType.LONG);
+        }
+
+        @Override
+        void parse(int index, String text) {
+            set(index, Long.parseLong(text.trim()));
+        }
+
+        private void set(int index, long value) {
+            if (index >= values.length) {
+                values = Arrays.copyOf(values, grow(index, values.length));
+            }
+            values[index] = value;
+        }
+
+        @Override
+        long getLong(int index) {
+            return values[index];
+        }
+
+        @Override
+        double getDouble(int index) {
+            return values[index];
+        }
+
+        @Override
+        String getString(int index) {
+            return String.valueOf(values[index]);
+        }
+
+        @Override
+        IntPredicate between(double min, double max) {
+            long[] column = values;
+            long low = (long) Math.ceil(min);
+            long high = (long) Math.floor(max);
+            return index -> column[index] >= low && column[index] <= high;
+        }
+
+        @Override
+        void copy(int index, PropertyColumn from, int fromIndex) {
+            set(index, ((LongColumn) from).values[fromIndex]);
+        }
+
+        @Override
+        void resize(int count) {
+            values = Arrays.copyOf(values, count);
+        }
+
+        @Override
+        void reorder(int[] permutation, int count) {
+            long[] reordered = new long[count];
+            for (int i = 0; i < count; i++) {
+                reordered[permutation[i]] = values[i];
+            }
+            values = reordered;
+        }
+
+        @Override
+        void write(DataOutputStream out, int count) throws IOException {
+            SnapshotIO.writeLongArray(out, values, count);
+        }
+
+        @Override
+        void read(DataInputStream in, int count) throws IOException {
+            values = SnapshotIO.readLongArray(in, count);
+        }
+    }
+
+    private static final class FloatColumn extends PropertyColumn {
+
+        private float[] values = new float[0];
+
+        private FloatColumn(String name) {
+            super(name, PropertyType.FLOAT);
+        }
+
+        @Override
+        void parse(int index, String text) {
+            set(index, Float.parseFloat(text.trim()));
+        }
+
+        private void set(int index, float value) {
+            if (index >= values.length) {
+                values = Arrays.copyOf(values, grow(index, values.length));
+            }
+            values[index] = value;
+        }
+
+        @Override
+        long getLong(int index) {
+            return (long) values[index];
+        }
+
+        @Override
+        double getDouble(int index) {
+            return values[index];
+        }
+
+        @Override
+        String getString(int index) {
+            return String.valueOf(values[index]);
+        }
+
+        @Override
+        IntPredicate between(double min, double max) {
+            float[] column = values;
+            return index -> column[index] >= min && column[index] <= max;
+        }
+
+        @Override
+        void copy(int index, PropertyColumn from, int fromIndex) {
+            set(index, ((FloatColumn) from).values[fromIndex]);
+        }
+
+        @Override
+        void resize(int count) {
+            values = Arrays.copyOf(values, count);
+        }
+
+        @Override
+        void reorder(int[] permutation, int count) {
+            float[] reordered = new float[count];
+            for (int i = 0; i < count; i++) {
+                reordered[permutation[i]] = values[i];
+            }
+            values = reordered;
+        }
+
+        @Override
+        void write(DataOutputStream out, int count) throws IOException {
+            for (int i = 0; i < count; i++) {
+                out.writeFloat(values[i]);
+            }
+        }
+
+        @Override
+        void read(DataInputStream in, int count) throws IOException {
+            values = new float[count];
+            for (int i = 0; i < count; i++) {
+                values[i] = in.readFloat();
+            }
+        }
+    }
+
+    private static final class DoubleColumn extends PropertyColumn {
+
+        private double[] values = new double[0];
+
+        private DoubleColumn(String name) {
+            super(name, PropertyType.DOUBLE);
+        }
+
+        @Override
+        void parse(int index, String text) {
+            set(index, Double.parseDouble(text.trim()));
+        }
+
+        private void set(int index, double value) {
+            if (index >= values.length) {
+                values = Arrays.copyOf(values, grow(index, values.length));
+            }
+            values[index] = value;
+        }
+
+        @Override
+        long getLong(int index) {
+            return (long) values[index];
+        }
+
+        @Override
+        double getDouble(int index) {
+            return values[index];
+        }
+
+        @Override
+        String getString(int index) {
+            return String.valueOf(values[index]);
+        }
+
+        @Override
+        IntPredicate between(double min, double max) {
+            double[] column = values;
+            return index -> column[index] >= min && column[index] <= max;
+        }
+
+        @Override
+        void copy(int index, PropertyColumn from, int fromIndex) {
+            set(index, ((DoubleColumn) from).values[fromIndex]);
+        }
+
+        @Override
+        void resize(int count) {
+            values = Arrays.copyOf(values, count);
+        }
+
+        @Override
+        void reorder(int[] permutation, int count) {
+            double[] reordered = new double[count];
+            for (int i = 0; i < count; i++) {
+                reordered[permutation[i]] = values[i];
+            }
+            values = reordered;
+        }
+
+        @Override
+        void write(DataOutputStream out, int count) throws IOException {
+            for (int i = 0; i < count; i++) {
+                out.writeDouble(values[i]);
+            }
+        }
+
+        @Override
+        void read(DataInputStream in, int count) throws IOException {
+            values = new double[count];
+            for (int i = 0; i < count; i++) {
+                values[i] = in.readDouble();
+            }
+        }
+    }
+
+    private static final class StringColumn extends PropertyColumn {
+
+        //Codes into the dictionary as code + 1, 0 for values never set
+        private int[] codes = new int[0];
+        private final ArrayList<String> dictionary = new ArrayList<>();
+        private final HashMap<String, Integer> dictionaryCodes = new HashMap<>();
+
+        private StringColumn(String name) {
+            super(name, PropertyType.STRING);
+        }
+
+        @Override
+        void parse(int index, String text) {
+            set(index, encode(text.trim()));
+        }
+
+        private int encode(String value) {
+            Integer code = dictionaryCodes.get(value);
+            if (code == null) {
+                code = dictionary.size();
+                dictionary.add(value);
+                dictionaryCodes.put(value, code);
+            }
+            return code + 1;
+        }
+
+        private void set(int index, int code) {
+            if (index >= codes.length) {
+                codes = Arrays.copyOf(codes, grow(index, codes.length));
+            }
+            codes[index] = code;
+        }
+
+        @Override
+        long getLong(int index) {
+            throw new IllegalArgumentException("Not a number property: " + getName());
+        }
+
+        @Override
+        double getDouble(int index) {
+            throw new IllegalArgumentException("Not a number property: " + getName());
+        }
+
+        @Override
+        String getString(int index) {
+            int code = codes[index];
+            return code == 0 ? null : dictionary.get(code - 1);
+        }
+
+        @Override
+        IntPredicate between(double min, double max) {
+            throw new IllegalArgumentException("Not a number property: " + getName());
+        }
+
+        @Override
+        IntPredicate equalTo(String value) {
+            Integer code = dictionaryCodes.get(value);
+            if (code == null) {
+                return index -> false;
+            }
+            int[] column = codes;
+            int match = code + 1;
+            return index -> column[index] == match;
+        }
+
+        @Override
+        void copy(int index, PropertyColumn from, int fromIndex) {
+            String value = from.getString(fromIndex);
+            set(index, value == null ? 0 : encode(value));
+        }
+
+        @Override
+        void resize(int count) {
+            codes = Arrays.copyOf(codes, count);
+        }
+
+        @Override
+        void reorder(int[] permutation, int count) {
+            int[] reordered = new int[count];
+            for (int i = 0; i < count; i++) {
+                reordered[permutation[i]] = codes[i];
+            }
+            codes = reordered;
+        }
+
+        @Override
+        void write(DataOutputStream out, int count) throws IOException {
+            out.writeInt(dictionary.size());
+            for (String value : dictionary) {
+                out.writeUTF(value);
+            }
+            SnapshotIO.writeIntArray(out, codes, count);
+        }
+
+        @Override
+        void read(DataInputStream in, int count) throws IOException {
+            int size = in.readInt();
+            for (int code = 0; code < size; code++) {
+                String value = in.readUTF();
+                dictionary.add(value);
+                dictionaryCodes.put(value, code);
+            }
+            codes = SnapshotIO.readIntArray(in, count);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2018 Frank Jennings
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fj.fastgraph;
+
+import java.util.ArrayList;
+import java.util.function.IntPredicate;
+
+/**
+ * Conditions on the vertex and edge properties that a traversal must meet,
+ * such as getNeighbors or getPathBetweenVertices. A filter only names the
+ * properties, so the same filter can be used on several graphs. When a query
+ * runs, every condition becomes a test reading the property column directly,
+ * and the vertices and edges that fail are never explored.
+ *
+ * For example, the neighbors in the books category reached by edges scoring
+ * at least 0.5:
+ *
+ * PropertyFilter.vertexEquals("category", "books").and(PropertyFilter.edgeBetween("score", 0.5, Double.MAX_VALUE))
+ *
+ * @author Frank Jennings
+ */
+public final class PropertyFilter {
+
+    private final ArrayList<Condition> conditions = new ArrayList<>();
+
+    private PropertyFilter(Condition condition) {
+        conditions.add(condition);
+    }
+
+    /**
+     * Accept the vertices with a number property within bounds
+     *
+     * @param property The property name
+     * @param min The smallest value accepted
+     * @param max The largest value accepted
+     * @return The filter
+     */
+    public static PropertyFilter vertexBetween(String property, double min, double max) {
+        return new PropertyFilter(new Condition(true, property, min, max, null));
+    }
+
+    /**
+     * Accept the vertices with a string property equal to a value
+     *
+     * @param property The property name
+     * @param value The value accepted
+     * @return The filter
+     */
+    public static PropertyFilter vertexEquals(String property, String value) {
+        return new PropertyFilter(new Condition(true, property, 0, 0, value));
+    }
+
+    /**
+     * Accept the edges with a number property within bounds
+     *
+     * @param property The property name
+     * @param min The smallest value accepted
+     * @param max The largest value accepted
+     * @return The filter
+     */
+    public static PropertyFilter edgeBetween(String property, double min, double max) {
+        return new PropertyFilter(new Condition(false, property, min, max, null));
+    }
+
+    /**
+     * Accept the edges with a string property equal to a value
+     *
+     * @param property The property name
+     * @param value The value accepted
+     * @return The filter
+     */
+    public static PropertyFilter edgeEquals(String property, String value) {
+        return new PropertyFilter(new Condition(false, property, 0, 0, value));
+    }
+
+    /**
+     * Combine 2 filters. Both filters are left unchanged.
+     *
+     * @param filter The other filter
+     * @return A filter accepting what both filters accept
+     */
+    public PropertyFilter and(PropertyFilter filter) {
+        PropertyFilter combined = new PropertyFilter(conditions.get(0));
+        combined.conditions.addAll(conditions.subList(1, conditions.size()));
+        combined.conditions.addAll(filter.conditions);
+        return combined;
+    }
+
+    /**
+     * Turn the conditions into tests over the columns of a graph
+     *
+     * @param vertexProperties The vertex columns
+     * @param edgeProperties The edge columns
+     * @return The filter to run in the traversal
+     * @throws IllegalArgumentException If a property is missing or has the
+     * wrong type
+     */
+    TraversalFilter bind(PropertyStore vertexProperties, PropertyStore edgeProperties) {
+        ArrayList<IntPredicate> vertexTests = new ArrayList<>();
+        ArrayList<IntPredicate> edgeTests = new ArrayList<>();
+        for (Condition condition : conditions) {
+            PropertyColumn column = (condition.vertex ? vertexProperties : edgeProperties).get(condition.property);
+            IntPredicate test = condition.value != null ? column.equalTo(condition.value) : column.between(condition.min, condition.max);
+            (condition.vertex ? vertexTests : edgeTests).add(test);
+        }
+        IntPredicate[] vertexChecks = vertexTests.toArray(new IntPredicate[0]);
+        IntPredicate[] edgeChecks = edgeTests.toArray(new IntPredicate[0]);
+        return new TraversalFilter() {
+            @Override
+            public boolean acceptVertex(int IVID) {
+                for (IntPredicate test : vertexChecks) {
+                    if (!test.test(IVID)) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+
+            @Override
+            public boolean acceptEdge(int from, int to, int edge) {
+                for (IntPredicate test : edgeChecks) {
+                    if (!test.test(edge)) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+
+            @Override
+            public boolean hasEdgeTest() {
+                return edgeChecks.length > 0;
+            }
+        };
+    }
+
+    private static final class Condition {
+
+        private final boolean vertex;
+        private final String property;
+        private final double min;
+        private final double max;
+        //Null for a range
+        private final String value;
+
+        private Condition(boolean vertex, String property, double min, double max, String value) {
+            this.vertex = vertex;
+            this.property = property;
+            this.min = min;
+            this.max = max;
+            this.value = value;
+        }
+    }
+}
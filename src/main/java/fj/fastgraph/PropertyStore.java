@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2018 Frank Jennings
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fj.fastgraph;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.StringTokenizer;
+
+/**
+ * The property columns of the vertices or of the edges of a graph, in the
+ * order they were declared. That is also the order of the extra columns of
+ * the vertices or edges file.
+ *
+ * @author Frank Jennings
+ */
+final class PropertyStore {
+
+    private PropertyColumn[] columns = new PropertyColumn[0];
+
+    PropertyStore() {
+    }
+
+    /**
+     * Create the columns of a schema
+     *
+     * @param properties The type of every property, in column order
+     */
+    PropertyStore(Map<String, PropertyType> properties) {
+        properties.forEach(this::add);
+    }
+
+    /**
+     * Add an empty column
+     *
+     * @param name The property name
+     * @param type The type of the values
+     */
+    void add(String name, PropertyType type) {
+        if (find(name) != null) {
+            throw new IllegalArgumentException("Duplicate property: " + name);
+        }
+        columns = Arrays.copyOf(columns, columns.length + 1);
+        columns[columns.length - 1] = PropertyColumn.create(name, type);
+    }
+
+    boolean isEmpty() {
+        return columns.length == 0;
+    }
+
+    /**
+     * Find a column by name
+     *
+     * @param name The property name
+     * @return The column or null if there is no such property
+     */
+    PropertyColumn find(String name) {
+        for (PropertyColumn column : columns) {
+            if (column.getName().equals(name)) {
+                return column;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get a column by name
+     *
+     * @param name The property name
+     * @return The column
+     * @throws IllegalArgumentException If there is no such property
+     */
+    PropertyColumn get(String name) {
+        PropertyColumn column = find(name);
+        if (column == null) {
+            throw new IllegalArgumentException("Unknown property: " + name);
+        }
+        return column;
+    }
+
+    /**
+     * Get the schema of the columns
+     *
+     * @return The type of every property, in column order
+     */
+    Map<String, PropertyType> getTypes() {
+        LinkedHashMap<String, PropertyType> types = new LinkedHashMap<>();
+        for (PropertyColumn column : columns) {
+            types.put(column.getName(), column.getType());
+        }
+        return types;
+    }
+
+    /**
+     * Set the values of a vertex or edge from the rest of its line. Missing
+     * trailing values keep their default, extra ones are ignored.
+     *
+     * @param index The internal ID
+     * @param tokens The tokens after the name or weight column
+     */
+    void parse(int index, StringTokenizer tokens) {
+        for (int c = 0; c < columns.length && tokens.hasMoreTokens(); c++) {
+            columns[c].parse(index, tokens.nextToken());
+        }
+    }
+
+    /**
+     * Copy all the values of a vertex or edge from a store with the same
+     * columns
+     *
+     * @param index The internal ID in this store
+     * @param from The store to copy from
+     * @param fromIndex The internal ID in that store
+     */
+    void copy(int index, PropertyStore from, int fromIndex) {
+        for (int c = 0; c < columns.length; c++) {
+            columns[c].copy(index, from.columns[c], fromIndex);
+        }
+    }
+
+    /**
+     * Create a store with the same columns and no values
+     *
+     * @return The empty store
+     */
+    PropertyStore emptyCopy() {
+        return new PropertyStore(getTypes());
+    }
+
+    void resize(int count) {
+        for (PropertyColumn column : columns) {
+            column.resize(count);
+        }
+    }
+
+    void reorder(int[] permutation, int count) {
+        for (PropertyColumn column : columns) {
+            column.reorder(permutation, count);
+        }
+    }
+
+    /**
+     * Write the columns to a snapshot
+     *
+     * @param out The snapshot stream
+     * @param count The number of vertices or edges
+     * @throws IOException If the columns cannot be written
+     */
+    void write(DataOutputStream out, int count) throws IOException {
+        out.writeInt(columns.length);
+        for (PropertyColumn column : columns) {
+            out.writeUTF(column.getName());
+            out.writeUTF(column.getType().name());
+            column.write(out, count);
+        }
+    }
+
+    /**
+     * Read columns written by write
+     *
+     * @param in The snapshot stream
+     * @param count The number of vertices or edges
+     * @return The columns
+     * @throws IOException If the columns cannot be read
+     */
+    static PropertyStore read(DataInputStream in, int count) throws IOException {
+        PropertyStore store = new PropertyStore();
+        int size = in.readInt();
+        for (int c = 0; c < size; c++) {
+            String name = in.readUTF();
+            store.add(name, PropertyType.valueOf(in.readUTF()));
+            store.columns[c].read(in, count);
+        }
+        return store;
+    }
+}
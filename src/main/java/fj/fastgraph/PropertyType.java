@@ -0,0 +1,47 @@
+/*
+ * Copyright (C) 2018 Frank Jennings
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fj.fastgraph;
+
+/**
+ * The type of the values of a vertex or edge property
+ *
+ * @author Frank Jennings
+ */
+public enum PropertyType {
+
+    /**
+     * 32-bit integers, 0 by default
+     */
+    INT,
+    /**
+     * 64-bit integers such as timestamps, 0 by default
+     */
+    LONG,
+    /**
+     * Single precision numbers, 0 by default
+     */
+    FLOAT,
+    /**
+     * Double precision numbers, 0 by default
+     */
+    DOUBLE,
+    /**
+     * Strings stored once each in a dictionary, such as categories. Null by
+     * default.
+     */
+    STRING
+}
@@ -0,0 +1,268 @@
+/*
+ * Copyright (C) 2018 Frank Jennings
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fj.fastgraph;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded cache of query results. Entries are kept in least recently used
+ * order and a new entry only displaces the eldest one if it has been asked
+ * for more often, as counted by a small TinyLFU frequency sketch. This keeps
+ * one-off queries from flushing the popular ones.
+ *
+ * The size of an entry is estimated from the number of elements in the
+ * result. All methods are synchronized.
+ *
+ * @author Frank Jennings
+ */
+final class QueryCache {
+
+    static final int NEIGHBORS = 1;
+    static final int PATH = 2;
+
+    //Estimated bytes held by a cached key, a map entry and a list element
+    private static final long KEY_BYTES = 96;
+    private static final long MAP_ENTRY_BYTES = 72;
+    private static final long LIST_ELEMENT_BYTES = 24;
+    //Entry size used to size the frequency sketch
+    private static final long AVERAGE_ENTRY_BYTES = 1024;
+
+    private final long maxBytes;
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final FrequencySketch sketch;
+    private long sizeInBytes;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long rejections;
+    private long invalidations;
+
+    /**
+     * Create an empty cache
+     *
+     * @param maxBytes The memory budget of the cached results
+     */
+    QueryCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+        this.sketch = new FrequencySketch((int) Math.min(1 << 24, Math.max(64, maxBytes / AVERAGE_ENTRY_BYTES)));
+    }
+
+    /**
+     * Get a cached result
+     *
+     * @param key The query
+     * @return The result or null if it is not cached
+     */
+    synchronized Object get(Key key) {
+        sketch.increment(key.hashCode());
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.value;
+    }
+
+    /**
+     * Cache a result, evicting the least recently used results if the budget
+     * is exceeded
+     *
+     * @param key The query
+     * @param value The result, must not be changed once cached
+     * @param bytes The estimated size of the result
+     */
+    synchronized void put(Key key, Object value, long bytes) {
+        bytes += KEY_BYTES;
+        if (bytes > maxBytes) {
+            rejections++;
+            return;
+        }
+        Entry previous = entries.remove(key);
+        if (previous != null) {
+            sizeInBytes -= previous.bytes;
+        }
+        Iterator<Map.Entry<Key, Entry>> eldest = entries.entrySet().iterator();
+        if (sizeInBytes + bytes > maxBytes && eldest.hasNext()) {
+            //Admit the new result only if it is more popular than the victim
+            Key victim = eldest.next().getKey();
+            if (sketch.frequency(key.hashCode()) <= sketch.frequency(victim.hashCode())) {
+                rejections++;
+                return;
+            }
+            eldest = entries.entrySet().iterator();
+        }
+        while (sizeInBytes + bytes > maxBytes && eldest.hasNext()) {
+            sizeInBytes -= eldest.next().getValue().bytes;
+            eldest.remove();
+            evictions++;
+        }
+        entries.put(key, new Entry(value, bytes));
+        sizeInBytes += bytes;
+    }
+
+    /**
+     * Drop every cached result
+     */
+    synchronized void invalidate() {
+        entries.clear();
+        sizeInBytes = 0;
+        invalidations++;
+    }
+
+    synchronized QueryCacheStats getStats() {
+        return new QueryCacheStats(hits, misses, evictions, rejections, invalidations, entries.size(), sizeInBytes, maxBytes);
+    }
+
+    static long sizeOfMap(int size) {
+        return MAP_ENTRY_BYTES * size;
+    }
+
+    static long sizeOfList(int size) {
+        return LIST_ELEMENT_BYTES * size;
+    }
+
+    /**
+     * A query: the method, its vertices, the depth and the sort mode
+     */
+    static final class Key {
+
+        private final int method;
+        private final int VID1;
+        private final int VID2;
+        private final int depth;
+        private final boolean sortByWeights;
+        private final Direction direction;
+
+        Key(int method, int VID1, int VID2, int depth, boolean sortByWeights) {
+            this(method, VID1, VID2, depth, sortByWeights, Direction.BOTH);
+        }
+
+        Key(int method, int VID1, int VID2, int depth, boolean sortByWeights, Direction direction) {
+            this.method = method;
+            this.VID1 = VID1;
+            this.VID2 = VID2;
+            this.depth = depth;
+            this.sortByWeights = sortByWeights;
+            this.direction = direction;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return method == key.method && VID1 == key.VID1 && VID2 == key.VID2
+                    && depth == key.depth && sortByWeights == key.sortByWeights
+                    && direction == key.direction;
+        }
+
+        @Override
+        public int hashCode() {
+            int h = method;
+            h = h * 31 + VID1;
+            h = h * 31 + VID2;
+            h = h * 31 + depth;
+            h = h * 2 + (sortByWeights ? 1 : 0);
+            h = h * 3 + direction.ordinal();
+            h *= 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
+
+    private static final class Entry {
+
+        private final Object value;
+        private final long bytes;
+
+        Entry(Object value, long bytes) {
+            this.value = value;
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * A count-min sketch of 4-bit counters, 16 to a long, with 4 hashes. All
+     * the counters are halved once the number of increments reaches ten
+     * times the number of counters per row, so that old popularity fades.
+     */
+    private static final class FrequencySketch {
+
+        private static final long[] SEEDS = {0xC3A5C85C97CB3127L, 0xB492B66FBE98F273L, 0x9AE16A3B2F90404FL, 0xCBF29CE484222325L};
+        private static final long RESET_MASK = 0x7777777777777777L;
+
+        private final long[] table;
+        private final int mask;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(int expectedEntries) {
+            int size = 1;
+            while (size < expectedEntries) {
+                size <<= 1;
+            }
+            table = new long[size];
+            mask = size - 1;
+            sampleSize = 10 * size;
+        }
+
+        int frequency(int hash) {
+            int frequency = Integer.MAX_VALUE;
+            for (int i = 0; i < 4; i++) {
+                frequency = Math.min(frequency, counter(hash, i));
+            }
+            return frequency;
+        }
+
+        void increment(int hash) {
+            boolean added = false;
+            for (int i = 0; i < 4; i++) {
+                int index = index(hash, i);
+                int shift = counterShift(hash, i);
+                if (((table[index] >>> shift) & 0xF) < 15) {
+                    table[index] += 1L << shift;
+                    added = true;
+                }
+            }
+            if (added && ++additions == sampleSize) {
+                for (int i = 0; i < table.length; i++) {
+                    table[i] = (table[i] >>> 1) & RESET_MASK;
+                }
+                additions = 0;
+            }
+        }
+
+        private int counter(int hash, int i) {
+            return (int) ((table[index(hash, i)] >>> counterShift(hash, i)) & 0xF);
+        }
+
+        private int index(int hash, int i) {
+            long h = (hash + SEEDS[i]) * SEEDS[i];
+            h += h >>> 32;
+            return (int) h & mask;
+        }
+
+        private static int counterShift(int hash, int i) {
+            //Each hash uses its own group of 4 counters in the long
+            return ((i << 2) + ((hash >>> (i << 3)) & 3)) << 2;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2018 Frank Jennings
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fj.fastgraph;
+
+/**
+ * A snapshot of the counters of the query cache
+ *
+ * @author Frank Jennings
+ */
+public class QueryCacheStats {
+
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final long rejections;
+    private final long invalidations;
+    private final int entries;
+    private final long sizeInBytes;
+    private final long maxBytes;
+
+    QueryCacheStats(long hits, long misses, long evictions, long rejections, long invalidations, int entries, long sizeInBytes, long maxBytes) {
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.rejections = rejections;
+        this.invalidations = invalidations;
+        this.entries = entries;
+        this.sizeInBytes = sizeInBytes;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Get the number of queries answered from the cache
+     *
+     * @return The hits count
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * Get the number of queries that had to be computed
+     *
+     * @return The misses count
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Get the share of queries answered from the cache
+     *
+     * @return The hit rate between 0 and 1
+     */
+    public double getHitRate() {
+        long requests = hits + misses;
+        return requests == 0 ? 0 : (double) hits / requests;
+    }
+
+    /**
+     * Get the number of results evicted to stay within the budget
+     *
+     * @return The evictions count
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Get the number of results that were not cached because they were too
+     * large or less popular than the results they would have evicted
+     *
+     * @return The rejections count
+     */
+    public long getRejections() {
+        return rejections;
+    }
+
+    /**
+     * Get the number of times the whole cache was dropped
+     *
+     * @return The invalidations count
+     */
+    public long getInvalidations() {
+        return invalidations;
+    }
+
+    /**
+     * Get the number of cached results
+     *
+     * @return The entries count
+     */
+    public int getEntries() {
+        return entries;
+    }
+
+    /**
+     * Get the estimated memory held by the cached results
+     *
+     * @return The size in bytes
+     */
+    public long getSizeInBytes() {
+        return sizeInBytes;
+    }
+
+    /**
+     * Get the memory budget of the cache
+     *
+     * @return The budget in bytes
+     */
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "QueryCacheStats{hits=" + hits + ", misses=" + misses + ", evictions=" + evictions
+                + ", rejections=" + rejections + ", invalidations=" + invalidations
+                + ", entries=" + entries + ", sizeInBytes=" + sizeInBytes + "}";
+    }
+}
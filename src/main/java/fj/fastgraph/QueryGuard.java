@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2018 Frank Jennings
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fj.fastgraph;
+
+/**
+ * Checks the token of one query and remembers why the query stopped. Queries
+ * without a token use NONE, whose checks only test a field.
+ *
+ * @author Frank Jennings
+ */
+final class QueryGuard {
+
+    static final QueryGuard NONE = new QueryGuard(null);
+
+    //Units of work between 2 checks of the token
+    private static final long CHECK_WORK = 4096;
+
+    private final CancellationToken token;
+    private QueryStatus status = QueryStatus.COMPLETE;
+    //The first call checks the token
+    private long budget = 0;
+
+    /**
+     * Guard a query
+     *
+     * @param token The token of the query, can be null
+     */
+    QueryGuard(CancellationToken token) {
+        this.token = token;
+    }
+
+    /**
+     * Check the token. Once the token has fired, the query must stop.
+     *
+     * @return True if the query must stop
+     */
+    boolean stop() {
+        if (token == null) {
+            return false;
+        }
+        if (status != QueryStatus.COMPLETE) {
+            return true;
+        }
+        status = token.check();
+        return status != QueryStatus.COMPLETE;
+    }
+
+    /**
+     * Count work and check the token only once enough work was done since
+     * the last check, for loops whose steps are cheap or uneven. A unit of
+     * work is a vertex or an edge touched.
+     *
+     * @param work The units of work about to be done
+     * @return True if the query must stop
+     */
+    boolean stop(long work) {
+        if (token == null) {
+            return false;
+        }
+        budget -= work;
+        if (budget > 0) {
+            return status != QueryStatus.COMPLETE;
+        }
+        budget = CHECK_WORK;
+        return stop();
+    }
+
+    /**
+     * Record that the query was stopped from elsewhere, for example by a
+     * progress listener
+     */
+    void cancelled() {
+        if (this != NONE) {
+            status = QueryStatus.CANCELLED;
+        }
+    }
+
+    /**
+     * Get how the query ended
+     *
+     * @return COMPLETE unless the query was stopped
+     */
+    QueryStatus getStatus() {
+        return status;
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2018 Frank Jennings
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fj.fastgraph;
+
+/**
+ * The result of a query bounded by a CancellationToken, with how the query
+ * ended. A query that did not complete returns what it found until the token
+ * fired.
+ *
+ * @author Frank Jennings
+ * @param <T> The type of the result
+ */
+public final class QueryResult<T> {
+
+    private final T value;
+    private final QueryStatus status;
+
+    QueryResult(T value, QueryStatus status) {
+        this.value = value;
+        this.status = status;
+    }
+
+    /**
+     * Get the result of the query
+     *
+     * @return The result, partial if the query did not complete
+     */
+    public T getValue() {
+        return value;
+    }
+
+    /**
+     * Get how the query ended
+     *
+     * @return The query status
+     */
+    public QueryStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * Find if the query ran to the end
+     *
+     * @return True if the result is complete
+     */
+    public boolean isComplete() {
+        return status == QueryStatus.COMPLETE;
+    }
+
+    @Override
+    public String toString() {
+        return "QueryResult{status=" + status + ", value=" + value + "}";
+    }
+}
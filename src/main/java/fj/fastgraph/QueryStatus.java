@@ -0,0 +1,39 @@
+/*
+ * Copyright (C) 2018 Frank Jennings
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fj.fastgraph;
+
+/**
+ * How a query bounded by a CancellationToken ended
+ *
+ * @author Frank Jennings
+ */
+public enum QueryStatus {
+
+    /**
+     * The query ran to the end, the result is complete
+     */
+    COMPLETE,
+    /**
+     * The deadline of the token passed, the result is partial
+     */
+    TIMED_OUT,
+    /**
+     * The token or the progress listener cancelled the query, the result is
+     * partial
+     */
+    CANCELLED
+}
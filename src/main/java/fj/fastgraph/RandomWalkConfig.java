@@ -0,0 +1,181 @@
+/*
+ * Copyright (C) 2018 Frank Jennings
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fj.fastgraph;
+
+/**
+ * Options of the random walks generated by FastGraph.generateRandomWalks.
+ * The setters return the same config so that the options can be chained.
+ *
+ * The walks are uniform by default. Weighted walks move to a neighbor in
+ * proportion to the weight of the edge. The return parameter p and the
+ * in-out parameter q bias the walks as in node2vec: a low p keeps the walk
+ * close to where it comes from, a low q pushes it away.
+ *
+ * @author Frank Jennings
+ */
+public class RandomWalkConfig {
+
+    private int walkLength = 80;
+    private int walksPerVertex = 10;
+    private boolean weighted = false;
+    private double returnParameter = 1;
+    private double inOutParameter = 1;
+    private long seed = 0;
+
+    /**
+     * Get the number of vertices in a walk
+     *
+     * @return The walk length
+     */
+    public int getWalkLength() {
+        return walkLength;
+    }
+
+    /**
+     * Set the number of vertices in a walk, including the vertex it starts
+     * from. A walk reaching a vertex without edges ends early. Defaults to
+     * 80.
+     *
+     * @param walkLength The walk length
+     * @return This config
+     */
+    public RandomWalkConfig setWalkLength(int walkLength) {
+        this.walkLength = Math.max(1, walkLength);
+        return this;
+    }
+
+    /**
+     * Get the number of walks starting from each vertex
+     *
+     * @return The walks per vertex
+     */
+    public int getWalksPerVertex() {
+        return walksPerVertex;
+    }
+
+    /**
+     * Set the number of walks starting from each vertex having edges.
+     * Defaults to 10.
+     *
+     * @param walksPerVertex The walks per vertex
+     * @return This config
+     */
+    public RandomWalkConfig setWalksPerVertex(int walksPerVertex) {
+        this.walksPerVertex = Math.max(1, walksPerVertex);
+        return this;
+    }
+
+    /**
+     * Are the moves biased by the edge weights?
+     *
+     * @return True for weighted walks
+     */
+    public boolean isWeighted() {
+        return weighted;
+    }
+
+    /**
+     * If True, a walk moves to a neighbor in proportion to the weight (W) of
+     * the edge. Edges without a positive weight are not taken, unless no
+     * edge of the vertex has one.
+     *
+     * @param weighted Bias the moves by the edge weights
+     * @return This config
+     */
+    public RandomWalkConfig setWeighted(boolean weighted) {
+        this.weighted = weighted;
+        return this;
+    }
+
+    /**
+     * Get the node2vec return parameter
+     *
+     * @return p
+     */
+    public double getReturnParameter() {
+        return returnParameter;
+    }
+
+    /**
+     * Set the node2vec return parameter p. Moving back to the previous
+     * vertex is weighted by 1/p. Defaults to 1.
+     *
+     * @param returnParameter p, must be positive
+     * @return This config
+     */
+    public RandomWalkConfig setReturnParameter(double returnParameter) {
+        if (!(returnParameter > 0)) {
+            throw new IllegalArgumentException("Return parameter must be positive: " + returnParameter);
+        }
+        this.returnParameter = returnParameter;
+        return this;
+    }
+
+    /**
+     * Get the node2vec in-out parameter
+     *
+     * @return q
+     */
+    public double getInOutParameter() {
+        return inOutParameter;
+    }
+
+    /**
+     * Set the node2vec in-out parameter q. Moving to a vertex that is not a
+     * neighbor of the previous vertex is weighted by 1/q. Defaults to 1.
+     *
+     * @param inOutParameter q, must be positive
+     * @return This config
+     */
+    public RandomWalkConfig setInOutParameter(double inOutParameter) {
+        if (!(inOutParameter > 0)) {
+            throw new IllegalArgumentException("In-out parameter must be positive: " + inOutParameter);
+        }
+        this.inOutParameter = inOutParameter;
+        return this;
+    }
+
+    /**
+     * Get the seed of the walks
+     *
+     * @return The seed
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Set the seed of the walks. The same seed gives the same walks, whatever
+     * the number of threads. Defaults to 0.
+     *
+     * @param seed The seed
+     * @return This config
+     */
+    public RandomWalkConfig setSeed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * Find if the walks are biased by p and q
+     *
+     * @return True unless p and q are both 1
+     */
+    boolean isSecondOrder() {
+        return returnParameter != 1 || inOutParameter != 1;
+    }
+}
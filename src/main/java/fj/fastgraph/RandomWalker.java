@@ -0,0 +1,274 @@
+/*
+ * Copyright (C) 2018 Frank Jennings
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fj.fastgraph;
+
+import java.util.Arrays;
+
+/**
+ * Generates random walks over a copy of the neighbor rows laid out flat, so
+ * that the i-th neighbor of a vertex is read in one step whatever the format
+ * of the adjacency.
+ *
+ * Weighted moves are drawn in constant time from an alias table per row,
+ * built on the first weighted walk. The node2vec bias of p and q depends on
+ * the previous vertex, so instead of a table per edge the move is drawn from
+ * the row and kept with a probability of its bias over the largest bias,
+ * which only needs a binary search in the sorted row of the previous vertex.
+ *
+ * @author Frank Jennings
+ */
+final class RandomWalker {
+
+    //SplitMix64 increment
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+    //Random bits used for the alias coin
+    private static final int COIN_BITS = 24;
+    private static final float COIN_SCALE = 1f / (1 << COIN_BITS);
+
+    private final IntArray externalIDs;
+    private final int verticesCount;
+    //Row of IVID is targets[offsets[IVID]] to targets[offsets[IVID + 1] - 1]
+    private final int[] offsets;
+    private final int[] targets;
+    //Alias table of every row, null until a weighted walk needs them
+    private float[] probabilities;
+    private int[] aliases;
+
+    /**
+     * Copy the neighbor rows
+     *
+     * @param adjacency The neighbor rows
+     * @param externalIDs The external ID of every internal ID
+     * @param verticesCount The number of vertices
+     */
+    RandomWalker(Adjacency adjacency, IntArray externalIDs, int verticesCount) {
+        this.externalIDs = externalIDs;
+        this.verticesCount = verticesCount;
+        offsets = new int[verticesCount + 1];
+        for (int IVID = 0; IVID < verticesCount; IVID++) {
+            offsets[IVID + 1] = offsets[IVID] + adjacency.degree(IVID);
+        }
+        targets = new int[offsets[verticesCount]];
+        NeighborCursor cursor = adjacency.cursor();
+        int i = 0;
+        for (int IVID = 0; IVID < verticesCount; IVID++) {
+            cursor.reset(IVID);
+            while (cursor.next()) {
+                targets[i++] = cursor.neighbor();
+            }
+        }
+    }
+
+    /**
+     * Find if the alias tables are built
+     *
+     * @return True if weighted walks can be generated
+     */
+    boolean hasAliases() {
+        return aliases != null;
+    }
+
+    /**
+     * Build the alias table of every row with Vose's method. Edges without a
+     * positive weight are never drawn, unless no edge of the row has one and
+     * the row is drawn uniformly.
+     *
+     * @param adjacency The neighbor rows, in the same order as the copy
+     * @param edgeWeights The weight of every edge
+     */
+    void buildAliases(Adjacency adjacency, IntArray edgeWeights) {
+        float[] rowProbabilities = new float[targets.length];
+        int[] rowAliases = new int[targets.length];
+        int maxDegree = 0;
+        for (int IVID = 0; IVID < verticesCount; IVID++) {
+            maxDegree = Math.max(maxDegree, offsets[IVID + 1] - offsets[IVID]);
+        }
+        double[] scaled = new double[maxDegree];
+        int[] small = new int[maxDegree];
+        int[] large = new int[maxDegree];
+        NeighborCursor cursor = adjacency.cursor();
+        for (int IVID = 0; IVID < verticesCount; IVID++) {
+            int from = offsets[IVID];
+            int degree = offsets[IVID + 1] - from;
+            long total = 0;
+            int j = 0;
+            cursor.reset(IVID);
+            while (cursor.next()) {
+                int weight = Math.max(0, edgeWeights.get(cursor.edge()));
+                scaled[j++] = weight;
+                total += weight;
+            }
+            if (total == 0) {
+                Arrays.fill(scaled, 0, degree, 1);
+                total = degree;
+            }
+
+            int smallCount = 0;
+            int largeCount = 0;
+            for (j = 0; j < degree; j++) {
+                scaled[j] = scaled[j] * degree / total;
+                if (scaled[j] < 1) {
+                    small[smallCount++] = j;
+                } else {
+                    large[largeCount++] = j;
+                }
+            }
+            while (smallCount > 0 && largeCount > 0) {
+                int less = small[--smallCount];
+                int more = large[--largeCount];
+                rowProbabilities[from + less] = (float) scaled[less];
+                rowAliases[from + less] = from + more;
+                scaled[more] += scaled[less] - 1;
+                if (scaled[more] < 1) {
+                    small[smallCount++] = more;
+                } else {
+                    large[largeCount++] = more;
+                }
+            }
+            //What is left is 1 give or take the rounding
+            while (largeCount > 0) {
+                int more = large[--largeCount];
+                rowProbabilities[from + more] = 1;
+                rowAliases[from + more] = from + more;
+            }
+            while (smallCount > 0) {
+                int less = small[--smallCount];
+                rowProbabilities[from + less] = 1;
+                rowAliases[from + less] = from + less;
+            }
+        }
+        probabilities = rowProbabilities;
+        aliases = rowAliases;
+    }
+
+    /**
+     * Create the scratch space of a thread
+     *
+     * @param config The options of the walks
+     * @param consumer Receives the walks
+     * @return The scratch space
+     */
+    Scratch scratch(RandomWalkConfig config, WalkConsumer consumer) {
+        return new Scratch(config, consumer);
+    }
+
+    /**
+     * Get the number of neighbor entries of a vertex
+     *
+     * @param IVID The internal vertex ID
+     * @return The degree
+     */
+    int degree(int IVID) {
+        return offsets[IVID + 1] - offsets[IVID];
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * The walk buffer and the counters of one thread
+     */
+    final class Scratch {
+
+        private final WalkConsumer consumer;
+        private final long seed;
+        private final boolean weighted;
+        private final boolean secondOrder;
+        private final double returnBias;
+        private final double inOutBias;
+        private final double maxBias;
+        private final int[] walk;
+        private long state;
+        long walks;
+        long steps;
+
+        private Scratch(RandomWalkConfig config, WalkConsumer consumer) {
+            this.consumer = consumer;
+            seed = config.getSeed();
+            weighted = config.isWeighted();
+            secondOrder = config.isSecondOrder();
+            returnBias = 1 / config.getReturnParameter();
+            inOutBias = 1 / config.getInOutParameter();
+            maxBias = Math.max(1, Math.max(returnBias, inOutBias));
+            walk = new int[config.getWalkLength()];
+        }
+
+        /**
+         * Generate a walk and pass it to the consumer. The walk only depends
+         * on the seed, the start vertex and the round, not on the thread.
+         *
+         * @param IVID The internal vertex ID to start from, with edges
+         * @param round The number of the walk from this vertex
+         */
+        void walk(int IVID, int round) {
+            state = mix(seed + GOLDEN_GAMMA * ((long) round * verticesCount + IVID));
+            int length = 1;
+            int previous = -1;
+            int current = IVID;
+            walk[0] = externalIDs.get(IVID);
+            while (length < walk.length && offsets[current + 1] != offsets[current]) {
+                int next = move(current);
+                if (secondOrder && previous != -1) {
+                    while (nextDouble() * maxBias >= bias(previous, next)) {
+                        next = move(current);
+                    }
+                }
+                walk[length++] = externalIDs.get(next);
+                previous = current;
+                current = next;
+            }
+            walks++;
+            steps += length - 1;
+            consumer.accept(walk, length);
+        }
+
+        //Draw a neighbor of IVID, in proportion to the weights if weighted
+        private int move(int IVID) {
+            long random = nextLong();
+            int from = offsets[IVID];
+            int degree = offsets[IVID + 1] - from;
+            int i = from + (int) (((random >>> 32) * degree) >>> 32);
+            if (weighted && (random & ((1 << COIN_BITS) - 1)) * COIN_SCALE >= probabilities[i]) {
+                i = aliases[i];
+            }
+            return targets[i];
+        }
+
+        //The node2vec bias of moving to next after previous
+        private double bias(int previous, int next) {
+            if (next == previous) {
+                return returnBias;
+            }
+            if (Arrays.binarySearch(targets, offsets[previous], offsets[previous + 1], next) >= 0) {
+                return 1;
+            }
+            return inOutBias;
+        }
+
+        private long nextLong() {
+            state += GOLDEN_GAMMA;
+            return mix(state);
+        }
+
+        private double nextDouble() {
+            return (nextLong() >>> 11) * 0x1.0p-53;
+        }
+    }
+}
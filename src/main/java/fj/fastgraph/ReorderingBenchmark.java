@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2018 Frank Jennings
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fj.fastgraph;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Measures the effect of the vertex orderings on neighbor lookups and
+ * triangle counting. Run with the vertices file, the edges file and
+ * optionally the number of sampled vertices:
+ * <pre>
+ * java fj.fastgraph.ReorderingBenchmark vertices.txt edges.txt 10000
+ * </pre>
+ *
+ * @author Frank Jennings
+ */
+public class ReorderingBenchmark {
+
+    private static final int ROUNDS = 3;
+
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.err.println("Usage: ReorderingBenchmark <vertices file> <edges file> [samples]");
+            return;
+        }
+        File verticesFile = new File(args[0]);
+        File edgesFile = new File(args[1]);
+        int samples = args.length > 2 ? Integer.parseInt(args[2]) : 10000;
+
+        System.out.printf("%-8s %10s %14s %14s %14s %12s%n", "ordering", "load ms", "neighbors1 ms", "neighbors2 ms", "triangles ms", "triangles");
+        //Sampled once, from the vertex IDs in ascending order, which do not
+        //change with the ordering, so every ordering times the same vertices
+        int[] sampled;
+        try (FastGraph graph = new FastGraph(verticesFile, edgesFile)) {
+            sampled = sample(graph, samples);
+        }
+        for (VertexOrdering ordering : VertexOrdering.values()) {
+            long start = System.nanoTime();
+            try (FastGraph graph = new FastGraph(verticesFile, edgesFile, new FastGraphConfig().setVertexOrdering(ordering))) {
+                long loadNanos = System.nanoTime() - start;
+
+                long neighbors1 = Long.MAX_VALUE;
+                long neighbors2 = Long.MAX_VALUE;
+                long triangles = Long.MAX_VALUE;
+                int trianglesCount = 0;
+                for (int round = 0; round < ROUNDS; round++) {
+                    start = System.nanoTime();
+                    for (int VID : sampled) {
+                        graph.getNeighbors(VID, 1, false);
+                    }
+                    neighbors1 = Math.min(neighbors1, System.nanoTime() - start);
+
+                    start = System.nanoTime();
+                    for (int VID : sampled) {
+                        graph.getNeighbors(VID, 2, false);
+                    }
+                    neighbors2 = Math.min(neighbors2, System.nanoTime() - start);
+
+                    start = System.nanoTime();
+                    trianglesCount = graph.getTrianglesCount();
+                    triangles = Math.min(triangles, System.nanoTime() - start);
+                }
+
+                System.out.printf("%-8s %10d %14d %14d %14d %12d%n", ordering, loadNanos / 1000000,
+                        neighbors1 / 1000000, neighbors2 / 1000000, triangles / 1000000, trianglesCount);
+            }
+        }
+    }
+
+    /**
+     * Pick vertices at random, with a fixed seed, from the vertex IDs sorted
+     * by value
+     *
+     * @param graph The graph
+     * @param samples The number of vertices to pick
+     * @return The vertex IDs
+     */
+    private static int[] sample(FastGraph graph, int samples) {
+        Object[] ranked = graph.getRankByEdgesCount(-1).keySet().toArray();
+        int[] vertexIDs = new int[ranked.length];
+        for (int i = 0; i < ranked.length; i++) {
+            vertexIDs[i] = (int) ranked[i];
+        }
+        Arrays.sort(vertexIDs);
+        int[] sampled = new int[Math.min(samples, vertexIDs.length)];
+        Random random = new Random(42);
+        for (int i = 0; i < sampled.length; i++) {
+            sampled[i] = vertexIDs[random.nextInt(vertexIDs.length)];
+        }
+        return sampled;
+    }
+}
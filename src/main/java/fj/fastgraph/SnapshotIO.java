@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2018 Frank Jennings
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fj.fastgraph;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Helpers to read and write primitive arrays in snapshots
+ *
+ * @author Frank Jennings
+ */
+final class SnapshotIO {
+
+    static final int BUFFER_SIZE = 1 << 20;
+
+    private SnapshotIO() {
+    }
+
+    static void writeIntArray(DataOutputStream out, int[] array, int length) throws IOException {
+        for (int i = 0; i < length; i++) {
+            out.writeInt(array[i]);
+        }
+    }
+
+    static int[] readIntArray(DataInputStream in, int length) throws IOException {
+        int[] array = new int[length];
+        for (int i = 0; i < length; i++) {
+            array[i] = in.readInt();
+        }
+        return array;
+    }
+
+    static void writeIntArray(DataOutputStream out, IntArray array, int length) throws IOException {
+        for (int i = 0; i < length; i++) {
+            out.writeInt(array.get(i));
+        }
+    }
+
+    static IntArray readIntArray(DataInputStream in, int length, StorageMode mode) throws IOException {
+        IntArray array = IntArray.allocate(length, mode);
+        for (int i = 0; i < length; i++) {
+            array.set(i, in.readInt());
+        }
+        return array;
+    }
+
+    static void writeLongArray(DataOutputStream out, long[] array, int length) throws IOException {
+        for (int i = 0; i < length; i++) {
+            out.writeLong(array[i]);
+        }
+    }
+
+    static long[] readLongArray(DataInputStream in, int length) throws IOException {
+        long[] array = new long[length];
+        for (int i = 0; i < length; i++) {
+            array[i] = in.readLong();
+        }
+        return array;
+    }
+}
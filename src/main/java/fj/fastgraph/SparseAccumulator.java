@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2018 Frank Jennings
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fj.fastgraph;
+
+import java.util.Arrays;
+
+/**
+ * Sums scores by internal vertex ID over a few vertices of a large graph. The
+ * sums live in an array indexed by ID, and the IDs touched since the last
+ * clear are listed, so clearing and listing only cost the touched IDs.
+ * Reused from one query to the next by the same thread.
+ *
+ * @author Frank Jennings
+ */
+final class SparseAccumulator {
+
+    private final double[] sums;
+    //The sum of an ID is valid if its stamp is the current epoch
+    private final int[] stamps;
+    private int[] touched = new int[64];
+    private int size;
+    private int epoch = 1;
+
+    /**
+     * Create an accumulator for all the vertices
+     *
+     * @param verticesCount The number of vertices
+     */
+    SparseAccumulator(int verticesCount) {
+        sums = new double[verticesCount];
+        stamps = new int[verticesCount];
+    }
+
+    /**
+     * Forget all the sums and exclusions
+     */
+    void clear() {
+        size = 0;
+        if (++epoch == 0) {
+            Arrays.fill(stamps, 0);
+            epoch = 1;
+        }
+    }
+
+    /**
+     * Add to the sum of an ID, unless the ID is excluded
+     *
+     * @param IVID The internal vertex ID
+     * @param score The score to add
+     */
+    void add(int IVID, double score) {
+        if (stamps[IVID] != epoch) {
+            stamps[IVID] = epoch;
+            sums[IVID] = score;
+            if (size == touched.length) {
+                touched = Arrays.copyOf(touched, size << 1);
+            }
+            touched[size++] = IVID;
+        } else {
+            sums[IVID] += score;
+        }
+    }
+
+    /**
+     * Ignore what is added to an ID until the next clear
+     *
+     * @param IVID The internal vertex ID
+     */
+    void exclude(int IVID) {
+        //Not listed, or kept in the list with a sum that stays negative
+        stamps[IVID] = epoch;
+        sums[IVID] = Double.NEGATIVE_INFINITY;
+    }
+
+    /**
+     * Get the number of IDs touched since the last clear, excluded ones
+     * included
+     *
+     * @return The number of listed IDs
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Get a touched ID
+     *
+     * @param i The index in the touched IDs
+     * @return The internal vertex ID
+     */
+    int key(int i) {
+        return touched[i];
+    }
+
+    /**
+     * Get the sum of an ID
+     *
+     * @param IVID The internal vertex ID
+     * @return The sum, negative infinity if the ID is excluded
+     */
+    double get(int IVID) {
+        return stamps[IVID] == epoch ? sums[IVID] : 0;
+    }
+}
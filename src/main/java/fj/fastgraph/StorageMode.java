@@ -0,0 +1,36 @@
+/*
+ * Copyright (C) 2018 Frank Jennings
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fj.fastgraph;
+
+/**
+ * Where the vertex and edge arrays of a graph are kept
+ *
+ * @author Frank Jennings
+ */
+public enum StorageMode {
+
+    /**
+     * Plain int arrays on the Java heap
+     */
+    HEAP,
+    /**
+     * Direct memory outside the Java heap. The garbage collector only sees a
+     * few small buffer objects, whatever the size of the graph. The memory is
+     * released when the graph is closed.
+     */
+    OFF_HEAP
+}
@@ -0,0 +1,506 @@
+/*
+ * Copyright (C) 2018 Frank Jennings
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fj.fastgraph;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Splits a graph into strongly connected components. Each vertex is first
+ * labeled with a member of its component, either by an iterative Tarjan on
+ * one thread, or by the parallel steps: trimming the vertices that cannot be
+ * on a cycle, a forward-backward sweep from a pivot to peel the largest
+ * component, and coloring rounds for the rest.
+ *
+ * The labels are then numbered in topological order, so an edge between 2
+ * components always goes from the smaller ID to the larger one, whichever
+ * algorithm ran. In an undirected graph the components are the connected
+ * components.
+ *
+ * @author Frank Jennings
+ */
+final class StrongComponents {
+
+    private final Adjacency out;
+    private final Adjacency in;
+    private final int verticesCount;
+    //Component of every vertex by internal ID. A member of the component
+    //while labeling, -1 if not labeled yet.
+    private final int[] components;
+    private int count;
+    //Members of component c are members[offsets[c]] to
+    //members[offsets[c + 1] - 1], sorted by internal ID
+    private int[] offsets;
+    private int[] members;
+    //Largest ID reaching each unlabeled vertex in the coloring rounds
+    private int[] colors;
+
+    /**
+     * Prepare the split of a graph
+     *
+     * @param out The rows of the edges leaving each vertex
+     * @param in The rows of the edges reaching each vertex
+     * @param verticesCount The number of vertices
+     */
+    StrongComponents(Adjacency out, Adjacency in, int verticesCount) {
+        this.out = out;
+        this.in = in;
+        this.verticesCount = verticesCount;
+        components = new int[verticesCount];
+        Arrays.fill(components, -1);
+    }
+
+    /**
+     * Get the component of every vertex
+     *
+     * @return The component IDs, indexed by internal ID
+     */
+    int[] getComponents() {
+        return components;
+    }
+
+    /**
+     * Get the number of components
+     *
+     * @return The components count, valid once numbered
+     */
+    int getCount() {
+        return count;
+    }
+
+    /**
+     * Get the members of a component
+     *
+     * @param component The component ID
+     * @return The internal IDs of the members, sorted
+     */
+    int[] getMembers(int component) {
+        return Arrays.copyOfRange(members, offsets[component], offsets[component + 1]);
+    }
+
+    /**
+     * Label all the vertices with an iterative Tarjan. A frame resumes its
+     * row after a child returns by skipping past that child, as the rows are
+     * sorted.
+     */
+    void tarjan() {
+        int[] index = new int[verticesCount];
+        int[] low = new int[verticesCount];
+        //Members of the open components, and the vertices of the depth-first
+        //path with the neighbor each one resumes after
+        int[] stack = new int[16];
+        int stackSize = 0;
+        int[] path = new int[16];
+        int[] resume = new int[16];
+        boolean[] onStack = new boolean[verticesCount];
+        NeighborCursor cursor = out.cursor();
+        int nextIndex = 1;
+
+        for (int root = 0; root < verticesCount; root++) {
+            if (index[root] != 0) {
+                continue;
+            }
+            int depth = 0;
+            path[0] = root;
+            resume[0] = -1;
+            index[root] = low[root] = nextIndex++;
+            stack[stackSize++] = root;
+            onStack[root] = true;
+
+            while (depth >= 0) {
+                int IVID = path[depth];
+                cursor.reset(IVID);
+                boolean more = resume[depth] == -1 ? cursor.next() : cursor.skipPast(resume[depth]);
+                int child = -1;
+                for (; more; more = cursor.next()) {
+                    int neighbor = cursor.neighbor();
+                    if (index[neighbor] == 0) {
+                        child = neighbor;
+                        break;
+                    }
+                    if (onStack[neighbor] && index[neighbor] < low[IVID]) {
+                        low[IVID] = index[neighbor];
+                    }
+                }
+
+                if (child != -1) {
+                    resume[depth] = child;
+                    if (++depth == path.length) {
+                        path = Arrays.copyOf(path, depth << 1);
+                        resume = Arrays.copyOf(resume, depth << 1);
+                    }
+                    path[depth] = child;
+                    resume[depth] = -1;
+                    index[child] = low[child] = nextIndex++;
+                    if (stackSize == stack.length) {
+                        stack = Arrays.copyOf(stack, stackSize << 1);
+                    }
+                    stack[stackSize++] = child;
+                    onStack[child] = true;
+                    continue;
+                }
+
+                //Row done, close the component if IVID is its root
+                if (low[IVID] == index[IVID]) {
+                    int member;
+                    do {
+                        member = stack[--stackSize];
+                        onStack[member] = false;
+                        components[member] = IVID;
+                    } while (member != IVID);
+                }
+                depth--;
+                if (depth >= 0 && low[IVID] < low[path[depth]]) {
+                    low[path[depth]] = low[IVID];
+                }
+            }
+        }
+    }
+
+    /**
+     * Label every vertex with no unlabeled vertex before or after it as its
+     * own component, until none is left. Removes the trees and chains
+     * hanging off the cycles.
+     */
+    void trim() {
+        int[] inDegrees = new int[verticesCount];
+        int[] outDegrees = new int[verticesCount];
+        int[] queue = new int[verticesCount];
+        int head = 0;
+        int tail = 0;
+        for (int IVID = 0; IVID < verticesCount; IVID++) {
+            inDegrees[IVID] = in.degree(IVID);
+            outDegrees[IVID] = out.degree(IVID);
+            if (components[IVID] == -1 && (inDegrees[IVID] == 0 || outDegrees[IVID] == 0)) {
+                components[IVID] = IVID;
+                queue[tail++] = IVID;
+            }
+        }
+        NeighborCursor outCursor = out.cursor();
+        NeighborCursor inCursor = in.cursor();
+        while (head < tail) {
+            int IVID = queue[head++];
+            outCursor.reset(IVID);
+            while (outCursor.next()) {
+                int neighbor = outCursor.neighbor();
+                if (components[neighbor] == -1 && --inDegrees[neighbor] == 0) {
+                    components[neighbor] = neighbor;
+                    queue[tail++] = neighbor;
+                }
+            }
+            inCursor.reset(IVID);
+            while (inCursor.next()) {
+                int neighbor = inCursor.neighbor();
+                if (components[neighbor] == -1 && --outDegrees[neighbor] == 0) {
+                    components[neighbor] = neighbor;
+                    queue[tail++] = neighbor;
+                }
+            }
+        }
+    }
+
+    /**
+     * Label the component of the unlabeled vertex with the most edges in and
+     * out. The vertices reached from the pivot and reaching it are the
+     * component, and the backward sweep runs on the pool while the calling
+     * thread runs the forward one.
+     *
+     * @param executor The pool of the split
+     * @return False if the backward sweep failed or the thread was
+     * interrupted, in which case nothing is labeled
+     */
+    boolean sweep(ExecutorService executor) {
+        int pivot = -1;
+        long best = -1;
+        for (int IVID = 0; IVID < verticesCount; IVID++) {
+            if (components[IVID] == -1) {
+                long edges = (long) in.degree(IVID) * out.degree(IVID);
+                if (edges > best) {
+                    best = edges;
+                    pivot = IVID;
+                }
+            }
+        }
+        if (pivot == -1) {
+            return true;
+        }
+
+        boolean[] forward;
+        boolean[] backward;
+        int from = pivot;
+        try {
+            Future<boolean[]> reached = executor.submit(() -> reach(from, in));
+            forward = reach(from, out);
+            backward = reached.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException ex) {
+            Logger.getLogger(StrongComponents.class.getName()).log(Level.SEVERE, null, ex.getCause());
+            return false;
+        }
+        for (int IVID = 0; IVID < verticesCount; IVID++) {
+            if (forward[IVID] && backward[IVID]) {
+                components[IVID] = pivot;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Find the unlabeled vertices reachable from a vertex
+     *
+     * @param pivot The start vertex
+     * @param rows The rows to follow
+     * @return The reached vertices, by internal ID
+     */
+    private boolean[] reach(int pivot, Adjacency rows) {
+        boolean[] reached = new boolean[verticesCount];
+        int[] queue = new int[16];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = pivot;
+        reached[pivot] = true;
+        NeighborCursor cursor = rows.cursor();
+        while (head < tail) {
+            cursor.reset(queue[head++]);
+            while (cursor.next()) {
+                int neighbor = cursor.neighbor();
+                if (!reached[neighbor] && components[neighbor] == -1) {
+                    reached[neighbor] = true;
+                    if (tail == queue.length) {
+                        queue = Arrays.copyOf(queue, tail << 1);
+                    }
+                    queue[tail++] = neighbor;
+                }
+            }
+        }
+        return reached;
+    }
+
+    /**
+     * Create the scratch space of a coloring thread
+     *
+     * @return A cursor over the in rows and an empty queue
+     */
+    Scratch scratch() {
+        return new Scratch(in.cursor());
+    }
+
+    /**
+     * Find if some vertices are still unlabeled
+     *
+     * @return True if another coloring round is needed
+     */
+    boolean hasUnlabeled() {
+        for (int IVID = 0; IVID < verticesCount; IVID++) {
+            if (components[IVID] == -1) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Start a coloring round, every unlabeled vertex taking its own ID as
+     * color
+     */
+    void resetColors() {
+        if (colors == null) {
+            colors = new int[verticesCount];
+        }
+        for (int IVID = 0; IVID < verticesCount; IVID++) {
+            colors[IVID] = components[IVID] == -1 ? IVID : -1;
+        }
+    }
+
+    /**
+     * Pull the largest color of the unlabeled vertices before each vertex of
+     * a block. Each vertex only writes its own color, so blocks can run in
+     * parallel.
+     *
+     * @param scratch The scratch space of the thread
+     * @param from The first internal ID of the block
+     * @param to The internal ID after the block
+     * @return True if a color changed
+     */
+    boolean pullColors(Scratch scratch, int from, int to) {
+        NeighborCursor cursor = scratch.cursor;
+        boolean changed = false;
+        for (int IVID = from; IVID < to; IVID++) {
+            int color = colors[IVID];
+            if (color == -1) {
+                continue;
+            }
+            cursor.reset(IVID);
+            while (cursor.next()) {
+                int neighborColor = colors[cursor.neighbor()];
+                if (neighborColor > color) {
+                    color = neighborColor;
+                }
+            }
+            if (color != colors[IVID]) {
+                colors[IVID] = color;
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Label the components of the roots in a block once the colors are
+     * stable. A root keeps its own color, and its component is the vertices
+     * of that color reaching it. The colors split the vertices, so blocks can
+     * run in parallel.
+     *
+     * @param scratch The scratch space of the thread
+     * @param from The first internal ID of the block
+     * @param to The internal ID after the block
+     */
+    void labelRoots(Scratch scratch, int from, int to) {
+        NeighborCursor cursor = scratch.cursor;
+        int[] queue = scratch.queue;
+        for (int root = from; root < to; root++) {
+            if (colors[root] != root) {
+                continue;
+            }
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = root;
+            components[root] = root;
+            while (head < tail) {
+                cursor.reset(queue[head++]);
+                while (cursor.next()) {
+                    int neighbor = cursor.neighbor();
+                    if (colors[neighbor] == root && components[neighbor] == -1) {
+                        components[neighbor] = root;
+                        if (tail == queue.length) {
+                            queue = Arrays.copyOf(queue, tail << 1);
+                        }
+                        queue[tail++] = neighbor;
+                    }
+                }
+            }
+        }
+        scratch.queue = queue;
+    }
+
+    /**
+     * Replace the labels by component IDs in topological order. Components
+     * are first ranked by their smallest vertex, and the ones with no edge in
+     * are taken in that rank, so the IDs do not depend on the algorithm.
+     */
+    void number() {
+        //Rank of each label by its smallest vertex
+        int[] ranks = new int[verticesCount];
+        Arrays.fill(ranks, -1);
+        count = 0;
+        for (int IVID = 0; IVID < verticesCount; IVID++) {
+            int label = components[IVID];
+            if (ranks[label] == -1) {
+                ranks[label] = count++;
+            }
+        }
+        for (int IVID = 0; IVID < verticesCount; IVID++) {
+            components[IVID] = ranks[components[IVID]];
+        }
+
+        //Edges between components, grouped by source component
+        int[] edgeOffsets = new int[count + 1];
+        NeighborCursor cursor = out.cursor();
+        for (int IVID = 0; IVID < verticesCount; IVID++) {
+            cursor.reset(IVID);
+            while (cursor.next()) {
+                if (components[cursor.neighbor()] != components[IVID]) {
+                    edgeOffsets[components[IVID] + 1]++;
+                }
+            }
+        }
+        for (int c = 0; c < count; c++) {
+            edgeOffsets[c + 1] += edgeOffsets[c];
+        }
+        int[] targets = new int[edgeOffsets[count]];
+        int[] inDegrees = new int[count];
+        int[] positions = Arrays.copyOf(edgeOffsets, count);
+        for (int IVID = 0; IVID < verticesCount; IVID++) {
+            cursor.reset(IVID);
+            while (cursor.next()) {
+                int target = components[cursor.neighbor()];
+                if (target != components[IVID]) {
+                    targets[positions[components[IVID]]++] = target;
+                    inDegrees[target]++;
+                }
+            }
+        }
+
+        //Kahn, a FIFO of the components with no edge left in
+        int[] order = new int[count];
+        int head = 0;
+        int tail = 0;
+        for (int c = 0; c < count; c++) {
+            if (inDegrees[c] == 0) {
+                order[tail++] = c;
+            }
+        }
+        while (head < tail) {
+            int c = order[head++];
+            for (int i = edgeOffsets[c]; i < edgeOffsets[c + 1]; i++) {
+                if (--inDegrees[targets[i]] == 0) {
+                    order[tail++] = targets[i];
+                }
+            }
+        }
+        int[] topological = new int[count];
+        for (int i = 0; i < count; i++) {
+            topological[order[i]] = i;
+        }
+        for (int IVID = 0; IVID < verticesCount; IVID++) {
+            components[IVID] = topological[components[IVID]];
+        }
+
+        //Members grouped by component
+        offsets = new int[count + 1];
+        for (int IVID = 0; IVID < verticesCount; IVID++) {
+            offsets[components[IVID] + 1]++;
+        }
+        for (int c = 0; c < count; c++) {
+            offsets[c + 1] += offsets[c];
+        }
+        members = new int[verticesCount];
+        positions = Arrays.copyOf(offsets, count);
+        for (int IVID = 0; IVID < verticesCount; IVID++) {
+            members[positions[components[IVID]]++] = IVID;
+        }
+    }
+
+    /**
+     * The cursor and queue of a thread in the coloring rounds
+     */
+    static final class Scratch {
+
+        private final NeighborCursor cursor;
+        private int[] queue = new int[16];
+
+        private Scratch(NeighborCursor cursor) {
+            this.cursor = cursor;
+        }
+    }
+}
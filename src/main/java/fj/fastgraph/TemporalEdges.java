@@ -0,0 +1,449 @@
+/*
+ * Copyright (C) 2018 Frank Jennings
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fj.fastgraph;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * The timestamps of the edges. Every row of the edges file is kept as an
+ * event (edge, time, weight). The events are grouped by edge and sorted by
+ * time, with running sums of the weights, so the weight of an edge within a
+ * time window takes 2 binary searches. Every vertex also gets a row of its
+ * events sorted by time, holding the neighbor and the edge of each, out and
+ * in rows apart if directed. A window opens on a row with 2 binary searches
+ * and its cursor reads the events of the window only. Kept on the heap,
+ * about 24 bytes per event plus 16 bytes for every row holding it.
+ *
+ * @author Frank Jennings
+ */
+final class TemporalEdges {
+
+    private int eventsCount;
+    //Events in file order while loading, grouped by edge once built
+    private int[] eventEdges = new int[16];
+    private long[] eventTimes = new long[16];
+    private int[] eventWeights = new int[16];
+    //Events of edge e between edgeOffsets[e] and edgeOffsets[e + 1], null
+    //until the events are grouped. weightSums[i] sums the weights of the
+    //events before i.
+    private int[] edgeOffsets;
+    private long[] weightSums;
+    //The same rows twice if undirected
+    private Rows out;
+    private Rows in;
+
+    /**
+     * Add an event while loading
+     *
+     * @param edge The internal edge ID (EID - 1)
+     * @param time The timestamp of the row
+     * @param weight The weight of the row
+     */
+    void add(int edge, long time, int weight) {
+        if (eventsCount == eventEdges.length) {
+            int capacity = Math.max(16, eventsCount << 1);
+            eventEdges = Arrays.copyOf(eventEdges, capacity);
+            eventTimes = Arrays.copyOf(eventTimes, capacity);
+            eventWeights = Arrays.copyOf(eventWeights, capacity);
+        }
+        eventEdges[eventsCount] = edge;
+        eventTimes[eventsCount] = time;
+        eventWeights[eventsCount] = weight;
+        eventsCount++;
+        edgeOffsets = null;
+    }
+
+    /**
+     * Group the events by edge, once all are added, and build the rows of
+     * the vertices. Called again when the internal vertex IDs change.
+     *
+     * @param verticesCount The number of vertices
+     * @param sources The source of every edge, by internal edge ID
+     * @param targets The target of every edge, by internal edge ID
+     * @param edgesCount The number of edges
+     * @param directed True to keep the out and in rows apart
+     */
+    void build(int verticesCount, IntArray sources, IntArray targets, int edgesCount, boolean directed) {
+        int[] order = sortByTime(eventTimes, eventsCount);
+        if (edgeOffsets == null) {
+            int[] positions = group(order, edgesCount);
+            for (int i = 0; i < eventsCount; i++) {
+                order[i] = positions[order[i]];
+            }
+        }
+        if (directed) {
+            out = buildRows(verticesCount, order, sources, targets, false);
+            in = buildRows(verticesCount, order, targets, sources, false);
+        } else {
+            out = buildRows(verticesCount, order, sources, targets, true);
+            in = out;
+        }
+    }
+
+    /**
+     * Get the rows of a time window. An edge with several events in the
+     * window is returned once, by its first event in the window.
+     *
+     * @param direction The rows to read, ignored if undirected. BOTH reads
+     * the out row then the in row of a vertex.
+     * @param from The first time of the window
+     * @param to The last time of the window, included
+     * @return The rows of the window, in time order
+     */
+    NeighborRows window(Direction direction, long from, long to) {
+        if (in == out || direction == Direction.OUT) {
+            return new Window(out, null, from, to);
+        }
+        if (direction == Direction.IN) {
+            return new Window(in, null, from, to);
+        }
+        return new Window(out, in, from, to);
+    }
+
+    /**
+     * Sum the weights of an edge within a time window
+     *
+     * @param edge The internal edge ID (EID - 1)
+     * @param from The first time of the window
+     * @param to The last time of the window
+     * @return The sum of the weights of the events in the window, capped at
+     * Integer.MAX_VALUE
+     */
+    int weight(int edge, long from, long to) {
+        int low = firstAtOrAfter(eventTimes, edgeOffsets[edge], edgeOffsets[edge + 1], from);
+        int high = firstAfter(eventTimes, low, edgeOffsets[edge + 1], to);
+        return (int) Math.min(weightSums[high] - weightSums[low], Integer.MAX_VALUE);
+    }
+
+    /**
+     * Copy the events of an edge to another graph
+     *
+     * @param edge The internal edge ID (EID - 1)
+     * @param to The events of the other graph
+     * @param toEdge The internal edge ID in the other graph
+     */
+    void copyEvents(int edge, TemporalEdges to, int toEdge) {
+        for (int i = edgeOffsets[edge]; i < edgeOffsets[edge + 1]; i++) {
+            to.add(toEdge, eventTimes[i], eventWeights[i]);
+        }
+    }
+
+    /**
+     * Write the events to a snapshot
+     *
+     * @param out The snapshot stream
+     * @throws IOException If the events cannot be written
+     */
+    void write(DataOutputStream out) throws IOException {
+        out.writeInt(eventsCount);
+        SnapshotIO.writeIntArray(out, eventEdges, eventsCount);
+        SnapshotIO.writeLongArray(out, eventTimes, eventsCount);
+        SnapshotIO.writeIntArray(out, eventWeights, eventsCount);
+    }
+
+    /**
+     * Read events written by write. The rows are built by build.
+     *
+     * @param in The snapshot stream
+     * @return The events
+     * @throws IOException If the events cannot be read
+     */
+    static TemporalEdges read(DataInputStream in) throws IOException {
+        TemporalEdges events = new TemporalEdges();
+        events.eventsCount = in.readInt();
+        events.eventEdges = SnapshotIO.readIntArray(in, events.eventsCount);
+        events.eventTimes = SnapshotIO.readLongArray(in, events.eventsCount);
+        events.eventWeights = SnapshotIO.readIntArray(in, events.eventsCount);
+        return events;
+    }
+
+    /**
+     * Move the events to their edge, keeping them in time order
+     *
+     * @param order The events sorted by time
+     * @param edgesCount The number of edges
+     * @return The new position of every event
+     */
+    private int[] group(int[] order, int edgesCount) {
+        edgeOffsets = new int[edgesCount + 1];
+        for (int i = 0; i < eventsCount; i++) {
+            edgeOffsets[eventEdges[i] + 1]++;
+        }
+        for (int e = 0; e < edgesCount; e++) {
+            edgeOffsets[e + 1] += edgeOffsets[e];
+        }
+        int[] next = Arrays.copyOf(edgeOffsets, edgesCount);
+        int[] positions = new int[eventsCount];
+        int[] edges = new int[eventsCount];
+        long[] times = new long[eventsCount];
+        int[] weights = new int[eventsCount];
+        for (int event : order) {
+            int position = next[eventEdges[event]]++;
+            positions[event] = position;
+            edges[position] = eventEdges[event];
+            times[position] = eventTimes[event];
+            weights[position] = eventWeights[event];
+        }
+        eventEdges = edges;
+        eventTimes = times;
+        eventWeights = weights;
+        weightSums = new long[eventsCount + 1];
+        for (int i = 0; i < eventsCount; i++) {
+            weightSums[i + 1] = weightSums[i] + weights[i];
+        }
+        return positions;
+    }
+
+    /**
+     * Put every event in the rows of its vertices, in time order
+     *
+     * @param verticesCount The number of vertices
+     * @param order The grouped events sorted by time
+     * @param from The vertex owning the row, by internal edge ID
+     * @param to The neighbor in that row, by internal edge ID
+     * @param both True to put the event in the row of the neighbor too
+     * @return The rows
+     */
+    private Rows buildRows(int verticesCount, int[] order, IntArray from, IntArray to, boolean both) {
+        int[] offsets = new int[verticesCount + 1];
+        for (int i = 0; i < eventsCount; i++) {
+            int a = from.get(eventEdges[i]);
+            int b = to.get(eventEdges[i]);
+            offsets[a + 1]++;
+            if (both && a != b) {
+                offsets[b + 1]++;
+            }
+        }
+        for (int IVID = 0; IVID < verticesCount; IVID++) {
+            offsets[IVID + 1] += offsets[IVID];
+        }
+        int[] next = Arrays.copyOf(offsets, verticesCount);
+        int size = offsets[verticesCount];
+        Rows rows = new Rows(offsets, new long[size], new int[size], new int[size]);
+        for (int event : order) {
+            int a = from.get(eventEdges[event]);
+            int b = to.get(eventEdges[event]);
+            rows.set(next[a]++, eventTimes[event], b, event);
+            if (both && a != b) {
+                rows.set(next[b]++, eventTimes[event], a, event);
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Sort the events by time. Stable, so the events at the same time keep
+     * the order of the file.
+     *
+     * @param times The time of every event
+     * @param count The number of events
+     * @return The events in time order
+     */
+    private static int[] sortByTime(long[] times, int count) {
+        int[] order = new int[count];
+        boolean sorted = true;
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+            sorted &= i == 0 || times[i - 1] <= times[i];
+        }
+        //Logs are usually written in time order already
+        if (sorted) {
+            return order;
+        }
+        //Bottom-up merge sort
+        int[] buffer = new int[count];
+        for (int width = 1; width < count; width <<= 1) {
+            for (int low = 0; low < count; low += width << 1) {
+                int middle = Math.min(low + width, count);
+                int high = Math.min(low + (width << 1), count);
+                int i = low;
+                int j = middle;
+                int k = low;
+                while (i < middle && j < high) {
+                    buffer[k++] = times[order[j]] < times[order[i]] ? order[j++] : order[i++];
+                }
+                while (i < middle) {
+                    buffer[k++] = order[i++];
+                }
+                while (j < high) {
+                    buffer[k++] = order[j++];
+                }
+            }
+            int[] swap = order;
+            order = buffer;
+            buffer = swap;
+        }
+        return order;
+    }
+
+    //First index in [low, high) with a time of at least time, or high
+    private static int firstAtOrAfter(long[] times, int low, int high, long time) {
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (times[mid] < time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    //First index in [low, high) with a time greater than time, or high
+    private static int firstAfter(long[] times, int low, int high, long time) {
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (times[mid] <= time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * The events of every vertex sorted by time, with the neighbor and the
+     * grouped position of each event
+     */
+    private static final class Rows {
+
+        private final int[] offsets;
+        private final long[] times;
+        private final int[] neighbors;
+        private final int[] events;
+
+        private Rows(int[] offsets, long[] times, int[] neighbors, int[] events) {
+            this.offsets = offsets;
+            this.times = times;
+            this.neighbors = neighbors;
+            this.events = events;
+        }
+
+        private void set(int position, long time, int neighbor, int event) {
+            times[position] = time;
+            neighbors[position] = neighbor;
+            events[position] = event;
+        }
+    }
+
+    /**
+     * The rows of a time window, one or 2 rows per vertex
+     */
+    private final class Window implements NeighborRows {
+
+        private final Rows first;
+        //The in rows read after the out rows, or null
+        private final Rows second;
+        private final long from;
+        private final long to;
+
+        private Window(Rows first, Rows second, long from, long to) {
+            this.first = first;
+            this.second = second;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public int degree(int IVID) {
+            int degree = count(first, IVID);
+            return second == null ? degree : degree + count(second, IVID);
+        }
+
+        @Override
+        public NeighborCursor cursor() {
+            return new Cursor();
+        }
+
+        //Number of events of a row in the window
+        private int count(Rows rows, int IVID) {
+            int low = firstAtOrAfter(rows.times, rows.offsets[IVID], rows.offsets[IVID + 1], from);
+            return firstAfter(rows.times, low, rows.offsets[IVID + 1], to) - low;
+        }
+
+        /**
+         * Reads the events of the window in a row, then in the second row if
+         * any. The bounds of each row come from 2 binary searches.
+         */
+        private final class Cursor implements NeighborCursor {
+
+            private Rows rows;
+            private int position;
+            private int end;
+            private int vertex;
+            private int neighbor;
+            private int edge;
+
+            @Override
+            public void reset(int IVID) {
+                vertex = IVID;
+                open(first);
+            }
+
+            @Override
+            public boolean next() {
+                while (true) {
+                    while (position < end) {
+                        int event = rows.events[position];
+                        int current = rows.neighbors[position++];
+                        int e = eventEdges[event];
+                        //The first event of the edge within the window
+                        if (event == edgeOffsets[e] || eventTimes[event - 1] < from) {
+                            neighbor = current;
+                            edge = e;
+                            return true;
+                        }
+                    }
+                    if (rows != first || second == null) {
+                        return false;
+                    }
+                    open(second);
+                }
+            }
+
+            @Override
+            public boolean skipPast(int IVID) {
+                while (next()) {
+                    if (neighbor > IVID) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+
+            @Override
+            public int neighbor() {
+                return neighbor;
+            }
+
+            @Override
+            public int edge() {
+                return edge;
+            }
+
+            private void open(Rows rows) {
+                this.rows = rows;
+                position = firstAtOrAfter(rows.times, rows.offsets[vertex], rows.offsets[vertex + 1], from);
+                end = firstAfter(rows.times, position, rows.offsets[vertex + 1], to);
+            }
+        }
+    }
+}
@@ -0,0 +1,432 @@
+/*
+ * Copyright (C) 2018 Frank Jennings
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fj.fastgraph;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Converts a text file to a graph in a single pass. Every distinct token
+ * becomes a vertex, numbered from 1 in the order it is first seen, and every
+ * token is linked to the first token of its line, the root. A line is split
+ * on commas if it has one, on spaces otherwise, after removing the double
+ * quotes.
+ *
+ * With a window of k tokens, every pair of distinct tokens less than k apart
+ * on a line is linked instead, and the edges are weighted by the number of
+ * times the pair co-occurs. The counts are kept in a primitive hash map and
+ * spilled to disk as sorted runs when they exceed the memory budget.
+ *
+ * The input is read in large chunks that are tokenized in parallel, each
+ * with its own token dictionary. The chunks are then merged into the global
+ * dictionary in file order, so the vertex IDs are the same as with a
+ * sequential read. Only the dictionary and the chunks in flight are held in
+ * memory when writing text files.
+ *
+ * @author Frank Jennings
+ */
+public class TextGraphConverter {
+
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int chunkSize = 16 << 20;
+    private int window = 0;
+    private long memoryBudget = Runtime.getRuntime().maxMemory() / 4;
+    private File temporaryDirectory = null;
+
+    /**
+     * Set the number of threads tokenizing the input
+     *
+     * @param threads The number of threads
+     * @return This converter
+     */
+    public TextGraphConverter setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+        return this;
+    }
+
+    /**
+     * Set the number of bytes read and tokenized at a time. Lines longer
+     * than a chunk are read whole.
+     *
+     * @param chunkSize The chunk size in bytes
+     * @return This converter
+     */
+    public TextGraphConverter setChunkSize(int chunkSize) {
+        this.chunkSize = Math.max(1024, chunkSize);
+        return this;
+    }
+
+    /**
+     * Link every pair of tokens co-occurring within a window of k tokens on
+     * a line, weighted by the number of co-occurrences. A window below 2
+     * links every token to the first token of its line.
+     *
+     * @param window The window size in tokens
+     * @return This converter
+     */
+    public TextGraphConverter setWindow(int window) {
+        this.window = window;
+        return this;
+    }
+
+    /**
+     * Set the memory used to count the co-occurring pairs before they are
+     * spilled to disk
+     *
+     * @param memoryBudget The budget in bytes
+     * @return This converter
+     */
+    public TextGraphConverter setMemoryBudget(long memoryBudget) {
+        this.memoryBudget = Math.max(1 << 20, memoryBudget);
+        return this;
+    }
+
+    /**
+     * Set where the spilled pairs are written
+     *
+     * @param temporaryDirectory The directory, or null for the default
+     * temporary directory
+     * @return This converter
+     */
+    public TextGraphConverter setTemporaryDirectory(File temporaryDirectory) {
+        this.temporaryDirectory = temporaryDirectory;
+        return this;
+    }
+
+    /**
+     * Convert a text file to FastGraph vertices and edges files
+     *
+     * @param inputTextFile File containing the lines of text to tokenize
+     * @param outputVerticesFile A file containing comma-separated list of
+     * vertices ID and vertices name. This will be generated.
+     * @param outputEdgesFile A file containing comma-separated list of two
+     * vertices ID, followed by the edge weight when a window is set. This
+     * will be generated.
+     */
+    public void convert(File inputTextFile, File outputVerticesFile, File outputEdgesFile) {
+        try (Writer verticesWriter = newWriter(outputVerticesFile);
+                Writer edgesWriter = newWriter(outputEdgesFile)) {
+            convert(inputTextFile, new Sink() {
+                @Override
+                public void vertex(int VID, String token) throws IOException {
+                    verticesWriter.write(VID + ", " + token + "\r\n");
+                }
+
+                @Override
+                public void edge(int VID1, int VID2, int weight) throws IOException {
+                    if (isWindowed()) {
+                        edgesWriter.write(VID1 + ", " + VID2 + ", " + weight + "\r\n");
+                    } else {
+                        edgesWriter.write(VID1 + ", " + VID2 + "\r\n");
+                    }
+                }
+            });
+        } catch (IOException ex) {
+            Logger.getLogger(TextGraphConverter.class.getName()).log(Level.SEVERE, null, ex);
+        }
+    }
+
+    /**
+     * Convert a text file straight to a FastGraph snapshot, without writing
+     * the vertices and edges files. In a directed graph the edges go from
+     * the root of each line to its other tokens. The co-occurrence counts of
+     * a window have no direction, and the text has no timestamps or property
+     * columns, so a config asking for them is refused.
+     *
+     * @param inputTextFile File containing the lines of text to tokenize
+     * @param snapshotFile The snapshot to write
+     * @param config The options used to build the graph
+     * @throws IllegalArgumentException If the config is directed while a
+     * window is set, or asks for edge timestamps or properties
+     */
+    public void convertToSnapshot(File inputTextFile, File snapshotFile, FastGraphConfig config) {
+        if (config.isDirected() && isWindowed()) {
+            throw new IllegalArgumentException("The co-occurrences of a window have no direction");
+        }
+        if (config.isEdgeTimestamps()) {
+            throw new IllegalArgumentException("The text has no edge timestamps");
+        }
+        if (!config.getVertexProperties().isEmpty() || !config.getEdgeProperties().isEmpty()) {
+            throw new IllegalArgumentException("The text has no property columns");
+        }
+        FastGraph graph = new FastGraph(config.isDirected());
+        try {
+            convert(inputTextFile, new Sink() {
+                @Override
+                public void vertex(int VID, String token) {
+                    graph.addVertex(VID, FastGraph.cleanName(token));
+                }
+
+                @Override
+                public void edge(int VID1, int VID2, int weight) {
+                    graph.addEdge(VID1, VID2, weight);
+                }
+            });
+        } catch (IOException ex) {
+            Logger.getLogger(TextGraphConverter.class.getName()).log(Level.SEVERE, null, ex);
+            return;
+        }
+        graph.finishLoading(config);
+        graph.saveSnapshot(snapshotFile);
+        graph.close();
+    }
+
+    private void convert(File inputTextFile, Sink sink) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try (FileChannel channel = FileChannel.open(inputTextFile.toPath(), StandardOpenOption.READ);
+                EdgeRuns runs = new EdgeRuns(temporaryDirectory)) {
+            HashMap<String, Integer> dictionary = new HashMap<>();
+            LongIntHashMap counts = isWindowed() ? new LongIntHashMap() : null;
+            int chunkWindow = window;
+            ArrayDeque<Future<Chunk>> pending = new ArrayDeque<>();
+            ByteBuffer buffer = ByteBuffer.allocate(chunkSize);
+            boolean endOfInput = false;
+            while (!endOfInput) {
+                endOfInput = channel.read(buffer) == -1;
+                if (!endOfInput && buffer.hasRemaining()) {
+                    continue;
+                }
+                //Cut the chunk after the last complete line
+                int end = buffer.position();
+                if (!endOfInput) {
+                    while (end > 0 && buffer.get(end - 1) != '\n') {
+                        end--;
+                    }
+                    if (end == 0) {
+                        //A single line longer than the buffer
+                        buffer = grow(buffer);
+                        continue;
+                    }
+                }
+                byte[] bytes = Arrays.copyOf(buffer.array(), end);
+                pending.add(executor.submit(() -> Chunk.tokenize(bytes, chunkWindow)));
+                buffer.limit(buffer.position());
+                buffer.position(end);
+                buffer.compact();
+
+                while (pending.size() > threads || (endOfInput && !pending.isEmpty())) {
+                    merge(pending.poll().get(), dictionary, counts, sink);
+                    if (counts != null && (long) counts.size() * LongIntHashMap.BYTES_PER_ENTRY > memoryBudget) {
+                        runs.spill(counts);
+                    }
+                }
+            }
+            if (counts != null) {
+                if (runs.getRunsCount() > 0) {
+                    Logger.getLogger(TextGraphConverter.class.getName()).log(Level.INFO, "TextGraphConverter: Merging {0} spilled runs", runs.getRunsCount());
+                }
+                runs.merge(counts, sink::edge);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException(ex);
+        } catch (ExecutionException ex) {
+            throw new IOException(ex.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private boolean isWindowed() {
+        return window >= 2;
+    }
+
+    /**
+     * Give the tokens of a chunk their global IDs, in the order they were
+     * first seen, and emit the new vertices and the edges. Co-occurring
+     * pairs are added to the counts instead of being emitted.
+     */
+    private static void merge(Chunk chunk, HashMap<String, Integer> dictionary, LongIntHashMap counts, Sink sink) throws IOException {
+        int[] VIDs = new int[chunk.tokens.size()];
+        for (int i = 0; i < VIDs.length; i++) {
+            String token = chunk.tokens.get(i);
+            Integer VID = dictionary.get(token);
+            if (VID == null) {
+                VID = dictionary.size() + 1;
+                dictionary.put(token, VID);
+                sink.vertex(VID, token);
+            }
+            VIDs[i] = VID;
+        }
+        for (int e = 0; e < chunk.edgesCount; e++) {
+            sink.edge(VIDs[chunk.edges[e << 1]], VIDs[chunk.edges[(e << 1) + 1]], 1);
+        }
+        for (int p = 0; p < chunk.pairKeys.length; p++) {
+            long key = chunk.pairKeys[p];
+            counts.addTo(EdgeIndex.pack(VIDs[(int) (key >>> 32)], VIDs[(int) key]), chunk.pairWeights[p]);
+        }
+    }
+
+    private static ByteBuffer grow(ByteBuffer buffer) {
+        if (buffer.capacity() > Integer.MAX_VALUE / 2) {
+            throw new IllegalStateException("Line longer than 1 GB");
+        }
+        ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() << 1);
+        buffer.flip();
+        larger.put(buffer);
+        return larger;
+    }
+
+    private static Writer newWriter(File file) throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+
+    /**
+     * Receives the vertices and edges in file order
+     */
+    private interface Sink {
+
+        void vertex(int VID, String token) throws IOException;
+
+        void edge(int VID1, int VID2, int weight) throws IOException;
+    }
+
+    /**
+     * The tokens of a chunk, numbered in the order they are first seen in
+     * the chunk, and its edges as pairs of those numbers. Co-occurring pairs
+     * are counted in the chunk and kept as packed keys with their weights.
+     */
+    private static final class Chunk {
+
+        private final ArrayList<String> tokens = new ArrayList<>();
+        private final HashMap<String, Integer> localIDs = new HashMap<>();
+        private final int window;
+        private int[] edges = new int[1024];
+        private int edgesCount;
+        private int[] line = new int[64];
+        private LongIntHashMap pairs;
+        private long[] pairKeys = new long[0];
+        private int[] pairWeights = new int[0];
+
+        private Chunk(int window) {
+            this.window = window;
+            if (window >= 2) {
+                pairs = new LongIntHashMap();
+            }
+        }
+
+        static Chunk tokenize(byte[] bytes, int window) {
+            Chunk chunk = new Chunk(window);
+            String text = new String(bytes, StandardCharsets.UTF_8);
+            int start = 0;
+            while (start < text.length()) {
+                int end = text.indexOf('\n', start);
+                if (end == -1) {
+                    end = text.length();
+                }
+                int lineEnd = end > start && text.charAt(end - 1) == '\r' ? end - 1 : end;
+                chunk.addLine(text, start, lineEnd);
+                start = end + 1;
+            }
+            chunk.localIDs.clear();
+            if (chunk.pairs != null) {
+                chunk.pairKeys = chunk.pairs.sortedKeys();
+                chunk.pairWeights = new int[chunk.pairKeys.length];
+                for (int p = 0; p < chunk.pairKeys.length; p++) {
+                    chunk.pairWeights[p] = chunk.pairs.get(chunk.pairKeys[p]);
+                }
+                chunk.pairs = null;
+            }
+            return chunk;
+        }
+
+        private void addLine(String text, int start, int end) {
+            char delimiter = ' ';
+            for (int i = start; i < end; i++) {
+                if (text.charAt(i) == ',') {
+                    delimiter = ',';
+                    break;
+                }
+            }
+            StringBuilder token = new StringBuilder();
+            int lineLength = 0;
+            boolean inToken = false;
+            for (int i = start; i <= end; i++) {
+                char c = i < end ? text.charAt(i) : delimiter;
+                if (c == '"') {
+                    continue;
+                }
+                if (c != delimiter) {
+                    token.append(c);
+                    inToken = true;
+                } else if (inToken) {
+                    if (lineLength == line.length) {
+                        line = Arrays.copyOf(line, lineLength << 1);
+                    }
+                    line[lineLength++] = localID(token.toString().trim());
+                    token.setLength(0);
+                    inToken = false;
+                }
+            }
+
+            if (pairs == null) {
+                //Link every token to the root
+                for (int i = 1; i < lineLength; i++) {
+                    addEdge(line[0], line[i]);
+                }
+                return;
+            }
+            for (int i = 0; i < lineLength; i++) {
+                int last = Math.min(lineLength, i + window);
+                for (int j = i + 1; j < last; j++) {
+                    if (line[i] != line[j]) {
+                        pairs.addTo(EdgeIndex.pack(line[i], line[j]), 1);
+                    }
+                }
+            }
+        }
+
+        private int localID(String token) {
+            Integer localID = localIDs.get(token);
+            if (localID == null) {
+                localID = tokens.size();
+                localIDs.put(token, localID);
+                tokens.add(token);
+            }
+            return localID;
+        }
+
+        private void addEdge(int localID1, int localID2) {
+            if ((edgesCount << 1) == edges.length) {
+                edges = Arrays.copyOf(edges, edges.length << 1);
+            }
+            edges[edgesCount << 1] = localID1;
+            edges[(edgesCount << 1) + 1] = localID2;
+            edgesCount++;
+        }
+    }
+}
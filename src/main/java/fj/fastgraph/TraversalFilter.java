@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2018 Frank Jennings
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fj.fastgraph;
+
+/**
+ * Decides which vertices and edges a traversal may follow. The tests run
+ * inside the expansion loop, on internal IDs, before a neighbor is recorded
+ * or queued, so what is filtered out is never explored.
+ *
+ * @author Frank Jennings
+ */
+interface TraversalFilter {
+
+    //Follows everything
+    TraversalFilter NONE = new TraversalFilter() {
+        @Override
+        public boolean acceptVertex(int IVID) {
+            return true;
+        }
+
+        @Override
+        public boolean acceptEdge(int from, int to, int edge) {
+            return true;
+        }
+
+        @Override
+        public boolean hasEdgeTest() {
+            return false;
+        }
+    };
+
+    /**
+     * May the traversal go through a vertex?
+     *
+     * @param IVID The internal vertex ID
+     * @return True to follow the vertex
+     */
+    boolean acceptVertex(int IVID);
+
+    /**
+     * May the traversal follow an edge?
+     *
+     * @param from The internal ID of the vertex the edge is followed from
+     * @param to The internal ID of the vertex the edge leads to
+     * @param edge The internal edge ID (EID - 1)
+     * @return True to follow the edge
+     */
+    boolean acceptEdge(int from, int to, int edge);
+
+    /**
+     * Does acceptEdge test anything? The test runs for every neighbor entry,
+     * so it is skipped when nothing is tested.
+     *
+     * @return True if some edges may be rejected
+     */
+    boolean hasEdgeTest();
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2018 Frank Jennings
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fj.fastgraph;
+
+/**
+ * The order in which internal vertex IDs are assigned at load time. Vertices
+ * that are close in the graph and share internal IDs that are close together
+ * keep their rows close in memory, which reduces cache misses in traversals
+ * and triangle counting.
+ *
+ * @author Frank Jennings
+ */
+public enum VertexOrdering {
+
+    /**
+     * Keep the order in which the vertices appear in the input files
+     */
+    NONE,
+    /**
+     * Highest degree first, so the rows of the hub vertices are packed
+     * together
+     */
+    DEGREE,
+    /**
+     * Reverse Cuthill-McKee. A breadth-first order starting from a low degree
+     * vertex of every component, which keeps neighbors close together.
+     */
+    RCM,
+    /**
+     * A greedy Gorder-style ordering. Vertices are placed next to the ones
+     * they share most neighbors with inside a small sliding window.
+     */
+    GORDER
+}
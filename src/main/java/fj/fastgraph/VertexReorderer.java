@@ -0,0 +1,217 @@
+/*
+ * Copyright (C) 2018 Frank Jennings
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fj.fastgraph;
+
+import java.util.Arrays;
+
+/**
+ * Computes vertex permutations for the orderings in VertexOrdering from the
+ * neighbor rows of a graph.
+ *
+ * @author Frank Jennings
+ */
+final class VertexReorderer {
+
+    //Width of the sliding window used by the Gorder-style ordering
+    private static final int GORDER_WINDOW = 5;
+
+    private VertexReorderer() {
+    }
+
+    /**
+     * Compute the new internal ID of every vertex
+     *
+     * @param ordering The ordering to apply
+     * @param adjacency The neighbor rows
+     * @return An array mapping every current internal ID to its new ID
+     */
+    static int[] computePermutation(VertexOrdering ordering, Adjacency adjacency) {
+        int verticesCount = adjacency.getVerticesCount();
+        int[] order;
+        switch (ordering) {
+            case DEGREE:
+                order = degreeOrder(adjacency);
+                break;
+            case RCM:
+                order = reverseCuthillMcKee(adjacency);
+                break;
+            case GORDER:
+                order = gorder(adjacency);
+                break;
+            default:
+                order = new int[verticesCount];
+                for (int v = 0; v < verticesCount; v++) {
+                    order[v] = v;
+                }
+        }
+        //order lists the old IDs in their new positions, invert it
+        int[] permutation = new int[verticesCount];
+        for (int i = 0; i < verticesCount; i++) {
+            permutation[order[i]] = i;
+        }
+        return permutation;
+    }
+
+    /**
+     * Sort the vertices by descending degree, ties keep their current order
+     */
+    private static int[] degreeOrder(Adjacency adjacency) {
+        int verticesCount = adjacency.getVerticesCount();
+        long[] keys = new long[verticesCount];
+        for (int v = 0; v < verticesCount; v++) {
+            int degree = adjacency.degree(v);
+            keys[v] = ((long) (Integer.MAX_VALUE - degree) << 32) | v;
+        }
+        Arrays.sort(keys);
+        int[] order = new int[verticesCount];
+        for (int i = 0; i < verticesCount; i++) {
+            order[i] = (int) keys[i];
+        }
+        return order;
+    }
+
+    /**
+     * Breadth-first from the lowest degree vertex of each component, visiting
+     * the neighbors by ascending degree, and reverse the result
+     */
+    private static int[] reverseCuthillMcKee(Adjacency adjacency) {
+        int verticesCount = adjacency.getVerticesCount();
+        int[] byDegree = degreeOrder(adjacency);
+        NeighborCursor cursor = adjacency.cursor();
+        int[] order = new int[verticesCount];
+        boolean[] placed = new boolean[verticesCount];
+        long[] scratch = new long[16];
+        int size = 0;
+
+        //byDegree is descending, so start components from its tail
+        for (int s = verticesCount - 1; s >= 0; s--) {
+            int root = byDegree[s];
+            if (placed[root]) {
+                continue;
+            }
+            placed[root] = true;
+            int head = size;
+            order[size++] = root;
+            while (head < size) {
+                int v = order[head++];
+                int count = 0;
+                cursor.reset(v);
+                while (cursor.next()) {
+                    int u = cursor.neighbor();
+                    if (!placed[u]) {
+                        placed[u] = true;
+                        if (count == scratch.length) {
+                            scratch = Arrays.copyOf(scratch, count << 1);
+                        }
+                        scratch[count++] = ((long) adjacency.degree(u) << 32) | u;
+                    }
+                }
+                Arrays.sort(scratch, 0, count);
+                for (int i = 0; i < count; i++) {
+                    order[size++] = (int) scratch[i];
+                }
+            }
+        }
+
+        for (int i = 0, j = verticesCount - 1; i < j; i++, j--) {
+            int swap = order[i];
+            order[i] = order[j];
+            order[j] = swap;
+        }
+        return order;
+    }
+
+    /**
+     * Greedy Gorder-style placement. The next vertex is the one with the
+     * highest score against the last GORDER_WINDOW placed vertices, where a
+     * vertex scores one point for being a neighbor and one point for every
+     * shared neighbor. Shared neighbors are only counted through vertices of
+     * bounded degree so that hubs do not make every step quadratic.
+     */
+    private static int[] gorder(Adjacency adjacency) {
+        int verticesCount = adjacency.getVerticesCount();
+        int[] byDegree = degreeOrder(adjacency);
+        NeighborCursor outer = adjacency.cursor();
+        NeighborCursor inner = adjacency.cursor();
+        int hubDegree = Math.max(16, (int) Math.sqrt(verticesCount));
+        int[] order = new int[verticesCount];
+        int[] scores = new int[verticesCount];
+        boolean[] placed = new boolean[verticesCount];
+        LongMaxHeap heap = new LongMaxHeap();
+        int nextByDegree = 0;
+
+        for (int i = 0; i < verticesCount; i++) {
+            int v = -1;
+            while (!heap.isEmpty()) {
+                long top = heap.pop();
+                int u = (int) top;
+                if (placed[u]) {
+                    continue;
+                }
+                int score = (int) (top >>> 32);
+                if (score == scores[u]) {
+                    v = u;
+                    break;
+                }
+                //Stale after a window decrement, retry with the current score
+                if (scores[u] > 0) {
+                    heap.push(((long) scores[u] << 32) | u);
+                }
+            }
+            if (v == -1) {
+                //Nothing related to the window, continue with the next hub
+                while (placed[byDegree[nextByDegree]]) {
+                    nextByDegree++;
+                }
+                v = byDegree[nextByDegree];
+            }
+            placed[v] = true;
+            order[i] = v;
+
+            updateScores(v, 1, adjacency, outer, inner, scores, placed, heap, hubDegree);
+            if (i >= GORDER_WINDOW) {
+                updateScores(order[i - GORDER_WINDOW], -1, adjacency, outer, inner, scores, placed, heap, hubDegree);
+            }
+        }
+        return order;
+    }
+
+    private static void updateScores(int v, int delta, Adjacency adjacency, NeighborCursor outer, NeighborCursor inner, int[] scores, boolean[] placed, LongMaxHeap heap, int hubDegree) {
+        outer.reset(v);
+        while (outer.next()) {
+            int u = outer.neighbor();
+            adjustScore(u, delta, scores, placed, heap);
+            if (adjacency.degree(u) > hubDegree) {
+                continue;
+            }
+            inner.reset(u);
+            while (inner.next()) {
+                adjustScore(inner.neighbor(), delta, scores, placed, heap);
+            }
+        }
+    }
+
+    private static void adjustScore(int u, int delta, int[] scores, boolean[] placed, LongMaxHeap heap) {
+        if (placed[u]) {
+            return;
+        }
+        scores[u] += delta;
+        if (delta > 0) {
+            heap.push(((long) scores[u] << 32) | u);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright (C) 2018 Frank Jennings
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fj.fastgraph;
+
+/**
+ * A callback receiving the random walks of FastGraph.generateRandomWalks.
+ * The walks are generated in parallel, so the consumer is called by several
+ * threads at once.
+ *
+ * @author Frank Jennings
+ */
+@FunctionalInterface
+public interface WalkConsumer {
+
+    /**
+     * Accept a walk. The array is reused for the next walk of the same
+     * thread, copy it to keep it.
+     *
+     * @param walk The vertex IDs of the walk, starting with the vertex it
+     * starts from
+     * @param length The number of vertices in the walk
+     */
+    void accept(int[] walk, int length);
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2018 Frank Jennings
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fj.fastgraph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Walks greedy trails through a graph. At every hop the walk moves to the
+ * best scored neighbor it has not visited yet, preferring the top tenth of
+ * the hot spots when they are computed. The walk ends after the given number
+ * of hops or when every neighbor was visited. Ties go to the neighbor with
+ * the smallest internal ID, so walks are repeatable.
+ *
+ * Create an engine with FastGraph.createWalkEngine. An engine can be shared
+ * by several threads. Every thread keeps its own cursor and visited stamps,
+ * which are reused from one walk to the next, so a walk only allocates its
+ * result.
+ *
+ * @author Frank Jennings
+ */
+public class WalkEngine {
+
+    private final Adjacency adjacency;
+    private final IntArray externalIDs;
+    private final IntArray edgeWeights;
+    private final IntUnaryOperator toInternal;
+    private final int verticesCount;
+    //Score of every vertex, null if the edges or a custom scorer are scored
+    private final double[] vertexScores;
+    //Custom scorer, null for the built-in scorings
+    private final WalkScorer scorer;
+    //The preferred hot spots as a bitset, null if they are not computed
+    private final long[] hotSpots;
+    private volatile boolean preferHotSpots = true;
+    private final ThreadLocal<Scratch> scratches = ThreadLocal.withInitial(Scratch::new);
+
+    WalkEngine(Adjacency adjacency, IntArray externalIDs, IntArray edgeWeights, IntUnaryOperator toInternal, int verticesCount, double[] vertexScores, WalkScorer scorer, long[] hotSpots) {
+        this.adjacency = adjacency;
+        this.externalIDs = externalIDs;
+        this.edgeWeights = edgeWeights;
+        this.toInternal = toInternal;
+        this.verticesCount = verticesCount;
+        this.vertexScores = vertexScores;
+        this.scorer = scorer;
+        this.hotSpots = hotSpots;
+    }
+
+    /**
+     * Should the walks move to hot spots before other neighbors? True by
+     * default. Has no effect if the hot spots were not computed when the
+     * engine was created.
+     *
+     * @param preferHotSpots Prefer the hot spots
+     * @return This engine
+     */
+    public WalkEngine setPreferHotSpots(boolean preferHotSpots) {
+        this.preferHotSpots = preferHotSpots;
+        return this;
+    }
+
+    /**
+     * Walk from a vertex
+     *
+     * @param VID The vertex ID to start from
+     * @param depth The maximum number of hops
+     * @return The vertex IDs of the walk, without the start vertex. Empty if
+     * the vertex is not in the graph.
+     */
+    public ArrayList<Integer> walk(int VID, int depth) {
+        ArrayList<Integer> trail = new ArrayList<>();
+        int IVID = toInternal.applyAsInt(VID);
+        if (IVID == -1) {
+            return trail;
+        }
+        Scratch scratch = scratches.get();
+        int walk = scratch.nextWalk();
+        int[] visited = scratch.visited;
+        NeighborCursor cursor = scratch.cursor;
+        long[] hot = preferHotSpots ? hotSpots : null;
+
+        visited[IVID] = walk;
+        int SVID = IVID;
+        for (int i = 0; i < depth; i++) {
+            int best = -1;
+            boolean bestHot = false;
+            double bestScore = 0;
+            cursor.reset(SVID);
+            while (cursor.next()) {
+                int neighbor = cursor.neighbor();
+                if (visited[neighbor] == walk) {
+                    continue;
+                }
+                boolean isHot = hot != null && (hot[neighbor >>> 6] & (1L << neighbor)) != 0;
+                if (bestHot && !isHot) {
+                    continue;
+                }
+                double score = score(SVID, neighbor, cursor.edge());
+                if (best == -1 || (isHot && !bestHot) || score > bestScore) {
+                    best = neighbor;
+                    bestHot = isHot;
+                    bestScore = score;
+                }
+            }
+            if (best == -1) {
+                //Dead end
+                break;
+            }
+            visited[best] = walk;
+            trail.add(externalIDs.get(best));
+            SVID = best;
+        }
+        return trail;
+    }
+
+    private double score(int IVID, int neighbor, int edge) {
+        if (vertexScores != null) {
+            return vertexScores[neighbor];
+        }
+        if (scorer == null) {
+            return edgeWeights.get(edge);
+        }
+        return scorer.score(externalIDs.get(IVID), externalIDs.get(neighbor), edgeWeights.get(edge));
+    }
+
+    /**
+     * The cursor and the visited stamps of one thread. A vertex is visited
+     * by the current walk if its stamp is the number of the walk.
+     */
+    private final class Scratch {
+
+        private final NeighborCursor cursor = adjacency.cursor();
+        private final int[] visited = new int[verticesCount];
+        private int walk;
+
+        int nextWalk() {
+            if (++walk == 0) {
+                Arrays.fill(visited, 0);
+                walk = 1;
+            }
+            return walk;
+        }
+    }
+}
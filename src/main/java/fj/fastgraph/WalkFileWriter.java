@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2018 Frank Jennings
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fj.fastgraph;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+
+/**
+ * Writes random walks to a file as big-endian ints: the length of a walk
+ * followed by its vertex IDs. Every thread fills its own buffer and only
+ * takes the lock of the file to write it out when it is full.
+ *
+ * @author Frank Jennings
+ */
+final class WalkFileWriter implements WalkConsumer, Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final FileChannel channel;
+    private final int bufferSize;
+    private final ArrayList<ByteBuffer> buffers = new ArrayList<>();
+    private final ThreadLocal<ByteBuffer> buffer;
+
+    /**
+     * Create the file
+     *
+     * @param walksFile The file to write
+     * @param walkLength The maximum number of vertices in a walk
+     * @throws IOException If the file cannot be created
+     */
+    WalkFileWriter(File walksFile, int walkLength) throws IOException {
+        channel = new FileOutputStream(walksFile).getChannel();
+        bufferSize = Math.max(BUFFER_SIZE, (walkLength + 1) * 4);
+        buffer = ThreadLocal.withInitial(() -> {
+            ByteBuffer threadBuffer = ByteBuffer.allocate(bufferSize);
+            synchronized (buffers) {
+                buffers.add(threadBuffer);
+            }
+            return threadBuffer;
+        });
+    }
+
+    @Override
+    public void accept(int[] walk, int length) {
+        ByteBuffer threadBuffer = buffer.get();
+        if (threadBuffer.remaining() < (length + 1) * 4) {
+            flush(threadBuffer);
+        }
+        threadBuffer.putInt(length);
+        for (int i = 0; i < length; i++) {
+            threadBuffer.putInt(walk[i]);
+        }
+    }
+
+    private void flush(ByteBuffer threadBuffer) {
+        threadBuffer.flip();
+        try {
+            synchronized (channel) {
+                while (threadBuffer.hasRemaining()) {
+                    channel.write(threadBuffer);
+                }
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        threadBuffer.clear();
+    }
+
+    /**
+     * Write what is left in the buffers of all the threads and close the
+     * file. Must be called once no thread writes any more.
+     *
+     * @throws IOException If the walks cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            synchronized (buffers) {
+                for (ByteBuffer threadBuffer : buffers) {
+                    flush(threadBuffer);
+                }
+            }
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        } finally {
+            channel.close();
+        }
+    }
+}
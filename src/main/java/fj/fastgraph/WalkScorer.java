@@ -0,0 +1,38 @@
+/*
+ * Copyright (C) 2018 Frank Jennings
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fj.fastgraph;
+
+/**
+ * Scores a move of a WalkEngine from a vertex to one of its neighbors.
+ * Higher scores are preferred. Called for every neighbor of every vertex a
+ * walk goes through, possibly from several threads at once.
+ *
+ * @author Frank Jennings
+ */
+@FunctionalInterface
+public interface WalkScorer {
+
+    /**
+     * Score a move
+     *
+     * @param VID The vertex the walk is at
+     * @param neighborVID The neighbor the walk could move to
+     * @param weight The weight of the edge between them
+     * @return The score of the move
+     */
+    double score(int VID, int neighborVID, int weight);
+}
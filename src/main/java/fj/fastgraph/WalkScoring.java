@@ -0,0 +1,44 @@
+/*
+ * Copyright (C) 2018 Frank Jennings
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package fj.fastgraph;
+
+/**
+ * How a WalkEngine scores the neighbors it can move to. Higher scores are
+ * preferred.
+ *
+ * @author Frank Jennings
+ */
+public enum WalkScoring {
+
+    /**
+     * The number of triangles the neighbor belongs to. The hot spots are
+     * computed if they are not available yet.
+     */
+    TRIANGLES,
+    /**
+     * The number of neighbors of the neighbor
+     */
+    DEGREE,
+    /**
+     * The PageRank of the neighbor, computed on the first use
+     */
+    PAGERANK,
+    /**
+     * The weight of the edge to the neighbor
+     */
+    EDGE_WEIGHT
+}